@@ -0,0 +1,131 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Benchmark iteration over the different DBIDs implementations, and data store
+ * access during iteration.
+ * 
+ * @author Erich Schubert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DBIDIterationBenchmark {
+  /**
+   * Number of ids.
+   */
+  @Param({ "1000", "100000" })
+  int size;
+
+  /**
+   * DBIDs implementation.
+   */
+  @Param({ "range", "array", "hashset" })
+  String type;
+
+  /**
+   * DBIDs to iterate.
+   */
+  DBIDs ids;
+
+  /**
+   * Data store to read during iteration.
+   */
+  WritableDoubleDataStore store;
+
+  @Setup
+  public void setup() {
+    DBIDRange range = DBIDUtil.generateStaticDBIDRange(size);
+    switch(type){
+    case "range":
+      ids = range;
+      break;
+    case "array":
+      ids = DBIDUtil.newArray(range);
+      break;
+    case "hashset":
+      ids = DBIDUtil.newHashSet(range);
+      break;
+    default:
+      throw new AbortException("Unknown DBIDs type: " + type);
+    }
+    // Array store if the ids are a range, hash map otherwise.
+    store = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT, 1.);
+  }
+
+  /**
+   * Iterate and convert to integers.
+   * 
+   * @return Checksum
+   */
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      sum += DBIDUtil.asInteger(iter);
+    }
+    return sum;
+  }
+
+  /**
+   * Iterate and read a data store.
+   * 
+   * @return Checksum
+   */
+  @Benchmark
+  public double iterateStore() {
+    double sum = 0.;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      sum += store.doubleValue(iter);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,143 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.CosineDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.LPNormDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.ManhattanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.MaximumDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Benchmark the distance functions on dense vectors.
+ * 
+ * @author Erich Schubert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceFunctionBenchmark {
+  /**
+   * Number of vectors, a power of two.
+   */
+  private static final int NUM = 1024;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "16", "128" })
+  int dim;
+
+  /**
+   * Distance function.
+   */
+  @Param({ "euclidean", "squaredeuclidean", "manhattan", "maximum", "lp3", "cosine" })
+  String distance;
+
+  /**
+   * Vector type.
+   */
+  @Param({ "double", "float" })
+  String type;
+
+  /**
+   * Data vectors.
+   */
+  NumberVector[] vecs;
+
+  /**
+   * Distance function.
+   */
+  PrimitiveDistanceFunction<? super NumberVector> df;
+
+  @Setup
+  public void setup() {
+    double[][] data = SyntheticData.gaussianClusters(NUM, dim, 10, SyntheticData.SEED);
+    vecs = new NumberVector[NUM];
+    for(int i = 0; i < NUM; i++) {
+      vecs[i] = "float".equals(type) ? FloatVector.FACTORY.newNumberVector(data[i]) : new DoubleVector(data[i]);
+    }
+    switch(distance){
+    case "euclidean":
+      df = EuclideanDistanceFunction.STATIC;
+      break;
+    case "squaredeuclidean":
+      df = SquaredEuclideanDistanceFunction.STATIC;
+      break;
+    case "manhattan":
+      df = ManhattanDistanceFunction.STATIC;
+      break;
+    case "maximum":
+      df = MaximumDistanceFunction.STATIC;
+      break;
+    case "lp3":
+      df = new LPNormDistanceFunction(3.);
+      break;
+    case "cosine":
+      df = CosineDistanceFunction.STATIC;
+      break;
+    default:
+      throw new AbortException("Unknown distance: " + distance);
+    }
+  }
+
+  /**
+   * Compute distances of consecutive vectors.
+   * 
+   * @return Distance sum
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM)
+  public double distance() {
+    double sum = 0.;
+    for(int i = 0; i < NUM; i++) {
+      sum += df.distance(vecs[i], vecs[(i + 1) & (NUM - 1)]);
+    }
+    return sum;
+  }
+}
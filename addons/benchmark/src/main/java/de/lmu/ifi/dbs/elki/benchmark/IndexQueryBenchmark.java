@@ -0,0 +1,164 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+
+/**
+ * Benchmark kNN and range queries, with and without index structures.
+ * 
+ * @author Erich Schubert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class IndexQueryBenchmark {
+  /**
+   * Number of queries per invocation.
+   */
+  private static final int QUERIES = 100;
+
+  /**
+   * Index to use.
+   */
+  @Param({ "linear", "rstar", "mtree", "kdtree" })
+  String index;
+
+  /**
+   * Data set size.
+   */
+  @Param({ "10000", "100000" })
+  int size;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "8", "32" })
+  int dim;
+
+  /**
+   * Number of neighbors.
+   */
+  @Param({ "10" })
+  int k;
+
+  /**
+   * Query objects.
+   */
+  DoubleVector[] queries;
+
+  /**
+   * kNN query.
+   */
+  KNNQuery<DoubleVector> knnq;
+
+  /**
+   * Range query.
+   */
+  RangeQuery<DoubleVector> rangeq;
+
+  /**
+   * Query radius, chosen to return about k objects.
+   */
+  double radius;
+
+  @Setup
+  public void setup() {
+    double[][] data = SyntheticData.gaussianClusters(size, dim, 10, SyntheticData.SEED);
+    Database db = SyntheticData.makeDatabase(data, index);
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> dq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    knnq = db.getKNNQuery(dq, k);
+    rangeq = db.getRangeQuery(dq);
+    // Queries: perturbed data points.
+    Random rnd = new Random(SyntheticData.SEED + 1);
+    queries = new DoubleVector[QUERIES];
+    double rsum = 0.;
+    for(int i = 0; i < QUERIES; i++) {
+      double[] q = data[rnd.nextInt(size)].clone();
+      for(int d = 0; d < dim; d++) {
+        q[d] += rnd.nextGaussian() * .01;
+      }
+      queries[i] = new DoubleVector(q);
+      rsum += knnq.getKNNForObject(queries[i], k).getKNNDistance();
+    }
+    radius = rsum / QUERIES;
+  }
+
+  /**
+   * kNN queries.
+   * 
+   * @return Checksum
+   */
+  @Benchmark
+  @OperationsPerInvocation(QUERIES)
+  public int knnQuery() {
+    int sum = 0;
+    for(DoubleVector q : queries) {
+      sum += knnq.getKNNForObject(q, k).size();
+    }
+    return sum;
+  }
+
+  /**
+   * Range queries.
+   * 
+   * @return Checksum
+   */
+  @Benchmark
+  @OperationsPerInvocation(QUERIES)
+  public int rangeQuery() {
+    int sum = 0;
+    for(DoubleVector q : queries) {
+      sum += rangeq.getRangeForObject(q, radius).size();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,139 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeans;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansElkan;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansHamerly;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansLloyd;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.RandomlyChosenInitialMeans;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel.ParallelLloydKMeans;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.KMeansModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.math.random.RandomFactory;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Benchmark k-means variants, with a fixed number of iterations and a fixed
+ * initialization.
+ * 
+ * @author Erich Schubert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KMeansBenchmark {
+  /**
+   * Data set size.
+   */
+  @Param({ "10000", "100000" })
+  int size;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "16" })
+  int dim;
+
+  /**
+   * Number of clusters.
+   */
+  @Param({ "10" })
+  int k;
+
+  /**
+   * Number of iterations.
+   */
+  @Param({ "10" })
+  int maxiter;
+
+  /**
+   * k-means variant.
+   */
+  @Param({ "lloyd", "elkan", "hamerly", "parallel" })
+  String variant;
+
+  /**
+   * Database.
+   */
+  Database db;
+
+  /**
+   * Algorithm.
+   */
+  KMeans<DoubleVector, KMeansModel> kmeans;
+
+  @Setup
+  public void setup() {
+    db = SyntheticData.makeDatabase(SyntheticData.gaussianClusters(size, dim, k, SyntheticData.SEED), "linear");
+    RandomlyChosenInitialMeans<DoubleVector> init = new RandomlyChosenInitialMeans<>(new RandomFactory(SyntheticData.SEED));
+    SquaredEuclideanDistanceFunction df = SquaredEuclideanDistanceFunction.STATIC;
+    switch(variant){
+    case "lloyd":
+      kmeans = new KMeansLloyd<>(df, k, maxiter, init);
+      break;
+    case "elkan":
+      kmeans = new KMeansElkan<>(df, k, maxiter, init);
+      break;
+    case "hamerly":
+      kmeans = new KMeansHamerly<>(df, k, maxiter, init);
+      break;
+    case "parallel":
+      kmeans = new ParallelLloydKMeans<>(df, k, maxiter, init);
+      break;
+    default:
+      throw new AbortException("Unknown k-means variant: " + variant);
+    }
+  }
+
+  /**
+   * Run k-means.
+   * 
+   * @return Clustering
+   */
+  @Benchmark
+  public Clustering<KMeansModel> kmeans() {
+    return kmeans.run(db);
+  }
+}
@@ -0,0 +1,153 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMaxHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleMaxHeap;
+
+/**
+ * Benchmark top-k selection with the kNN heap and the primitive heaps, as used
+ * in linear scans: a stream of candidate distances is offered to a bounded
+ * heap.
+ * 
+ * @author Erich Schubert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KNNHeapBenchmark {
+  /**
+   * Number of candidates.
+   */
+  @Param({ "1000", "100000" })
+  int size;
+
+  /**
+   * Heap size.
+   */
+  @Param({ "10", "100" })
+  int k;
+
+  /**
+   * Candidate distances.
+   */
+  double[] dists;
+
+  /**
+   * Candidate ids.
+   */
+  DBIDRange ids;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(SyntheticData.SEED);
+    dists = new double[size];
+    for(int i = 0; i < size; i++) {
+      dists[i] = rnd.nextDouble();
+    }
+    ids = DBIDUtil.generateStaticDBIDRange(size);
+  }
+
+  /**
+   * kNN heap, as returned by {@link DBIDUtil#newHeap(int)}.
+   * 
+   * @return kNN list
+   */
+  @Benchmark
+  public KNNList knnHeap() {
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    double max = Double.POSITIVE_INFINITY;
+    DBIDArrayIter it = ids.iter();
+    for(int i = 0; i < size; i++, it.advance()) {
+      final double d = dists[i];
+      if(d <= max) {
+        max = heap.insert(d, it);
+      }
+    }
+    return heap.toKNNList();
+  }
+
+  /**
+   * Primitive double max heap, distances only.
+   * 
+   * @return k-distance
+   */
+  @Benchmark
+  public double doubleMaxHeap() {
+    DoubleMaxHeap heap = new DoubleMaxHeap(k);
+    for(int i = 0; i < size; i++) {
+      final double d = dists[i];
+      if(heap.size() < k) {
+        heap.add(d);
+      }
+      else if(d < heap.peek()) {
+        heap.replaceTopElement(d);
+      }
+    }
+    return heap.peek();
+  }
+
+  /**
+   * Primitive double-integer max heap, distances and offsets.
+   * 
+   * @return k-distance
+   */
+  @Benchmark
+  public double doubleIntegerMaxHeap() {
+    DoubleIntegerMaxHeap heap = new DoubleIntegerMaxHeap(k);
+    for(int i = 0; i < size; i++) {
+      final double d = dists[i];
+      if(heap.size() < k) {
+        heap.add(d, i);
+      }
+      else if(d < heap.peekKey()) {
+        heap.replaceTopElement(d, i);
+      }
+    }
+    return heap.peekKey();
+  }
+}
@@ -0,0 +1,132 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
+import de.lmu.ifi.dbs.elki.datasource.parser.ParallelNumberVectorLabelParser;
+
+/**
+ * Benchmark parsing of numerical CSV data with labels.
+ * 
+ * @author Erich Schubert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+  /**
+   * Number of rows.
+   */
+  @Param({ "10000", "100000" })
+  int size;
+
+  /**
+   * Number of numerical columns.
+   */
+  @Param({ "4", "32" })
+  int dim;
+
+  /**
+   * CSV data, in memory.
+   */
+  byte[] csv;
+
+  /**
+   * CSV data, as temporary file.
+   */
+  File file;
+
+  @Setup
+  public void setup() throws IOException {
+    double[][] data = SyntheticData.gaussianClusters(size, dim, 10, SyntheticData.SEED);
+    StringBuilder buf = new StringBuilder();
+    for(int i = 0; i < size; i++) {
+      for(double v : data[i]) {
+        buf.append(v).append(',');
+      }
+      buf.append("label").append(i % 10).append('\n');
+    }
+    csv = buf.toString().getBytes(StandardCharsets.UTF_8);
+    file = File.createTempFile("elki-benchmark", ".csv");
+    file.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(csv);
+    }
+  }
+
+  @TearDown
+  public void teardown() {
+    file.delete();
+  }
+
+  /**
+   * Streaming parser, from memory.
+   * 
+   * @return Bundle
+   */
+  @Benchmark
+  public MultipleObjectsBundle streamingParser() {
+    return new NumberVectorLabelParser<>(DoubleVector.FACTORY).parse(new ByteArrayInputStream(csv));
+  }
+
+  /**
+   * Parallel parser, from a memory mapped file.
+   * 
+   * @return Bundle
+   * @throws IOException on file errors
+   */
+  @Benchmark
+  public MultipleObjectsBundle parallelParser() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      return new ParallelNumberVectorLabelParser<>(DoubleVector.FACTORY).parse(channel);
+    }
+  }
+}
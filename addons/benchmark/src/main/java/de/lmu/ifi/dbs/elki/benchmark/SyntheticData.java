@@ -0,0 +1,120 @@
+package de.lmu.ifi.dbs.elki.benchmark;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.database.AbstractDatabase;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.mtree.MTreeFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.kd.MinimalisticMemoryKDTree;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.persistent.AbstractPageFileFactory;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Synthetic data for the benchmarks: Gaussian clusters with random centers in
+ * the unit cube, generated with a fixed seed so that all runs (and all ELKI
+ * versions) use the same data.
+ * 
+ * @author Erich Schubert
+ */
+public final class SyntheticData {
+  /**
+   * Fixed random seed.
+   */
+  public static final long SEED = 0L;
+
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private SyntheticData() {
+    // Do not instantiate.
+  }
+
+  /**
+   * Generate Gaussian clusters.
+   * 
+   * @param size Number of points
+   * @param dim Dimensionality
+   * @param clusters Number of clusters
+   * @param seed Random seed
+   * @return Data
+   */
+  public static double[][] gaussianClusters(int size, int dim, int clusters, long seed) {
+    Random rnd = new Random(seed);
+    double[][] centers = new double[clusters][dim];
+    for(double[] c : centers) {
+      for(int d = 0; d < dim; d++) {
+        c[d] = rnd.nextDouble();
+      }
+    }
+    double[][] data = new double[size][dim];
+    for(int i = 0; i < size; i++) {
+      final double[] c = centers[rnd.nextInt(clusters)], v = data[i];
+      for(int d = 0; d < dim; d++) {
+        v[d] = c[d] + rnd.nextGaussian() * .05;
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Build a static database, optionally with an index.
+   * 
+   * @param data Data
+   * @param index Index name: "linear" (none), "rstar", "mtree", "kdtree"
+   * @return Initialized database
+   */
+  public static Database makeDatabase(double[][] data, String index) {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(AbstractDatabase.Parameterizer.DATABASE_CONNECTION_ID, new ArrayAdapterDatabaseConnection(data));
+    // Pages of about 32 entries.
+    final int pagesize = Math.max(1024, data[0].length * 8 * 2 * 32);
+    switch(index){
+    case "linear":
+      break;
+    case "rstar":
+      params.addParameter(AbstractDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+      params.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, pagesize);
+      break;
+    case "mtree":
+      params.addParameter(AbstractDatabase.Parameterizer.INDEX_ID, MTreeFactory.class);
+      params.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, pagesize);
+      break;
+    case "kdtree":
+      params.addParameter(AbstractDatabase.Parameterizer.INDEX_ID, MinimalisticMemoryKDTree.Factory.class);
+      break;
+    default:
+      throw new AbortException("Unknown index: " + index);
+    }
+    Database db = ClassGenericsUtil.parameterizeOrAbort(StaticArrayDatabase.class, params);
+    db.initialize();
+    return db;
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ * <p>JMH micro benchmarks for the performance critical parts of ELKI.</p>
+ * 
+ * <p>The benchmarks use synthetic data, generated with a fixed seed, and are
+ * parameterized over data set size and dimensionality. Build with the
+ * {@code benchmark} profile, then run the resulting jar:</p>
+ * 
+ * <pre>
+ * mvn -P benchmark package
+ * java -jar addons/benchmark/target/benchmarks.jar [regexp] [JMH options]
+ * </pre>
+ * 
+ * <p>To compare two ELKI versions, run both with the same JMH options and
+ * parameters, e.g. {@code -rf json -rff results.json}, and compare the
+ * scores.</p>
+ */
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.benchmark;
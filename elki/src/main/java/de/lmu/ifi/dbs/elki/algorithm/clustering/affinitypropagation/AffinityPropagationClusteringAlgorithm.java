@@ -204,6 +204,17 @@ public class AffinityPropagationClusteringAlgorithm<O> extends AbstractAlgorithm
       aprog.setProcessed(aprog.getTotal(), LOG);
     }
     LOG.setCompleted(prog);
+    return buildClustering(ids, assignment);
+  }
+
+  /**
+   * Build the clustering result from the exemplar assignment.
+   * 
+   * @param ids Object IDs
+   * @param assignment Exemplar offset of each object
+   * @return Clustering result
+   */
+  static Clustering<MedoidModel> buildClustering(ArrayDBIDs ids, int[] assignment) {
     // Cluster map, by lead object
     TIntObjectHashMap<ModifiableDBIDs> map = new TIntObjectHashMap<>();
     DBIDArrayIter i1 = ids.iter();
@@ -0,0 +1,546 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.affinitypropagation;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.model.MedoidModel;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.progress.MutableProgress;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.QuickSelect;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+
+/**
+ * Affinity propagation on a sparse k-nearest-neighbor similarity graph.
+ * 
+ * Instead of the full similarity matrix, each object only considers its k
+ * nearest neighbors (and itself) as exemplars, using the negative distance as
+ * similarity. Similarities, responsibilities and availabilities are stored in
+ * primitive arrays with one entry per edge, i.e. O(n k) memory instead of
+ * O(n²). The neighbor search benefits from indexes, and the message updates are
+ * computed in parallel per row (responsibilities) and per column
+ * (availabilities).
+ * 
+ * Reference:
+ * <p>
+ * Clustering by Passing Messages Between Data Points<br />
+ * B. J. Frey and D. Dueck<br />
+ * Science Vol 315
+ * </p>
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses ParallelCore
+ * 
+ * @param <O> object type
+ */
+@Title("Affinity Propagation: Clustering by Passing Messages Between Data Points")
+@Reference(title = "Clustering by Passing Messages Between Data Points", authors = "B. J. Frey and D. Dueck", booktitle = "Science Vol 315", url = "http://dx.doi.org/10.1126/science.1136800")
+public class SparseAffinityPropagation<O> extends AbstractDistanceBasedAlgorithm<O, Clustering<MedoidModel>> implements ClusteringAlgorithm<Clustering<MedoidModel>> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(SparseAffinityPropagation.class);
+
+  /**
+   * Number of similarities to sample for the preference quantile.
+   */
+  private static final int QUANTILE_SAMPLE = 1 << 20;
+
+  /**
+   * Number of neighbors to use.
+   */
+  int k;
+
+  /**
+   * Quantile of the similarities to use for the diagonal.
+   */
+  double quantile;
+
+  /**
+   * Damping factor lambda.
+   */
+  double lambda = 0.5;
+
+  /**
+   * Terminate after 10 iterations with no changes.
+   */
+  int convergence = 10;
+
+  /**
+   * Maximum number of iterations.
+   */
+  int maxiter = 1000;
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   * @param k Number of neighbors
+   * @param quantile Quantile for the diagonal (preference)
+   * @param lambda Damping factor
+   * @param convergence Termination threshold (Number of stable iterations)
+   * @param maxiter Maximum number of iterations
+   */
+  public SparseAffinityPropagation(DistanceFunction<? super O> distanceFunction, int k, double quantile, double lambda, int convergence, int maxiter) {
+    super(distanceFunction);
+    this.k = k;
+    this.quantile = quantile;
+    this.lambda = lambda;
+    this.convergence = convergence;
+    this.maxiter = maxiter;
+  }
+
+  /**
+   * Perform affinity propagation clustering.
+   * 
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering result
+   */
+  public Clustering<MedoidModel> run(Database db, Relation<O> relation) {
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    final int size = ids.size();
+    // Row width: the object itself, and its neighbors.
+    final int width = Math.min(k, size - 1) + 1;
+    DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
+    final KNNQuery<O> knnq = db.getKNNQuery(dq, width);
+
+    final WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      offsets.putInt(it, it.getOffset());
+    }
+
+    // Edge arrays, row-major. The first entry in each row is the diagonal.
+    if((long) size * width > Integer.MAX_VALUE) {
+      throw new AbortException("kNN graph too large for sparse affinity propagation: " + size + " x " + width);
+    }
+    final int numedges = size * width;
+    final int[] col = new int[numedges];
+    final double[] s = new double[numedges];
+    final double[] r = new double[numedges];
+    final double[] a = new double[numedges];
+
+    ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      // Build the similarity graph.
+      ParallelExecutor.run(ids, new RowProcessor(offsets) {
+        @Override
+        protected int process(DBIDRef id, int i) {
+          fillRow(i, knnq.getKNNForDBID(id, width), offsets, width, col, s);
+          return 0;
+        }
+      });
+      // Preference: quantile of the similarities.
+      final double pref = estimateQuantile(s, size, width, quantile);
+      for(int i = 0; i < numedges; i += width) {
+        s[i] = pref;
+      }
+      // Column index, for the availability updates.
+      final int[] colstart = new int[size + 1];
+      for(int e = 0; e < numedges; e++) {
+        ++colstart[col[e] + 1];
+      }
+      for(int i = 0; i < size; i++) {
+        colstart[i + 1] += colstart[i];
+      }
+      final int[] coledges = new int[numedges];
+      {
+        int[] pos = new int[size];
+        System.arraycopy(colstart, 0, pos, 0, size);
+        for(int e = 0; e < numedges; e++) {
+          coledges[pos[col[e]]++] = e;
+        }
+      }
+
+      final int[] assignment = new int[size];
+      IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("Affinity Propagation Iteration", LOG) : null;
+      MutableProgress aprog = LOG.isVerbose() ? new MutableProgress("Stable assignments", size + 1, LOG) : null;
+      int inactive = 0;
+      for(int iteration = 0; iteration < maxiter && inactive < convergence; iteration++) {
+        // Update responsibilities, per row:
+        ParallelExecutor.run(ids, new RowProcessor(offsets) {
+          @Override
+          protected int process(DBIDRef id, int i) {
+            updateResponsibilities(i * width, (i + 1) * width, s, a, r);
+            return 0;
+          }
+        });
+        // Update availabilities, per column:
+        ParallelExecutor.run(ids, new RowProcessor(offsets) {
+          @Override
+          protected int process(DBIDRef id, int j) {
+            updateAvailabilities(colstart[j], colstart[j + 1], coledges, width, r, a);
+            return 0;
+          }
+        });
+        // Update the assignment
+        RowProcessor assign = new RowProcessor(offsets) {
+          @Override
+          protected int process(DBIDRef id, int i) {
+            double max = Double.NEGATIVE_INFINITY;
+            int maxj = -1;
+            for(int e = i * width, end = e + width; e < end; e++) {
+              final double v = a[e] + r[e];
+              // Prefer the diagonal, which comes first, on ties.
+              if(v > max || maxj < 0) {
+                max = v;
+                maxj = col[e];
+              }
+            }
+            if(assignment[i] != maxj) {
+              assignment[i] = maxj;
+              return 1;
+            }
+            return 0;
+          }
+        };
+        ParallelExecutor.run(ids, assign);
+        final int changed = assign.getChanged();
+        inactive = (changed > 0) ? 0 : (inactive + 1);
+        LOG.incrementProcessed(prog);
+        if(aprog != null) {
+          aprog.setProcessed(size - changed, LOG);
+        }
+      }
+      if(aprog != null) {
+        aprog.setProcessed(aprog.getTotal(), LOG);
+      }
+      LOG.setCompleted(prog);
+      offsets.destroy();
+      return AffinityPropagationClusteringAlgorithm.buildClustering(ids, assignment);
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Estimate a quantile of the (non-diagonal) similarities. On large graphs,
+   * only a sample of complete rows is used, to avoid copying all similarities.
+   * 
+   * @param s Similarities
+   * @param size Number of rows
+   * @param width Row width
+   * @param quantile Quantile
+   * @return Quantile
+   */
+  private static double estimateQuantile(double[] s, int size, int width, double quantile) {
+    final int rowlen = width - 1;
+    if(rowlen <= 0) {
+      return 0.;
+    }
+    // Use every stride-th row only.
+    final int stride = (int) Math.max(1L, ((long) size * rowlen + QUANTILE_SAMPLE - 1) / QUANTILE_SAMPLE);
+    double[] sample = new double[((size + stride - 1) / stride) * rowlen];
+    for(int i = 0, j = 0; i < size; i += stride, j += rowlen) {
+      System.arraycopy(s, i * width + 1, sample, j, rowlen);
+    }
+    return QuickSelect.quantile(sample, quantile);
+  }
+
+  /**
+   * Fill one row of the similarity graph.
+   * 
+   * @param i Row number
+   * @param knn Neighbors, including the object itself
+   * @param offsets Offsets of the objects
+   * @param width Row width
+   * @param col Column output
+   * @param s Similarity output
+   */
+  private static void fillRow(int i, KNNList knn, IntegerDataStore offsets, int width, int[] col, double[] s) {
+    int e = i * width;
+    final int end = e + width;
+    col[e++] = i; // Diagonal, similarity is set later.
+    for(DoubleDBIDListIter it = knn.iter(); it.valid() && e < end; it.advance()) {
+      final int j = offsets.intValue(it);
+      if(j != i) {
+        col[e] = j;
+        s[e] = -it.doubleValue();
+        ++e;
+      }
+    }
+    assert (e == end) : "Not enough neighbors.";
+  }
+
+  /**
+   * Update the responsibilities of one row.
+   * 
+   * @param start First edge
+   * @param end End of row
+   * @param s Similarities
+   * @param a Availabilities
+   * @param r Responsibilities (updated)
+   */
+  private void updateResponsibilities(int start, int end, double[] s, double[] a, double[] r) {
+    // Find the two largest values
+    double max1 = Double.NEGATIVE_INFINITY, max2 = Double.NEGATIVE_INFINITY;
+    int maxk = -1;
+    for(int e = start; e < end; e++) {
+      final double val = a[e] + s[e];
+      if(val > max1) {
+        max2 = max1;
+        max1 = val;
+        maxk = e;
+      }
+      else if(val > max2) {
+        max2 = val;
+      }
+    }
+    // With the maximum value known, update r:
+    for(int e = start; e < end; e++) {
+      final double val = s[e] - ((e != maxk) ? max1 : max2);
+      r[e] = r[e] * lambda + val * (1. - lambda);
+    }
+  }
+
+  /**
+   * Update the availabilities of one column.
+   * 
+   * @param start Start in the column index
+   * @param end End in the column index
+   * @param coledges Column index
+   * @param width Row width, to recognize the diagonal
+   * @param r Responsibilities
+   * @param a Availabilities (updated)
+   */
+  private void updateAvailabilities(int start, int end, int[] coledges, int width, double[] r, double[] a) {
+    // Compute sum of max(0, r_ik) for all i.
+    // For r_kk, don't apply the max.
+    double colposum = 0.;
+    for(int c = start; c < end; c++) {
+      final int e = coledges[c];
+      if(e % width == 0 || r[e] > 0.) {
+        colposum += r[e];
+      }
+    }
+    for(int c = start; c < end; c++) {
+      final int e = coledges[c];
+      final boolean diag = (e % width == 0);
+      double val = colposum;
+      // Adjust column sum by the one extra term.
+      if(diag || r[e] > 0.) {
+        val -= r[e];
+      }
+      if(!diag && val > 0.) { // min
+        val = 0.;
+      }
+      a[e] = a[e] * lambda + val * (1 - lambda);
+    }
+  }
+
+  /**
+   * Processor to run a task for each row (or column) of the graph, counting
+   * the changes.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  private abstract static class RowProcessor implements Processor {
+    /**
+     * Offsets of the objects.
+     */
+    final IntegerDataStore offsets;
+
+    /**
+     * Number of changes.
+     */
+    int changed = 0;
+
+    /**
+     * Constructor.
+     * 
+     * @param offsets Offsets of the objects
+     */
+    RowProcessor(IntegerDataStore offsets) {
+      super();
+      this.offsets = offsets;
+    }
+
+    /**
+     * Process a single row.
+     * 
+     * @param id Object
+     * @param i Row number
+     * @return Number of changes
+     */
+    protected abstract int process(DBIDRef id, int i);
+
+    /**
+     * Get the number of changes.
+     * 
+     * @return Number of changes
+     */
+    int getChanged() {
+      return changed;
+    }
+
+    @Override
+    public Instance instantiate(Executor executor) {
+      return new Instance();
+    }
+
+    @Override
+    public synchronized void cleanup(Processor.Instance inst) {
+      changed += ((Instance) inst).changed;
+    }
+
+    /**
+     * Instance for a single thread.
+     * 
+     * @author Erich Schubert
+     * 
+     * @apiviz.exclude
+     */
+    private class Instance implements Processor.Instance {
+      /**
+       * Number of changes.
+       */
+      int changed = 0;
+
+      @Override
+      public void map(DBIDRef id) {
+        changed += process(id, offsets.intValue(id));
+      }
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   * 
+   * @param <O> object type
+   */
+  public static class Parameterizer<O> extends AbstractDistanceBasedAlgorithm.Parameterizer<O> {
+    /**
+     * Parameter for the number of neighbors.
+     */
+    public static final OptionID K_ID = new OptionID("ap.knn", "Number of nearest neighbors to use as exemplar candidates.");
+
+    /**
+     * Number of neighbors.
+     */
+    int k;
+
+    /**
+     * Quantile to use.
+     */
+    double quantile;
+
+    /**
+     * Dampening parameter.
+     */
+    double lambda = .5;
+
+    /**
+     * Number of stable iterations for convergence.
+     */
+    int convergence;
+
+    /**
+     * Maximum number of iterations.
+     */
+    int maxiter;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      final IntParameter kP = new IntParameter(K_ID, 30);
+      kP.addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(kP)) {
+        k = kP.intValue();
+      }
+      DoubleParameter quantileP = new DoubleParameter(AffinityPropagationInitialization.QUANTILE_ID, .5);
+      if(config.grab(quantileP)) {
+        quantile = quantileP.doubleValue();
+      }
+      final DoubleParameter lambdaP = new DoubleParameter(AffinityPropagationClusteringAlgorithm.Parameterizer.LAMBDA_ID, .5);
+      lambdaP.addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      lambdaP.addConstraint(CommonConstraints.LESS_THAN_ONE_DOUBLE);
+      if(config.grab(lambdaP)) {
+        lambda = lambdaP.doubleValue();
+      }
+      final IntParameter convergenceP = new IntParameter(AffinityPropagationClusteringAlgorithm.Parameterizer.CONVERGENCE_ID, 15);
+      convergenceP.addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(convergenceP)) {
+        convergence = convergenceP.intValue();
+      }
+      final IntParameter maxiterP = new IntParameter(AffinityPropagationClusteringAlgorithm.Parameterizer.MAXITER_ID, 1000);
+      if(config.grab(maxiterP)) {
+        maxiter = maxiterP.intValue();
+      }
+    }
+
+    @Override
+    protected SparseAffinityPropagation<O> makeInstance() {
+      return new SparseAffinityPropagation<>(distanceFunction, k, quantile, lambda, convergence, maxiter);
+    }
+  }
+}
@@ -36,7 +36,7 @@ import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
  * 
  * @author Erich Schubert
  */
-public class DiagonalGaussianModel implements EMClusterModel<EMModel> {
+public class DiagonalGaussianModel implements MergeableEMClusterModel<EMModel> {
   /**
    * Class logger.
    */
@@ -62,6 +62,11 @@ public class DiagonalGaussianModel implements EMClusterModel<EMModel> {
    */
   double norm, normDistrFactor;
 
+  /**
+   * Logarithms of the normalization factor and weight.
+   */
+  double logNormDistrFactor, logWeight;
+
   /**
    * Weight aggregation sum
    */
@@ -90,6 +95,8 @@ public class DiagonalGaussianModel implements EMClusterModel<EMModel> {
     this.mean = mean;
     this.norm = norm;
     this.normDistrFactor = 1. / Math.sqrt(norm); // assume det=1
+    this.logNormDistrFactor = Math.log(normDistrFactor);
+    this.logWeight = Math.log(weight);
     this.mref = mean.getArrayRef();
     this.nmea = new double[dim];
     this.variances = new double[dim];
@@ -140,6 +147,54 @@ public class DiagonalGaussianModel implements EMClusterModel<EMModel> {
       // Degenerate
       normDistrFactor = 1. / Math.sqrt(norm);
     }
+    logNormDistrFactor = Math.log(normDistrFactor);
+  }
+
+  @Override
+  public int statisticsSize() {
+    return 1 + (mref.length << 1);
+  }
+
+  @Override
+  public void updateStatistics(NumberVector vec, double wei, double[] stats) {
+    assert (vec.getDimensionality() == mref.length);
+    final int dim = mref.length;
+    stats[0] += wei;
+    for(int i = 0; i < dim; i++) {
+      final double di = vec.doubleValue(i) - mref[i], wdi = di * wei;
+      stats[1 + i] += wdi;
+      stats[1 + dim + i] += wdi * di;
+    }
+  }
+
+  @Override
+  public void finalizeStatistics(double[] stats) {
+    final double w = stats[0];
+    if(!(w > 0.)) {
+      return; // Degenerate, keep the previous parameters.
+    }
+    final int dim = mref.length;
+    final double f = 1. / w;
+    double det = 1.;
+    for(int i = 0; i < dim; i++) {
+      final double shift = stats[1 + i] * f;
+      final double v = stats[1 + dim + i] * f - shift * shift;
+      variances[i] = v > 0 ? v : Matrix.SINGULARITY_CHEAT;
+      det *= variances[i];
+      mref[i] += shift;
+    }
+    normDistrFactor = 1. / Math.sqrt(norm * det);
+    logNormDistrFactor = Math.log(normDistrFactor);
+  }
+
+  @Override
+  public double estimateLogDensity(NumberVector vec) {
+    double agg = 0.;
+    for(int i = 0; i < variances.length; i++) {
+      final double di = vec.doubleValue(i) - mref[i];
+      agg += di * di / variances[i];
+    }
+    return logNormDistrFactor + logWeight - .5 * agg;
   }
 
   /**
@@ -191,6 +246,7 @@ public class DiagonalGaussianModel implements EMClusterModel<EMModel> {
   @Override
   public void setWeight(double weight) {
     this.weight = weight;
+    this.logWeight = Math.log(weight);
   }
 
   @Override
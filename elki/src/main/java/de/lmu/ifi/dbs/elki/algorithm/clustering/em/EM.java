@@ -115,7 +115,10 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
    */
   private boolean soft;
 
-  private static final double MIN_LOGLIKELIHOOD = -100000;
+  /**
+   * Minimum log likelihood of a single object, to avoid -infinity.
+   */
+  public static final double MIN_LOGLIKELIHOOD = -100000;
 
   /**
    * Soft assignment result type.
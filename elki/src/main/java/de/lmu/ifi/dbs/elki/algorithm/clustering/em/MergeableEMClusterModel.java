@@ -0,0 +1,76 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.em;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.MeanModel;
+
+/**
+ * EM cluster model that can be estimated from separately aggregated
+ * statistics, as needed for parallel processing.
+ * 
+ * The statistics are kept in external arrays (relative to the current mean),
+ * so that each thread can aggregate its own, and the results can be merged by
+ * simple addition. {@link #updateStatistics} and {@link #estimateLogDensity}
+ * do not modify the model, and thus can be called concurrently.
+ * 
+ * @author Erich Schubert
+ * 
+ * @param <M> Model type
+ */
+public interface MergeableEMClusterModel<M extends MeanModel> extends EMClusterModel<M> {
+  /**
+   * Size of the statistics array; the first entry is always the weight sum.
+   * 
+   * @return Number of statistics
+   */
+  int statisticsSize();
+
+  /**
+   * Aggregate the statistics of a vector.
+   * 
+   * @param vec Vector to process
+   * @param weight Weight
+   * @param stats Statistics array to update
+   */
+  void updateStatistics(NumberVector vec, double weight, double[] stats);
+
+  /**
+   * Update the model parameters from the merged statistics.
+   * 
+   * The cluster weight is not modified, use {@link #setWeight}.
+   * 
+   * @param stats Merged statistics
+   */
+  void finalizeStatistics(double[] stats);
+
+  /**
+   * Estimate the logarithm of the weighted likelihood of a vector, without
+   * allocating temporary objects.
+   * 
+   * @param vec Vector
+   * @return Log likelihood, including the log of the cluster weight.
+   */
+  double estimateLogDensity(NumberVector vec);
+}
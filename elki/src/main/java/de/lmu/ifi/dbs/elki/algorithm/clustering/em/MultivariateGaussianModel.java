@@ -36,7 +36,7 @@ import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
  * 
  * @author Erich Schubert
  */
-public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
+public class MultivariateGaussianModel implements MergeableEMClusterModel<EMModel> {
   /**
    * Class logger.
    */
@@ -67,6 +67,11 @@ public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
    */
   double norm, normDistrFactor;
 
+  /**
+   * Logarithms of the normalization factor and weight.
+   */
+  double logNormDistrFactor, logWeight;
+
   /**
    * Weight aggregation sum
    */
@@ -95,6 +100,8 @@ public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
     this.mean = mean;
     this.norm = norm;
     this.normDistrFactor = 1. / Math.sqrt(norm); // assume det=1
+    this.logNormDistrFactor = Math.log(normDistrFactor);
+    this.logWeight = Math.log(weight);
     this.mref = mean.getArrayRef();
     this.nmea = new double[dim];
     this.covariance = new Matrix(dim, dim);
@@ -141,11 +148,18 @@ public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
 
   @Override
   public void finalizeEStep() {
-    final int dim = mean.getDimensionality();
     // TODO: improve handling of degenerated cases?
     if(wsum > Double.MIN_NORMAL) {
       covariance.timesEquals(1. / wsum);
     }
+    updateInverse();
+  }
+
+  /**
+   * Compute the inverse and determinant of the covariance matrix.
+   */
+  private void updateInverse() {
+    final int dim = mean.getDimensionality();
     LUDecomposition lu = new LUDecomposition(covariance);
     double det = lu.det();
     if(!(det > 0.)) {
@@ -160,9 +174,81 @@ public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
       }
     }
     normDistrFactor = 1. / Math.sqrt(norm * det);
+    logNormDistrFactor = Math.log(normDistrFactor);
     invCovMatr = lu.solve(Matrix.identity(dim, dim));
   }
 
+  @Override
+  public int statisticsSize() {
+    final int dim = mref.length;
+    return 1 + dim + ((dim * (dim + 1)) >> 1);
+  }
+
+  @Override
+  public void updateStatistics(NumberVector vec, double wei, double[] stats) {
+    assert (vec.getDimensionality() == mref.length);
+    final int dim = mref.length;
+    stats[0] += wei;
+    // Weighted sums of the deviations, and of their products (upper triangle).
+    for(int i = 0, p = 1 + dim; i < dim; i++) {
+      final double wdi = (vec.doubleValue(i) - mref[i]) * wei;
+      stats[1 + i] += wdi;
+      for(int j = i; j < dim; j++) {
+        stats[p++] += wdi * (vec.doubleValue(j) - mref[j]);
+      }
+    }
+  }
+
+  @Override
+  public void finalizeStatistics(double[] stats) {
+    final double w = stats[0];
+    if(!(w > Double.MIN_NORMAL)) {
+      return; // Degenerate, keep the previous parameters.
+    }
+    final int dim = mref.length;
+    final double f = 1. / w;
+    for(int i = 0; i < dim; i++) {
+      nmea[i] = stats[1 + i] * f; // Mean shift
+    }
+    for(int i = 0, p = 1 + dim; i < dim; i++) {
+      for(int j = i; j < dim; j++) {
+        final double v = stats[p++] * f - nmea[i] * nmea[j];
+        elements[i][j] = v;
+        elements[j][i] = v;
+      }
+    }
+    for(int i = 0; i < dim; i++) {
+      mref[i] += nmea[i];
+    }
+    updateInverse();
+  }
+
+  @Override
+  public double estimateLogDensity(NumberVector vec) {
+    final int dim = mref.length;
+    double agg = 0.;
+    if(invCovMatr != null) {
+      // Exploit symmetry: sum_i d_i * (A_ii d_i / 2 + sum_{j>i} A_ij d_j)
+      final double[][] inv = invCovMatr.getArrayRef();
+      for(int i = 0; i < dim; i++) {
+        final double di = vec.doubleValue(i) - mref[i];
+        final double[] row = inv[i];
+        double s = .5 * row[i] * di;
+        for(int j = i + 1; j < dim; j++) {
+          s += row[j] * (vec.doubleValue(j) - mref[j]);
+        }
+        agg += di * s;
+      }
+    }
+    else {
+      for(int i = 0; i < dim; i++) {
+        final double di = vec.doubleValue(i) - mref[i];
+        agg += .5 * di * di;
+      }
+    }
+    return logNormDistrFactor + logWeight - agg;
+  }
+
   /**
    * Compute the Mahalanobis distance from the centroid for a given vector.
    * 
@@ -207,6 +293,7 @@ public class MultivariateGaussianModel implements EMClusterModel<EMModel> {
   @Override
   public void setWeight(double weight) {
     this.weight = weight;
+    this.logWeight = Math.log(weight);
   }
 
   @Override
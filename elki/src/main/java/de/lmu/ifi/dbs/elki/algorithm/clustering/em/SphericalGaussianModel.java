@@ -34,7 +34,7 @@ import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
  * 
  * @author Erich Schubert
  */
-public class SphericalGaussianModel implements EMClusterModel<EMModel> {
+public class SphericalGaussianModel implements MergeableEMClusterModel<EMModel> {
   /**
    * Class logger.
    */
@@ -60,6 +60,11 @@ public class SphericalGaussianModel implements EMClusterModel<EMModel> {
    */
   double norm, normDistrFactor;
 
+  /**
+   * Logarithms of the normalization factor and weight.
+   */
+  double logNormDistrFactor, logWeight;
+
   /**
    * Weight aggregation sum
    */
@@ -88,6 +93,8 @@ public class SphericalGaussianModel implements EMClusterModel<EMModel> {
     this.mean = mean;
     this.norm = norm;
     this.normDistrFactor = 1. / Math.sqrt(norm); // assume det=1
+    this.logNormDistrFactor = Math.log(normDistrFactor);
+    this.logWeight = Math.log(weight);
     this.mref = mean.getArrayRef();
     this.nmea = new double[dim];
     this.variance = 1.;
@@ -130,6 +137,56 @@ public class SphericalGaussianModel implements EMClusterModel<EMModel> {
       // Degenerate
       normDistrFactor = 1. / Math.sqrt(norm);
     }
+    logNormDistrFactor = Math.log(normDistrFactor);
+  }
+
+  @Override
+  public int statisticsSize() {
+    return 2 + mref.length;
+  }
+
+  @Override
+  public void updateStatistics(NumberVector vec, double wei, double[] stats) {
+    assert (vec.getDimensionality() == mref.length);
+    final int dim = mref.length;
+    stats[0] += wei;
+    double sq = 0.;
+    for(int i = 0; i < dim; i++) {
+      final double di = vec.doubleValue(i) - mref[i];
+      stats[1 + i] += di * wei;
+      sq += di * di;
+    }
+    stats[1 + dim] += sq * wei;
+  }
+
+  @Override
+  public void finalizeStatistics(double[] stats) {
+    final double w = stats[0];
+    if(!(w > 0.)) {
+      return; // Degenerate, keep the previous parameters.
+    }
+    final int dim = mref.length;
+    final double f = 1. / w;
+    double shiftsq = 0.;
+    for(int i = 0; i < dim; i++) {
+      final double shift = stats[1 + i] * f;
+      shiftsq += shift * shift;
+      mref[i] += shift;
+    }
+    final double v = (stats[1 + dim] * f - shiftsq) / dim;
+    variance = v > 0 ? v : Matrix.SINGULARITY_CHEAT;
+    normDistrFactor = 1. / Math.sqrt(norm * variance);
+    logNormDistrFactor = Math.log(normDistrFactor);
+  }
+
+  @Override
+  public double estimateLogDensity(NumberVector vec) {
+    double agg = 0.;
+    for(int i = 0; i < mref.length; i++) {
+      final double di = vec.doubleValue(i) - mref[i];
+      agg += di * di;
+    }
+    return logNormDistrFactor + logWeight - .5 * agg / variance;
   }
 
   /**
@@ -181,6 +238,7 @@ public class SphericalGaussianModel implements EMClusterModel<EMModel> {
   @Override
   public void setWeight(double weight) {
     this.weight = weight;
+    this.logWeight = Math.log(weight);
   }
 
   @Override
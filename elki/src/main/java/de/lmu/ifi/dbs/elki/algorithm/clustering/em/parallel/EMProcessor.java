@@ -0,0 +1,297 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.em.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.EM;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.MergeableEMClusterModel;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Processor for parallel EM: in a single pass, computes the cluster
+ * probabilities of each object (in log space, to avoid underflow) and
+ * aggregates the statistics for the next model update.
+ * 
+ * Each thread aggregates its own statistics, which are merged by addition.
+ * Soft assignments, if requested, are kept in a single flat n*k array.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has Instance
+ * @apiviz.uses MergeableEMClusterModel
+ */
+public class EMProcessor implements Processor {
+  /**
+   * Data relation.
+   */
+  Relation<? extends NumberVector> relation;
+
+  /**
+   * Cluster models.
+   */
+  MergeableEMClusterModel<?>[] models;
+
+  /**
+   * Hard assignment storage.
+   */
+  WritableIntegerDataStore assignment;
+
+  /**
+   * Soft assignments, n*k, may be {@code null}.
+   */
+  double[] probs;
+
+  /**
+   * Offsets of objects, when the relation ids are not a {@link DBIDRange}.
+   */
+  WritableIntegerDataStore offsets;
+
+  /**
+   * Merged statistics.
+   */
+  double[][] stats;
+
+  /**
+   * Log likelihood sum.
+   */
+  double loglikelihood;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Data relation
+   * @param models Cluster models
+   * @param assignment Hard assignment storage
+   * @param soft Keep soft assignments
+   */
+  public EMProcessor(Relation<? extends NumberVector> relation, List<? extends MergeableEMClusterModel<?>> models, WritableIntegerDataStore assignment, boolean soft) {
+    super();
+    this.relation = relation;
+    this.models = models.toArray(new MergeableEMClusterModel<?>[models.size()]);
+    this.assignment = assignment;
+    this.stats = new double[this.models.length][];
+    for(int i = 0; i < this.models.length; i++) {
+      stats[i] = new double[this.models[i].statisticsSize()];
+    }
+    if(soft) {
+      final long size = relation.size() * (long) this.models.length;
+      if(size > Integer.MAX_VALUE) {
+        throw new AbortException("Too many soft assignments to store: n=" + relation.size() + " objects times k=" + this.models.length + " clusters.");
+      }
+      probs = new double[(int) size];
+      if(!(relation.getDBIDs() instanceof DBIDRange)) {
+        offsets = DataStoreUtil.makeIntegerStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, -1);
+        for(DBIDArrayIter iter = DBIDUtil.ensureArray(relation.getDBIDs()).iter(); iter.valid(); iter.advance()) {
+          offsets.putInt(iter, iter.getOffset());
+        }
+      }
+    }
+  }
+
+  /**
+   * Initialize for a new iteration.
+   */
+  public void nextIteration() {
+    for(double[] s : stats) {
+      Arrays.fill(s, 0.);
+    }
+    loglikelihood = 0.;
+  }
+
+  /**
+   * Get the log likelihood sum of the last iteration.
+   * 
+   * @return Log likelihood
+   */
+  public double getLogLikelihood() {
+    return loglikelihood;
+  }
+
+  /**
+   * Update the models from the statistics of the last iteration.
+   */
+  public void updateModels() {
+    final double n = relation.size();
+    for(int i = 0; i < models.length; i++) {
+      models[i].finalizeStatistics(stats[i]);
+      models[i].setWeight(stats[i][0] / n);
+    }
+  }
+
+  /**
+   * Offset of an object in the probability array.
+   * 
+   * @param id Object
+   * @return Offset
+   */
+  int offset(DBIDRef id) {
+    return ((offsets == null) ? ((DBIDRange) relation.getDBIDs()).getOffset(id) : offsets.intValue(id)) * models.length;
+  }
+
+  /**
+   * Get a view of the soft assignments.
+   * 
+   * @return Soft assignments, or {@code null}
+   */
+  public DataStore<double[]> getProbabilities() {
+    return probs != null ? new ProbabilityView() : null;
+  }
+
+  @Override
+  public Instance instantiate(Executor executor) {
+    return new Instance();
+  }
+
+  @Override
+  public synchronized void cleanup(Processor.Instance inst) {
+    Instance instance = (Instance) inst;
+    for(int i = 0; i < stats.length; i++) {
+      final double[] s = stats[i], is = instance.stats[i];
+      for(int j = 0; j < s.length; j++) {
+        s[j] += is[j];
+      }
+    }
+    loglikelihood += instance.loglikelihood;
+  }
+
+  /**
+   * Instance to process part of the data set, for a single iteration.
+   * 
+   * @author Erich Schubert
+   */
+  public class Instance implements Processor.Instance {
+    /**
+     * Local statistics.
+     */
+    double[][] stats;
+
+    /**
+     * Local log likelihood.
+     */
+    double loglikelihood = 0.;
+
+    /**
+     * Buffer for the log densities.
+     */
+    double[] buf;
+
+    /**
+     * Constructor.
+     */
+    protected Instance() {
+      super();
+      this.stats = new double[models.length][];
+      for(int i = 0; i < models.length; i++) {
+        stats[i] = new double[models[i].statisticsSize()];
+      }
+      this.buf = new double[models.length];
+    }
+
+    @Override
+    public void map(DBIDRef id) {
+      final NumberVector vec = relation.get(id);
+      final int k = models.length;
+      double max = Double.NEGATIVE_INFINITY;
+      for(int i = 0; i < k; i++) {
+        final double l = models[i].estimateLogDensity(vec);
+        buf[i] = l;
+        max = (l > max) ? l : max;
+      }
+      final int off = (probs != null) ? offset(id) : 0;
+      if(!(max > Double.NEGATIVE_INFINITY)) {
+        // All densities are zero; leave the probabilities at zero.
+        loglikelihood += EM.MIN_LOGLIKELIHOOD;
+        assignment.putInt(id, 0);
+        if(probs != null) {
+          Arrays.fill(probs, off, off + k, 0.);
+        }
+        return;
+      }
+      // Log-sum-exp, to avoid underflow.
+      double sum = 0.;
+      for(int i = 0; i < k; i++) {
+        sum += Math.exp(buf[i] - max);
+      }
+      final double logP = max + Math.log(sum);
+      loglikelihood += (logP > EM.MIN_LOGLIKELIHOOD) ? logP : EM.MIN_LOGLIKELIHOOD;
+      int best = 0;
+      double bestp = 0.;
+      for(int i = 0; i < k; i++) {
+        final double p = Math.exp(buf[i] - logP);
+        if(p > bestp) {
+          best = i;
+          bestp = p;
+        }
+        if(probs != null) {
+          probs[off + i] = p;
+        }
+        if(p > 0.) {
+          models[i].updateStatistics(vec, p, stats[i]);
+        }
+      }
+      assignment.putInt(id, best);
+    }
+  }
+
+  /**
+   * Read-only view of the soft assignments.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  private class ProbabilityView implements DataStore<double[]> {
+    @Override
+    public double[] get(DBIDRef id) {
+      final int off = offset(id);
+      double[] ret = new double[models.length];
+      System.arraycopy(probs, off, ret, 0, ret.length);
+      return ret;
+    }
+
+    @Override
+    public String getLongName() {
+      return "EM probabilities";
+    }
+
+    @Override
+    public String getShortName() {
+      return "em-probabilities";
+    }
+  }
+}
@@ -0,0 +1,286 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.em.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.EM;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.EMClusterModel;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.EMClusterModelFactory;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.MergeableEMClusterModel;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.em.MultivariateGaussianModelFactory;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeans;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.MeanModel;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Parallel implementation of EM clustering (Gaussian mixture modeling).
+ * 
+ * The E and M steps are fused into a single pass over the data: each pass
+ * computes the cluster probabilities with the current models and, at the same
+ * time, aggregates the sufficient statistics for the next models. Densities
+ * are combined in log space, so that objects far away from all clusters do
+ * not underflow. Unless soft assignments are requested, only the most likely
+ * cluster of each object is stored, instead of k probabilities per object.
+ * 
+ * Requires cluster models implementing {@link MergeableEMClusterModel}.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has EMProcessor
+ * @apiviz.composedOf EMClusterModelFactory
+ * 
+ * @param <V> vector type to analyze
+ * @param <M> model type to produce
+ */
+public class ParallelEM<V extends NumberVector, M extends MeanModel> extends AbstractAlgorithm<Clustering<M>> implements ClusteringAlgorithm<Clustering<M>> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelEM.class);
+
+  /**
+   * Number of clusters
+   */
+  private int k;
+
+  /**
+   * Delta parameter
+   */
+  private double delta;
+
+  /**
+   * Factory for producing the initial cluster model.
+   */
+  private EMClusterModelFactory<V, M> mfactory;
+
+  /**
+   * Maximum number of iterations to allow
+   */
+  private int maxiter;
+
+  /**
+   * Retain soft assignments.
+   */
+  private boolean soft;
+
+  /**
+   * Use work-stealing parallelism.
+   */
+  private boolean workstealing;
+
+  /**
+   * Constructor.
+   * 
+   * @param k k parameter
+   * @param delta delta parameter
+   * @param mfactory EM cluster model factory
+   * @param maxiter Maximum number of iterations
+   * @param soft Include soft assignments
+   * @param workstealing Use work-stealing parallelism
+   */
+  public ParallelEM(int k, double delta, EMClusterModelFactory<V, M> mfactory, int maxiter, boolean soft, boolean workstealing) {
+    super();
+    this.k = k;
+    this.delta = delta;
+    this.mfactory = mfactory;
+    this.maxiter = maxiter;
+    this.soft = soft;
+    this.workstealing = workstealing;
+  }
+
+  /**
+   * Performs the EM clustering algorithm on the given database.
+   * 
+   * @param database Database
+   * @param relation Relation
+   * @return Result
+   */
+  public Clustering<M> run(Database database, Relation<V> relation) {
+    if(relation.size() == 0) {
+      throw new IllegalArgumentException("database empty: must contain elements");
+    }
+    DBIDs ids = relation.getDBIDs();
+    List<? extends EMClusterModel<M>> initial = mfactory.buildInitialModels(database, relation, k, SquaredEuclideanDistanceFunction.STATIC);
+    List<MergeableEMClusterModel<M>> models = new ArrayList<>(k);
+    for(EMClusterModel<M> m : initial) {
+      if(!(m instanceof MergeableEMClusterModel)) {
+        throw new AbortException("Parallel EM requires cluster models implementing MergeableEMClusterModel, got: " + m.getClass().getName());
+      }
+      models.add((MergeableEMClusterModel<M>) m);
+    }
+    WritableIntegerDataStore assignment = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+    EMProcessor proc = new EMProcessor(relation, models, assignment, soft);
+
+    proc.nextIteration();
+    ParallelExecutor.run(ids, workstealing, proc);
+    double emNew = proc.getLogLikelihood() / relation.size();
+    if(LOG.isVerbose()) {
+      LOG.verbose("iteration " + 0 + " - expectation value: " + emNew);
+    }
+    for(int it = 1; it <= maxiter || maxiter < 0; it++) {
+      final double emOld = emNew;
+      // M-step from the statistics of the previous pass, then a fused E+M pass.
+      proc.updateModels();
+      proc.nextIteration();
+      ParallelExecutor.run(ids, workstealing, proc);
+      emNew = proc.getLogLikelihood() / relation.size();
+
+      if(LOG.isVerbose()) {
+        LOG.verbose("iteration " + it + " - expectation value: " + emNew);
+      }
+      if(Math.abs(emOld - emNew) <= delta || emOld > emNew) {
+        break;
+      }
+    }
+
+    // fill result with clusters and models
+    List<ModifiableDBIDs> hardClusters = new ArrayList<>(k);
+    for(int i = 0; i < k; i++) {
+      hardClusters.add(DBIDUtil.newHashSet());
+    }
+    for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
+      hardClusters.get(assignment.intValue(iditer)).add(iditer);
+    }
+    assignment.destroy();
+    Clustering<M> result = new Clustering<>("EM Clustering", "em-clustering");
+    for(int i = 0; i < k; i++) {
+      result.addToplevelCluster(new Cluster<>(hardClusters.get(i), models.get(i).finalizeCluster()));
+    }
+    if(soft) {
+      result.addChildResult(new MaterializedRelation<>("cluster assignments", "em-soft-score", EM.SOFT_TYPE, proc.getProbabilities(), ids));
+    }
+    return result;
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<V extends NumberVector, M extends MeanModel> extends AbstractParameterizer {
+    /**
+     * Number of clusters.
+     */
+    protected int k;
+
+    /**
+     * Stopping threshold
+     */
+    protected double delta;
+
+    /**
+     * Initialization method
+     */
+    protected EMClusterModelFactory<V, M> initializer;
+
+    /**
+     * Maximum number of iterations.
+     */
+    protected int maxiter = -1;
+
+    /**
+     * Use work-stealing parallelism.
+     */
+    protected boolean workstealing = false;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter kP = new IntParameter(EM.Parameterizer.K_ID);
+      kP.addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(kP)) {
+        k = kP.getValue();
+      }
+
+      ObjectParameter<EMClusterModelFactory<V, M>> initialP = new ObjectParameter<>(EM.Parameterizer.INIT_ID, EMClusterModelFactory.class, MultivariateGaussianModelFactory.class);
+      if(config.grab(initialP)) {
+        initializer = initialP.instantiateClass(config);
+      }
+
+      DoubleParameter deltaP = new DoubleParameter(EM.Parameterizer.DELTA_ID, 1e-5)//
+      .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_DOUBLE);
+      if(config.grab(deltaP)) {
+        delta = deltaP.getValue();
+      }
+
+      IntParameter maxiterP = new IntParameter(KMeans.MAXITER_ID)//
+      .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT) //
+      .setOptional(true);
+      if(config.grab(maxiterP)) {
+        maxiter = maxiterP.getValue();
+      }
+
+      Flag workstealingF = new Flag(ParallelExecutor.WORKSTEALING_ID);
+      if(config.grab(workstealingF)) {
+        workstealing = workstealingF.isTrue();
+      }
+    }
+
+    @Override
+    protected ParallelEM<V, M> makeInstance() {
+      return new ParallelEM<>(k, delta, initializer, maxiter, false, workstealing);
+    }
+  }
+}
@@ -169,6 +169,12 @@ public class GeneralizedDBSCAN extends AbstractAlgorithm<Clustering<Model>> impl
      */
     boolean coremodel = false;
 
+    /**
+     * Core points are decided from precomputed neighborhood sizes, without the
+     * neighbors.
+     */
+    final boolean sizesonly;
+
     /**
      * Full Constructor
      * 
@@ -181,6 +187,7 @@ public class GeneralizedDBSCAN extends AbstractAlgorithm<Clustering<Model>> impl
       this.npred = npred;
       this.corepred = corepred;
       this.coremodel = coremodel;
+      this.sizesonly = (corepred instanceof MinPtsCorePredicate.Instance) && ((MinPtsCorePredicate.Instance) corepred).useNeighborhoodSizes(npred);
     }
 
     /**
@@ -209,12 +216,12 @@ public class GeneralizedDBSCAN extends AbstractAlgorithm<Clustering<Model>> impl
         if(clusterids.intValue(id) != UNPROCESSED) {
           continue;
         }
-        // Evaluate Neighborhood predicate
-        final T neighbors = npred.getNeighbors(id);
+        // Evaluate Neighborhood predicate, unless sizes are precomputed
+        final T neighbors = sizesonly ? null : npred.getNeighbors(id);
         // Evaluate Core-Point predicate:
         if(corepred.isCorePoint(id, neighbors)) {
           clusterids.putInt(id, clusterid);
-          clustersizes.add(expandCluster(clusterid, clusterids, neighbors, progress));
+          clustersizes.add(expandCluster(clusterid, clusterids, neighbors != null ? neighbors : npred.getNeighbors(id), progress));
           // start next cluster on next iteration.
           ++clusterid;
           if(clusprogress != null) {
@@ -233,11 +240,26 @@ public class GeneralizedDBSCAN extends AbstractAlgorithm<Clustering<Model>> impl
       LOG.ensureCompleted(progress);
       LOG.setCompleted(clusprogress);
 
-      // Transform cluster ID mapping into a clustering result:
-      ArrayList<ArrayModifiableDBIDs> clusterlists = new ArrayList<>(clusterid);
-      ArrayList<ArrayModifiableDBIDs> corelists = coremodel ? new ArrayList<ArrayModifiableDBIDs>(clusterid) : null;
+      return buildClustering(ids, clusterids, clustersizes);
+    }
+
+    /**
+     * Transform the cluster ID mapping into a clustering result.
+     * 
+     * Positive cluster IDs are core points, negative IDs are border points.
+     * The data store is destroyed afterwards.
+     * 
+     * @param ids Object IDs, in output order
+     * @param clusterids Cluster ID assignment
+     * @param clustersizes Cluster sizes (used as initial capacity only)
+     * @return Clustering result
+     */
+    protected Clustering<Model> buildClustering(DBIDs ids, WritableIntegerDataStore clusterids, TIntArrayList clustersizes) {
+      final int numclusters = clustersizes.size();
+      ArrayList<ArrayModifiableDBIDs> clusterlists = new ArrayList<>(numclusters);
+      ArrayList<ArrayModifiableDBIDs> corelists = coremodel ? new ArrayList<ArrayModifiableDBIDs>(numclusters) : null;
       // add storage containers for clusters
-      for(int i = 0; i < clustersizes.size(); i++) {
+      for(int i = 0; i < numclusters; i++) {
         clusterlists.add(DBIDUtil.newArray(clustersizes.get(i)));
         if(corelists != null) {
           corelists.add(DBIDUtil.newArray(clustersizes.get(i)));
@@ -298,13 +320,13 @@ public class GeneralizedDBSCAN extends AbstractAlgorithm<Clustering<Model>> impl
         else if(oldclus == UNPROCESSED) {
           clustersize += 1;
           // expandCluster again:
-          // Evaluate Neighborhood predicate
-          final T newneighbors = npred.getNeighbors(id);
+          // Evaluate Neighborhood predicate, unless sizes are precomputed
+          final T newneighbors = sizesonly ? null : npred.getNeighbors(id);
           // Evaluate Core-Point predicate
           if(corepred.isCorePoint(id, newneighbors)) {
             // Note: the recursion is unrolled into iteration over the active
             // set.
-            npred.addDBIDs(activeSet, newneighbors);
+            npred.addDBIDs(activeSet, newneighbors != null ? newneighbors : npred.getNeighbors(id));
             clusterids.putInt(id, clusterid);
           }
           else {
@@ -0,0 +1,385 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import de.lmu.ifi.dbs.elki.algorithm.DistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.DBSCAN;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.LPNormDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Epsilon neighborhood predicate for low-dimensional numeric data, using a
+ * grid instead of an index.
+ * 
+ * The data is partitioned into grid cells of width epsilon, so the neighbors of
+ * an object can only be in its own and the adjacent cells. For each query at
+ * most 3<sup>d</sup> cells are scanned; this is efficient for 2 to about 6
+ * dimensions, and as long as the cells are not too densely populated. Data with
+ * more than {@link Instance#MAX_DIM} dimensions is rejected.
+ * 
+ * This predicate works for all L<sub>p</sub> norms, as no coordinate can
+ * differ by more than the distance. Optionally, the sizes of all neighborhoods
+ * are precomputed (with each pair of adjacent cells visited only once). They
+ * are used to allocate neighbor lists of the exact size, and allow
+ * {@link MinPtsCorePredicate} to find non-core points without computing their
+ * neighbors.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has Instance
+ */
+public class GridNeighborPredicate implements NeighborPredicate {
+  /**
+   * Range to query with
+   */
+  protected double epsilon;
+
+  /**
+   * Distance function to use
+   */
+  protected LPNormDistanceFunction distFunc;
+
+  /**
+   * Precompute the neighborhood sizes.
+   */
+  protected boolean cacheSizes;
+
+  /**
+   * Full constructor.
+   * 
+   * @param epsilon Epsilon value
+   * @param distFunc Distance function to use
+   * @param cacheSizes Precompute the neighborhood sizes
+   */
+  public GridNeighborPredicate(double epsilon, LPNormDistanceFunction distFunc, boolean cacheSizes) {
+    super();
+    this.epsilon = epsilon;
+    this.distFunc = distFunc;
+    this.cacheSizes = cacheSizes;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> NeighborPredicate.Instance<T> instantiate(Database database, SimpleTypeInformation<?> type) {
+    Relation<NumberVector> relation = database.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    return (NeighborPredicate.Instance<T>) new Instance(epsilon, distFunc, relation, cacheSizes);
+  }
+
+  @Override
+  public SimpleTypeInformation<?>[] getOutputType() {
+    return new SimpleTypeInformation<?>[] { TypeUtil.DBIDS };
+  }
+
+  @Override
+  public TypeInformation getInputTypeRestriction() {
+    return TypeUtil.NUMBER_VECTOR_FIELD;
+  }
+
+  /**
+   * Instance for a particular data set.
+   * 
+   * @author Erich Schubert
+   */
+  public static class Instance implements NeighborPredicate.Instance<DBIDs>, MinPtsCorePredicate.NeighborhoodSizes {
+    /**
+     * Maximum dimensionality supported, as 3^d cells are visited per query.
+     */
+    public static final int MAX_DIM = 8;
+
+    /**
+     * Range to query with
+     */
+    final double epsilon;
+
+    /**
+     * Distance function
+     */
+    final LPNormDistanceFunction distFunc;
+
+    /**
+     * Data relation
+     */
+    final Relation<NumberVector> relation;
+
+    /**
+     * Grid origin.
+     */
+    final double[] min;
+
+    /**
+     * Key multipliers for each dimension.
+     */
+    final long[] mult;
+
+    /**
+     * Key offsets of the adjacent cells (including the cell itself).
+     */
+    final long[] adjacent;
+
+    /**
+     * Cell contents.
+     */
+    final TLongObjectMap<ArrayModifiableDBIDs> cells;
+
+    /**
+     * Cached neighborhood sizes, may be {@code null}.
+     */
+    WritableIntegerDataStore sizes = null;
+
+    /**
+     * Constructor.
+     * 
+     * @param epsilon Epsilon
+     * @param distFunc Distance function
+     * @param relation Data relation
+     * @param cacheSizes Precompute the neighborhood sizes
+     */
+    public Instance(double epsilon, LPNormDistanceFunction distFunc, Relation<NumberVector> relation, boolean cacheSizes) {
+      super();
+      this.epsilon = epsilon;
+      this.distFunc = distFunc;
+      this.relation = relation;
+      final int dim = RelationUtil.dimensionality(relation);
+      if(dim > MAX_DIM) {
+        throw new AbortException("The grid neighbor predicate supports at most " + MAX_DIM + " dimensions, as each query visits 3^d cells. Data has " + dim + " dimensions.");
+      }
+      double[][] minmax = RelationUtil.computeMinMax(relation);
+      this.min = minmax[0];
+      // Each dimension has one spare cell on either side, so that the adjacent
+      // cells of any occupied cell have a valid, unique key.
+      this.mult = new long[dim];
+      long m = 1;
+      for(int d = 0; d < dim; d++) {
+        mult[d] = m;
+        final long ncells = (long) Math.floor((minmax[1][d] - min[d]) / epsilon) + 3;
+        if(m > Long.MAX_VALUE / ncells) {
+          throw new AbortException("Too many grid cells. Epsilon is too small for a grid, or the data has too many dimensions.");
+        }
+        m *= ncells;
+      }
+      this.adjacent = computeAdjacent(mult);
+      this.cells = new TLongObjectHashMap<>();
+      for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+        final long key = cellKey(relation.get(it));
+        ArrayModifiableDBIDs cell = cells.get(key);
+        if(cell == null) {
+          cell = DBIDUtil.newArray();
+          cells.put(key, cell);
+        }
+        cell.add(it);
+      }
+      if(cacheSizes) {
+        computeSizes();
+      }
+    }
+
+    /**
+     * Compute the key offsets of all 3^d adjacent cells.
+     * 
+     * @param mult Key multipliers
+     * @return Key offsets
+     */
+    private static long[] computeAdjacent(long[] mult) {
+      long[] adj = new long[] { 0L };
+      for(int d = 0; d < mult.length; d++) {
+        long[] next = new long[adj.length * 3];
+        for(int i = 0, j = 0; i < adj.length; i++) {
+          next[j++] = adj[i] - mult[d];
+          next[j++] = adj[i];
+          next[j++] = adj[i] + mult[d];
+        }
+        adj = next;
+      }
+      return adj;
+    }
+
+    /**
+     * Compute the grid cell key of a vector.
+     * 
+     * @param vec Vector
+     * @return Cell key
+     */
+    private long cellKey(NumberVector vec) {
+      long key = 0;
+      for(int d = 0; d < mult.length; d++) {
+        key += ((long) Math.floor((vec.doubleValue(d) - min[d]) / epsilon) + 1) * mult[d];
+      }
+      return key;
+    }
+
+    /**
+     * Precompute the sizes of all neighborhoods, visiting each pair of
+     * adjacent cells once.
+     */
+    private void computeSizes() {
+      sizes = DataStoreUtil.makeIntegerStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, 0);
+      for(TLongObjectIterator<ArrayModifiableDBIDs> it = cells.iterator(); it.hasNext();) {
+        it.advance();
+        final long key = it.key();
+        final ArrayModifiableDBIDs cell = it.value();
+        for(long off : adjacent) {
+          if(off < 0) {
+            continue; // Handled when processing the other cell.
+          }
+          final ArrayModifiableDBIDs other = (off == 0) ? cell : cells.get(key + off);
+          if(other == null) {
+            continue;
+          }
+          for(DBIDIter a = cell.iter(); a.valid(); a.advance()) {
+            final NumberVector va = relation.get(a);
+            int count = 0;
+            for(DBIDIter b = other.iter(); b.valid(); b.advance()) {
+              if(off == 0 && DBIDUtil.compare(a, b) >= 0) {
+                continue; // Pairs within the same cell only once.
+              }
+              if(distFunc.distance(va, relation.get(b)) <= epsilon) {
+                ++count;
+                sizes.increment(b, 1);
+              }
+            }
+            // Include the object itself.
+            sizes.increment(a, (off == 0) ? count + 1 : count);
+          }
+        }
+      }
+    }
+
+    @Override
+    public DBIDs getIDs() {
+      return relation.getDBIDs();
+    }
+
+    @Override
+    public DBIDs getNeighbors(DBIDRef reference) {
+      final NumberVector vec = relation.get(reference);
+      final long key = cellKey(vec);
+      ArrayModifiableDBIDs neighbors = (sizes != null) ? DBIDUtil.newArray(sizes.intValue(reference)) : DBIDUtil.newArray();
+      for(long off : adjacent) {
+        final ArrayModifiableDBIDs cell = cells.get(key + off);
+        if(cell == null) {
+          continue;
+        }
+        for(DBIDIter it = cell.iter(); it.valid(); it.advance()) {
+          if(distFunc.distance(vec, relation.get(it)) <= epsilon) {
+            neighbors.add(it);
+          }
+        }
+      }
+      return neighbors;
+    }
+
+    @Override
+    public IntegerDataStore getNeighborhoodSizes() {
+      return sizes;
+    }
+
+    @Override
+    public void addDBIDs(ModifiableDBIDs ids, DBIDs neighbors) {
+      ids.addDBIDs(neighbors);
+    }
+  }
+
+  /**
+   * Parameterization class
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * Flag to precompute the neighborhood sizes.
+     */
+    public static final OptionID CACHE_SIZES_ID = new OptionID("gridpredicate.cache-sizes", "Precompute the sizes of all neighborhoods. Needs more memory.");
+
+    /**
+     * Range to query with
+     */
+    double epsilon;
+
+    /**
+     * Distance function to use
+     */
+    LPNormDistanceFunction distfun = null;
+
+    /**
+     * Precompute the neighborhood sizes.
+     */
+    boolean cacheSizes = false;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      // Get a distance function.
+      ObjectParameter<LPNormDistanceFunction> distanceP = new ObjectParameter<>(DistanceBasedAlgorithm.DISTANCE_FUNCTION_ID, LPNormDistanceFunction.class, EuclideanDistanceFunction.class);
+      if(config.grab(distanceP)) {
+        distfun = distanceP.instantiateClass(config);
+      }
+      // Get the epsilon parameter
+      DoubleParameter epsilonP = new DoubleParameter(DBSCAN.Parameterizer.EPSILON_ID);
+      epsilonP.addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      if(config.grab(epsilonP)) {
+        epsilon = epsilonP.getValue();
+      }
+      Flag cacheF = new Flag(CACHE_SIZES_ID);
+      if(config.grab(cacheF)) {
+        cacheSizes = cacheF.isTrue();
+      }
+    }
+
+    @Override
+    protected GridNeighborPredicate makeInstance() {
+      return new GridNeighborPredicate(epsilon, distfun, cacheSizes);
+    }
+  }
+}
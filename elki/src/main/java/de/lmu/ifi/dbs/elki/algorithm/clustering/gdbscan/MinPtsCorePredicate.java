@@ -27,6 +27,7 @@ import de.lmu.ifi.dbs.elki.algorithm.clustering.DBSCAN;
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
@@ -95,6 +96,11 @@ public class MinPtsCorePredicate implements CorePredicate {
      */
     int minpts;
 
+    /**
+     * Precomputed neighborhood sizes, may be {@code null}.
+     */
+    IntegerDataStore sizes = null;
+
     /**
      * Constructor for this predicate.
      * 
@@ -105,12 +111,42 @@ public class MinPtsCorePredicate implements CorePredicate {
       this.minpts = minpts;
     }
 
+    /**
+     * Use the precomputed neighborhood sizes of the neighbor predicate, if it
+     * provides them. Then core points can be decided without the neighbors,
+     * and {@link #isCorePoint} accepts {@code null} neighbors.
+     * 
+     * @param npred Neighbor predicate instance
+     * @return {@code true} when precomputed sizes are used.
+     */
+    public boolean useNeighborhoodSizes(NeighborPredicate.Instance<?> npred) {
+      if(npred instanceof NeighborhoodSizes) {
+        sizes = ((NeighborhoodSizes) npred).getNeighborhoodSizes();
+      }
+      return sizes != null;
+    }
+
     @Override
     public boolean isCorePoint(DBIDRef point, DBIDs neighbors) {
-      return neighbors.size() >= minpts;
+      return (sizes != null ? sizes.intValue(point) : neighbors.size()) >= minpts;
     }
   }
 
+  /**
+   * Neighbor predicate instances that can provide the sizes of all
+   * neighborhoods without computing the neighbors.
+   * 
+   * @author Erich Schubert
+   */
+  public static interface NeighborhoodSizes {
+    /**
+     * Get the precomputed neighborhood sizes.
+     * 
+     * @return Neighborhood sizes, or {@code null} if not precomputed.
+     */
+    IntegerDataStore getNeighborhoodSizes();
+  }
+
   /**
    * Parameterization class
    * 
@@ -0,0 +1,364 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import gnu.trove.list.array.TIntArrayList;
+
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind.ConcurrentUnionFind;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Parallel version of Generalized DBSCAN.
+ * 
+ * Instead of expanding one cluster at a time, the neighbor and core predicates
+ * are evaluated for blocks of objects concurrently, and the components of core
+ * points are merged using a lock-free union-find data structure over the
+ * object offsets. Clusters are numbered by their first core point, and border
+ * points are assigned to the first cluster they are density-reachable from;
+ * for symmetric neighbor predicates such as {@link EpsilonNeighborPredicate},
+ * this yields exactly the same clustering as {@link GeneralizedDBSCAN}.
+ * 
+ * The neighbor predicate is evaluated twice for each object, and the predicate
+ * instances are shared by all threads.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has Instance
+ * @apiviz.uses ConcurrentUnionFind
+ * @apiviz.uses ParallelExecutor
+ */
+public class ParallelGeneralizedDBSCAN extends GeneralizedDBSCAN {
+  /**
+   * Get a logger for this algorithm
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelGeneralizedDBSCAN.class);
+
+  /**
+   * Constructor for parameterized algorithm.
+   * 
+   * @param npred Neighbor predicate.
+   * @param corepred Core point predicate.
+   * @param coremodel Keep track of core points.
+   */
+  public ParallelGeneralizedDBSCAN(NeighborPredicate npred, CorePredicate corepred, boolean coremodel) {
+    super(npred, corepred, coremodel);
+  }
+
+  @Override
+  public Clustering<Model> run(Database database) {
+    for(SimpleTypeInformation<?> t : npred.getOutputType()) {
+      if(corepred.acceptsType(t)) {
+        return new Instance<>(npred.instantiate(database, t), corepred.instantiate(database, t), coremodel).run();
+      }
+    }
+    throw new AbortException("No compatible types found.");
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Instance for a particular data set.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.composedOf CorePredicate.Instance
+   * @apiviz.composedOf NeighborPredicate.Instance
+   */
+  public static class Instance<T> extends GeneralizedDBSCAN.Instance<T> {
+    /**
+     * Full Constructor
+     * 
+     * @param npred Neighborhood predicate
+     * @param corepred Core object predicate
+     * @param coremodel Keep track of core points.
+     */
+    public Instance(NeighborPredicate.Instance<T> npred, CorePredicate.Instance<? super T> corepred, boolean coremodel) {
+      super(npred, corepred, coremodel);
+    }
+
+    /**
+     * Run the parallel GDBSCAN algorithm.
+     * 
+     * @return Clustering result
+     */
+    @Override
+    public Clustering<Model> run() {
+      final ArrayDBIDs ids = DBIDUtil.ensureArray(npred.getIDs());
+      final int size = ids.size();
+      // Map object IDs to array offsets.
+      final WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        offsets.putInt(it, it.getOffset());
+      }
+
+      // 1. Evaluate the core predicate for all objects.
+      final byte[] core = new byte[size];
+      ParallelExecutor.run(ids, new CoreProcessor(offsets, core));
+
+      // 2. Merge the neighboring core points.
+      final ConcurrentUnionFind uf = new ConcurrentUnionFind(size);
+      ParallelExecutor.run(ids, new UnionProcessor(offsets, core, uf));
+
+      // 3. Number the clusters by their first core point, as the serial
+      // algorithm does. The representative is the smallest offset.
+      final int[] labels = new int[size];
+      final TIntArrayList clustersizes = new TIntArrayList();
+      clustersizes.add(0); // Unprocessed dummy value.
+      clustersizes.add(0); // Noise counter.
+      int clusterid = NOISE + 1;
+      for(int i = 0; i < size; i++) {
+        if(core[i] == 1) {
+          final int root = uf.find(i);
+          labels[i] = (root == i) ? clusterid++ : labels[root];
+        }
+      }
+      clustersizes.fill(NOISE + 1, clusterid, 0);
+
+      // 4. Assign border points to the first cluster.
+      ParallelExecutor.run(ids, new BorderProcessor(offsets, core, labels));
+      offsets.destroy();
+
+      // Convert to the representation used by the serial algorithm.
+      final WritableIntegerDataStore clusterids = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP, UNPROCESSED);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        final int cid = labels[it.getOffset()];
+        clusterids.putInt(it, cid);
+        final int cluster = Math.abs(cid);
+        clustersizes.set(cluster, clustersizes.get(cluster) + 1);
+      }
+      if(LOG.isVerbose()) {
+        LOG.verbose("Number of clusters found: " + (clusterid - NOISE - 1));
+      }
+      return buildClustering(ids, clusterids, clustersizes);
+    }
+
+    /**
+     * Processor to evaluate the core predicate.
+     * 
+     * @author Erich Schubert
+     */
+    private class CoreProcessor implements Processor {
+      /**
+       * Object offsets.
+       */
+      final IntegerDataStore offsets;
+
+      /**
+       * Core flags (output).
+       */
+      final byte[] core;
+
+      /**
+       * Constructor.
+       * 
+       * @param offsets Object offsets
+       * @param core Core flags (output)
+       */
+      CoreProcessor(IntegerDataStore offsets, byte[] core) {
+        this.offsets = offsets;
+        this.core = core;
+      }
+
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        return new Processor.Instance() {
+          @Override
+          public void map(DBIDRef id) {
+            if(corepred.isCorePoint(id, sizesonly ? null : npred.getNeighbors(id))) {
+              core[offsets.intValue(id)] = 1;
+            }
+          }
+        };
+      }
+
+      @Override
+      public void cleanup(Processor.Instance inst) {
+        // Nothing to do.
+      }
+    }
+
+    /**
+     * Processor to merge core points with their core neighbors.
+     * 
+     * @author Erich Schubert
+     */
+    private class UnionProcessor implements Processor {
+      /**
+       * Object offsets.
+       */
+      final IntegerDataStore offsets;
+
+      /**
+       * Core flags.
+       */
+      final byte[] core;
+
+      /**
+       * Union-find structure.
+       */
+      final ConcurrentUnionFind uf;
+
+      /**
+       * Constructor.
+       * 
+       * @param offsets Object offsets
+       * @param core Core flags
+       * @param uf Union-find structure
+       */
+      UnionProcessor(IntegerDataStore offsets, byte[] core, ConcurrentUnionFind uf) {
+        this.offsets = offsets;
+        this.core = core;
+        this.uf = uf;
+      }
+
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        final ArrayModifiableDBIDs buf = DBIDUtil.newArray();
+        return new Processor.Instance() {
+          @Override
+          public void map(DBIDRef id) {
+            final int i = offsets.intValue(id);
+            if(core[i] != 1) {
+              return;
+            }
+            buf.clear();
+            npred.addDBIDs(buf, npred.getNeighbors(id));
+            for(DBIDIter it = buf.iter(); it.valid(); it.advance()) {
+              final int j = offsets.intValue(it);
+              if(j != i && core[j] == 1) {
+                uf.union(i, j);
+              }
+            }
+          }
+        };
+      }
+
+      @Override
+      public void cleanup(Processor.Instance inst) {
+        // Nothing to do.
+      }
+    }
+
+    /**
+     * Processor to assign border points to the first cluster of a core
+     * neighbor, or to noise.
+     * 
+     * @author Erich Schubert
+     */
+    private class BorderProcessor implements Processor {
+      /**
+       * Object offsets.
+       */
+      final IntegerDataStore offsets;
+
+      /**
+       * Core flags.
+       */
+      final byte[] core;
+
+      /**
+       * Cluster labels; final for core points.
+       */
+      final int[] labels;
+
+      /**
+       * Constructor.
+       * 
+       * @param offsets Object offsets
+       * @param core Core flags
+       * @param labels Cluster labels
+       */
+      BorderProcessor(IntegerDataStore offsets, byte[] core, int[] labels) {
+        this.offsets = offsets;
+        this.core = core;
+        this.labels = labels;
+      }
+
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        final ArrayModifiableDBIDs buf = DBIDUtil.newArray();
+        return new Processor.Instance() {
+          @Override
+          public void map(DBIDRef id) {
+            final int i = offsets.intValue(id);
+            if(core[i] == 1) {
+              return;
+            }
+            buf.clear();
+            npred.addDBIDs(buf, npred.getNeighbors(id));
+            int best = Integer.MAX_VALUE;
+            for(DBIDIter it = buf.iter(); it.valid(); it.advance()) {
+              final int j = offsets.intValue(it);
+              if(core[j] == 1 && labels[j] < best) {
+                best = labels[j];
+              }
+            }
+            // Non core point cluster member, or noise.
+            labels[i] = (best < Integer.MAX_VALUE) ? -best : NOISE;
+          }
+        };
+      }
+
+      @Override
+      public void cleanup(Processor.Instance inst) {
+        // Nothing to do.
+      }
+    }
+  }
+
+  /**
+   * Parameterization class
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends GeneralizedDBSCAN.Parameterizer {
+    @Override
+    protected ParallelGeneralizedDBSCAN makeInstance() {
+      return new ParallelGeneralizedDBSCAN(npred, corepred, coremodel);
+    }
+  }
+}
@@ -222,7 +222,21 @@ public abstract class AbstractHDBSCAN<O, R extends Result> extends AbstractDista
    * @param lambda Distance array
    */
   protected void convertToPointerRepresentation(ArrayDBIDs ids, DoubleLongHeap heap, WritableDBIDDataStore pi, WritableDoubleDataStore lambda) {
-    final Logging LOG = getLogger();
+    convertToPointerRepresentation(ids, heap, pi, lambda, getLogger());
+  }
+
+  /**
+   * Convert spanning tree to a pointer representation.
+   *
+   * Note: the heap must use the correct encoding of indexes.
+   *
+   * @param ids IDs indexed
+   * @param heap Heap
+   * @param pi Parent array
+   * @param lambda Distance array
+   * @param LOG Logger, for progress
+   */
+  protected static void convertToPointerRepresentation(ArrayDBIDs ids, DoubleLongHeap heap, WritableDBIDDataStore pi, WritableDoubleDataStore lambda, Logging LOG) {
     // Initialize parent array:
     for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
       pi.put(iter, iter); // Initialize
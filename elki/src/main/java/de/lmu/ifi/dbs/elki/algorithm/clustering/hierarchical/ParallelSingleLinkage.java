@@ -0,0 +1,186 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.math.geometry.ParallelPrimsMinimumSpanningTree;
+import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+
+/**
+ * Parallel single-linkage clustering, via the minimum spanning tree.
+ * 
+ * The minimum spanning tree is computed with a parallel version of Prim's
+ * algorithm, then converted into the pointer representation also produced by
+ * {@link SLINK}. This needs O(n) memory and O(n²) distance computations just
+ * like SLINK, but the distance computations can be spread over multiple
+ * threads.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses ParallelPrimsMinimumSpanningTree
+ * 
+ * @param <O> Object type
+ */
+@Title("Parallel Single-Linkage Clustering")
+@Description("Single-linkage hierarchical clustering via a parallel minimum spanning tree.")
+public class ParallelSingleLinkage<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchyRepresentationResult> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelSingleLinkage.class);
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   */
+  public ParallelSingleLinkage(DistanceFunction<? super O> distanceFunction) {
+    super(distanceFunction);
+  }
+
+  /**
+   * Run the algorithm
+   * 
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerHierarchyRepresentationResult run(Database db, Relation<O> relation) {
+    final DistanceQuery<O> distQ = db.getDistanceQuery(relation, getDistanceFunction());
+    // We need array addressing later.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+
+    final int numedges = ids.size() - 1;
+    DoubleLongHeap heap = new DoubleLongMinHeap(numedges);
+    // Build spanning tree.
+    FiniteProgress mprog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges).", numedges, LOG) : null;
+    ParallelPrimsMinimumSpanningTree.processDense(ids, //
+        new ParallelPrimsMinimumSpanningTree.AdapterFactory<ArrayDBIDs>() {
+          @Override
+          public PrimsMinimumSpanningTree.Adapter<ArrayDBIDs> instantiate() {
+            return new DistanceAdapter(ids, distQ);
+          }
+        }, new AbstractHDBSCAN.HeapMSTCollector(heap, mprog, LOG));
+    LOG.ensureCompleted(mprog);
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    AbstractHDBSCAN.convertToPointerRepresentation(ids, heap, pi, lambda, LOG);
+
+    return new PointerHierarchyRepresentationResult(ids, pi, lambda);
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Adapter for plain distances. Not thread safe, because of the iterators.
+   * 
+   * @author Erich Schubert
+   */
+  private static class DistanceAdapter implements PrimsMinimumSpanningTree.Adapter<ArrayDBIDs> {
+    /**
+     * IDs to process.
+     */
+    private ArrayDBIDs ids;
+
+    /**
+     * Iterators for accessing the data objects.
+     */
+    private DBIDArrayIter q, p;
+
+    /**
+     * Distance query.
+     */
+    private DistanceQuery<?> distq;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Ids to process.
+     * @param distq Distance query
+     */
+    public DistanceAdapter(ArrayDBIDs ids, DistanceQuery<?> distq) {
+      this.ids = ids;
+      this.q = ids.iter();
+      this.p = ids.iter();
+      this.distq = distq;
+    }
+
+    @Override
+    public double distance(ArrayDBIDs data, int ip, int iq) {
+      p.seek(ip);
+      q.seek(iq);
+      return distq.distance(p, q);
+    }
+
+    @Override
+    public int size(ArrayDBIDs data) {
+      assert (data == ids);
+      return ids.size();
+    }
+  }
+
+  /**
+   * Parameterization class
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   * 
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends AbstractDistanceBasedAlgorithm.Parameterizer<O> {
+    @Override
+    protected ParallelSingleLinkage<O> makeInstance() {
+      return new ParallelSingleLinkage<>(distanceFunction);
+    }
+  }
+}
@@ -0,0 +1,484 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleMeta;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.math.random.RandomFactory;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+
+/**
+ * Mini-batch k-means, reading the data from a {@link BundleStreamSource}.
+ * 
+ * The data is never materialized: it is read in batches, each point of a batch
+ * is assigned to the nearest center, and the centers are then moved towards
+ * the batch points with a per-center learning rate of 1/count. Optionally, a
+ * reservoir sample of the stream is kept, and refined with a few Lloyd
+ * iterations at the end. Because the stream may be ordered, the refinement
+ * also tries a k-means++ restart on the sample, and keeps the better result.
+ * Memory usage is O(k*d + batch + sample).
+ * 
+ * Reference:
+ * <p>
+ * D. Sculley<br />
+ * Web-scale k-means clustering<br />
+ * Proc. 19th International Conference on World Wide Web (WWW 2010)
+ * </p>
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses BundleStreamSource
+ */
+@Reference(authors = "D. Sculley", //
+title = "Web-scale k-means clustering", //
+booktitle = "Proc. 19th International Conference on World Wide Web (WWW 2010)", //
+url = "http://dx.doi.org/10.1145/1772690.1772862")
+public class StreamingKMeans {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(StreamingKMeans.class);
+
+  /**
+   * Number of clusters.
+   */
+  protected int k;
+
+  /**
+   * Mini-batch size.
+   */
+  protected int batchsize;
+
+  /**
+   * Size of the reservoir sample for refinement.
+   */
+  protected int samplesize;
+
+  /**
+   * Number of Lloyd iterations on the sample.
+   */
+  protected int refine;
+
+  /**
+   * Random generator.
+   */
+  protected RandomFactory rnd;
+
+  /**
+   * Number of points processed in the last run.
+   */
+  private long processed;
+
+  /**
+   * Constructor.
+   * 
+   * @param k Number of clusters
+   * @param batchsize Mini-batch size
+   * @param samplesize Reservoir sample size (0 to disable refinement)
+   * @param refine Number of Lloyd iterations on the sample
+   * @param rnd Random generator
+   */
+  public StreamingKMeans(int k, int batchsize, int samplesize, int refine, RandomFactory rnd) {
+    super();
+    this.k = k;
+    this.batchsize = batchsize;
+    this.samplesize = samplesize;
+    this.refine = refine;
+    this.rnd = rnd;
+  }
+
+  /**
+   * Run mini-batch k-means on a data stream.
+   * 
+   * @param source Data stream
+   * @return Cluster centers
+   */
+  public double[][] run(BundleStreamSource source) {
+    final Random random = rnd.getSingleThreadedRandom();
+    double[][] batch = null, sample = null, means = null;
+    long[] counts = new long[k];
+    // The first batch must contain at least k points for initialization.
+    final int firstsize = Math.max(batchsize, k);
+    int[] assignment = new int[firstsize];
+    int col = -1, fill = 0, dim = -1;
+    processed = 0;
+    IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("Processed batches", LOG) : null;
+    loop: while(true) {
+      switch(source.nextEvent()){
+      case META_CHANGED:
+        col = findVectorColumn(source.getMeta());
+        break;
+      case NEXT_OBJECT:
+        if(col < 0) {
+          col = findVectorColumn(source.getMeta());
+        }
+        final NumberVector vec = (NumberVector) source.data(col);
+        if(dim < 0) {
+          dim = vec.getDimensionality();
+          batch = new double[firstsize][dim];
+          sample = samplesize > 0 ? new double[samplesize][] : null;
+        }
+        else if(vec.getDimensionality() != dim) {
+          throw new AbortException("Inconsistent dimensionality in data stream: " + vec.getDimensionality() + " != " + dim);
+        }
+        final double[] row = batch[fill++];
+        for(int d = 0; d < dim; d++) {
+          row[d] = vec.doubleValue(d);
+        }
+        if(sample != null) {
+          reservoir(sample, row, processed, random);
+        }
+        ++processed;
+        if(fill == (means != null ? batchsize : firstsize)) {
+          means = processBatch(batch, fill, means, counts, assignment, random);
+          fill = 0;
+          LOG.incrementProcessed(prog);
+        }
+        break;
+      case END_OF_STREAM:
+        break loop;
+      default:
+        LOG.warning("Unknown bundle stream event. API inconsistent?");
+      }
+    }
+    if(fill > 0) {
+      means = processBatch(batch, fill, means, counts, assignment, random);
+      LOG.incrementProcessed(prog);
+    }
+    LOG.setCompleted(prog);
+    if(means == null) {
+      throw new AbortException("No data in stream.");
+    }
+    if(sample != null && refine > 0) {
+      final int size = (int) Math.min(processed, samplesize);
+      double ssq = lloyd(sample, size, means, refine);
+      // The stream may be ordered, so also try a fresh start on the sample.
+      if(size >= k) {
+        double[][] alt = initialMeans(sample, size, random);
+        if(lloyd(sample, size, alt, refine) < ssq) {
+          means = alt;
+        }
+      }
+    }
+    return means;
+  }
+
+  /**
+   * Number of data points processed in the last run.
+   * 
+   * @return Number of points
+   */
+  public long getProcessed() {
+    return processed;
+  }
+
+  /**
+   * Find the first vector field column.
+   * 
+   * @param meta Stream metadata
+   * @return Column number
+   */
+  private static int findVectorColumn(BundleMeta meta) {
+    for(int i = 0; i < meta.size(); i++) {
+      if(TypeUtil.NUMBER_VECTOR_FIELD.isAssignableFromType(meta.get(i))) {
+        return i;
+      }
+    }
+    throw new AbortException("No vector field found in input data.");
+  }
+
+  /**
+   * Reservoir sampling (Algorithm R).
+   * 
+   * @param sample Sample
+   * @param row New data point
+   * @param seen Number of points seen before
+   * @param random Random generator
+   */
+  private static void reservoir(double[][] sample, double[] row, long seen, Random random) {
+    final int pos = (seen < sample.length) ? (int) seen : (int) (random.nextDouble() * (seen + 1));
+    if(pos < sample.length) {
+      if(sample[pos] == null) {
+        sample[pos] = row.clone();
+      }
+      else {
+        System.arraycopy(row, 0, sample[pos], 0, row.length);
+      }
+    }
+  }
+
+  /**
+   * Process a single mini batch.
+   * 
+   * @param batch Batch data
+   * @param size Batch size
+   * @param means Current means, {@code null} on the first batch
+   * @param counts Per-center counts
+   * @param assignment Assignment buffer
+   * @param random Random generator
+   * @return Updated means
+   */
+  private double[][] processBatch(double[][] batch, int size, double[][] means, long[] counts, int[] assignment, Random random) {
+    if(means == null) {
+      if(size < k) {
+        throw new AbortException("Not enough data for k=" + k + " clusters.");
+      }
+      means = initialMeans(batch, size, random);
+    }
+    // Cache the nearest centers first, then update.
+    for(int i = 0; i < size; i++) {
+      assignment[i] = nearest(means, batch[i]);
+    }
+    for(int i = 0; i < size; i++) {
+      final int c = assignment[i];
+      final double eta = 1. / ++counts[c];
+      final double[] mean = means[c], row = batch[i];
+      for(int d = 0; d < mean.length; d++) {
+        mean[d] += eta * (row[d] - mean[d]);
+      }
+    }
+    return means;
+  }
+
+  /**
+   * Choose the initial means from the first batch, using k-means++ seeding.
+   * 
+   * @param batch Batch data
+   * @param size Batch size
+   * @param random Random generator
+   * @return Initial means
+   */
+  private double[][] initialMeans(double[][] batch, int size, Random random) {
+    double[][] means = new double[k][];
+    double[] weights = new double[size];
+    means[0] = batch[random.nextInt(size)].clone();
+    Arrays.fill(weights, Double.POSITIVE_INFINITY);
+    for(int c = 1; c < k; c++) {
+      double sum = 0.;
+      for(int i = 0; i < size; i++) {
+        weights[i] = Math.min(weights[i], squaredDistance(batch[i], means[c - 1]));
+        sum += weights[i];
+      }
+      int chosen = 0;
+      if(sum > 0) {
+        double r = random.nextDouble() * sum;
+        for(; chosen < size - 1; chosen++) {
+          r -= weights[chosen];
+          if(r <= 0) {
+            break;
+          }
+        }
+      }
+      else {
+        chosen = random.nextInt(size);
+      }
+      means[c] = batch[chosen].clone();
+    }
+    return means;
+  }
+
+  /**
+   * Refine the means with Lloyd iterations on the sample.
+   * 
+   * @param sample Sample
+   * @param size Sample size
+   * @param means Means to refine (modified)
+   * @param maxiter Maximum number of iterations
+   * @return Sum of squared deviations on the sample, of the last assignment
+   */
+  private static double lloyd(double[][] sample, int size, double[][] means, int maxiter) {
+    final int k = means.length, dim = means[0].length;
+    int[] assignment = new int[size];
+    Arrays.fill(assignment, -1);
+    double[][] sums = new double[k][dim];
+    int[] sizes = new int[k];
+    double ssq = Double.POSITIVE_INFINITY;
+    for(int iter = 0; iter < maxiter; iter++) {
+      boolean changed = false;
+      ssq = 0.;
+      for(double[] s : sums) {
+        Arrays.fill(s, 0.);
+      }
+      Arrays.fill(sizes, 0);
+      for(int i = 0; i < size; i++) {
+        final int c = nearest(means, sample[i]);
+        ssq += squaredDistance(sample[i], means[c]);
+        if(c != assignment[i]) {
+          assignment[i] = c;
+          changed = true;
+        }
+        final double[] row = sample[i], sum = sums[c];
+        for(int d = 0; d < dim; d++) {
+          sum[d] += row[d];
+        }
+        sizes[c]++;
+      }
+      if(!changed) {
+        break;
+      }
+      for(int c = 0; c < k; c++) {
+        if(sizes[c] > 0) { // Keep empty clusters unchanged.
+          final double[] mean = means[c], sum = sums[c];
+          for(int d = 0; d < dim; d++) {
+            mean[d] = sum[d] / sizes[c];
+          }
+        }
+      }
+    }
+    return ssq;
+  }
+
+  /**
+   * Find the nearest mean.
+   * 
+   * @param means Means
+   * @param row Data point
+   * @return Index of nearest mean
+   */
+  private static int nearest(double[][] means, double[] row) {
+    int best = 0;
+    double bestd = Double.POSITIVE_INFINITY;
+    for(int c = 0; c < means.length; c++) {
+      final double dist = squaredDistance(row, means[c]);
+      if(dist < bestd) {
+        bestd = dist;
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Squared Euclidean distance.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Squared distance
+   */
+  private static double squaredDistance(double[] a, double[] b) {
+    double sum = 0.;
+    for(int d = 0; d < a.length; d++) {
+      final double v = a[d] - b[d];
+      sum += v * v;
+    }
+    return sum;
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * Mini-batch size.
+     */
+    public static final OptionID BATCHSIZE_ID = new OptionID("kmeans.batchsize", "Number of points in each mini batch.");
+
+    /**
+     * Reservoir sample size.
+     */
+    public static final OptionID SAMPLESIZE_ID = new OptionID("kmeans.samplesize", "Size of the reservoir sample used for the final refinement. 0 disables the refinement.");
+
+    /**
+     * Number of refinement iterations.
+     */
+    public static final OptionID REFINE_ID = new OptionID("kmeans.refine", "Number of Lloyd iterations to refine the result on the sample.");
+
+    /**
+     * Number of clusters.
+     */
+    protected int k;
+
+    /**
+     * Mini-batch size.
+     */
+    protected int batchsize;
+
+    /**
+     * Size of the reservoir sample for refinement.
+     */
+    protected int samplesize;
+
+    /**
+     * Number of Lloyd iterations on the sample.
+     */
+    protected int refine;
+
+    /**
+     * Random generator.
+     */
+    protected RandomFactory rnd;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter kP = new IntParameter(KMeans.K_ID);
+      kP.addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(kP)) {
+        k = kP.getValue();
+      }
+      IntParameter batchP = new IntParameter(BATCHSIZE_ID, 1000);
+      batchP.addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(batchP)) {
+        batchsize = batchP.getValue();
+      }
+      IntParameter sampleP = new IntParameter(SAMPLESIZE_ID, 0);
+      sampleP.addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(sampleP)) {
+        samplesize = sampleP.getValue();
+      }
+      IntParameter refineP = new IntParameter(REFINE_ID, 10);
+      refineP.addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(refineP)) {
+        refine = refineP.getValue();
+      }
+      RandomParameter rndP = new RandomParameter(KMeans.SEED_ID);
+      if(config.grab(rndP)) {
+        rnd = rndP.getValue();
+      }
+    }
+
+    @Override
+    protected StreamingKMeans makeInstance() {
+      return new StreamingKMeans(k, batchsize, samplesize, refine, rnd);
+    }
+  }
+}
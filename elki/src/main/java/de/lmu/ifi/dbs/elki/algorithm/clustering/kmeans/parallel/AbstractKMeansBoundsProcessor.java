@@ -0,0 +1,315 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.VMath;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+
+/**
+ * Shared base for parallel k-means processors that maintain triangle
+ * inequality bounds across iterations (Elkan, Hamerly).
+ * 
+ * Cluster sums are kept across iterations, and each worker only accumulates
+ * the changes caused by reassignments in its partition. The bound update
+ * after moving the means is folded into the next assignment pass, so each
+ * iteration needs a single pass over the data.
+ * 
+ * Workers write bounds and assignments of distinct objects only, which is
+ * safe with the array-backed data stores used for temporary storage.
+ * 
+ * @author Erich Schubert
+ * 
+ * @param <V> Vector type
+ */
+public abstract class AbstractKMeansBoundsProcessor<V extends NumberVector> implements Processor {
+  /**
+   * Data relation.
+   */
+  Relation<V> relation;
+
+  /**
+   * Distance function.
+   */
+  PrimitiveDistanceFunction<? super NumberVector> distance;
+
+  /**
+   * Distance function is squared Euclidean, bounds need square roots.
+   */
+  boolean issquared;
+
+  /**
+   * Assignment storage.
+   */
+  WritableIntegerDataStore assignment;
+
+  /**
+   * Upper bounds.
+   */
+  WritableDoubleDataStore upper;
+
+  /**
+   * Current mean vectors.
+   */
+  List<Vector> means;
+
+  /**
+   * Distance each mean moved in the last update, {@code null} before the
+   * first assignment.
+   */
+  double[] move;
+
+  /**
+   * Cluster sums.
+   */
+  double[][] sums;
+
+  /**
+   * Cluster sizes.
+   */
+  int[] sizes;
+
+  /**
+   * Number of reassigned objects in the current iteration.
+   */
+  int changed;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Data relation
+   * @param distance Distance function
+   * @param assignment Cluster assignment
+   * @param upper Upper bounds
+   * @param means Initial means
+   */
+  public AbstractKMeansBoundsProcessor(Relation<V> relation, PrimitiveDistanceFunction<? super NumberVector> distance, WritableIntegerDataStore assignment, WritableDoubleDataStore upper, List<Vector> means) {
+    super();
+    this.relation = relation;
+    this.distance = distance;
+    this.issquared = (distance instanceof SquaredEuclideanDistanceFunction);
+    this.assignment = assignment;
+    this.upper = upper;
+    this.means = means;
+    final int k = means.size();
+    this.sums = new double[k][means.get(0).getDimensionality()];
+    this.sizes = new int[k];
+  }
+
+  /**
+   * Initialize for a new iteration.
+   */
+  public void nextIteration() {
+    changed = 0;
+  }
+
+  /**
+   * Get the number of objects reassigned in the last iteration.
+   * 
+   * @return Number of changes
+   */
+  public int changed() {
+    return changed;
+  }
+
+  /**
+   * Test whether this is the initial assignment pass.
+   * 
+   * @return {@code true} before the first update of the means
+   */
+  protected boolean isInitial() {
+    return move == null;
+  }
+
+  /**
+   * Distance, made metric for squared Euclidean.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Distance
+   */
+  protected double metricDistance(NumberVector a, NumberVector b) {
+    final double d = distance.distance(a, b);
+    return issquared ? Math.sqrt(d) : d;
+  }
+
+  /**
+   * Recompute the means from the cluster sums, and record how far each mean
+   * moved.
+   * 
+   * @return Maximum distance moved
+   */
+  public double updateMeans() {
+    final int k = sums.length;
+    if(move == null) {
+      move = new double[k];
+    }
+    List<Vector> newmeans = new ArrayList<>(k);
+    double max = 0.;
+    for(int i = 0; i < k; i++) {
+      final Vector old = means.get(i);
+      if(sizes[i] == 0) {
+        newmeans.add(old); // Keep old mean.
+        move[i] = 0.;
+        continue;
+      }
+      Vector mean = new Vector(VMath.times(sums[i], 1. / sizes[i]));
+      newmeans.add(mean);
+      final double d = metricDistance(old, mean);
+      move[i] = d;
+      max = (d > max) ? d : max;
+    }
+    means = newmeans;
+    return max;
+  }
+
+  /**
+   * Get the current means.
+   * 
+   * @return Means
+   */
+  public List<Vector> getMeans() {
+    return means;
+  }
+
+  /**
+   * Get the cluster sizes.
+   * 
+   * @return Cluster sizes
+   */
+  public int[] getSizes() {
+    return sizes;
+  }
+
+  /**
+   * Release the bound storage.
+   */
+  public void destroy() {
+    upper.destroy();
+  }
+
+  @Override
+  public void cleanup(Processor.Instance inst) {
+    @SuppressWarnings("unchecked")
+    Instance instance = (Instance) inst;
+    synchronized(this) {
+      changed += instance.changed;
+      for(int i = 0; i < sums.length; i++) {
+        if(instance.active[i]) {
+          VMath.plusEquals(sums[i], instance.sums[i]);
+          sizes[i] += instance.sizes[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * Instance to process part of the data set, for a single iteration.
+   * 
+   * @author Erich Schubert
+   */
+  public abstract class Instance implements Processor.Instance {
+    /**
+     * Current mean vectors.
+     */
+    protected Vector[] means;
+
+    /**
+     * Changes to the cluster sums.
+     */
+    private double[][] sums;
+
+    /**
+     * Changes to the cluster sizes.
+     */
+    private int[] sizes;
+
+    /**
+     * Clusters with changes.
+     */
+    private boolean[] active;
+
+    /**
+     * Number of reassigned objects.
+     */
+    private int changed = 0;
+
+    /**
+     * Constructor.
+     * 
+     * @param means Current mean vectors
+     */
+    public Instance(List<? extends NumberVector> means) {
+      super();
+      final int k = means.size();
+      this.means = new Vector[k];
+      Iterator<? extends NumberVector> iter = means.iterator();
+      for(int i = 0; i < k; i++) {
+        this.means[i] = iter.next().getColumnVector(); // Make local copy!
+      }
+      this.sums = new double[k][this.means[0].getDimensionality()];
+      this.sizes = new int[k];
+      this.active = new boolean[k];
+    }
+
+    /**
+     * Move an object from one cluster to another.
+     * 
+     * @param fv Object
+     * @param orig Previous cluster, or -1
+     * @param cur New cluster
+     */
+    protected void reassign(V fv, int orig, int cur) {
+      final double[] newsum = sums[cur];
+      if(orig >= 0) {
+        final double[] oldsum = sums[orig];
+        for(int d = 0; d < newsum.length; d++) {
+          final double v = fv.doubleValue(d);
+          newsum[d] += v;
+          oldsum[d] -= v;
+        }
+        --sizes[orig];
+        active[orig] = true;
+      }
+      else {
+        for(int d = 0; d < newsum.length; d++) {
+          newsum[d] += fv.doubleValue(d);
+        }
+      }
+      ++sizes[cur];
+      active[cur] = true;
+      ++changed;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.AbstractKMeans;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.KMeansModel;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Abstract base for parallel k-means variants that maintain triangle
+ * inequality bounds across iterations, see
+ * {@link AbstractKMeansBoundsProcessor}. Subclasses only choose the processor
+ * and its bound storage.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses AbstractKMeansBoundsProcessor
+ * 
+ * @param <V> Vector type
+ */
+public abstract class AbstractParallelBoundsKMeans<V extends NumberVector> extends AbstractKMeans<V, KMeansModel> {
+  /**
+   * Use work-stealing parallelism.
+   */
+  protected boolean workstealing;
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   * @param k K parameter
+   * @param maxiter Maximum number of iterations
+   * @param initializer Initialization method
+   * @param workstealing Use work-stealing parallelism
+   */
+  public AbstractParallelBoundsKMeans(PrimitiveDistanceFunction<? super NumberVector> distanceFunction, int k, int maxiter, KMeansInitialization<? super V> initializer, boolean workstealing) {
+    super(distanceFunction, k, maxiter, initializer);
+    this.workstealing = workstealing;
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
+  }
+
+  @Override
+  public Clustering<KMeansModel> run(Database database, Relation<V> relation) {
+    if(relation.size() <= 0) {
+      return new Clustering<>("k-Means Clustering", "kmeans-clustering");
+    }
+    DBIDs ids = relation.getDBIDs();
+    // Choose initial means
+    List<Vector> means = initializer.chooseInitialMeans(database, relation, k, getDistanceFunction(), Vector.FACTORY);
+    // Setup cluster assignment store
+    WritableIntegerDataStore assignment = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+    AbstractKMeansBoundsProcessor<V> kmm = makeProcessor(relation, assignment, means);
+
+    final Logging log = getLogger();
+    IndefiniteProgress prog = log.isVerbose() ? new IndefiniteProgress("K-Means iteration", log) : null;
+    LongStatistic varstat = log.isStatistics() ? new LongStatistic(this.getClass().getName() + ".reassignments") : null;
+    for(int iteration = 0; maxiter <= 0 || iteration < maxiter; iteration++) {
+      log.incrementProcessed(prog);
+      kmm.nextIteration();
+      ParallelExecutor.run(ids, workstealing, kmm);
+      final int changed = kmm.changed();
+      if(varstat != null) {
+        varstat.setLong(changed);
+        log.statistics(varstat);
+      }
+      // Stop if no cluster assignment changed.
+      if(changed == 0) {
+        break;
+      }
+      kmm.updateMeans();
+    }
+    log.setCompleted(prog);
+    kmm.destroy();
+
+    return wrapResult(relation, kmm.getMeans(), kmm.getSizes(), assignment);
+  }
+
+  /**
+   * Allocate the bounds, and make the processor for the assignment step.
+   * 
+   * @param relation Data relation
+   * @param assignment Cluster assignment
+   * @param means Initial means
+   * @return Processor
+   */
+  protected abstract AbstractKMeansBoundsProcessor<V> makeProcessor(Relation<V> relation, WritableIntegerDataStore assignment, List<Vector> means);
+
+  /**
+   * Build the clustering result.
+   * 
+   * @param relation Data relation
+   * @param means Final means
+   * @param sizes Cluster sizes
+   * @param assignment Cluster assignment
+   * @return Clustering
+   */
+  protected Clustering<KMeansModel> wrapResult(Relation<V> relation, List<Vector> means, int[] sizes, WritableIntegerDataStore assignment) {
+    List<ModifiableDBIDs> clusters = new ArrayList<>(k);
+    for(int i = 0; i < k; i++) {
+      clusters.add(DBIDUtil.newArray(sizes[i]));
+    }
+    double[] varsum = new double[k];
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      final int c = assignment.intValue(iter);
+      clusters.get(c).add(iter);
+      varsum[c] += distanceFunction.distance(means.get(c), relation.get(iter));
+    }
+    assignment.destroy();
+
+    Clustering<KMeansModel> result = new Clustering<>("k-Means Clustering", "kmeans-clustering");
+    for(int i = 0; i < k; i++) {
+      DBIDs cids = clusters.get(i);
+      if(cids.size() == 0) {
+        continue;
+      }
+      KMeansModel model = new KMeansModel(means.get(i), varsum[i]);
+      result.addToplevelCluster(new Cluster<>(cids, model));
+    }
+    return result;
+  }
+
+  /**
+   * Parameterization class
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   * 
+   * @param <V> Vector type
+   */
+  public abstract static class Parameterizer<V extends NumberVector> extends AbstractKMeans.Parameterizer<V> {
+    /**
+     * Use work-stealing parallelism.
+     */
+    protected boolean workstealing = false;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      Flag workstealingF = new Flag(ParallelExecutor.WORKSTEALING_ID);
+      if(config.grab(workstealingF)) {
+        workstealing = workstealingF.isTrue();
+      }
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+
+/**
+ * Parallel assignment step of Elkan's k-means, using one upper bound and k
+ * lower bounds per object.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has Instance
+ * 
+ * @param <V> Vector type
+ */
+public class ElkanKMeansProcessor<V extends NumberVector> extends AbstractKMeansBoundsProcessor<V> {
+  /**
+   * Lower bounds, one per mean.
+   */
+  WritableDataStore<double[]> lower;
+
+  /**
+   * Separation of means (half the distance to the nearest other mean).
+   */
+  double[] sep;
+
+  /**
+   * Half of the center-to-center distances.
+   */
+  double[][] cdist;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Data relation
+   * @param distance Distance function
+   * @param assignment Cluster assignment
+   * @param upper Upper bounds
+   * @param lower Lower bounds, arrays of length k
+   * @param means Initial means
+   */
+  public ElkanKMeansProcessor(Relation<V> relation, PrimitiveDistanceFunction<? super NumberVector> distance, WritableIntegerDataStore assignment, WritableDoubleDataStore upper, WritableDataStore<double[]> lower, List<Vector> means) {
+    super(relation, distance, assignment, upper, means);
+    this.lower = lower;
+    final int k = means.size();
+    this.sep = new double[k];
+    this.cdist = new double[k][k];
+  }
+
+  @Override
+  public void nextIteration() {
+    super.nextIteration();
+    if(isInitial()) {
+      return;
+    }
+    final int k = means.size();
+    Arrays.fill(sep, Double.POSITIVE_INFINITY);
+    for(int i = 1; i < k; i++) {
+      Vector mi = means.get(i);
+      for(int j = 0; j < i; j++) {
+        double d = metricDistance(mi, means.get(j)) * .5;
+        cdist[i][j] = d;
+        cdist[j][i] = d;
+        sep[i] = (d < sep[i]) ? d : sep[i];
+        sep[j] = (d < sep[j]) ? d : sep[j];
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {
+    super.destroy();
+    lower.destroy();
+  }
+
+  @Override
+  public Instance instantiate(Executor executor) {
+    return new Instance(means);
+  }
+
+  /**
+   * Instance to process part of the data set, for a single iteration.
+   * 
+   * @author Erich Schubert
+   */
+  public class Instance extends AbstractKMeansBoundsProcessor<V>.Instance {
+    /**
+     * Constructor.
+     * 
+     * @param means Current mean vectors
+     */
+    public Instance(List<? extends NumberVector> means) {
+      super(means);
+    }
+
+    @Override
+    public void map(DBIDRef id) {
+      final int k = means.length;
+      final double[] l = lower.get(id);
+      final int orig = assignment.intValue(id);
+      if(orig < 0) {
+        // Initial assignment: compute all distances.
+        final V fv = relation.get(id);
+        double best = Double.POSITIVE_INFINITY;
+        int cur = -1;
+        for(int j = 0; j < k; j++) {
+          double dist = metricDistance(fv, means[j]);
+          l[j] = dist;
+          if(dist < best) {
+            cur = j;
+            best = dist;
+          }
+        }
+        assignment.putInt(id, cur);
+        upper.putDouble(id, best);
+        reassign(fv, orig, cur);
+        return;
+      }
+      // Apply the movement of the means to the bounds.
+      for(int j = 0; j < k; j++) {
+        l[j] -= move[j];
+      }
+      double u = upper.doubleValue(id) + move[orig];
+      // Upper bound check (#2):
+      if(u <= sep[orig]) {
+        upper.putDouble(id, u);
+        return;
+      }
+      boolean recompute_u = true; // Elkan's r(x)
+      V fv = null;
+      // Check all (other) means:
+      int cur = orig;
+      for(int j = 0; j < k; j++) {
+        if(orig == j || u <= l[j] || u <= cdist[cur][j]) {
+          continue; // Condition #3 i-iii not satisfied
+        }
+        if(fv == null) {
+          fv = relation.get(id);
+        }
+        if(recompute_u) { // Need to update bound? #3a
+          u = metricDistance(fv, means[cur]);
+          l[cur] = u;
+          recompute_u = false; // Once only
+          if(u <= l[j] || u <= cdist[cur][j]) { // #3b
+            continue;
+          }
+        }
+        double dist = metricDistance(fv, means[j]);
+        l[j] = dist;
+        if(dist < u) {
+          cur = j;
+          u = dist;
+        }
+      }
+      upper.putDouble(id, u);
+      // Object is to be reassigned.
+      if(cur != orig) {
+        assignment.putInt(id, cur);
+        reassign(fv, orig, cur);
+      }
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+
+/**
+ * Parallel assignment step of Hamerly's k-means, using one upper and one lower
+ * bound per object.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has Instance
+ * 
+ * @param <V> Vector type
+ */
+public class HamerlyKMeansProcessor<V extends NumberVector> extends AbstractKMeansBoundsProcessor<V> {
+  /**
+   * Lower bounds.
+   */
+  WritableDoubleDataStore lower;
+
+  /**
+   * Separation of means (half the distance to the nearest other mean).
+   */
+  double[] sep;
+
+  /**
+   * Maximum distance moved by any mean.
+   */
+  double delta;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Data relation
+   * @param distance Distance function
+   * @param assignment Cluster assignment
+   * @param upper Upper bounds
+   * @param lower Lower bounds
+   * @param means Initial means
+   */
+  public HamerlyKMeansProcessor(Relation<V> relation, PrimitiveDistanceFunction<? super NumberVector> distance, WritableIntegerDataStore assignment, WritableDoubleDataStore upper, WritableDoubleDataStore lower, List<Vector> means) {
+    super(relation, distance, assignment, upper, means);
+    this.lower = lower;
+    this.sep = new double[means.size()];
+  }
+
+  @Override
+  public void nextIteration() {
+    super.nextIteration();
+    if(isInitial()) {
+      return;
+    }
+    final int k = means.size();
+    Arrays.fill(sep, Double.POSITIVE_INFINITY);
+    for(int i = 1; i < k; i++) {
+      Vector mi = means.get(i);
+      for(int j = 0; j < i; j++) {
+        double d = metricDistance(mi, means.get(j));
+        sep[i] = (d < sep[i]) ? d : sep[i];
+        sep[j] = (d < sep[j]) ? d : sep[j];
+      }
+    }
+    for(int i = 0; i < k; i++) {
+      sep[i] *= .5;
+    }
+  }
+
+  @Override
+  public double updateMeans() {
+    return delta = super.updateMeans();
+  }
+
+  @Override
+  public void destroy() {
+    super.destroy();
+    lower.destroy();
+  }
+
+  @Override
+  public Instance instantiate(Executor executor) {
+    return new Instance(means);
+  }
+
+  /**
+   * Instance to process part of the data set, for a single iteration.
+   * 
+   * @author Erich Schubert
+   */
+  public class Instance extends AbstractKMeansBoundsProcessor<V>.Instance {
+    /**
+     * Constructor.
+     * 
+     * @param means Current mean vectors
+     */
+    public Instance(List<? extends NumberVector> means) {
+      super(means);
+    }
+
+    @Override
+    public void map(DBIDRef id) {
+      final int cur = assignment.intValue(id);
+      if(cur >= 0) {
+        // Apply the movement of the means to the bounds.
+        double u = upper.doubleValue(id) + move[cur];
+        final double z = lower.doubleValue(id) - delta;
+        lower.putDouble(id, z);
+        final double sa = sep[cur];
+        if(u <= z || u <= sa) {
+          upper.putDouble(id, u);
+          return;
+        }
+        // Tighten the upper bound
+        u = metricDistance(relation.get(id), means[cur]);
+        upper.putDouble(id, u);
+        if(u <= z || u <= sa) {
+          return;
+        }
+      }
+      final V fv = relation.get(id);
+      // Find closest center, and distance to two closest centers
+      double min1 = Double.POSITIVE_INFINITY, min2 = Double.POSITIVE_INFINITY;
+      int minIndex = -1;
+      for(int i = 0; i < means.length; i++) {
+        double dist = distance.distance(fv, means[i]);
+        if(dist < min1) {
+          minIndex = i;
+          min2 = min1;
+          min1 = dist;
+        }
+        else if(dist < min2) {
+          min2 = dist;
+        }
+      }
+      // make squared Euclidean a metric:
+      if(issquared) {
+        min1 = Math.sqrt(min1);
+        min2 = Math.sqrt(min2);
+      }
+      if(minIndex != cur) {
+        assignment.putInt(id, minIndex);
+        upper.putDouble(id, min1);
+        reassign(fv, cur, minIndex);
+      }
+      lower.putDouble(id, min2);
+    }
+  }
+}
@@ -48,6 +48,8 @@ import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
 import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
 import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 
 /**
  * Parallel implementation of k-Means clustering.
@@ -59,6 +61,11 @@ import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
  * @param <V> Vector type
  */
 public class ParallelLloydKMeans<V extends NumberVector> extends AbstractKMeans<V, KMeansModel> {
+  /**
+   * Use work-stealing parallelism.
+   */
+  private boolean workstealing;
+
   /**
    * Constructor.
    * 
@@ -66,7 +73,19 @@ public class ParallelLloydKMeans<V extends NumberVector> extends AbstractKMeans<
    * @param k K parameter
    */
   public ParallelLloydKMeans(PrimitiveDistanceFunction<? super NumberVector> distanceFunction, int k, int maxiter, KMeansInitialization<? super V> initializer) {
+    this(distanceFunction, k, maxiter, initializer, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   * @param k K parameter
+   * @param workstealing Use work-stealing parallelism
+   */
+  public ParallelLloydKMeans(PrimitiveDistanceFunction<? super NumberVector> distanceFunction, int k, int maxiter, KMeansInitialization<? super V> initializer, boolean workstealing) {
     super(distanceFunction, k, maxiter, initializer);
+    this.workstealing = workstealing;
   }
 
   /**
@@ -95,7 +114,7 @@ public class ParallelLloydKMeans<V extends NumberVector> extends AbstractKMeans<
     for (int iteration = 0; maxiter <= 0 || iteration < maxiter; iteration++) {
       LOG.incrementProcessed(prog);
       kmm.nextIteration(means);
-      ParallelExecutor.run(ids, kmm);
+      ParallelExecutor.run(ids, workstealing, kmm);
       // Stop if no cluster assignment changed.
       if (!kmm.changed()) {
         break;
@@ -141,6 +160,20 @@ public class ParallelLloydKMeans<V extends NumberVector> extends AbstractKMeans<
    * @param <V> Vector type
    */
   public static class Parameterizer<V extends NumberVector> extends AbstractKMeans.Parameterizer<V> {
+    /**
+     * Use work-stealing parallelism.
+     */
+    boolean workstealing = false;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      Flag workstealingF = new Flag(ParallelExecutor.WORKSTEALING_ID);
+      if(config.grab(workstealingF)) {
+        workstealing = workstealingF.isTrue();
+      }
+    }
+
     @Override
     protected Logging getLogger() {
       return LOG;
@@ -148,7 +181,7 @@ public class ParallelLloydKMeans<V extends NumberVector> extends AbstractKMeans<
 
     @Override
     protected ParallelLloydKMeans<V> makeInstance() {
-      return new ParallelLloydKMeans<>(distanceFunction, k, maxiter, initializer);
+      return new ParallelLloydKMeans<>(distanceFunction, k, maxiter, initializer, workstealing);
     }
   }
 }
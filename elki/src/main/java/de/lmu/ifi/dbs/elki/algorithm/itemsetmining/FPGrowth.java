@@ -190,7 +190,7 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
    * @param dim Maximum dimensionality
    * @return Item counts
    */
-  private int[] countItemSupport(final Relation<BitVector> relation, final int dim) {
+  protected int[] countItemSupport(final Relation<BitVector> relation, final int dim) {
     final int[] counts = new int[dim];
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Finding frequent 1-items.", relation.size(), LOG) : null;
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
@@ -247,7 +247,7 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
    * @param minsupp Minimum support
    * @return Forward index
    */
-  private int[] buildIndex(final int[] counts, int[] positions, int minsupp) {
+  protected int[] buildIndex(final int[] counts, int[] positions, int minsupp) {
     // Count the number of frequent items:
     int numfreq = 0;
     for(int i = 0; i < counts.length; i++) {
@@ -371,12 +371,12 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
       if(header[item] == null) {
         return;
       }
-      // No siblings: single path only.
-      if(header[item].sibling == null) {
+      // No siblings, and all remaining items on the same path: single path.
+      if(header[item].sibling == null && isSinglePath(item)) {
         if(header[item].count < minsupp) {
           return;
         }
-        extractLinear(header[item].count, minsupp, minlength, maxlength, item, postfix, plen, buf2, col);
+        extractLinear(count, minsupp, minlength, maxlength, item, postfix, plen, buf2, col);
         if(destruct) {
           Arrays.fill(header, null);
         }
@@ -439,6 +439,29 @@ public class FPGrowth extends AbstractFrequentItemsetAlgorithm {
       }
     }
 
+    /**
+     * Test whether all nodes of the items before the given item are on the
+     * path of the given item to the root (i.e. the remaining tree is linear).
+     * 
+     * @param item Item, must have a single node only
+     * @return {@code true} if the tree is a single path
+     */
+    private boolean isSinglePath(int item) {
+      int onpath = 0;
+      for(FPNode cur = header[item].parent; cur.key >= 0; cur = cur.parent) {
+        ++onpath;
+      }
+      for(int i = 0; i < item; i++) {
+        if(header[i] != null) {
+          if(header[i].sibling != null) {
+            return false;
+          }
+          --onpath;
+        }
+      }
+      return onpath == 0;
+    }
+
     /**
      * Extract itemsets from a linear tree.
      * 
@@ -0,0 +1,538 @@
+package de.lmu.ifi.dbs.elki.algorithm.itemsetmining;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.lmu.ifi.dbs.elki.data.BitVector;
+import de.lmu.ifi.dbs.elki.data.SparseFeatureVector;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.result.FrequentItemsetsResult;
+
+/**
+ * Parallel version of {@link FPGrowth}, using a compact array-based FP-tree.
+ * 
+ * The FP-tree is stored in a few primitive arrays (parent, item, count, and
+ * the per-item node chains) instead of one object per node, which reduces the
+ * memory overhead per node substantially. The navigation from parents to
+ * children is only needed during construction, and released afterwards.
+ * 
+ * After the (serial) construction of the global tree, the frequent items are
+ * distributed to worker threads: each worker extracts the conditional pattern
+ * base of an item from the shared (read-only) tree, and mines the resulting
+ * projected tree independently. The itemsets found are merged and sorted, so
+ * the result is the same as with the serial version.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf ArrayFPTree
+ */
+public class ParallelFPGrowth extends FPGrowth {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelFPGrowth.class);
+
+  /**
+   * Prefix for statistics.
+   */
+  private static final String STAT = ParallelFPGrowth.class.getName() + ".";
+
+  /**
+   * Constructor.
+   *
+   * @param minsupp Minimum support (relative or absolute)
+   * @param minlength Minimum length
+   * @param maxlength Maximum length
+   */
+  public ParallelFPGrowth(double minsupp, int minlength, int maxlength) {
+    super(minsupp, minlength, maxlength);
+  }
+
+  @Override
+  public FrequentItemsetsResult run(Database db, final Relation<BitVector> relation) {
+    final int dim = RelationUtil.dimensionality(relation);
+    final VectorFieldTypeInformation<BitVector> meta = RelationUtil.assumeVectorField(relation);
+    // Compute absolute minsupport
+    final int minsupp = getMinimumSupport(relation.size());
+
+    LOG.verbose("Finding item frequencies for ordering.");
+    final int[] counts = countItemSupport(relation, dim);
+    // Forward and backward indexes
+    int[] iidx = new int[dim];
+    final int[] idx = buildIndex(counts, iidx, minsupp);
+    final int items = idx.length;
+
+    LOG.statistics(new LongStatistic(STAT + "raw-items", dim));
+    LOG.statistics(new LongStatistic(STAT + "raw-transactions", relation.size()));
+    LOG.statistics(new DoubleStatistic(STAT + "minsupp-relative", minsupp / (double) relation.size()));
+    LOG.statistics(new LongStatistic(STAT + "minsupp-absolute", minsupp));
+
+    LOG.verbose("Building FP-Tree.");
+    Duration ctime = LOG.newDuration(STAT + "fp-tree.construction.time").begin();
+    ArrayFPTree tree = buildFPTree(relation, iidx, items);
+    // Reduce memory usage:
+    tree.reduceMemory();
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(STAT + "items", items));
+      LOG.statistics(new LongStatistic(STAT + "nodes", tree.size));
+      LOG.statistics(new LongStatistic(STAT + "transactions", tree.count[0]));
+    }
+    LOG.statistics(ctime.end());
+
+    LOG.verbose("Extracting frequent patterns.");
+    Duration etime = LOG.newDuration(STAT + "fp-growth.extraction.time").begin();
+    final int stop = (minlength > 1) ? minlength - 1 : 0;
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Extracting itemsets", Math.max(0, items - stop), LOG) : null;
+    final List<Itemset> solution = new ArrayList<>();
+    ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      // Start extraction with the least frequent items
+      final AtomicInteger next = new AtomicInteger(items - 1);
+      final int threads = core.getParallelism();
+      List<Future<List<Itemset>>> parts = new ArrayList<>(threads);
+      for(int i = 0; i < threads; i++) {
+        parts.add(core.submit(new ExtractionWorker(tree, next, stop, minsupp, idx, prog)));
+      }
+      for(Future<List<Itemset>> fut : parts) {
+        solution.addAll(fut.get());
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel execution interrupted.", e);
+    }
+    finally {
+      core.disconnect();
+    }
+    LOG.ensureCompleted(prog);
+    Collections.sort(solution);
+    LOG.statistics(etime.end());
+    LOG.statistics(new LongStatistic(STAT + "frequent-itemsets", solution.size()));
+
+    return new FrequentItemsetsResult("FP-Growth", "fp-growth", solution, meta);
+  }
+
+  /**
+   * Build the array FP-tree.
+   * 
+   * @param relation Data
+   * @param iidx Inverse index (dimension to item rank)
+   * @param items Number of items
+   * @return FP-tree
+   */
+  private ArrayFPTree buildFPTree(final Relation<BitVector> relation, int[] iidx, final int items) {
+    ArrayFPTree tree = new ArrayFPTree(items, Math.max(16, items));
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Building FP-tree", relation.size(), LOG) : null;
+    int[] buf = new int[items];
+    for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
+      // Convert item to index representation:
+      int l = 0;
+      SparseFeatureVector<?> bv = relation.get(iditer);
+      for(int it = bv.iter(); bv.iterValid(it); it = bv.iterAdvance(it)) {
+        int i = iidx[bv.iterDim(it)];
+        if(i < 0) {
+          continue; // Skip non-frequent items
+        }
+        buf[l++] = i;
+      }
+      // Skip too short entries
+      if(l >= minlength) {
+        Arrays.sort(buf, 0, l); // Sort ascending
+        tree.insert(buf, 0, l, 1);
+      }
+      LOG.incrementProcessed(prog);
+    }
+    LOG.ensureCompleted(prog);
+    return tree;
+  }
+
+  /**
+   * Worker thread, mining the conditional pattern bases of one item at a
+   * time.
+   * 
+   * @author Erich Schubert
+   */
+  private class ExtractionWorker implements Callable<List<Itemset>>, FPGrowth.FPTree.Collector {
+    /**
+     * Shared FP-tree (read-only).
+     */
+    private ArrayFPTree tree;
+
+    /**
+     * Next item to process (shared).
+     */
+    private AtomicInteger next;
+
+    /**
+     * Last item to process, minimum support.
+     */
+    private int stop, minsupp;
+
+    /**
+     * Index to translate items back to dimensions.
+     */
+    private int[] idx;
+
+    /**
+     * Progress, may be {@code null}.
+     */
+    private FiniteProgress prog;
+
+    /**
+     * Itemsets found by this worker.
+     */
+    private List<Itemset> solution = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param tree Shared FP-tree
+     * @param next Next item to process
+     * @param stop Last item to process
+     * @param minsupp Minimum support
+     * @param idx Index to translate items back to dimensions
+     * @param prog Progress
+     */
+    public ExtractionWorker(ArrayFPTree tree, AtomicInteger next, int stop, int minsupp, int[] idx, FiniteProgress prog) {
+      this.tree = tree;
+      this.next = next;
+      this.stop = stop;
+      this.minsupp = minsupp;
+      this.idx = idx;
+      this.prog = prog;
+    }
+
+    @Override
+    public List<Itemset> call() {
+      final int items = tree.header.length;
+      int[] buf = new int[items], buf2 = new int[items], buf3 = new int[items];
+      for(int j = next.getAndDecrement(); j >= stop; j = next.getAndDecrement()) {
+        tree.extract(minsupp, minlength, maxlength, j, buf, 0, buf2, buf3, this);
+        LOG.incrementProcessed(prog);
+      }
+      return solution;
+    }
+
+    @Override
+    public void collect(int support, int[] data, int start, int plen) {
+      // Always translate the indexes back to the original values via 'idx'!
+      if(plen - start == 1) {
+        solution.add(new OneItemset(idx[data[start]], support));
+        return;
+      }
+      // Copy from buffer to a permanent storage
+      int[] indices = new int[plen - start];
+      for(int i = start, j = 0; i < plen; i++) {
+        indices[j++] = idx[data[i]]; // Translate to original items
+      }
+      Arrays.sort(indices);
+      solution.add(new SparseItemset(indices, support));
+    }
+  }
+
+  /**
+   * FP-tree stored in primitive arrays. Node 0 is the root.
+   * 
+   * @author Erich Schubert
+   */
+  public static class ArrayFPTree {
+    /**
+     * Parent node, item, and count of each node.
+     */
+    int[] parent, key, count;
+
+    /**
+     * Next node with the same item (header chains).
+     */
+    int[] sibling;
+
+    /**
+     * First child and next child of the same parent (construction only).
+     */
+    int[] firstchild, nextchild;
+
+    /**
+     * Header table: first node of each item, or -1.
+     */
+    int[] header;
+
+    /**
+     * Number of nodes in the tree.
+     */
+    int size = 0;
+
+    /**
+     * Flag whether the tree consists of a single path only.
+     */
+    boolean singlepath = true;
+
+    /**
+     * Constructor.
+     *
+     * @param items Number of items in header table
+     * @param capacity Initial capacity
+     */
+    public ArrayFPTree(int items, int capacity) {
+      parent = new int[capacity];
+      key = new int[capacity];
+      count = new int[capacity];
+      sibling = new int[capacity];
+      firstchild = new int[capacity];
+      nextchild = new int[capacity];
+      header = new int[items];
+      Arrays.fill(header, -1);
+      newNode(-1, -1); // Root
+    }
+
+    /**
+     * Create a new node, linking it into the header table.
+     * 
+     * @param par Parent node
+     * @param label Node label
+     * @return New node
+     */
+    private int newNode(int par, int label) {
+      if(size == parent.length) {
+        final int newsize = parent.length + (parent.length >>> 1);
+        parent = Arrays.copyOf(parent, newsize);
+        key = Arrays.copyOf(key, newsize);
+        count = Arrays.copyOf(count, newsize);
+        sibling = Arrays.copyOf(sibling, newsize);
+        firstchild = Arrays.copyOf(firstchild, newsize);
+        nextchild = Arrays.copyOf(nextchild, newsize);
+      }
+      final int node = size++;
+      parent[node] = par;
+      key[node] = label;
+      count[node] = 0;
+      firstchild[node] = -1;
+      nextchild[node] = -1;
+      sibling[node] = -1;
+      if(par >= 0) {
+        if(firstchild[par] >= 0) {
+          singlepath = false;
+        }
+        // Prepend to the children and header lists.
+        nextchild[node] = firstchild[par];
+        firstchild[par] = node;
+        sibling[node] = header[label];
+        header[label] = node;
+      }
+      return node;
+    }
+
+    /**
+     * Insert an itemset into the tree.
+     * 
+     * @param buf Buffer
+     * @param i Start position in buffer
+     * @param l End position in buffer
+     * @param weight Weight
+     */
+    public void insert(int[] buf, int i, int l, int weight) {
+      int cur = 0;
+      count[cur] += weight;
+      for(; i < l; i++) {
+        final int label = buf[i];
+        int child = firstchild[cur];
+        while(child >= 0 && key[child] != label) {
+          child = nextchild[child];
+        }
+        if(child < 0) {
+          child = newNode(cur, label);
+        }
+        count[child] += weight;
+        cur = child;
+      }
+    }
+
+    /**
+     * Release the memory needed for construction only, and trim the arrays.
+     */
+    public void reduceMemory() {
+      firstchild = nextchild = null;
+      parent = Arrays.copyOf(parent, size);
+      key = Arrays.copyOf(key, size);
+      count = Arrays.copyOf(count, size);
+      sibling = Arrays.copyOf(sibling, size);
+    }
+
+    /**
+     * Extract itemsets ending in the given item.
+     * 
+     * This does not modify the tree, so multiple threads can extract
+     * different items concurrently.
+     * 
+     * @param minsupp Minimum support
+     * @param minlength Minimum length
+     * @param maxlength Maximum length
+     * @param item Current item
+     * @param postfix Items to append
+     * @param plen Postfix length
+     * @param buf2 Scratch buffer
+     * @param buf3 Scratch buffer
+     * @param col Itemset collector
+     */
+    public void extract(int minsupp, int minlength, int maxlength, int item, int[] postfix, int plen, int[] buf2, int[] buf3, FPGrowth.FPTree.Collector col) {
+      // Skip items that do not occur in the tree
+      if(header[item] < 0) {
+        return;
+      }
+      // Count total support.
+      int support = 0;
+      for(int cur = header[item]; cur >= 0; cur = sibling[cur]) {
+        support += count[cur];
+      }
+      if(support < minsupp) {
+        return;
+      }
+      // Check which parent items to keep in the projection.
+      Arrays.fill(buf3, 0, item, 0);
+      for(int cur = header[item]; cur >= 0; cur = sibling[cur]) {
+        for(int p = parent[cur]; p > 0; p = parent[p]) {
+          buf3[key[p]] += count[cur];
+        }
+      }
+      // For testing minimum length:
+      final int mminlength = minlength - (plen + 1);
+      if(mminlength > 0) {
+        int fparents = 0;
+        for(int i = 0; i < item; i++) {
+          if(buf3[i] >= minsupp) {
+            fparents += 1;
+          }
+        }
+        if(fparents < mminlength) {
+          return; // Not enough parents that are still frequent.
+        }
+      }
+      postfix[plen++] = item;
+      if(plen >= minlength && plen <= maxlength) {
+        col.collect(support, postfix, 0, plen);
+      }
+      if(plen >= maxlength || item == 0) {
+        return;
+      }
+      // Build projected tree (conditional pattern base):
+      ArrayFPTree proj = new ArrayFPTree(item, 16);
+      for(int cur = header[item]; cur >= 0; cur = sibling[cur]) {
+        int j = buf2.length;
+        for(int p = parent[cur]; p > 0; p = parent[p]) {
+          if(buf3[key[p]] >= minsupp) {
+            buf2[--j] = key[p];
+          }
+        }
+        if(buf2.length - j >= mminlength) {
+          proj.insert(buf2, j, buf2.length, count[cur]);
+        }
+      }
+      proj.reduceMemory();
+      if(proj.singlepath) {
+        proj.extractLinear(support, minsupp, minlength, maxlength, item - 1, postfix, plen, col);
+        return;
+      }
+      for(int j = item - 1; j >= 0; j--) {
+        proj.extract(minsupp, minlength, maxlength, j, postfix, plen, buf2, buf3, col);
+      }
+    }
+
+    /**
+     * Extract all combinations of items from a single-path tree.
+     * 
+     * @param supp Current support
+     * @param minsupp Minimum support
+     * @param minlength Minimum length
+     * @param maxlength Maximum length
+     * @param item Current item
+     * @param postfix Postfix for extracted itemsets
+     * @param plen Postfix length
+     * @param col Output collector
+     */
+    private void extractLinear(int supp, int minsupp, int minlength, int maxlength, int item, int[] postfix, int plen, FPGrowth.FPTree.Collector col) {
+      // For testing minimum length:
+      final int mminlength = minlength - plen;
+      // Without current item:
+      if(item > 0 && item >= mminlength && plen < maxlength) {
+        extractLinear(supp, minsupp, minlength, maxlength, item - 1, postfix, plen, col);
+      }
+      // With current item:
+      if(header[item] < 0 || item + 1 < mminlength) {
+        return;
+      }
+      int csupp = count[header[item]];
+      if(csupp < minsupp) {
+        return;
+      }
+      postfix[plen++] = item;
+      int support = csupp < supp ? csupp : supp;
+      if(plen >= minlength && plen <= maxlength) {
+        col.collect(support, postfix, 0, plen);
+      }
+      if(item > 0 && plen < maxlength) {
+        extractLinear(support, minsupp, minlength, maxlength, item - 1, postfix, plen, col);
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends FPGrowth.Parameterizer {
+    @Override
+    protected ParallelFPGrowth makeInstance() {
+      return new ParallelFPGrowth(minsupp, minlength, maxlength);
+    }
+  }
+}
@@ -54,6 +54,7 @@ import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 
 /**
@@ -92,6 +93,11 @@ public class ParallelKNNOutlier<O> extends AbstractDistanceBasedAlgorithm<O, Out
    */
   private int k;
 
+  /**
+   * Use work-stealing parallelism.
+   */
+  private boolean workstealing;
+
   /**
    * Constructor.
    * 
@@ -99,8 +105,20 @@ public class ParallelKNNOutlier<O> extends AbstractDistanceBasedAlgorithm<O, Out
    * @param k K parameter
    */
   public ParallelKNNOutlier(DistanceFunction<? super O> distanceFunction, int k) {
+    this(distanceFunction, k, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   * @param k K parameter
+   * @param workstealing Use work-stealing parallelism
+   */
+  public ParallelKNNOutlier(DistanceFunction<? super O> distanceFunction, int k, boolean workstealing) {
     super(distanceFunction);
     this.k = k;
+    this.workstealing = workstealing;
   }
 
   /**
@@ -135,7 +153,7 @@ public class ParallelKNNOutlier<O> extends AbstractDistanceBasedAlgorithm<O, Out
     DoubleMinMaxProcessor mmm = new DoubleMinMaxProcessor();
     mmm.connectInput(kdistv);
 
-    ParallelExecutor.run(ids, knnm, kdistm, storem, mmm);
+    ParallelExecutor.run(ids, workstealing, knnm, kdistm, storem, mmm);
 
     DoubleMinMax minmax = mmm.getMinMax();
     DoubleRelation scoreres = new MaterializedDoubleRelation("kNN Outlier Score", "knn-outlier", store, ids);
@@ -163,6 +181,11 @@ public class ParallelKNNOutlier<O> extends AbstractDistanceBasedAlgorithm<O, Out
      */
     int k;
 
+    /**
+     * Use work-stealing parallelism.
+     */
+    boolean workstealing = false;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -171,11 +194,16 @@ public class ParallelKNNOutlier<O> extends AbstractDistanceBasedAlgorithm<O, Out
       if(config.grab(kP)) {
         k = kP.getValue();
       }
+
+      Flag workstealingF = new Flag(ParallelExecutor.WORKSTEALING_ID);
+      if(config.grab(workstealingF)) {
+        workstealing = workstealingF.isTrue();
+      }
     }
 
     @Override
     protected ParallelKNNOutlier<O> makeInstance() {
-      return new ParallelKNNOutlier<>(distanceFunction, k);
+      return new ParallelKNNOutlier<>(distanceFunction, k, workstealing);
     }
   }
 }
\ No newline at end of file
@@ -56,6 +56,7 @@ import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 
 /**
@@ -87,6 +88,11 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
    */
   private int k;
 
+  /**
+   * Use work-stealing parallelism.
+   */
+  private boolean workstealing;
+
   /**
    * Constructor.
    * 
@@ -94,8 +100,20 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
    * @param k K parameter
    */
   public ParallelLOF(DistanceFunction<? super O> distanceFunction, int k) {
+    this(distanceFunction, k, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceFunction Distance function
+   * @param k K parameter
+   * @param workstealing Use work-stealing parallelism
+   */
+  public ParallelLOF(DistanceFunction<? super O> distanceFunction, int k, boolean workstealing) {
     super(distanceFunction);
     this.k = k;
+    this.workstealing = workstealing;
   }
 
   /**
@@ -131,7 +149,7 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
       kdistm.connectOutput(kdistv);
       storem.connectInput(kdistv);
 
-      ParallelExecutor.run(ids, knnm, storek, kdistm, storem);
+      ParallelExecutor.run(ids, workstealing, knnm, storek, kdistm, storem);
     }
 
     // Phase two: lrd
@@ -143,7 +161,7 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
 
       lrdm.connectOutput(lrdv);
       storelrd.connectInput(lrdv);
-      ParallelExecutor.run(ids, lrdm, storelrd);
+      ParallelExecutor.run(ids, workstealing, lrdm, storelrd);
     }
     kdists.destroy(); // No longer needed.
     kdists = null;
@@ -160,7 +178,7 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
       lofm.connectOutput(lofv);
       mmm.connectInput(lofv);
       storelof.connectInput(lofv);
-      ParallelExecutor.run(ids, lofm, storelof, mmm);
+      ParallelExecutor.run(ids, workstealing, lofm, storelof, mmm);
 
       minmax = mmm.getMinMax();
     }
@@ -190,6 +208,11 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
      */
     int k;
 
+    /**
+     * Use work-stealing parallelism.
+     */
+    boolean workstealing = false;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -198,11 +221,16 @@ public class ParallelLOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierRes
       if(config.grab(kP)) {
         k = kP.intValue();
       }
+
+      Flag workstealingF = new Flag(ParallelExecutor.WORKSTEALING_ID);
+      if(config.grab(workstealingF)) {
+        workstealing = workstealingF.isTrue();
+      }
     }
 
     @Override
     protected ParallelLOF<O> makeInstance() {
-      return new ParallelLOF<>(distanceFunction, k);
+      return new ParallelLOF<>(distanceFunction, k, workstealing);
     }
   }
 }
@@ -0,0 +1,166 @@
+package de.lmu.ifi.dbs.elki.application;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.AbstractDatabase;
+import de.lmu.ifi.dbs.elki.datasource.DatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.persistent.MappedVectorFile;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.UnableToComplyException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Convert the vectors of an input file to a memory mapped vector file, which
+ * can be opened without parsing using
+ * {@link de.lmu.ifi.dbs.elki.datasource.MappedVectorDatabaseConnection}.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses MappedVectorFile
+ */
+public class ConvertToMappedVectorsApplication extends AbstractApplication {
+  /**
+   * Logging class.
+   */
+  private static final Logging LOG = Logging.getLogger(ConvertToMappedVectorsApplication.class);
+
+  /**
+   * The data input step.
+   */
+  private DatabaseConnection input;
+
+  /**
+   * Output filename.
+   */
+  private File outfile;
+
+  /**
+   * Constructor.
+   * 
+   * @param input Data source configuration
+   * @param outfile Output filename
+   */
+  public ConvertToMappedVectorsApplication(DatabaseConnection input, File outfile) {
+    super();
+    this.input = input;
+    this.outfile = outfile;
+  }
+
+  @Override
+  public void run() throws UnableToComplyException {
+    if(LOG.isVerbose()) {
+      LOG.verbose("Loading data.");
+    }
+    MultipleObjectsBundle bundle = input.loadData();
+    // Find the first vector field column.
+    int col = -1;
+    for(int i = 0; i < bundle.metaLength(); i++) {
+      if(TypeUtil.NUMBER_VECTOR_FIELD.isAssignableFromType(bundle.meta(i))) {
+        col = i;
+        break;
+      }
+    }
+    if(col < 0) {
+      throw new UnableToComplyException("No vector field found in input data.");
+    }
+    final int dim = ((VectorFieldTypeInformation<?>) bundle.meta(col)).getDimensionality();
+    @SuppressWarnings("unchecked")
+    final List<? extends NumberVector> data = (List<? extends NumberVector>) bundle.getColumn(col);
+    if(LOG.isVerbose()) {
+      LOG.verbose("Writing to output file: " + outfile.toString());
+    }
+    try {
+      MappedVectorFile file = new MappedVectorFile(outfile, dim, data.size());
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Writing vectors", data.size(), LOG) : null;
+      double[] buf = new double[dim];
+      for(int j = 0; j < data.size(); j++) {
+        final NumberVector vec = data.get(j);
+        for(int d = 0; d < dim; d++) {
+          buf[d] = vec.doubleValue(d);
+        }
+        file.set(j, buf);
+        LOG.incrementProcessed(prog);
+      }
+      LOG.ensureCompleted(prog);
+      file.close();
+    }
+    catch(IOException e) {
+      LOG.exception("IO Error", e);
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractApplication.Parameterizer {
+    /**
+     * The data input step.
+     */
+    private DatabaseConnection input;
+
+    /**
+     * Output filename.
+     */
+    private File outfile;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      ObjectParameter<DatabaseConnection> inputP = new ObjectParameter<>(AbstractDatabase.Parameterizer.DATABASE_CONNECTION_ID, DatabaseConnection.class, FileBasedDatabaseConnection.class);
+      if(config.grab(inputP)) {
+        input = inputP.instantiateClass(config);
+      }
+      outfile = super.getParameterOutputFile(config, "File name to write the mapped vectors to.");
+    }
+
+    @Override
+    protected ConvertToMappedVectorsApplication makeInstance() {
+      return new ConvertToMappedVectorsApplication(input, outfile);
+    }
+  }
+
+  /**
+   * Run command line application.
+   * 
+   * @param args Command line parameters
+   */
+  public static void main(String[] args) {
+    runCLIApplication(ConvertToMappedVectorsApplication.class, args);
+  }
+}
@@ -0,0 +1,202 @@
+package de.lmu.ifi.dbs.elki.application;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.StreamingKMeans;
+import de.lmu.ifi.dbs.elki.datasource.AbstractDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleReader;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
+import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
+import de.lmu.ifi.dbs.elki.datasource.parser.StreamingParser;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.FileUtil;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.UnableToComplyException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Run {@link StreamingKMeans} on a data file, without loading the data into a
+ * database, and write the resulting cluster centers.
+ * 
+ * Files with the extension {@code .bundle} are read with the
+ * {@link BundleReader}, all other files using the streaming parser.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf StreamingKMeans
+ */
+public class StreamingKMeansApplication extends AbstractApplication {
+  /**
+   * Logging class.
+   */
+  private static final Logging LOG = Logging.getLogger(StreamingKMeansApplication.class);
+
+  /**
+   * Input file.
+   */
+  private File infile;
+
+  /**
+   * Parser for text input.
+   */
+  private StreamingParser parser;
+
+  /**
+   * Clustering algorithm.
+   */
+  private StreamingKMeans kmeans;
+
+  /**
+   * Output filename.
+   */
+  private File outfile;
+
+  /**
+   * Constructor.
+   * 
+   * @param infile Input file
+   * @param parser Parser for text input
+   * @param kmeans Clustering algorithm
+   * @param outfile Output filename
+   */
+  public StreamingKMeansApplication(File infile, StreamingParser parser, StreamingKMeans kmeans, File outfile) {
+    super();
+    this.infile = infile;
+    this.parser = parser;
+    this.kmeans = kmeans;
+    this.outfile = outfile;
+  }
+
+  @Override
+  public void run() throws UnableToComplyException {
+    double[][] means;
+    try {
+      FileInputStream fis = new FileInputStream(infile);
+      try {
+        BundleStreamSource source;
+        if("bundle".equals(FileUtil.getFilenameExtension(infile))) {
+          source = new BundleReader(fis.getChannel());
+        }
+        else {
+          InputStream in = new BufferedInputStream(FileUtil.tryGzipInput(fis));
+          parser.initStream(in);
+          source = parser;
+        }
+        means = kmeans.run(source);
+      }
+      finally {
+        fis.close();
+      }
+    }
+    catch(IOException e) {
+      throw new UnableToComplyException("IO error reading input data.", e);
+    }
+    if(LOG.isVerbose()) {
+      LOG.verbose("Processed " + kmeans.getProcessed() + " objects, writing cluster centers to: " + outfile);
+    }
+    try {
+      PrintStream out = new PrintStream(new FileOutputStream(outfile));
+      StringBuilder buf = new StringBuilder();
+      for(double[] mean : means) {
+        buf.setLength(0);
+        for(int d = 0; d < mean.length; d++) {
+          buf.append(d > 0 ? " " : "").append(mean[d]);
+        }
+        out.println(buf);
+      }
+      out.close();
+    }
+    catch(IOException e) {
+      throw new UnableToComplyException("IO error writing output.", e);
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractApplication.Parameterizer {
+    /**
+     * Input file.
+     */
+    private File infile;
+
+    /**
+     * Parser for text input.
+     */
+    private StreamingParser parser;
+
+    /**
+     * Clustering algorithm.
+     */
+    private StreamingKMeans kmeans;
+
+    /**
+     * Output filename.
+     */
+    private File outfile;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      FileParameter inputP = new FileParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, FileParameter.FileType.INPUT_FILE);
+      if(config.grab(inputP)) {
+        infile = inputP.getValue();
+      }
+      ObjectParameter<StreamingParser> parserP = new ObjectParameter<>(AbstractDatabaseConnection.Parameterizer.PARSER_ID, StreamingParser.class, NumberVectorLabelParser.class);
+      if(config.grab(parserP)) {
+        parser = parserP.instantiateClass(config);
+      }
+      kmeans = config.tryInstantiate(StreamingKMeans.class);
+      outfile = super.getParameterOutputFile(config, "File name to write the cluster centers to.");
+    }
+
+    @Override
+    protected StreamingKMeansApplication makeInstance() {
+      return new StreamingKMeansApplication(infile, parser, kmeans, outfile);
+    }
+  }
+
+  /**
+   * Run command line application.
+   * 
+   * @param args Command line parameters
+   */
+  public static void main(String[] args) {
+    runCLIApplication(StreamingKMeansApplication.class, args);
+  }
+}
@@ -127,6 +127,16 @@ public class DoubleVector extends AbstractNumberVector {
     return values.clone();
   }
 
+  /**
+   * Get a reference to the raw double[] array, for fast distance kernels. Do
+   * not modify!
+   * 
+   * @return values array.
+   */
+  public double[] getArrayRef() {
+    return values;
+  }
+
   @Override
   public Vector getColumnVector() {
     // TODO: can we sometimes save this copy?
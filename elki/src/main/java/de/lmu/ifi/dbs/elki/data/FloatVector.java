@@ -119,6 +119,30 @@ public class FloatVector extends AbstractNumberVector {
     return (long) values[dimension];
   }
 
+  @Override
+  public float floatValue(int dimension) {
+    return values[dimension];
+  }
+
+  /**
+   * Get a copy of the raw float[] array.
+   * 
+   * @return copy of values array.
+   */
+  public float[] getValues() {
+    return values.clone();
+  }
+
+  /**
+   * Get a reference to the raw float[] array, for fast distance kernels. Do
+   * not modify!
+   * 
+   * @return values array.
+   */
+  public float[] getArrayRef() {
+    return values;
+  }
+
   @Override
   public Vector getColumnVector() {
     return new Vector(ArrayLikeUtil.toPrimitiveDoubleArray(values, ArrayLikeUtil.FLOATARRAYADAPTER));
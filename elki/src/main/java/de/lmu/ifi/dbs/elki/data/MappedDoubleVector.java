@@ -0,0 +1,204 @@
+package de.lmu.ifi.dbs.elki.data;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
+import de.lmu.ifi.dbs.elki.persistent.MappedVectorFile;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.ArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.NumberArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferSerializer;
+
+/**
+ * Flyweight vector, that is a view on a single record of a
+ * {@link MappedVectorFile}. No data is copied to the heap.
+ * 
+ * New vectors (e.g. cluster centers) cannot be stored in the file, so the
+ * factory of this class produces {@link DoubleVector}s.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses MappedVectorFile
+ */
+public class MappedDoubleVector extends AbstractNumberVector {
+  /**
+   * Static factory instance.
+   */
+  public static final MappedDoubleVector.Factory FACTORY = new MappedDoubleVector.Factory();
+
+  /**
+   * Serializer using varint encoding, deserializing to {@link DoubleVector}.
+   */
+  public static final ByteBufferSerializer<NumberVector> VARIABLE_SERIALIZER = new VariableSerializer();
+
+  /**
+   * File containing the data.
+   */
+  private final MappedVectorFile file;
+
+  /**
+   * Record number in the file.
+   */
+  private final int index;
+
+  /**
+   * Constructor.
+   * 
+   * @param file File storing the data
+   * @param index Record number
+   */
+  public MappedDoubleVector(MappedVectorFile file, int index) {
+    super();
+    this.file = file;
+    this.index = index;
+  }
+
+  @Override
+  public int getDimensionality() {
+    return file.getDimensionality();
+  }
+
+  @Override
+  @Deprecated
+  public Double getValue(int dimension) {
+    return file.get(index, dimension);
+  }
+
+  @Override
+  public double doubleValue(int dimension) {
+    return file.get(index, dimension);
+  }
+
+  @Override
+  public long longValue(int dimension) {
+    return (long) file.get(index, dimension);
+  }
+
+  /**
+   * Get a copy of the values.
+   * 
+   * @return copy of the values.
+   */
+  public double[] getValues() {
+    return file.get(index, new double[file.getDimensionality()]);
+  }
+
+  @Override
+  public Vector getColumnVector() {
+    return new Vector(getValues());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder featureLine = new StringBuilder();
+    final int dim = file.getDimensionality();
+    for(int i = 0; i < dim; i++) {
+      featureLine.append(file.get(index, i));
+      if(i + 1 < dim) {
+        featureLine.append(ATTRIBUTE_SEPARATOR);
+      }
+    }
+    return featureLine.toString();
+  }
+
+  /**
+   * Factory for mapped vectors. Since new vectors cannot be mapped, this
+   * produces {@link DoubleVector}s, and uses {@link NumberVector} as
+   * restriction class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.uses DoubleVector
+   */
+  public static class Factory implements NumberVector.Factory<NumberVector> {
+    @Override
+    public NumberVector newNumberVector(double[] values) {
+      return DoubleVector.FACTORY.newNumberVector(values);
+    }
+
+    @Override
+    public NumberVector newNumberVector(NumberVector values) {
+      return DoubleVector.FACTORY.newNumberVector(values);
+    }
+
+    @Override
+    public <A> NumberVector newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+      return DoubleVector.FACTORY.newNumberVector(array, adapter);
+    }
+
+    @Override
+    public <A> NumberVector newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+      return DoubleVector.FACTORY.newFeatureVector(array, adapter);
+    }
+
+    @Override
+    public ByteBufferSerializer<NumberVector> getDefaultSerializer() {
+      return VARIABLE_SERIALIZER;
+    }
+
+    @Override
+    public Class<? super NumberVector> getRestrictionClass() {
+      return NumberVector.class;
+    }
+  }
+
+  /**
+   * Serialization class for variable dimensionality by using VarInt encoding.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.uses NumberVector - - «serializes»
+   */
+  public static class VariableSerializer implements ByteBufferSerializer<NumberVector> {
+    @Override
+    public NumberVector fromByteBuffer(ByteBuffer buffer) throws IOException {
+      final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * dimensionality) : "Not enough data remaining in buffer to read " + dimensionality + " doubles";
+      final double[] values = new double[dimensionality];
+      for(int i = 0; i < dimensionality; i++) {
+        values[i] = buffer.getDouble();
+      }
+      return new DoubleVector(values);
+    }
+
+    @Override
+    public void toByteBuffer(ByteBuffer buffer, NumberVector vec) throws IOException {
+      final int dim = vec.getDimensionality();
+      assert (buffer.remaining() >= ByteArrayUtil.SIZE_DOUBLE * dim) : "Not enough space remaining in buffer to write " + dim + " doubles";
+      ByteArrayUtil.writeUnsignedVarint(buffer, dim);
+      for(int i = 0; i < dim; i++) {
+        buffer.putDouble(vec.doubleValue(i));
+      }
+    }
+
+    @Override
+    public int getByteSize(NumberVector vec) {
+      final int dim = vec.getDimensionality();
+      return ByteArrayUtil.getUnsignedVarintSize(dim) + ByteArrayUtil.SIZE_DOUBLE * dim;
+    }
+  }
+}
@@ -240,6 +240,9 @@ public final class VectorUtil {
     if(v1 instanceof SparseNumberVector && v2 instanceof SparseNumberVector) {
       return angleSparse((SparseNumberVector) v1, (SparseNumberVector) v2);
     }
+    if(v1 instanceof FloatVector && v2 instanceof FloatVector) {
+      return cosAngle((FloatVector) v1, (FloatVector) v2);
+    }
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int mindim = (dim1 <= dim2) ? dim1 : dim2;
     // Essentially, we want to compute this:
@@ -271,6 +274,43 @@ public final class VectorUtil {
     return (a < 1.) ? a : 1.;
   }
 
+  /**
+   * Compute the absolute cosine of the angle between two float vectors.
+   * 
+   * This reads the float arrays directly, but aggregates in double precision.
+   * 
+   * @param v1 first vector
+   * @param v2 second vector
+   * @return Angle
+   */
+  public static double cosAngle(FloatVector v1, FloatVector v2) {
+    final float[] a1 = v1.getArrayRef(), a2 = v2.getArrayRef();
+    final int mindim = (a1.length <= a2.length) ? a1.length : a2.length;
+    double cross = 0, l1 = 0, l2 = 0;
+    for(int k = 0; k < mindim; k++) {
+      final double r1 = a1[k], r2 = a2[k];
+      cross += r1 * r2;
+      l1 += r1 * r1;
+      l2 += r2 * r2;
+    }
+    for(int k = mindim; k < a1.length; k++) {
+      final double r1 = a1[k];
+      l1 += r1 * r1;
+    }
+    for(int k = mindim; k < a2.length; k++) {
+      final double r2 = a2[k];
+      l2 += r2 * r2;
+    }
+    if(cross == 0.) {
+      return 0.;
+    }
+    if(l1 == 0. || l2 == 0.) {
+      return 1.;
+    }
+    final double a = Math.sqrt((cross / l1) * (cross / l2));
+    return (a < 1.) ? a : 1.;
+  }
+
   // TODO: add more precise but slower O(n^2) angle computation according to:
   // Computing the Angle between Vectors, P. Schatte
   // Journal of Computing, Volume 63, Number 1 (1999)
@@ -351,6 +391,9 @@ public final class VectorUtil {
    *         DoubleVector
    */
   public static double scalarProduct(NumberVector d1, NumberVector d2) {
+    if(d1 instanceof FloatVector && d2 instanceof FloatVector) {
+      return scalarProduct((FloatVector) d1, (FloatVector) d2);
+    }
     final int dim = d1.getDimensionality();
     double result = 0.;
     for(int i = 0; i < dim; i++) {
@@ -359,6 +402,24 @@ public final class VectorUtil {
     return result;
   }
 
+  /**
+   * Compute the scalar product (inner product) of two float vectors, in double
+   * precision.
+   * 
+   * @param d1 the first vector to compute the scalar product for
+   * @param d2 the second vector to compute the scalar product for
+   * @return the scalar product (inner product)
+   */
+  public static double scalarProduct(FloatVector d1, FloatVector d2) {
+    final float[] a1 = d1.getArrayRef(), a2 = d2.getArrayRef();
+    final int dim = a1.length;
+    double result = 0.;
+    for(int i = 0; i < dim; i++) {
+      result += (double) a1[i] * a2[i];
+    }
+    return result;
+  }
+
   /**
    * Compute medoid for a given subset.
    * 
@@ -24,6 +24,8 @@ package de.lmu.ifi.dbs.elki.data.type;
  */
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
 
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
@@ -141,6 +143,30 @@ public class TypeInformationSerializer implements ByteBufferSerializer<TypeInfor
    */
   static final ByteBufferSerializer<VectorFieldTypeInformation<?>> VECTOR_FIELD_TYPE_SERIALIZER = new VectorFieldTypeSerializer();
 
+  /**
+   * Instantiate a serializer class by name. The serializers in
+   * {@link ByteArrayUtil} have private constructors, to encourage use of the
+   * static instances.
+   * 
+   * @param sername Serializer class name
+   * @return Serializer instance
+   * @throws ClassNotFoundException When the class was not found
+   * @throws InstantiationException When the class cannot be instantiated
+   * @throws IllegalAccessException When access was denied
+   */
+  static Object instantiateSerializer(String sername) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+    try {
+      Constructor<?> c = Class.forName(sername).getDeclaredConstructor();
+      c.setAccessible(true);
+      return c.newInstance();
+    }
+    catch(NoSuchMethodException | InvocationTargetException e) {
+      InstantiationException ie = new InstantiationException(e.getMessage());
+      ie.initCause(e);
+      throw ie;
+    }
+  }
+
   /**
    * Serialization class for pure simple types.
    * 
@@ -158,7 +184,7 @@ public class TypeInformationSerializer implements ByteBufferSerializer<TypeInfor
         String label = ByteArrayUtil.STRING_SERIALIZER.fromByteBuffer(buffer);
         label = ("".equals(label)) ? null : label;
         String sername = ByteArrayUtil.STRING_SERIALIZER.fromByteBuffer(buffer);
-        ByteBufferSerializer<Object> serializer = (ByteBufferSerializer<Object>) Class.forName(sername).newInstance();
+        ByteBufferSerializer<Object> serializer = (ByteBufferSerializer<Object>) instantiateSerializer(sername);
         return new SimpleTypeInformation<>(clz, label, serializer);
       } catch (ClassNotFoundException e) {
         throw new UnsupportedOperationException("Cannot deserialize - class not found: " + e, e);
@@ -238,7 +264,7 @@ public class TypeInformationSerializer implements ByteBufferSerializer<TypeInfor
         String label = ByteArrayUtil.STRING_SERIALIZER.fromByteBuffer(buffer);
         label = ("".equals(label)) ? null : label;
         String sername = ByteArrayUtil.STRING_SERIALIZER.fromByteBuffer(buffer);
-        ByteBufferSerializer<DoubleVector> serializer = (ByteBufferSerializer<DoubleVector>) Class.forName(sername).newInstance();
+        ByteBufferSerializer<DoubleVector> serializer = (ByteBufferSerializer<DoubleVector>) instantiateSerializer(sername);
         int mindim = ByteArrayUtil.readSignedVarint(buffer);
         int maxdim = ByteArrayUtil.readSignedVarint(buffer);
         // FIXME: should/must provide a factory now!
@@ -328,7 +354,7 @@ public class TypeInformationSerializer implements ByteBufferSerializer<TypeInfor
         label = ("".equals(label)) ? null : label;
         // Serialization class
         String sername = ByteArrayUtil.STRING_SERIALIZER.fromByteBuffer(buffer);
-        ByteBufferSerializer<DoubleVector> serializer = (ByteBufferSerializer<DoubleVector>) Class.forName(sername).newInstance();
+        ByteBufferSerializer<DoubleVector> serializer = (ByteBufferSerializer<DoubleVector>) instantiateSerializer(sername);
         // Dimensionalities
         int mindim = ByteArrayUtil.readSignedVarint(buffer);
         int maxdim = ByteArrayUtil.readSignedVarint(buffer);
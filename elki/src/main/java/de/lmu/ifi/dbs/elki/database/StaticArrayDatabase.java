@@ -25,13 +25,16 @@ package de.lmu.ifi.dbs.elki.database;
 
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayStaticDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.DBIDView;
+import de.lmu.ifi.dbs.elki.database.relation.MappedVectorRelation;
 import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.DatabaseConnection;
@@ -143,10 +146,19 @@ public class StaticArrayDatabase extends AbstractDatabase {
       // insert into db - note: DBIDs should have been prepared before this!
       Relation<?>[] targets = alignColumns(objpackages);
 
+      // Relations backed by the bundle data do not need to be filled.
+      boolean[] prefilled = new boolean[targets.length];
+      for(int i = 0; i < targets.length; i++) {
+        prefilled[i] = targets[i] instanceof MappedVectorRelation;
+      }
+
       DBIDIter newid = ids.iter();
       for(int j = 0; j < numObjects; j++, newid.advance()) {
         // insert object
         for(int i = 0; i < targets.length; i++) {
+          if(prefilled[i]) {
+            continue;
+          }
           @SuppressWarnings("unchecked")
           final Relation<Object> relation = (Relation<Object>) targets[i];
           relation.set(newid, objpackages.data(j, i));
@@ -212,7 +224,14 @@ public class StaticArrayDatabase extends AbstractDatabase {
         }
       }
       if(targets[i] == null) {
-        targets[i] = addNewRelation(meta);
+        // Use mapped data as is, instead of copying it.
+        List<?> column = (pack instanceof MultipleObjectsBundle) ? ((MultipleObjectsBundle) pack).getColumn(i) : null;
+        if(column instanceof MappedVectorRelation.Column && ids instanceof DBIDRange) {
+          targets[i] = addMappedRelation((MappedVectorRelation.Column) column);
+        }
+        else {
+          targets[i] = addNewRelation(meta);
+        }
         used.set(relations.size() - 1);
       }
     }
@@ -234,6 +253,19 @@ public class StaticArrayDatabase extends AbstractDatabase {
     return relation;
   }
 
+  /**
+   * Add a new relation backed by a mapped file.
+   * 
+   * @param column Bundle column
+   * @return new representation
+   */
+  private Relation<?> addMappedRelation(MappedVectorRelation.Column column) {
+    Relation<?> relation = new MappedVectorRelation(this, column.getFile(), (DBIDRange) ids);
+    relations.add(relation);
+    getHierarchy().add(this, relation);
+    return relation;
+  }
+
   @Override
   protected Logging getLogger() {
     return LOG;
@@ -27,6 +27,7 @@ import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableFloatDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableRecordStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
@@ -57,6 +58,9 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
     if (Integer.class.equals(dataclass)) {
       return (WritableDataStore<T>) makeIntegerStorage(ids, hints);
     }
+    if (Float.class.equals(dataclass)) {
+      return (WritableDataStore<T>) makeFloatStorage(ids, hints);
+    }
     if(ids instanceof DBIDRange) {
       DBIDRange range = (DBIDRange) ids;
       Object[] data = new Object[range.size()];
@@ -122,6 +126,28 @@ public class MemoryDataStoreFactory implements DataStoreFactory {
     }
   }
 
+  @Override
+  public WritableFloatDataStore makeFloatStorage(DBIDs ids, int hints) {
+    if(ids instanceof DBIDRange) {
+      DBIDRange range = (DBIDRange) ids;
+      return new ArrayFloatStore(range.size(), range);
+    }
+    else {
+      return new MapIntegerDBIDFloatStore(ids.size());
+    }
+  }
+
+  @Override
+  public WritableFloatDataStore makeFloatStorage(DBIDs ids, int hints, float def) {
+    if(ids instanceof DBIDRange) {
+      DBIDRange range = (DBIDRange) ids;
+      return new ArrayFloatStore(range.size(), range, def);
+    }
+    else {
+      return new MapIntegerDBIDFloatStore(ids.size(), def);
+    }
+  }
+
   @Override
   public WritableRecordStore makeRecordStorage(DBIDs ids, int hints, Class<?>... dataclasses) {
     if(ids instanceof DBIDRange) {
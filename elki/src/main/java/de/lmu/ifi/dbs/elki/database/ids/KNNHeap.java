@@ -45,6 +45,38 @@ public interface KNNHeap {
    */
   KNNList toKNNList();
 
+  /**
+   * Serialize to a {@link KNNList}, applying the square root to all distances.
+   * This empties the heap!
+   * 
+   * Use this when the heap was filled with squared Euclidean distances, to
+   * avoid materializing an intermediate list.
+   * 
+   * @return KNNList with the heaps contents, square roots of the distances.
+   */
+  KNNList toKNNListSqrt();
+
+  /**
+   * Serialize to a {@link KNNList}, reusing the memory of a previous result.
+   * This empties the heap!
+   * 
+   * The contents of {@code reuse} are overwritten, so it must no longer be
+   * used by anyone else.
+   * 
+   * @param reuse List previously obtained from a heap, or {@code null}
+   * @return KNNList with the heaps contents, usually {@code reuse}
+   */
+  KNNList toKNNList(KNNList reuse);
+
+  /**
+   * Serialize to a {@link KNNList}, reusing the memory of a previous result and
+   * applying the square root to all distances. This empties the heap!
+   * 
+   * @param reuse List previously obtained from a heap, or {@code null}
+   * @return KNNList with the heaps contents, usually {@code reuse}
+   */
+  KNNList toKNNListSqrt(KNNList reuse);
+
   /**
    * Get the K parameter ("maxsize" internally).
    * 
@@ -98,6 +130,26 @@ public interface KNNHeap {
    */
   void clear();
 
+  /**
+   * Clear the heap, and change the k parameter.
+   * 
+   * This allows reusing a heap (and its internal buffers) for multiple queries,
+   * e.g. with a thread-local {@link KNNHeapCache}.
+   * 
+   * @param k New K value
+   */
+  void reset(int k);
+
+  /**
+   * Merge a block of candidates, <em>sorted by ascending distance</em>.
+   * 
+   * This is more efficient than inserting the candidates one by one, as the
+   * merge can stop at the first candidate beyond the current k-distance.
+   * 
+   * @param sorted Candidates, sorted by ascending distance
+   */
+  void mergeSorted(DoubleDBIDList sorted);
+
   /**
    * Poll the <em>largest</em> element from the heap.
    * 
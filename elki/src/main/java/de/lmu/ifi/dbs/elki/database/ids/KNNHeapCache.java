@@ -0,0 +1,63 @@
+package de.lmu.ifi.dbs.elki.database.ids;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Thread-local cache of reusable kNN heaps.
+ * 
+ * Query classes keep one instance of this cache, and obtain a cleared heap for
+ * each query. Since the heap is reused, its internal buffers only need to be
+ * allocated once per thread, and the only per-query allocation left is the
+ * resulting {@link KNNList}.
+ * 
+ * The heap must be serialized (e.g. with {@link KNNHeap#toKNNList()}) before
+ * the next call to {@link #get} from the same thread.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has KNNHeap
+ */
+public class KNNHeapCache {
+  /**
+   * Heap of the current thread.
+   */
+  private final ThreadLocal<KNNHeap> heaps = new ThreadLocal<>();
+
+  /**
+   * Get the heap of the current thread, reset to the given k.
+   * 
+   * @param k K value
+   * @return Empty heap
+   */
+  public KNNHeap get(int k) {
+    KNNHeap heap = heaps.get();
+    if(heap == null) {
+      heap = DBIDUtil.newHeap(k);
+      heaps.set(heap);
+      return heap;
+    }
+    heap.reset(k);
+    return heap;
+  }
+}
@@ -139,10 +139,7 @@ abstract class AbstractIntegerDBIDFactory implements DBIDFactory {
   @Override
   public KNNHeap newHeap(KNNList exist) {
     KNNHeap heap = newHeap(exist.getK());
-    // Insert backwards, as this will produce a proper heap
-    for(int i = exist.size() - 1; i >= 0; i--) {
-      heap.insert(exist.get(i));
-    }
+    heap.mergeSorted(exist);
     return heap;
   }
 
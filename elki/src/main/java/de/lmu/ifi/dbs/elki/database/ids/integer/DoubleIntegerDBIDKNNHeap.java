@@ -22,32 +22,48 @@ package de.lmu.ifi.dbs.elki.database.ids.integer;
  You should have received a copy of the GNU Affero General Public License
  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 import java.util.Arrays;
 
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDPair;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMaxHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 
 /**
  * Class to efficiently manage a kNN heap.
  * 
+ * The heap is a binary max-heap stored in two parallel primitive arrays, so
+ * neither insertions nor serialization create pair objects. Objects tied with
+ * the current k-distance are kept in a separate array. All buffers are retained
+ * by {@link #clear} and {@link #reset}, so a heap can be reused for many
+ * queries without further allocation.
+ * 
  * @author Erich Schubert
  * 
  * @apiviz.has DoubleIntegerDBIDKNNList
- * @apiviz.composedOf DoubleIntegerMaxHeap
  */
 class DoubleIntegerDBIDKNNHeap implements KNNHeap {
   /**
    * k for this heap.
    */
-  private final int k;
+  private int k;
+
+  /**
+   * Heap distances.
+   */
+  private double[] dists;
+
+  /**
+   * Heap object ids.
+   */
+  private int[] ids;
 
   /**
-   * The main heap.
+   * Number of elements in the main heap.
    */
-  private final DoubleIntegerMaxHeap heap;
+  private int size = 0;
 
   /**
    * List to track ties.
@@ -77,7 +93,8 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
   protected DoubleIntegerDBIDKNNHeap(int k) {
     super();
     this.k = k;
-    this.heap = new DoubleIntegerMaxHeap(k);
+    this.dists = new double[k];
+    this.ids = new int[k];
     this.ties = new int[INITIAL_TIES_SIZE];
   }
 
@@ -93,11 +110,26 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
 
   @Override
   public final double insert(final double distance, final DBIDRef id) {
-    final int iid = id.internalGetIndex();
-    if(heap.size() < k) {
-      heap.add(distance, iid);
-      if(heap.size() >= k) {
-        kdist = heap.peekKey();
+    return insert(distance, id.internalGetIndex());
+  }
+
+  @Override
+  public void insert(final DoubleDBIDPair e) {
+    insert(e.doubleValue(), e.internalGetIndex());
+  }
+
+  /**
+   * Add a distance-id pair to the heap unless the distance is too large.
+   * 
+   * @param distance Distance value
+   * @param iid Internal object id
+   * @return current k-distance
+   */
+  protected final double insert(final double distance, final int iid) {
+    if(size < k) {
+      heapifyUp(size++, distance, iid);
+      if(size >= k) {
+        kdist = dists[0];
       }
       return kdist;
     }
@@ -109,50 +141,69 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
       return kdist;
     }
     // Old top element: (kdist, previd)
-    updateHeap(distance, iid);
+    final double prevdist = kdist;
+    final int previd = ids[0];
+    heapifyDown(distance, iid);
+    kdist = dists[0];
+    // If the kdist improved, zap ties.
+    if(kdist < prevdist) {
+      numties = 0;
+    }
+    else {
+      addToTies(previd);
+    }
     return kdist;
   }
 
-  @Override
-  public void insert(final DoubleDBIDPair e) {
-    final double distance = e.doubleValue();
-    final int iid = e.internalGetIndex();
-    if(heap.size() < k) {
-      heap.add(distance, iid);
-      if(heap.size() >= k) {
-        kdist = heap.peekKey();
-      }
-      return;
-    }
-    // Tied with top:
-    if(distance >= kdist) {
-      if(distance == kdist) {
-        addToTies(iid);
+  /**
+   * Move an element up in the heap, until the heap property holds.
+   * 
+   * @param pos Start position
+   * @param cur Distance of the element
+   * @param id Object id of the element
+   */
+  private void heapifyUp(int pos, final double cur, final int id) {
+    while(pos > 0) {
+      final int parent = (pos - 1) >>> 1;
+      final double pdist = dists[parent];
+      if(pdist >= cur) {
+        break;
       }
-      return;
+      dists[pos] = pdist;
+      ids[pos] = ids[parent];
+      pos = parent;
     }
-    // Old top element: (kdist, previd)
-    updateHeap(distance, iid);
+    dists[pos] = cur;
+    ids[pos] = id;
   }
 
   /**
-   * Do a full update for the heap.
+   * Replace the top element, and move the new element down until the heap
+   * property holds.
    * 
-   * @param distance Distance
-   * @param iid Object id
+   * @param cur Distance of the new element
+   * @param id Object id of the new element
    */
-  private final void updateHeap(final double distance, final int iid) {
-    final double prevdist = kdist;
-    final int previd = heap.peekValue();
-    heap.replaceTopElement(distance, iid);
-    kdist = heap.peekKey();
-    // If the kdist improved, zap ties.
-    if(kdist < prevdist) {
-      numties = 0;
-    }
-    else {
-      addToTies(previd);
+  private void heapifyDown(final double cur, final int id) {
+    final int half = size >>> 1;
+    int pos = 0;
+    while(pos < half) {
+      int cpos = (pos << 1) + 1;
+      double cdist = dists[cpos];
+      final int rpos = cpos + 1;
+      if(rpos < size && dists[rpos] > cdist) {
+        cpos = rpos;
+        cdist = dists[rpos];
+      }
+      if(cur >= cdist) {
+        break;
+      }
+      dists[pos] = cdist;
+      ids[pos] = ids[cpos];
+      pos = cpos;
     }
+    dists[pos] = cur;
+    ids[pos] = id;
   }
 
   /**
@@ -169,12 +220,55 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
   }
 
   @Override
-  public DoubleIntegerDBIDPair poll() {
-    if(numties > 0) {
-      return new DoubleIntegerDBIDPair(kdist, ties[--numties]);
+  public void mergeSorted(DoubleDBIDList sorted) {
+    if(sorted instanceof DoubleIntegerDBIDList) {
+      final DoubleIntegerDBIDList list = (DoubleIntegerDBIDList) sorted;
+      mergeSorted(list.dists, list.ids, list.size);
+      return;
+    }
+    for(DoubleDBIDListIter iter = sorted.iter(); iter.valid(); iter.advance()) {
+      final double dist = iter.doubleValue();
+      if(dist > kdist) {
+        break;
+      }
+      insert(dist, iter.internalGetIndex());
     }
-    final DoubleIntegerDBIDPair ret = new DoubleIntegerDBIDPair(heap.peekKey(), heap.peekValue());
-    heap.poll();
+  }
+
+  /**
+   * Merge a block of candidates, sorted by ascending distance.
+   * 
+   * @param cdists Candidate distances, ascending
+   * @param cids Candidate ids
+   * @param len Number of candidates
+   */
+  protected void mergeSorted(double[] cdists, int[] cids, int len) {
+    int i = 0;
+    if(size == 0 && numties == 0) {
+      // A descending array is a valid max-heap: copy the prefix reversed.
+      final int m = len < k ? len : k;
+      for(int j = 0, r = m - 1; j < m; j++, r--) {
+        dists[j] = cdists[r];
+        ids[j] = cids[r];
+      }
+      size = i = m;
+      if(size > 0 && size >= k) {
+        kdist = dists[0];
+      }
+    }
+    for(; i < len; i++) {
+      final double dist = cdists[i];
+      if(dist > kdist) {
+        break;
+      }
+      insert(dist, cids[i]);
+    }
+  }
+
+  @Override
+  public DoubleIntegerDBIDPair poll() {
+    final DoubleIntegerDBIDPair ret = peek();
+    pop();
     return ret;
   }
 
@@ -186,7 +280,9 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
       --numties;
     }
     else {
-      heap.poll();
+      if(--size > 0) {
+        heapifyDown(dists[size], ids[size]);
+      }
     }
   }
 
@@ -195,40 +291,91 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
     if(numties > 0) {
       return new DoubleIntegerDBIDPair(kdist, ties[numties - 1]);
     }
-    return new DoubleIntegerDBIDPair(heap.peekKey(), heap.peekValue());
+    return new DoubleIntegerDBIDPair(dists[0], ids[0]);
   }
 
   @Override
   public int size() {
-    return heap.size() + numties;
+    return size + numties;
   }
 
   @Override
   public boolean isEmpty() {
-    return heap.isEmpty();
+    return size == 0;
   }
 
   @Override
   public void clear() {
-    heap.clear();
+    size = 0;
     numties = 0;
+    kdist = Double.POSITIVE_INFINITY;
+  }
+
+  @Override
+  public void reset(int k) {
+    if(k > dists.length) {
+      dists = new double[k];
+      ids = new int[k];
+    }
+    this.k = k;
+    clear();
   }
 
   @Override
   public DoubleIntegerDBIDKNNList toKNNList() {
-    final int hsize = heap.size();
-    DoubleIntegerDBIDKNNList ret = new DoubleIntegerDBIDKNNList(k, hsize + numties);
+    return serialize(null, false);
+  }
+
+  @Override
+  public DoubleIntegerDBIDKNNList toKNNListSqrt() {
+    return serialize(null, true);
+  }
+
+  @Override
+  public DoubleIntegerDBIDKNNList toKNNList(KNNList reuse) {
+    return serialize(reuse, false);
+  }
+
+  @Override
+  public DoubleIntegerDBIDKNNList toKNNListSqrt(KNNList reuse) {
+    return serialize(reuse, true);
+  }
+
+  /**
+   * Serialize the heap into a sorted list, emptying the heap.
+   * 
+   * @param reuse List to reuse, may be {@code null}
+   * @param sqrt Apply the square root to all distances
+   * @return kNN list
+   */
+  private DoubleIntegerDBIDKNNList serialize(KNNList reuse, boolean sqrt) {
+    final int hsize = size, total = hsize + numties;
+    final DoubleIntegerDBIDKNNList ret;
+    if(reuse instanceof DoubleIntegerDBIDKNNList) {
+      ret = (DoubleIntegerDBIDKNNList) reuse;
+      ret.k = k;
+      if(ret.dists.length < total) {
+        ret.dists = new double[total];
+        ret.ids = new int[total];
+      }
+    }
+    else {
+      ret = new DoubleIntegerDBIDKNNList(k, total);
+    }
     // Add ties:
+    final double tdist = sqrt ? Math.sqrt(kdist) : kdist;
     for(int i = 0; i < numties; i++) {
-      ret.dists[hsize + i] = kdist;
+      ret.dists[hsize + i] = tdist;
       ret.ids[hsize + i] = ties[i];
     }
+    numties = 0;
     for(int j = hsize - 1; j >= 0; j--) {
-      ret.dists[j] = heap.peekKey();
-      ret.ids[j] = heap.peekValue();
-      heap.poll();
+      ret.dists[j] = sqrt ? Math.sqrt(dists[0]) : dists[0];
+      ret.ids[j] = ids[0];
+      pop();
     }
-    ret.size = hsize + numties;
+    ret.size = total;
+    clear();
     return ret;
   }
 
@@ -238,7 +385,7 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
    * @return distance
    */
   protected double peekDistance() {
-    return (numties > 0) ? kdist : heap.peekKey();
+    return (numties > 0) ? kdist : dists[0];
   }
 
   /**
@@ -247,6 +394,6 @@ class DoubleIntegerDBIDKNNHeap implements KNNHeap {
    * @return internal id
    */
   protected int peekInternalDBID() {
-    return (numties > 0) ? ties[numties - 1] : heap.peekValue();
+    return (numties > 0) ? ties[numties - 1] : ids[0];
   }
 }
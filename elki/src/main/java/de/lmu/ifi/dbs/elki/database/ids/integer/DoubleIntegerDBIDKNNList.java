@@ -34,7 +34,7 @@ public class DoubleIntegerDBIDKNNList extends DoubleIntegerDBIDList implements I
   /**
    * The k value this list was generated for.
    */
-  final int k;
+  int k;
 
   /**
    * Constructor.
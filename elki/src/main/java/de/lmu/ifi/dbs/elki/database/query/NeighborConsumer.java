@@ -0,0 +1,46 @@
+package de.lmu.ifi.dbs.elki.database.query;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+
+/**
+ * Callback interface for streaming query results, without materializing a
+ * result list.
+ * 
+ * The reference passed to {@link #accept} is usually an iterator of the query,
+ * and is only valid during the call. Use {@link DBIDRef#internalGetIndex()} or
+ * a {@link de.lmu.ifi.dbs.elki.database.ids.DBIDVar} to keep it.
+ * 
+ * @author Erich Schubert
+ */
+public interface NeighborConsumer {
+  /**
+   * Process a single neighbor.
+   * 
+   * @param neighbor Neighbor object reference (only valid during this call)
+   * @param distance Distance to the query object
+   */
+  void accept(DBIDRef neighbor, double distance);
+}
@@ -79,4 +79,9 @@ public abstract class AbstractDistanceKNNQuery<O> implements KNNQuery<O> {
 
   @Override
   abstract public KNNList getKNNForObject(O obj, int k);
+
+  @Override
+  public KNNSession<O> newSession() {
+    return new SimpleKNNSession<>(this);
+  }
 }
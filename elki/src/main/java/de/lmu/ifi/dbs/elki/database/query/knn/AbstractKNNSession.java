@@ -0,0 +1,112 @@
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
+
+/**
+ * Abstract base class for kNN sessions.
+ * 
+ * Provides a reusable heap and result buffer to subclasses, and implements the
+ * streaming API on top of the list API.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf KNNHeap
+ * 
+ * @param <O> Object type
+ */
+public abstract class AbstractKNNSession<O> implements KNNSession<O> {
+  /**
+   * Reusable heap.
+   */
+  private KNNHeap heap;
+
+  /**
+   * Reusable result list.
+   */
+  private KNNList buffer;
+
+  /**
+   * Get the heap of this session, reset to the given k.
+   * 
+   * @param k K value
+   * @return Empty heap
+   */
+  protected KNNHeap heap(int k) {
+    if(heap == null) {
+      return heap = DBIDUtil.newHeap(k);
+    }
+    heap.reset(k);
+    return heap;
+  }
+
+  /**
+   * Serialize a heap into the result buffer of this session.
+   * 
+   * @param heap Heap
+   * @return Result list
+   */
+  protected KNNList result(KNNHeap heap) {
+    return buffer = heap.toKNNList(buffer);
+  }
+
+  /**
+   * Serialize a heap of squared distances into the result buffer of this
+   * session.
+   * 
+   * @param heap Heap
+   * @return Result list, with the square root applied
+   */
+  protected KNNList resultSqrt(KNNHeap heap) {
+    return buffer = heap.toKNNListSqrt(buffer);
+  }
+
+  @Override
+  public void getKNNForDBID(DBIDRef id, int k, NeighborConsumer consumer) {
+    emit(getKNNForDBID(id, k), consumer);
+  }
+
+  @Override
+  public void getKNNForObject(O obj, int k, NeighborConsumer consumer) {
+    emit(getKNNForObject(obj, k), consumer);
+  }
+
+  /**
+   * Pass a result list to a consumer.
+   * 
+   * @param list Result list
+   * @param consumer Consumer
+   */
+  private static void emit(KNNList list, NeighborConsumer consumer) {
+    for(DoubleDBIDListIter iter = list.iter(); iter.valid(); iter.advance()) {
+      consumer.accept(iter, iter.doubleValue());
+    }
+  }
+}
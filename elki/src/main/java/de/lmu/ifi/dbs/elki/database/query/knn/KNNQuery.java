@@ -37,6 +37,7 @@ import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
  * 
  * @apiviz.landmark
  * @apiviz.has KNNList oneway - - «create»
+ * @apiviz.has KNNSession oneway - - «create»
  * 
  * @param <O> Object type
  */
@@ -67,4 +68,11 @@ public interface KNNQuery<O> extends DatabaseQuery {
    * @return neighbors
    */
   public KNNList getKNNForObject(O obj, int k);
+
+  /**
+   * Open a session for repeated queries from the current thread.
+   * 
+   * @return New session
+   */
+  public KNNSession<O> newSession();
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
+
+/**
+ * Reusable context for issuing many kNN queries from a single thread.
+ * 
+ * Obtain a session with {@link KNNQuery#newSession()}, once per thread (e.g. in
+ * the instantiation of a parallel processor). A session keeps its heap, index
+ * traversal queues and result buffer between queries, so repeated queries do
+ * not produce garbage. Sessions are <em>not</em> thread safe.
+ * 
+ * Results returned by a session are only valid until the next query on the
+ * same session; copy them if they need to be kept.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has KNNList oneway - - «reuses»
+ * @apiviz.uses NeighborConsumer
+ * 
+ * @param <O> Object type
+ */
+public interface KNNSession<O> {
+  /**
+   * Get the k nearest neighbors for a particular id.
+   * 
+   * @param id query object ID
+   * @param k Number of neighbors requested
+   * @return neighbors, valid until the next query on this session
+   */
+  KNNList getKNNForDBID(DBIDRef id, int k);
+
+  /**
+   * Get the k nearest neighbors for a particular object.
+   * 
+   * @param obj Query object
+   * @param k Number of neighbors requested
+   * @return neighbors, valid until the next query on this session
+   */
+  KNNList getKNNForObject(O obj, int k);
+
+  /**
+   * Stream the k nearest neighbors for a particular id, in ascending order of
+   * distance.
+   * 
+   * @param id query object ID
+   * @param k Number of neighbors requested
+   * @param consumer Consumer to receive the neighbors
+   */
+  void getKNNForDBID(DBIDRef id, int k, NeighborConsumer consumer);
+
+  /**
+   * Stream the k nearest neighbors for a particular object, in ascending order
+   * of distance.
+   * 
+   * @param obj Query object
+   * @param k Number of neighbors requested
+   * @param consumer Consumer to receive the neighbors
+   */
+  void getKNNForObject(O obj, int k, NeighborConsumer consumer);
+}
@@ -31,6 +31,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeapCache;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
@@ -44,6 +45,11 @@ import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
  * @apiviz.has DistanceQuery
  */
 public class LinearScanDistanceKNNQuery<O> extends AbstractDistanceKNNQuery<O> implements LinearScanQuery {
+  /**
+   * Reusable heaps for single queries.
+   */
+  private final KNNHeapCache heapcache = new KNNHeapCache();
+
   /**
    * Constructor.
    * 
@@ -55,7 +61,27 @@ public class LinearScanDistanceKNNQuery<O> extends AbstractDistanceKNNQuery<O> i
 
   @Override
   public KNNList getKNNForDBID(DBIDRef id, int k) {
-    KNNHeap heap = DBIDUtil.newHeap(k);
+    return linearScan(id, heapcache.get(k)).toKNNList();
+  }
+
+  @Override
+  public KNNList getKNNForObject(O obj, int k) {
+    return linearScan(obj, heapcache.get(k)).toKNNList();
+  }
+
+  @Override
+  public KNNSession<O> newSession() {
+    return new Session();
+  }
+
+  /**
+   * Linear scan for a database object.
+   * 
+   * @param id Query object
+   * @param heap Output heap
+   * @return Heap
+   */
+  private KNNHeap linearScan(DBIDRef id, KNNHeap heap) {
     double max = Double.POSITIVE_INFINITY;
     for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
       final double dist = distanceQuery.distance(id, iter);
@@ -63,12 +89,17 @@ public class LinearScanDistanceKNNQuery<O> extends AbstractDistanceKNNQuery<O> i
         max = heap.insert(dist, iter);
       }
     }
-    return heap.toKNNList();
+    return heap;
   }
 
-  @Override
-  public KNNList getKNNForObject(O obj, int k) {
-    KNNHeap heap = DBIDUtil.newHeap(k);
+  /**
+   * Linear scan for an arbitrary object.
+   * 
+   * @param obj Query object
+   * @param heap Output heap
+   * @return Heap
+   */
+  private KNNHeap linearScan(O obj, KNNHeap heap) {
     double max = Double.POSITIVE_INFINITY;
     for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
       final double dist = distanceQuery.distance(obj, iter);
@@ -76,7 +107,7 @@ public class LinearScanDistanceKNNQuery<O> extends AbstractDistanceKNNQuery<O> i
         max = heap.insert(dist, iter);
       }
     }
-    return heap.toKNNList();
+    return heap;
   }
 
   @Override
@@ -112,4 +143,21 @@ public class LinearScanDistanceKNNQuery<O> extends AbstractDistanceKNNQuery<O> i
       }
     }
   }
+
+  /**
+   * Session reusing the heap and result buffer.
+   * 
+   * @author Erich Schubert
+   */
+  protected class Session extends AbstractKNNSession<O> {
+    @Override
+    public KNNList getKNNForDBID(DBIDRef id, int k) {
+      return result(linearScan(id, heap(k)));
+    }
+
+    @Override
+    public KNNList getKNNForObject(O obj, int k) {
+      return result(linearScan(obj, heap(k)));
+    }
+  }
 }
@@ -27,7 +27,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
-import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
@@ -51,6 +50,7 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanD
  * @apiviz.uses PrimitiveDistanceQuery
  * @apiviz.uses EuclideanDistanceFunction
  * @apiviz.uses SquaredEuclideanDistanceFunction
+ * @apiviz.uses TiledEuclideanKNNJoin
  */
 public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends LinearScanPrimitiveDistanceKNNQuery<O> implements LinearScanQuery {
   /**
@@ -70,12 +70,17 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
 
   @Override
   public KNNList getKNNForDBID(DBIDRef id, int k) {
-    return QueryUtil.applySqrt(linearScan(relation, relation.iterDBIDs(), relation.get(id), DBIDUtil.newHeap(k)).toKNNList());
+    return linearScan(relation, relation.iterDBIDs(), relation.get(id), heapcache.get(k)).toKNNListSqrt();
   }
 
   @Override
   public KNNList getKNNForObject(O obj, int k) {
-    return QueryUtil.applySqrt(linearScan(relation, relation.iterDBIDs(), obj, DBIDUtil.newHeap(k)).toKNNList());
+    return linearScan(relation, relation.iterDBIDs(), obj, heapcache.get(k)).toKNNListSqrt();
+  }
+
+  @Override
+  public KNNSession<O> newSession() {
+    return new EuclideanSession();
   }
 
   /**
@@ -101,6 +106,14 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
 
   @Override
   public List<KNNList> getKNNForBulkDBIDs(ArrayDBIDs ids, int k) {
+    if(TiledEuclideanKNNJoin.isApplicable(relation)) {
+      KNNHeap[] heaps = new TiledEuclideanKNNJoin(relation).run(ids, k);
+      List<KNNList> result = new ArrayList<>(heaps.length);
+      for(KNNHeap heap : heaps) {
+        result.add(heap.toKNNListSqrt());
+      }
+      return result;
+    }
     final int size = ids.size();
     final List<KNNHeap> heaps = new ArrayList<>(size);
     List<O> objs = new ArrayList<>(size);
@@ -112,7 +125,7 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
 
     List<KNNList> result = new ArrayList<>(heaps.size());
     for(KNNHeap heap : heaps) {
-      result.add(QueryUtil.applySqrt(heap.toKNNList()));
+      result.add(heap.toKNNListSqrt());
     }
     return result;
   }
@@ -138,4 +151,21 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the heap and result buffer.
+   * 
+   * @author Erich Schubert
+   */
+  protected class EuclideanSession extends AbstractKNNSession<O> {
+    @Override
+    public KNNList getKNNForDBID(DBIDRef id, int k) {
+      return resultSqrt(linearScan(relation, relation.iterDBIDs(), relation.get(id), heap(k)));
+    }
+
+    @Override
+    public KNNList getKNNForObject(O obj, int k) {
+      return resultSqrt(linearScan(relation, relation.iterDBIDs(), obj, heap(k)));
+    }
+  }
+}
@@ -31,6 +31,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeapCache;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
@@ -54,6 +55,11 @@ public class LinearScanPrimitiveDistanceKNNQuery<O> extends AbstractDistanceKNNQ
    */
   private PrimitiveDistanceFunction<? super O> rawdist;
 
+  /**
+   * Reusable heaps for single queries.
+   */
+  protected final KNNHeapCache heapcache = new KNNHeapCache();
+
   /**
    * Constructor.
    * 
@@ -66,12 +72,17 @@ public class LinearScanPrimitiveDistanceKNNQuery<O> extends AbstractDistanceKNNQ
 
   @Override
   public KNNList getKNNForDBID(DBIDRef id, int k) {
-    return linearScan(relation, relation.iterDBIDs(), relation.get(id), DBIDUtil.newHeap(k)).toKNNList();
+    return linearScan(relation, relation.iterDBIDs(), relation.get(id), heapcache.get(k)).toKNNList();
   }
 
   @Override
   public KNNList getKNNForObject(O obj, int k) {
-    return linearScan(relation, relation.iterDBIDs(), obj, DBIDUtil.newHeap(k)).toKNNList();
+    return linearScan(relation, relation.iterDBIDs(), obj, heapcache.get(k)).toKNNList();
+  }
+
+  @Override
+  public KNNSession<O> newSession() {
+    return new Session();
   }
 
   /**
@@ -133,4 +144,21 @@ public class LinearScanPrimitiveDistanceKNNQuery<O> extends AbstractDistanceKNNQ
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the heap and result buffer.
+   * 
+   * @author Erich Schubert
+   */
+  protected class Session extends AbstractKNNSession<O> {
+    @Override
+    public KNNList getKNNForDBID(DBIDRef id, int k) {
+      return result(linearScan(relation, relation.iterDBIDs(), relation.get(id), heap(k)));
+    }
+
+    @Override
+    public KNNList getKNNForObject(O obj, int k) {
+      return result(linearScan(relation, relation.iterDBIDs(), obj, heap(k)));
+    }
+  }
+}
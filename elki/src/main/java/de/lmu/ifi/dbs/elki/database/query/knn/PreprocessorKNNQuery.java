@@ -100,6 +100,12 @@ public class PreprocessorKNNQuery<O> implements KNNQuery<O> {
     return preprocessor.get(id);
   }
 
+  @Override
+  public KNNSession<O> newSession() {
+    // Results are precomputed, nothing to reuse.
+    return new SimpleKNNSession<>(this);
+  }
+
   @Override
   public List<KNNList> getKNNForBulkDBIDs(ArrayDBIDs ids, int k) {
     if(!warned && k > preprocessor.getK()) {
@@ -0,0 +1,64 @@
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+
+/**
+ * Session for queries that have no reusable state, or that return precomputed
+ * results anyway. All calls are delegated to the query.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses KNNQuery
+ * 
+ * @param <O> Object type
+ */
+public class SimpleKNNSession<O> extends AbstractKNNSession<O> {
+  /**
+   * Query to delegate to.
+   */
+  private final KNNQuery<O> query;
+
+  /**
+   * Constructor.
+   * 
+   * @param query Query to delegate to
+   */
+  public SimpleKNNSession(KNNQuery<O> query) {
+    super();
+    this.query = query;
+  }
+
+  @Override
+  public KNNList getKNNForDBID(DBIDRef id, int k) {
+    return query.getKNNForDBID(id, k);
+  }
+
+  @Override
+  public KNNList getKNNForObject(O obj, int k) {
+    return query.getKNNForObject(obj, k);
+  }
+}
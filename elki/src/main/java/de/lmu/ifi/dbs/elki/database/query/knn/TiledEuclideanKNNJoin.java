@@ -0,0 +1,279 @@
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.RecursiveAction;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.SparseNumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.MinkowskiKernels;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+
+/**
+ * Blocked ("tiled") batch kNN search using squared Euclidean distance.
+ * 
+ * Both query and candidate objects are processed in blocks that are copied to
+ * primitive arrays small enough to fit into the L2 cache, so that each
+ * candidate block is reused for many queries instead of streaming the whole
+ * relation from memory once per query. Distance computations are abandoned
+ * early, once the partial distance exceeds the current k-distance of the
+ * query. Query blocks are processed in parallel.
+ * 
+ * This only applies to dense vector fields of fixed dimensionality, see
+ * {@link #isApplicable}.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses KNNHeap
+ * @apiviz.uses ParallelCore
+ * @apiviz.uses MinkowskiKernels
+ */
+public class TiledEuclideanKNNJoin {
+  /**
+   * Size of a single block in bytes; two blocks should fit into L2 cache.
+   */
+  private static final int BLOCK_BYTES = 1 << 17;
+
+  /**
+   * Maximum number of vectors per block.
+   */
+  private static final int MAX_BLOCK_SIZE = 1024;
+
+  /**
+   * Number of dimensions to process before testing for early abandoning.
+   */
+  private static final int ABANDON_STEP = 16;
+
+  /**
+   * Data relation.
+   */
+  private Relation<? extends NumberVector> relation;
+
+  /**
+   * Candidate DBIDs.
+   */
+  private ArrayDBIDs cands;
+
+  /**
+   * Dimensionality.
+   */
+  private int dim;
+
+  /**
+   * Block size.
+   */
+  private int blocksize;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Data relation, must be a dense vector field
+   */
+  public TiledEuclideanKNNJoin(Relation<? extends NumberVector> relation) {
+    super();
+    this.relation = relation;
+    this.cands = DBIDUtil.ensureArray(relation.getDBIDs());
+    this.dim = ((VectorFieldTypeInformation<?>) relation.getDataTypeInformation()).getDimensionality();
+    this.blocksize = Math.max(1, Math.min(MAX_BLOCK_SIZE, BLOCK_BYTES / (dim << 3)));
+  }
+
+  /**
+   * Test whether the relation is supported, i.e. a dense vector field.
+   * 
+   * @param relation Relation
+   * @return {@code true} when the tiled join can be used.
+   */
+  public static boolean isApplicable(Relation<?> relation) {
+    SimpleTypeInformation<?> type = relation.getDataTypeInformation();
+    if(!(type instanceof VectorFieldTypeInformation)) {
+      return false;
+    }
+    if(SparseNumberVector.class.isAssignableFrom(type.getRestrictionClass())) {
+      return false;
+    }
+    return ((VectorFieldTypeInformation<?>) type).getDimensionality() > 0;
+  }
+
+  /**
+   * Compute the kNN of all query objects.
+   * 
+   * Note: the resulting heaps contain <em>squared</em> Euclidean distances.
+   * 
+   * @param ids Query objects
+   * @param k Number of neighbors
+   * @return Heaps, aligned with the query ids.
+   */
+  public KNNHeap[] run(ArrayDBIDs ids, int k) {
+    final int size = ids.size();
+    KNNHeap[] heaps = new KNNHeap[size];
+    for(int i = 0; i < size; i++) {
+      heaps[i] = DBIDUtil.newHeap(k);
+    }
+    final int numblocks = (size + blocksize - 1) / blocksize;
+    if(numblocks <= 1 || ParallelCore.ALL_PROCESSORS <= 1) {
+      double[] qbuf = new double[blocksize * dim], cbuf = new double[blocksize * dim];
+      for(int b = 0; b < numblocks; b++) {
+        processQueryBlock(ids, b * blocksize, Math.min(size, (b + 1) * blocksize), heaps, qbuf, cbuf);
+      }
+    }
+    else {
+      ParallelCore.getCore().invoke(new BlockTask(ids, heaps, 0, numblocks));
+    }
+    return heaps;
+  }
+
+  /**
+   * Process a block of queries against all candidates.
+   * 
+   * @param ids Query ids
+   * @param qstart Begin of query block
+   * @param qend End of query block
+   * @param heaps Output heaps
+   * @param qbuf Query buffer
+   * @param cbuf Candidate buffer
+   */
+  protected void processQueryBlock(ArrayDBIDs ids, int qstart, int qend, KNNHeap[] heaps, double[] qbuf, double[] cbuf) {
+    final int d = dim;
+    final int qlen = qend - qstart;
+    fill(ids, qstart, qend, qbuf);
+    double[] kdists = new double[qlen];
+    for(int i = 0; i < qlen; i++) {
+      kdists[i] = heaps[qstart + i].getKNNDistance();
+    }
+    final int csize = cands.size();
+    DBIDArrayIter citer = cands.iter();
+    for(int cstart = 0; cstart < csize; cstart += blocksize) {
+      final int clen = Math.min(blocksize, csize - cstart);
+      fill(cands, cstart, cstart + clen, cbuf);
+      for(int q = 0, qoff = 0; q < qlen; q++, qoff += d) {
+        double kdist = kdists[q];
+        for(int c = 0, coff = 0; c < clen; c++, coff += d) {
+          double sum = 0.;
+          // Partial distance, with early abandoning.
+          for(int dd = 0; dd < d; dd += ABANDON_STEP) {
+            sum += MinkowskiKernels.squaredEuclidean(qbuf, qoff + dd, cbuf, coff + dd, Math.min(ABANDON_STEP, d - dd));
+            if(sum > kdist) {
+              break;
+            }
+          }
+          if(sum <= kdist) {
+            kdist = heaps[qstart + q].insert(sum, citer.seek(cstart + c));
+          }
+        }
+        kdists[q] = kdist;
+      }
+    }
+  }
+
+  /**
+   * Copy a block of vectors into a primitive buffer.
+   * 
+   * @param ids Object ids
+   * @param start First offset
+   * @param end End offset (exclusive)
+   * @param buf Output buffer
+   */
+  private void fill(ArrayDBIDs ids, int start, int end, double[] buf) {
+    DBIDArrayIter iter = ids.iter().seek(start);
+    for(int i = start, off = 0; i < end; i++, iter.advance()) {
+      NumberVector vec = relation.get(iter);
+      final double[] raw = MinkowskiKernels.doubleArray(vec);
+      if(raw != null && raw.length == dim) {
+        System.arraycopy(raw, 0, buf, off, dim);
+        off += dim;
+        continue;
+      }
+      for(int d = 0; d < dim; d++, off++) {
+        buf[off] = vec.doubleValue(d);
+      }
+    }
+  }
+
+  /**
+   * Task to process a range of query blocks, splitting recursively.
+   * 
+   * @author Erich Schubert
+   */
+  private class BlockTask extends RecursiveAction {
+    /**
+     * Serial version
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Query ids
+     */
+    private ArrayDBIDs ids;
+
+    /**
+     * Output heaps
+     */
+    private KNNHeap[] heaps;
+
+    /**
+     * First block
+     */
+    private int start;
+
+    /**
+     * End block (exclusive)
+     */
+    private int end;
+
+    /**
+     * Constructor.
+     * 
+     * @param ids Query ids
+     * @param heaps Output heaps
+     * @param start First block
+     * @param end End block (exclusive)
+     */
+    public BlockTask(ArrayDBIDs ids, KNNHeap[] heaps, int start, int end) {
+      super();
+      this.ids = ids;
+      this.heaps = heaps;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if(end - start > 1) {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new BlockTask(ids, heaps, start, mid), new BlockTask(ids, heaps, mid, end));
+        return;
+      }
+      final int size = ids.size();
+      double[] qbuf = new double[blocksize * dim], cbuf = new double[blocksize * dim];
+      processQueryBlock(ids, start * blocksize, Math.min(size, end * blocksize), heaps, qbuf, cbuf);
+    }
+  }
+}
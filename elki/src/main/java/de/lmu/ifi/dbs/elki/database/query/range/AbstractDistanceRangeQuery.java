@@ -65,4 +65,9 @@ public abstract class AbstractDistanceRangeQuery<O> implements RangeQuery<O> {
 
   @Override
   abstract public DoubleDBIDList getRangeForObject(O obj, double range);
+
+  @Override
+  public RangeSession<O> newSession() {
+    return new SimpleRangeSession<>(this);
+  }
 }
@@ -0,0 +1,84 @@
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
+
+/**
+ * Abstract base class for range query sessions.
+ * 
+ * Provides a reusable result buffer to subclasses, and implements the streaming
+ * API on top of the list API. Subclasses should override the streaming methods
+ * when they can produce results without buffering.
+ * 
+ * @author Erich Schubert
+ * 
+ * @param <O> Object type
+ */
+public abstract class AbstractRangeSession<O> implements RangeSession<O> {
+  /**
+   * Reusable result list.
+   */
+  private ModifiableDoubleDBIDList buffer;
+
+  /**
+   * Get the result buffer of this session, emptied.
+   * 
+   * @return Empty result buffer
+   */
+  protected ModifiableDoubleDBIDList buffer() {
+    if(buffer == null) {
+      return buffer = DBIDUtil.newDistanceDBIDList();
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  @Override
+  public void getRangeForDBID(DBIDRef id, double range, NeighborConsumer consumer) {
+    emit(getRangeForDBID(id, range), consumer);
+  }
+
+  @Override
+  public void getRangeForObject(O obj, double range, NeighborConsumer consumer) {
+    emit(getRangeForObject(obj, range), consumer);
+  }
+
+  /**
+   * Pass a result list to a consumer.
+   * 
+   * @param list Result list
+   * @param consumer Consumer
+   */
+  private static void emit(DoubleDBIDList list, NeighborConsumer consumer) {
+    for(DoubleDBIDListIter iter = list.iter(); iter.valid(); iter.advance()) {
+      consumer.accept(iter, iter.doubleValue());
+    }
+  }
+}
@@ -28,6 +28,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
 import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 
@@ -54,26 +55,96 @@ public class LinearScanDistanceRangeQuery<O> extends AbstractDistanceRangeQuery<
   @Override
   public DoubleDBIDList getRangeForDBID(DBIDRef id, double range) {
     ModifiableDoubleDBIDList result = DBIDUtil.newDistanceDBIDList();
+    linearScan(id, range, result);
+    result.sort();
+    return result;
+  }
+
+  @Override
+  public DoubleDBIDList getRangeForObject(O obj, double range) {
+    ModifiableDoubleDBIDList result = DBIDUtil.newDistanceDBIDList();
+    linearScan(obj, range, result);
+    result.sort();
+    return result;
+  }
+
+  @Override
+  public RangeSession<O> newSession() {
+    return new Session();
+  }
+
+  /**
+   * Linear scan for a database object.
+   * 
+   * @param id Query object
+   * @param range Query radius
+   * @param result Output data structure
+   */
+  private void linearScan(DBIDRef id, double range, ModifiableDoubleDBIDList result) {
     for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
       double currentDistance = distanceQuery.distance(id, iter);
       if(currentDistance <= range) {
         result.add(currentDistance, iter);
       }
     }
-    result.sort();
-    return result;
   }
 
-  @Override
-  public DoubleDBIDList getRangeForObject(O obj, double range) {
-    ModifiableDoubleDBIDList result = DBIDUtil.newDistanceDBIDList();
+  /**
+   * Linear scan for an arbitrary object.
+   * 
+   * @param obj Query object
+   * @param range Query radius
+   * @param result Output data structure
+   */
+  private void linearScan(O obj, double range, ModifiableDoubleDBIDList result) {
     for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
       double currentDistance = distanceQuery.distance(obj, iter);
       if(currentDistance <= range) {
         result.add(currentDistance, iter);
       }
     }
-    result.sort();
-    return result;
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the result buffer, and streaming without buffering.
+   * 
+   * @author Erich Schubert
+   */
+  protected class Session extends AbstractRangeSession<O> {
+    @Override
+    public DoubleDBIDList getRangeForDBID(DBIDRef id, double range) {
+      ModifiableDoubleDBIDList result = buffer();
+      linearScan(id, range, result);
+      result.sort();
+      return result;
+    }
+
+    @Override
+    public DoubleDBIDList getRangeForObject(O obj, double range) {
+      ModifiableDoubleDBIDList result = buffer();
+      linearScan(obj, range, result);
+      result.sort();
+      return result;
+    }
+
+    @Override
+    public void getRangeForDBID(DBIDRef id, double range, NeighborConsumer consumer) {
+      for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
+        final double distance = distanceQuery.distance(id, iter);
+        if(distance <= range) {
+          consumer.accept(iter, distance);
+        }
+      }
+    }
+
+    @Override
+    public void getRangeForObject(O obj, double range, NeighborConsumer consumer) {
+      for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
+        final double distance = distanceQuery.distance(obj, iter);
+        if(distance <= range) {
+          consumer.accept(iter, distance);
+        }
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
@@ -75,6 +76,11 @@ public class LinearScanEuclideanDistanceRangeQuery<O extends NumberVector> exten
     return result;
   }
 
+  @Override
+  public RangeSession<O> newSession() {
+    return new EuclideanSession();
+  }
+
   /**
    * Main loop for linear scan,
    * 
@@ -101,4 +107,45 @@ public class LinearScanEuclideanDistanceRangeQuery<O extends NumberVector> exten
       iter.advance();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the result buffer, and streaming without buffering.
+   * 
+   * @author Erich Schubert
+   */
+  protected class EuclideanSession extends AbstractRangeSession<O> {
+    @Override
+    public DoubleDBIDList getRangeForDBID(DBIDRef id, double range) {
+      return getRangeForObject(relation.get(id), range);
+    }
+
+    @Override
+    public DoubleDBIDList getRangeForObject(O obj, double range) {
+      ModifiableDoubleDBIDList result = buffer();
+      linearScan(relation, relation.iterDBIDs(), obj, range, result);
+      result.sort();
+      return result;
+    }
+
+    @Override
+    public void getRangeForDBID(DBIDRef id, double range, NeighborConsumer consumer) {
+      getRangeForObject(relation.get(id), range, consumer);
+    }
+
+    @Override
+    public void getRangeForObject(O obj, double range, NeighborConsumer consumer) {
+      // See linearScan for the handling of precision.
+      final double upper = range * 1.0000001;
+      final double sqrange = upper * upper;
+      for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+        final double sqdistance = SQUARED.distance(obj, relation.get(iter));
+        if(sqdistance <= sqrange) {
+          final double dist = Math.sqrt(sqdistance);
+          if(dist <= range) {
+            consumer.accept(iter, dist);
+          }
+        }
+      }
+    }
+  }
+}
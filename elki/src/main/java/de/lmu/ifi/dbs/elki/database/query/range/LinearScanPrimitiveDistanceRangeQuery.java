@@ -28,6 +28,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
@@ -78,6 +79,11 @@ public class LinearScanPrimitiveDistanceRangeQuery<O> extends AbstractDistanceRa
     return result;
   }
 
+  @Override
+  public RangeSession<O> newSession() {
+    return new Session();
+  }
+
   /**
    * Main loop for linear scan,
    * 
@@ -96,4 +102,39 @@ public class LinearScanPrimitiveDistanceRangeQuery<O> extends AbstractDistanceRa
       iter.advance();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the result buffer, and streaming without buffering.
+   * 
+   * @author Erich Schubert
+   */
+  protected class Session extends AbstractRangeSession<O> {
+    @Override
+    public DoubleDBIDList getRangeForDBID(DBIDRef id, double range) {
+      return getRangeForObject(relation.get(id), range);
+    }
+
+    @Override
+    public DoubleDBIDList getRangeForObject(O obj, double range) {
+      ModifiableDoubleDBIDList result = buffer();
+      linearScan(relation, relation.iterDBIDs(), obj, range, result);
+      result.sort();
+      return result;
+    }
+
+    @Override
+    public void getRangeForDBID(DBIDRef id, double range, NeighborConsumer consumer) {
+      getRangeForObject(relation.get(id), range, consumer);
+    }
+
+    @Override
+    public void getRangeForObject(O obj, double range, NeighborConsumer consumer) {
+      for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+        final double distance = rawdist.distance(obj, relation.get(iter));
+        if(distance <= range) {
+          consumer.accept(iter, distance);
+        }
+      }
+    }
+  }
+}
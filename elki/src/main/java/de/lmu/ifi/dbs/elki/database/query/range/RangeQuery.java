@@ -34,6 +34,7 @@ import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
  * 
  * @apiviz.landmark
  * @apiviz.uses DoubleDBIDList oneway - - «create»
+ * @apiviz.has RangeSession oneway - - «create»
  * 
  * @param <O> Object type
  */
@@ -55,4 +56,11 @@ public interface RangeQuery<O> extends DatabaseQuery {
    * @return neighbors
    */
   public DoubleDBIDList getRangeForObject(O obj, double range);
+
+  /**
+   * Open a session for repeated queries from the current thread.
+   * 
+   * @return New session
+   */
+  public RangeSession<O> newSession();
 }
@@ -0,0 +1,87 @@
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
+
+/**
+ * Reusable context for issuing many range queries from a single thread.
+ * 
+ * Obtain a session with {@link RangeQuery#newSession()}, once per thread. A
+ * session keeps its result buffer between queries, and the streaming methods
+ * avoid materializing results at all. Sessions are <em>not</em> thread safe.
+ * 
+ * Results returned by a session are only valid until the next query on the
+ * same session; copy them if they need to be kept.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has DoubleDBIDList oneway - - «reuses»
+ * @apiviz.uses NeighborConsumer
+ * 
+ * @param <O> Object type
+ */
+public interface RangeSession<O> {
+  /**
+   * Get the neighbors for a particular id in a given query range.
+   * 
+   * @param id query object ID
+   * @param range Query range
+   * @return neighbors, valid until the next query on this session
+   */
+  DoubleDBIDList getRangeForDBID(DBIDRef id, double range);
+
+  /**
+   * Get the neighbors for a particular object in a given query range.
+   * 
+   * @param obj Query object
+   * @param range Query range
+   * @return neighbors, valid until the next query on this session
+   */
+  DoubleDBIDList getRangeForObject(O obj, double range);
+
+  /**
+   * Stream the neighbors for a particular id in a given query range.
+   * 
+   * Neighbors are not necessarily passed in the order of distance.
+   * 
+   * @param id query object ID
+   * @param range Query range
+   * @param consumer Consumer to receive the neighbors
+   */
+  void getRangeForDBID(DBIDRef id, double range, NeighborConsumer consumer);
+
+  /**
+   * Stream the neighbors for a particular object in a given query range.
+   * 
+   * Neighbors are not necessarily passed in the order of distance.
+   * 
+   * @param obj Query object
+   * @param range Query range
+   * @param consumer Consumer to receive the neighbors
+   */
+  void getRangeForObject(O obj, double range, NeighborConsumer consumer);
+}
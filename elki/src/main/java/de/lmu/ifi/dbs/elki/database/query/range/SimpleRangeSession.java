@@ -0,0 +1,64 @@
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+
+/**
+ * Session for queries that have no reusable state. All calls are delegated to
+ * the query.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses RangeQuery
+ * 
+ * @param <O> Object type
+ */
+public class SimpleRangeSession<O> extends AbstractRangeSession<O> {
+  /**
+   * Query to delegate to.
+   */
+  private final RangeQuery<O> query;
+
+  /**
+   * Constructor.
+   * 
+   * @param query Query to delegate to
+   */
+  public SimpleRangeSession(RangeQuery<O> query) {
+    super();
+    this.query = query;
+  }
+
+  @Override
+  public DoubleDBIDList getRangeForDBID(DBIDRef id, double range) {
+    return query.getRangeForDBID(id, range);
+  }
+
+  @Override
+  public DoubleDBIDList getRangeForObject(O obj, double range) {
+    return query.getRangeForObject(obj, range);
+  }
+}
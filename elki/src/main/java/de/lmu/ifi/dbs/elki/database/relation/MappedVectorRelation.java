@@ -0,0 +1,199 @@
+package de.lmu.ifi.dbs.elki.database.relation;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import de.lmu.ifi.dbs.elki.data.MappedDoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.persistent.MappedVectorFile;
+import de.lmu.ifi.dbs.elki.result.AbstractHierarchicalResult;
+
+/**
+ * Relation of number vectors backed by a {@link MappedVectorFile}.
+ * 
+ * Objects are not kept on the heap; {@link #get} returns a lightweight
+ * {@link MappedDoubleVector} view on the mapped file. This allows processing
+ * data sets larger than the available heap memory.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf MappedVectorFile
+ * @apiviz.uses MappedDoubleVector
+ */
+public class MappedVectorRelation extends AbstractHierarchicalResult implements Relation<NumberVector> {
+  /**
+   * Our database
+   */
+  private final Database database;
+
+  /**
+   * Data type information.
+   */
+  private final VectorFieldTypeInformation<NumberVector> type;
+
+  /**
+   * The file containing the vectors.
+   */
+  private final MappedVectorFile file;
+
+  /**
+   * The DBIDs, aligned with the records of the file.
+   */
+  private final DBIDRange ids;
+
+  /**
+   * Constructor.
+   * 
+   * @param database Database
+   * @param file Mapped file
+   * @param ids DBIDs, must have the same size as the file
+   */
+  public MappedVectorRelation(Database database, MappedVectorFile file, DBIDRange ids) {
+    super();
+    assert (ids.size() == file.size()) : "File size does not match the number of DBIDs.";
+    this.database = database;
+    this.file = file;
+    this.ids = ids;
+    this.type = new VectorFieldTypeInformation<>(MappedDoubleVector.FACTORY, file.getDimensionality());
+  }
+
+  @Override
+  public Database getDatabase() {
+    return database;
+  }
+
+  @Override
+  public NumberVector get(DBIDRef id) {
+    return new MappedDoubleVector(file, ids.getOffset(id));
+  }
+
+  @Override
+  public void set(DBIDRef id, NumberVector val) {
+    if(!file.isWritable()) {
+      throw new UnsupportedOperationException("Mapped file was opened read-only.");
+    }
+    final int off = ids.getOffset(id);
+    for(int d = 0; d < file.getDimensionality(); d++) {
+      file.set(off, d, val.doubleValue(d));
+    }
+  }
+
+  @Override
+  public void delete(DBIDRef id) {
+    throw new UnsupportedOperationException("Deletions are not supported.");
+  }
+
+  @Override
+  public SimpleTypeInformation<NumberVector> getDataTypeInformation() {
+    return type;
+  }
+
+  @Override
+  public DBIDs getDBIDs() {
+    return ids;
+  }
+
+  @Override
+  public DBIDIter iterDBIDs() {
+    return ids.iter();
+  }
+
+  @Override
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * Get the underlying file.
+   * 
+   * @return File
+   */
+  public MappedVectorFile getFile() {
+    return file;
+  }
+
+  @Override
+  public String getLongName() {
+    return "Mapped vectors: " + file.getFilename().getName();
+  }
+
+  @Override
+  public String getShortName() {
+    return "mapped-vectors";
+  }
+
+  /**
+   * Bundle column containing the vectors of a mapped file, as produced by
+   * {@link de.lmu.ifi.dbs.elki.datasource.MappedVectorDatabaseConnection}.
+   * 
+   * A database may use this column as is via {@link MappedVectorRelation},
+   * without copying the objects.
+   * 
+   * @author Erich Schubert
+   */
+  public static class Column extends AbstractList<NumberVector> implements RandomAccess {
+    /**
+     * File containing the data.
+     */
+    private final MappedVectorFile file;
+
+    /**
+     * Constructor.
+     * 
+     * @param file File containing the data
+     */
+    public Column(MappedVectorFile file) {
+      super();
+      this.file = file;
+    }
+
+    @Override
+    public NumberVector get(int index) {
+      return new MappedDoubleVector(file, index);
+    }
+
+    @Override
+    public int size() {
+      return file.size();
+    }
+
+    /**
+     * Get the underlying file.
+     * 
+     * @return File
+     */
+    public MappedVectorFile getFile() {
+      return file;
+    }
+  }
+}
@@ -28,10 +28,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.datasource.filter.ObjectFilter;
+import de.lmu.ifi.dbs.elki.datasource.parser.ParallelNumberVectorLabelParser;
 import de.lmu.ifi.dbs.elki.datasource.parser.Parser;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
 import de.lmu.ifi.dbs.elki.utilities.FileUtil;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
@@ -46,6 +52,16 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
  * @apiviz.landmark
  */
 public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(FileBasedDatabaseConnection.class);
+
+  /**
+   * File to map for parallel parsing, {@code null} when reading a stream.
+   */
+  private File mapfile = null;
+
   /**
    * Constructor.
    * 
@@ -56,7 +72,15 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
   public FileBasedDatabaseConnection(List<ObjectFilter> filters, Parser parser, File infile) {
     super(filters, parser);
     try {
-      this.in = new BufferedInputStream(FileUtil.tryGzipInput(new FileInputStream(infile)));
+      InputStream fin = FileUtil.tryGzipInput(new FileInputStream(infile));
+      if(parser instanceof ParallelNumberVectorLabelParser && !(fin instanceof GZIPInputStream)) {
+        // Uncompressed file: map and parse in parallel.
+        fin.close();
+        this.mapfile = infile;
+      }
+      else {
+        this.in = new BufferedInputStream(fin);
+      }
     }
     catch(IOException e) {
       throw new AbortException("Could not load input file: " + infile, e);
@@ -71,13 +95,7 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
    * @param infile File to load the data from
    */
   public FileBasedDatabaseConnection(List<ObjectFilter> filters, Parser parser, String infile) {
-    super(filters, parser);
-    try {
-      this.in = new BufferedInputStream(FileUtil.tryGzipInput(new FileInputStream(infile)));
-    }
-    catch(IOException e) {
-      throw new AbortException("Could not load input file: " + infile, e);
-    }
+    this(filters, parser, new File(infile));
   }
 
   /**
@@ -92,6 +110,37 @@ public class FileBasedDatabaseConnection extends InputStreamDatabaseConnection {
     this.in = in;
   }
 
+  @Override
+  public MultipleObjectsBundle loadData() {
+    if(mapfile == null) {
+      return super.loadData();
+    }
+    Duration duration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".parse").begin() : null;
+    MultipleObjectsBundle parsingResult;
+    try (FileInputStream fin = new FileInputStream(mapfile); //
+        FileChannel channel = fin.getChannel()) {
+      parsingResult = ((ParallelNumberVectorLabelParser<?>) parser).parse(channel);
+    }
+    catch(IOException e) {
+      throw new AbortException("Could not load input file: " + mapfile, e);
+    }
+    parser.cleanup();
+    if(duration != null) {
+      LOG.statistics(duration.end());
+    }
+    Duration fduration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".filter").begin() : null;
+    MultipleObjectsBundle objects = invokeBundleFilters(parsingResult);
+    if(fduration != null) {
+      LOG.statistics(fduration.end());
+    }
+    return objects;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
   /**
    * Parameterization class.
    * 
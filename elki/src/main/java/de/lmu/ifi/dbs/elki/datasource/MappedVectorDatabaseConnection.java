@@ -0,0 +1,123 @@
+package de.lmu.ifi.dbs.elki.datasource;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import de.lmu.ifi.dbs.elki.data.MappedDoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.relation.MappedVectorRelation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.persistent.MappedVectorFile;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+
+/**
+ * Database connection that opens a {@link MappedVectorFile} without parsing.
+ * 
+ * The vectors are not loaded into memory: the resulting bundle contains a
+ * {@link MappedVectorRelation.Column}, which
+ * {@link de.lmu.ifi.dbs.elki.database.StaticArrayDatabase} uses directly as
+ * relation. Loading time thus is independent of the data set size, and data
+ * sets larger than the heap can be processed.
+ * 
+ * Files can be created using
+ * {@link de.lmu.ifi.dbs.elki.application.ConvertToMappedVectorsApplication}.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses MappedVectorFile
+ */
+@Description("Open a memory mapped vector file, without parsing or loading the data into memory.")
+public class MappedVectorDatabaseConnection implements DatabaseConnection {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(MappedVectorDatabaseConnection.class);
+
+  /**
+   * Input file.
+   */
+  File infile;
+
+  /**
+   * Constructor.
+   * 
+   * @param infile Input file
+   */
+  public MappedVectorDatabaseConnection(File infile) {
+    super();
+    this.infile = infile;
+  }
+
+  @Override
+  public MultipleObjectsBundle loadData() {
+    MappedVectorFile file;
+    try {
+      file = new MappedVectorFile(infile, false);
+    }
+    catch(IOException e) {
+      throw new AbortException("Cannot open mapped vector file: " + infile, e);
+    }
+    if(LOG.isVerbose()) {
+      LOG.verbose("Mapped " + file.size() + " vectors of dimensionality " + file.getDimensionality());
+    }
+    MultipleObjectsBundle b = new MultipleObjectsBundle();
+    b.appendColumn(new VectorFieldTypeInformation<>(MappedDoubleVector.FACTORY, file.getDimensionality()), new MappedVectorRelation.Column(file));
+    return b;
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * Input file.
+     */
+    File infile;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      FileParameter inputP = new FileParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, FileParameter.FileType.INPUT_FILE);
+      if(config.grab(inputP)) {
+        infile = inputP.getValue();
+      }
+    }
+
+    @Override
+    protected MappedVectorDatabaseConnection makeInstance() {
+      return new MappedVectorDatabaseConnection(infile);
+    }
+  }
+}
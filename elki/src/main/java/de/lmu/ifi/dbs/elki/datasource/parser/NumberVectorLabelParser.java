@@ -277,6 +277,7 @@ public class NumberVectorLabelParser<V extends NumberVector> extends AbstractStr
     // Maybe a label row?
     if(getLineNumber() == 1 && attributes.size() == 0) {
       columnnames = new ArrayList<>(labels);
+      labels.clear();
       haslabels = false;
       curvec = null;
       curlbl = null;
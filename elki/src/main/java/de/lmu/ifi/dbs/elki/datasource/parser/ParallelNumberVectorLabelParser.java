@@ -0,0 +1,387 @@
+package de.lmu.ifi.dbs.elki.datasource.parser;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.lmu.ifi.dbs.elki.data.LabelList;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.ArrayLikeUtil;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hash.Unique;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferCharSequence;
+import de.lmu.ifi.dbs.elki.utilities.io.Tokenizer;
+
+/**
+ * Parallel variant of {@link NumberVectorLabelParser} for uncompressed files.
+ * 
+ * The file is split into blocks at line boundaries, and each block is memory
+ * mapped and tokenized by a separate thread, directly on the mapped bytes
+ * (without decoding lines into strings first). The blocks are then
+ * concatenated in file order, so the result is the same as with the serial
+ * parser.
+ * 
+ * Input streams (e.g. compressed files or stdin) are parsed serially, as with
+ * {@link NumberVectorLabelParser}. {@link FileBasedDatabaseConnection} will
+ * use the parallel code path when possible.
+ * 
+ * @author Erich Schubert
+ * 
+ * @param <V> the type of NumberVector used
+ */
+public class ParallelNumberVectorLabelParser<V extends NumberVector> extends NumberVectorLabelParser<V> {
+  /**
+   * Logging class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelNumberVectorLabelParser.class);
+
+  /**
+   * Minimum size of a block.
+   */
+  private static final long MIN_BLOCKSIZE = 1L << 20;
+
+  /**
+   * Maximum size of a block.
+   */
+  private static final long MAX_BLOCKSIZE = 1L << 28;
+
+  /**
+   * Column separator.
+   */
+  private Pattern colSep;
+
+  /**
+   * Quote characters.
+   */
+  private String quoteChars;
+
+  /**
+   * Comment pattern.
+   */
+  private Pattern comment;
+
+  /**
+   * Constructor with defaults.
+   * 
+   * @param factory Vector factory
+   */
+  public ParallelNumberVectorLabelParser(NumberVector.Factory<V> factory) {
+    this(Pattern.compile(DEFAULT_SEPARATOR), QUOTE_CHARS, Pattern.compile(COMMENT_PATTERN), null, factory);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param colSep Column separator
+   * @param quoteChars Quote character
+   * @param comment Comment pattern
+   * @param labelIndices Column indexes that are numeric.
+   * @param factory Vector factory
+   */
+  public ParallelNumberVectorLabelParser(Pattern colSep, String quoteChars, Pattern comment, BitSet labelIndices, NumberVector.Factory<V> factory) {
+    super(colSep, quoteChars, comment, labelIndices, factory);
+    this.colSep = colSep;
+    this.quoteChars = quoteChars;
+    this.comment = comment;
+  }
+
+  /**
+   * Parse a file in parallel.
+   * 
+   * @param channel File channel to read from
+   * @return Parsed data
+   * @throws IOException on IO errors
+   */
+  public MultipleObjectsBundle parse(FileChannel channel) throws IOException {
+    final long size = channel.size();
+    List<BlockParser> blocks;
+    ParallelCore core = ParallelCore.getCore();
+    try {
+      core.connect();
+      final int parallelism = core.getParallelism();
+      long blocksize = Math.max(MIN_BLOCKSIZE, Math.min(MAX_BLOCKSIZE, size / (parallelism << 2) + 1));
+      // Split at line boundaries.
+      TLongArrayList bounds = new TLongArrayList();
+      bounds.add(0L);
+      for(long pos = blocksize; pos < size;) {
+        final long next = nextLineStart(channel, pos, size);
+        if(next >= size) {
+          break;
+        }
+        bounds.add(next);
+        pos = next + blocksize;
+      }
+      bounds.add(size);
+      if(LOG.isVerbose()) {
+        LOG.verbose("Parsing " + (bounds.size() - 1) + " blocks in parallel.");
+      }
+      List<Future<BlockParser>> futures = new ArrayList<>(bounds.size() - 1);
+      for(int i = 1; i < bounds.size(); i++) {
+        futures.add(core.submit(new BlockParser(channel, bounds.get(i - 1), bounds.get(i), i == 1)));
+      }
+      blocks = new ArrayList<>(futures.size());
+      for(Future<BlockParser> fut : futures) {
+        blocks.add(fut.get());
+      }
+    }
+    catch(ExecutionException e) {
+      throw new AbortException("Parsing failed.", e.getCause());
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AbortException("Parsing was interrupted.", e);
+    }
+    finally {
+      core.disconnect();
+    }
+    return assemble(blocks);
+  }
+
+  /**
+   * Concatenate the parsed blocks.
+   * 
+   * @param blocks Blocks, in file order
+   * @return Bundle
+   */
+  private MultipleObjectsBundle assemble(List<BlockParser> blocks) {
+    int total = 0;
+    mindim = Integer.MAX_VALUE;
+    maxdim = 0;
+    haslabels = false;
+    for(BlockParser block : blocks) {
+      total += block.vecs.size();
+      mindim = (block.mindim < mindim) ? block.mindim : mindim;
+      maxdim = (block.maxdim > maxdim) ? block.maxdim : maxdim;
+      haslabels |= block.haslabels;
+    }
+    columnnames = blocks.get(0).columnnames;
+    ArrayList<V> vecs = new ArrayList<>(total);
+    ArrayList<LabelList> lbls = haslabels ? new ArrayList<LabelList>(total) : null;
+    for(BlockParser block : blocks) {
+      vecs.addAll(block.vecs);
+      if(lbls != null) {
+        lbls.addAll(block.lbls);
+      }
+    }
+    MultipleObjectsBundle bundle = new MultipleObjectsBundle();
+    bundle.appendColumn(getTypeInformation(mindim, maxdim), vecs);
+    if(lbls != null) {
+      bundle.appendColumn(TypeUtil.LABELLIST, lbls);
+    }
+    return bundle;
+  }
+
+  /**
+   * Find the beginning of the next line.
+   * 
+   * @param channel File channel
+   * @param pos Search position
+   * @param size File size
+   * @return Position after the next newline at or after {@code pos - 1}
+   * @throws IOException on IO errors
+   */
+  private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(4096);
+    for(long off = pos - 1; off < size; off += buf.limit()) {
+      buf.clear();
+      if(channel.read(buf, off) <= 0) {
+        break;
+      }
+      buf.flip();
+      for(int i = 0; i < buf.limit(); i++) {
+        if(buf.get(i) == '\n') {
+          return off + i + 1;
+        }
+      }
+    }
+    return size;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parser for a single block of lines.
+   * 
+   * @author Erich Schubert
+   */
+  private class BlockParser implements Callable<BlockParser> {
+    /**
+     * File channel.
+     */
+    private FileChannel channel;
+
+    /**
+     * Block range.
+     */
+    private long start, end;
+
+    /**
+     * First block, may contain column headers.
+     */
+    private boolean first;
+
+    /**
+     * Parsed vectors.
+     */
+    ArrayList<V> vecs = new ArrayList<>();
+
+    /**
+     * Parsed labels.
+     */
+    ArrayList<LabelList> lbls = new ArrayList<>();
+
+    /**
+     * Dimensionality range.
+     */
+    int mindim = Integer.MAX_VALUE, maxdim = 0;
+
+    /**
+     * Labels were found.
+     */
+    boolean haslabels = false;
+
+    /**
+     * Column names.
+     */
+    List<String> columnnames = null;
+
+    /**
+     * Constructor.
+     * 
+     * @param channel File channel
+     * @param start Start offset
+     * @param end End offset
+     * @param first First block flag
+     */
+    BlockParser(FileChannel channel, long start, long end, boolean first) {
+      super();
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+      this.first = first;
+    }
+
+    @Override
+    public BlockParser call() throws IOException {
+      if(end - start > Integer.MAX_VALUE) {
+        throw new AbortException("Input line too long for memory mapping at offset " + start);
+      }
+      final MappedByteBuffer buf = channel.map(MapMode.READ_ONLY, start, end - start);
+      final ByteBufferCharSequence seq = new ByteBufferCharSequence(buf);
+      final Tokenizer tokenizer = new Tokenizer(colSep, quoteChars);
+      final Matcher cmatcher = comment != null ? comment.matcher(seq) : null;
+      final TDoubleArrayList attributes = new TDoubleArrayList();
+      final ArrayList<String> labels = new ArrayList<>();
+      final Unique<String> unique = new Unique<>();
+      final int len = buf.limit();
+      int lineNumber = 0;
+      for(int pos = 0; pos < len;) {
+        int eol = pos;
+        while(eol < len && buf.get(eol) != '\n') {
+          ++eol;
+        }
+        int lend = eol;
+        while(lend > pos && buf.get(lend - 1) == '\r') {
+          --lend;
+        }
+        ++lineNumber;
+        if(lend > pos && (cmatcher == null || !cmatcher.region(pos, lend).matches())) {
+          tokenizer.initialize(seq, pos, lend);
+          // Split into numerical attributes and labels
+          for(int i = 0; tokenizer.valid(); tokenizer.advance(), i++) {
+            if(!isLabelColumn(i) && !tokenizer.isQuoted()) {
+              try {
+                attributes.add(tokenizer.getDouble());
+                continue;
+              }
+              catch(NumberFormatException e) {
+                // Ignore attempt, add to labels below.
+              }
+            }
+            // Else: labels.
+            if(tokenizer.getEnd() > tokenizer.getStart()) {
+              haslabels = true;
+              labels.add(unique.addOrGet(seq.decode(tokenizer.getStart(), tokenizer.getEnd())));
+            }
+          }
+          // Maybe a label row?
+          if(first && lineNumber == 1 && attributes.size() == 0) {
+            columnnames = new ArrayList<>(labels);
+            haslabels = false;
+          }
+          else {
+            V vec = createDBObject(attributes, ArrayLikeUtil.TDOUBLELISTADAPTER);
+            final int curdim = vec.getDimensionality();
+            mindim = (curdim < mindim) ? curdim : mindim;
+            maxdim = (curdim > maxdim) ? curdim : maxdim;
+            vecs.add(vec);
+            lbls.add(LabelList.make(labels));
+          }
+          attributes.reset();
+          labels.clear();
+        }
+        pos = eol + 1;
+      }
+      tokenizer.cleanup();
+      return this;
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<V extends NumberVector> extends NumberVectorLabelParser.Parameterizer<V> {
+    @Override
+    protected ParallelNumberVectorLabelParser<V> makeInstance() {
+      return new ParallelNumberVectorLabelParser<>(colSep, quoteChars, comment, labelIndices, factory);
+    }
+  }
+}
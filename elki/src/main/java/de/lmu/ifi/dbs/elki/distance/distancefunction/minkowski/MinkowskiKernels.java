@@ -0,0 +1,237 @@
+package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+
+/**
+ * Distance kernels for dense vectors of equal dimensionality, operating
+ * directly on the primitive arrays instead of calling
+ * {@link NumberVector#doubleValue} for every dimension.
+ * 
+ * The loops are unrolled by four, using independent accumulators, so that
+ * consecutive additions do not have to wait for each other. Float inputs are
+ * aggregated in double precision.
+ * 
+ * @author Erich Schubert
+ */
+public final class MinkowskiKernels {
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private MinkowskiKernels() {
+    // Do not instantiate.
+  }
+
+  /**
+   * Get the primitive double array of a dense vector, if supported.
+   * 
+   * @param v Vector
+   * @return Array, or {@code null}
+   */
+  public static double[] doubleArray(NumberVector v) {
+    return (v instanceof DoubleVector) ? ((DoubleVector) v).getArrayRef() : null;
+  }
+
+  /**
+   * Get the primitive float array of a dense vector, if supported.
+   * 
+   * @param v Vector
+   * @return Array, or {@code null}
+   */
+  public static float[] floatArray(NumberVector v) {
+    return (v instanceof FloatVector) ? ((FloatVector) v).getArrayRef() : null;
+  }
+
+  /**
+   * Squared Euclidean distance of two arrays of equal length.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Squared Euclidean distance
+   */
+  public static double squaredEuclidean(double[] a, double[] b) {
+    return squaredEuclidean(a, 0, b, 0, a.length);
+  }
+
+  /**
+   * Squared Euclidean distance of two array ranges, e.g. within blocks of
+   * vectors.
+   * 
+   * @param a First array
+   * @param aoff Offset in first array
+   * @param b Second array
+   * @param boff Offset in second array
+   * @param len Number of dimensions
+   * @return Squared Euclidean distance
+   */
+  public static double squaredEuclidean(double[] a, int aoff, double[] b, int boff, int len) {
+    double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+    int i = 0;
+    for(final int end = len & ~3; i < end; i += 4) {
+      final int x = aoff + i, y = boff + i;
+      final double d0 = a[x] - b[y], d1 = a[x + 1] - b[y + 1];
+      final double d2 = a[x + 2] - b[y + 2], d3 = a[x + 3] - b[y + 3];
+      s0 += d0 * d0;
+      s1 += d1 * d1;
+      s2 += d2 * d2;
+      s3 += d3 * d3;
+    }
+    for(; i < len; i++) {
+      final double d = a[aoff + i] - b[boff + i];
+      s0 += d * d;
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Squared Euclidean distance of two arrays of equal length.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Squared Euclidean distance
+   */
+  public static double squaredEuclidean(float[] a, float[] b) {
+    final int len = a.length;
+    double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+    int i = 0;
+    for(final int end = len & ~3; i < end; i += 4) {
+      final double d0 = (double) a[i] - b[i], d1 = (double) a[i + 1] - b[i + 1];
+      final double d2 = (double) a[i + 2] - b[i + 2], d3 = (double) a[i + 3] - b[i + 3];
+      s0 += d0 * d0;
+      s1 += d1 * d1;
+      s2 += d2 * d2;
+      s3 += d3 * d3;
+    }
+    for(; i < len; i++) {
+      final double d = (double) a[i] - b[i];
+      s0 += d * d;
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Manhattan distance of two arrays of equal length.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Manhattan distance
+   */
+  public static double manhattan(double[] a, double[] b) {
+    final int len = a.length;
+    double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+    int i = 0;
+    for(final int end = len & ~3; i < end; i += 4) {
+      s0 += Math.abs(a[i] - b[i]);
+      s1 += Math.abs(a[i + 1] - b[i + 1]);
+      s2 += Math.abs(a[i + 2] - b[i + 2]);
+      s3 += Math.abs(a[i + 3] - b[i + 3]);
+    }
+    for(; i < len; i++) {
+      s0 += Math.abs(a[i] - b[i]);
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Manhattan distance of two arrays of equal length.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Manhattan distance
+   */
+  public static double manhattan(float[] a, float[] b) {
+    final int len = a.length;
+    double s0 = 0., s1 = 0., s2 = 0., s3 = 0.;
+    int i = 0;
+    for(final int end = len & ~3; i < end; i += 4) {
+      s0 += Math.abs((double) a[i] - b[i]);
+      s1 += Math.abs((double) a[i + 1] - b[i + 1]);
+      s2 += Math.abs((double) a[i + 2] - b[i + 2]);
+      s3 += Math.abs((double) a[i + 3] - b[i + 3]);
+    }
+    for(; i < len; i++) {
+      s0 += Math.abs((double) a[i] - b[i]);
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Maximum distance of two arrays of equal length.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Maximum distance
+   */
+  public static double maximum(double[] a, double[] b) {
+    final int len = a.length;
+    double m0 = 0., m1 = 0., m2 = 0., m3 = 0.;
+    int i = 0;
+    for(final int end = len & ~3; i < end; i += 4) {
+      final double d0 = Math.abs(a[i] - b[i]), d1 = Math.abs(a[i + 1] - b[i + 1]);
+      final double d2 = Math.abs(a[i + 2] - b[i + 2]), d3 = Math.abs(a[i + 3] - b[i + 3]);
+      m0 = (d0 > m0) ? d0 : m0;
+      m1 = (d1 > m1) ? d1 : m1;
+      m2 = (d2 > m2) ? d2 : m2;
+      m3 = (d3 > m3) ? d3 : m3;
+    }
+    for(; i < len; i++) {
+      final double d = Math.abs(a[i] - b[i]);
+      m0 = (d > m0) ? d : m0;
+    }
+    m0 = (m1 > m0) ? m1 : m0;
+    m2 = (m3 > m2) ? m3 : m2;
+    return (m2 > m0) ? m2 : m0;
+  }
+
+  /**
+   * Maximum distance of two arrays of equal length.
+   * 
+   * @param a First vector
+   * @param b Second vector
+   * @return Maximum distance
+   */
+  public static double maximum(float[] a, float[] b) {
+    final int len = a.length;
+    double m0 = 0., m1 = 0., m2 = 0., m3 = 0.;
+    int i = 0;
+    for(final int end = len & ~3; i < end; i += 4) {
+      final double d0 = Math.abs((double) a[i] - b[i]), d1 = Math.abs((double) a[i + 1] - b[i + 1]);
+      final double d2 = Math.abs((double) a[i + 2] - b[i + 2]), d3 = Math.abs((double) a[i + 3] - b[i + 3]);
+      m0 = (d0 > m0) ? d0 : m0;
+      m1 = (d1 > m1) ? d1 : m1;
+      m2 = (d2 > m2) ? d2 : m2;
+      m3 = (d3 > m3) ? d3 : m3;
+    }
+    for(; i < len; i++) {
+      final double d = Math.abs((double) a[i] - b[i]);
+      m0 = (d > m0) ? d : m0;
+    }
+    m0 = (m1 > m0) ? m1 : m0;
+    m2 = (m3 > m2) ? m3 : m2;
+    return (m2 > m0) ? m2 : m0;
+  }
+}
@@ -115,6 +115,15 @@ public class SquaredEuclideanDistanceFunction extends AbstractSpatialNorm {
 
   @Override
   public double distance(NumberVector v1, NumberVector v2) {
+    // Fast path for dense vectors of the same type and dimensionality.
+    final double[] a1 = MinkowskiKernels.doubleArray(v1), a2 = MinkowskiKernels.doubleArray(v2);
+    if(a1 != null && a2 != null && a1.length == a2.length) {
+      return MinkowskiKernels.squaredEuclidean(a1, a2);
+    }
+    final float[] f1 = MinkowskiKernels.floatArray(v1), f2 = MinkowskiKernels.floatArray(v2);
+    if(f1 != null && f2 != null && f1.length == f2.length) {
+      return MinkowskiKernels.squaredEuclidean(f1, f2);
+    }
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int mindim = (dim1 < dim2) ? dim1 : dim2;
     double agg = preDistance(v1, v2, 0, mindim, 0.);
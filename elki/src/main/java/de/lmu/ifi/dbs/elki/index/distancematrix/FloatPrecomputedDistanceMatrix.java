@@ -0,0 +1,478 @@
+package de.lmu.ifi.dbs.elki.index.distancematrix;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.index.AbstractIndex;
+import de.lmu.ifi.dbs.elki.index.DistanceIndex;
+import de.lmu.ifi.dbs.elki.index.IndexFactory;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.persistent.MappedFloatUpperTriangleMatrix;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Distance matrix with single precision, for precomputing distances of larger
+ * data sets.
+ * 
+ * Similar to {@link PrecomputedDistanceMatrix}, only the strict upper triangle
+ * matrix is stored, assuming symmetry. But values are stored as {@code float}
+ * (halving the memory requirements to 2 * n * (n-1) bytes), and the linear
+ * offsets are long integers, with the data split into multiple segments. So
+ * the number of objects is not limited to 65536.
+ * 
+ * Optionally, the matrix can be stored in a memory-mapped file instead of the
+ * Java heap (see {@link MappedFloatUpperTriangleMatrix}), so that it can
+ * exceed the main memory; for 200000 objects, about 80 GB are needed.
+ * 
+ * The matrix is computed in parallel: blocks of rows are processed by
+ * multiple threads, and each block is processed in tiles of columns, to
+ * improve the cache locality of the data objects.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has FloatPrecomputedDistanceQuery
+ * @apiviz.composedOf MappedFloatUpperTriangleMatrix
+ * 
+ * @param <O> Object type
+ */
+public class FloatPrecomputedDistanceMatrix<O> extends AbstractIndex<O> implements DistanceIndex<O> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(FloatPrecomputedDistanceMatrix.class);
+
+  /**
+   * Number of bits to shift to obtain the segment number (2^26 floats = 256
+   * MB).
+   */
+  private static final int SHIFT = 26;
+
+  /**
+   * Mask to obtain the offset within a segment.
+   */
+  private static final long MASK = (1L << SHIFT) - 1;
+
+  /**
+   * Tile size (rows and columns) for the parallel build.
+   */
+  private static final int TILE = 256;
+
+  /**
+   * Nested distance function.
+   */
+  final protected DistanceFunction<? super O> distanceFunction;
+
+  /**
+   * File to store the matrix in, may be {@code null}.
+   */
+  final protected File filename;
+
+  /**
+   * Nested distance query.
+   */
+  protected DistanceQuery<O> distanceQuery;
+
+  /**
+   * Distance matrix segments, when stored on the heap.
+   */
+  private float[][] segments = null;
+
+  /**
+   * Distance matrix, when stored on disk.
+   */
+  private MappedFloatUpperTriangleMatrix mapped = null;
+
+  /**
+   * DBID range.
+   */
+  private DBIDRange ids;
+
+  /**
+   * Size of DBID range.
+   */
+  private int size;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Data relation
+   * @param distanceFunction Distance function
+   * @param filename File to store the matrix in, {@code null} for main memory
+   */
+  public FloatPrecomputedDistanceMatrix(Relation<O> relation, DistanceFunction<? super O> distanceFunction, File filename) {
+    super(relation);
+    this.distanceFunction = distanceFunction;
+    this.filename = filename;
+
+    if(!distanceFunction.isSymmetric()) {
+      throw new AbortException("Distance matrixes currently only support symmetric distance functions (Patches welcome).");
+    }
+  }
+
+  @Override
+  public void initialize() {
+    DBIDs rids = relation.getDBIDs();
+    if(!(rids instanceof DBIDRange)) {
+      throw new AbortException("Distance matrixes are currently only supported for DBID ranges (as used by static databases) for performance reasons (Patches welcome).");
+    }
+    ids = (DBIDRange) rids;
+    size = ids.size();
+
+    distanceQuery = distanceFunction.instantiate(relation);
+
+    final long msize = triangleSize(size);
+    if(filename != null) {
+      try {
+        mapped = new MappedFloatUpperTriangleMatrix(filename, size);
+      }
+      catch(IOException e) {
+        throw new AbortException("Cannot create distance matrix file: " + filename, e);
+      }
+    }
+    else {
+      final int numseg = (int) ((msize + MASK) >>> SHIFT);
+      segments = new float[numseg][];
+      for(int i = 0; i < numseg; i++) {
+        segments[i] = new float[(int) Math.min(msize - (((long) i) << SHIFT), 1L << SHIFT)];
+      }
+    }
+
+    final int numblocks = (size + TILE - 1) / TILE;
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Precomputing distance matrix (blocks)", numblocks, LOG) : null;
+    final ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      final int threads = Math.max(1, Math.min(core.getParallelism(), numblocks));
+      final AtomicInteger next = new AtomicInteger(0);
+      List<Future<Void>> parts = new ArrayList<>(threads);
+      for(int i = 0; i < threads; i++) {
+        parts.add(core.submit(new BuildWorker(next, numblocks, prog)));
+      }
+      for(Future<Void> fut : parts) {
+        fut.get();
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel execution interrupted.", e);
+    }
+    finally {
+      core.disconnect();
+    }
+    LOG.ensureCompleted(prog);
+  }
+
+  /**
+   * Compute the size of a complete x by x triangle (minus diagonal)
+   * 
+   * @param x Offset
+   * @return Size of complete triangle
+   */
+  protected static long triangleSize(int x) {
+    return (((long) x) * (x - 1)) >>> 1;
+  }
+
+  /**
+   * Array offset computation.
+   * 
+   * @param x X parameter
+   * @param y Y parameter
+   * @return Array offset
+   */
+  private static long getOffset(int x, int y) {
+    return (y < x) ? (triangleSize(x) + y) : (triangleSize(y) + x);
+  }
+
+  /**
+   * Get a stored distance.
+   * 
+   * @param x First offset
+   * @param y Second offset, must be different
+   * @return Distance
+   */
+  private float get(int x, int y) {
+    if(mapped != null) {
+      return mapped.get(x, y);
+    }
+    final long off = getOffset(x, y);
+    return segments[(int) (off >>> SHIFT)][(int) (off & MASK)];
+  }
+
+  /**
+   * Store a distance.
+   * 
+   * @param x First offset
+   * @param y Second offset, must be different
+   * @param val Distance
+   */
+  private void set(int x, int y, float val) {
+    if(mapped != null) {
+      mapped.set(x, y, val);
+      return;
+    }
+    final long off = getOffset(x, y);
+    segments[(int) (off >>> SHIFT)][(int) (off & MASK)] = val;
+  }
+
+  @Override
+  public void logStatistics() {
+    if(segments != null || mapped != null) {
+      LOG.statistics(new LongStatistic(this.getClass().getName() + ".matrix-size", triangleSize(size)));
+    }
+  }
+
+  @Override
+  public String getLongName() {
+    return "Precomputed Float Distance Matrix";
+  }
+
+  @Override
+  public String getShortName() {
+    return "float-distance-matrix";
+  }
+
+  @Override
+  public DistanceQuery<O> getDistanceQuery(DistanceFunction<? super O> distanceFunction, Object... hints) {
+    if(this.distanceQuery.getDistanceFunction().equals(distanceFunction)) {
+      return new FloatPrecomputedDistanceQuery();
+    }
+    return null;
+  }
+
+  /**
+   * Worker computing blocks of rows of the matrix.
+   * 
+   * Blocks are claimed dynamically, starting with the last (and largest) block
+   * of the lower triangle, for load balancing. Within each block, columns are
+   * processed in tiles.
+   * 
+   * @author Erich Schubert
+   */
+  private class BuildWorker implements Callable<Void> {
+    /**
+     * Next block to process.
+     */
+    private AtomicInteger next;
+
+    /**
+     * Number of blocks.
+     */
+    private int numblocks;
+
+    /**
+     * Progress, may be {@code null}.
+     */
+    private FiniteProgress prog;
+
+    /**
+     * Constructor.
+     * 
+     * @param next Next block to process (shared)
+     * @param numblocks Number of blocks
+     * @param prog Progress
+     */
+    public BuildWorker(AtomicInteger next, int numblocks, FiniteProgress prog) {
+      this.next = next;
+      this.numblocks = numblocks;
+      this.prog = prog;
+    }
+
+    @Override
+    public Void call() {
+      // Each thread uses its own query and iterators.
+      DistanceQuery<O> dq = distanceFunction.instantiate(relation);
+      DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+      for(int b = next.getAndIncrement(); b < numblocks; b = next.getAndIncrement()) {
+        final int start = (numblocks - 1 - b) * TILE;
+        final int end = Math.min(start + TILE, size);
+        for(int ty = 0; ty < end; ty += TILE) {
+          for(int x = Math.max(start, ty + 1); x < end; x++) {
+            ix.seek(x);
+            // y < x -- must match {@link #getOffset}!
+            final int yend = Math.min(ty + TILE, x);
+            for(iy.seek(ty); iy.getOffset() < yend; iy.advance()) {
+              set(x, iy.getOffset(), (float) dq.distance(ix, iy));
+            }
+          }
+        }
+        LOG.incrementProcessed(prog);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Distance query using the precomputed matrix.
+   * 
+   * @author Erich Schubert
+   */
+  private class FloatPrecomputedDistanceQuery implements DistanceQuery<O> {
+    @Override
+    public double distance(DBIDRef id1, DBIDRef id2) {
+      final int x = ids.getOffset(id1), y = ids.getOffset(id2);
+      return (x != y) ? get(x, y) : 0.;
+    }
+
+    @Override
+    public double distance(O o1, DBIDRef id2) {
+      return distanceQuery.distance(o1, id2);
+    }
+
+    @Override
+    public double distance(DBIDRef id1, O o2) {
+      return distanceQuery.distance(id1, o2);
+    }
+
+    @Override
+    public double distance(O o1, O o2) {
+      return distanceQuery.distance(o1, o2);
+    }
+
+    @Override
+    public DistanceFunction<? super O> getDistanceFunction() {
+      return distanceQuery.getDistanceFunction();
+    }
+
+    @Override
+    public Relation<? extends O> getRelation() {
+      return relation;
+    }
+  }
+
+  /**
+   * Factory for the index.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.has FloatPrecomputedDistanceMatrix
+   * 
+   * @param <O> Object type
+   */
+  public static class Factory<O> implements IndexFactory<O, FloatPrecomputedDistanceMatrix<O>> {
+    /**
+     * Nested distance function.
+     */
+    final protected DistanceFunction<? super O> distanceFunction;
+
+    /**
+     * File to store the matrix in, may be {@code null}.
+     */
+    final protected File filename;
+
+    /**
+     * Constructor.
+     * 
+     * @param distanceFunction Distance function
+     * @param filename File to store the matrix in, {@code null} for main
+     *        memory
+     */
+    public Factory(DistanceFunction<? super O> distanceFunction, File filename) {
+      super();
+      this.distanceFunction = distanceFunction;
+      this.filename = filename;
+    }
+
+    @Override
+    public FloatPrecomputedDistanceMatrix<O> instantiate(Relation<O> relation) {
+      return new FloatPrecomputedDistanceMatrix<>(relation, distanceFunction, filename);
+    }
+
+    @Override
+    public TypeInformation getInputTypeRestriction() {
+      return distanceFunction.getInputTypeRestriction();
+    }
+
+    /**
+     * Parameterizer.
+     * 
+     * @author Erich Schubert
+     * 
+     * @apiviz.exclude
+     * 
+     * @param <O> Object type
+     */
+    public static class Parameterizer<O> extends AbstractParameterizer {
+      /**
+       * Option parameter for the file to store the matrix in.
+       */
+      public static final OptionID FILE_ID = new OptionID("matrix.file", "File to store the distance matrix in, instead of main memory. The file must not exist yet.");
+
+      /**
+       * Nested distance function.
+       */
+      protected DistanceFunction<? super O> distanceFunction;
+
+      /**
+       * File to store the matrix in.
+       */
+      protected File filename = null;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        ObjectParameter<DistanceFunction<? super O>> distanceP = new ObjectParameter<>(PrecomputedDistanceMatrix.Factory.Parameterizer.DISTANCE_ID, DistanceFunction.class);
+        if(config.grab(distanceP)) {
+          distanceFunction = distanceP.instantiateClass(config);
+        }
+        FileParameter fileP = new FileParameter(FILE_ID, FileParameter.FileType.OUTPUT_FILE);
+        fileP.setOptional(true);
+        if(config.grab(fileP)) {
+          filename = fileP.getValue();
+        }
+      }
+
+      @Override
+      protected Factory<O> makeInstance() {
+        return new Factory<>(distanceFunction, filename);
+      }
+    }
+  }
+}
@@ -0,0 +1,707 @@
+package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDPair;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+
+/**
+ * Compact storage of a kNN graph in two contiguous primitive arrays.
+ * 
+ * The neighbors of the object at offset {@code i} are stored at positions
+ * {@code i*k} to {@code i*k+k-1} of the neighbor and distance arrays. Lists
+ * returned by {@link #get} are lightweight views onto these arrays, avoiding
+ * one list object (and two small arrays) per database object. Distances can
+ * optionally be stored with single precision, halving the memory needed for
+ * distances.
+ * 
+ * kNN lists that are longer than k (because of ties) are kept in a separate
+ * overflow map.
+ * 
+ * Note: because the lists are stored by value, a view returned by
+ * {@link #get} reflects later modifications of the same object, and
+ * {@link #put} does not return the previous value.
+ * 
+ * The graph can be written to disk with {@link #save} and read back with
+ * {@link #load}, for the same data set (the file format stores the offsets of
+ * the neighbors, not the DBIDs). A {@link #fingerprint} of the data is stored
+ * along, to reject graph files computed on different data.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has KNNView
+ */
+public class FlatKNNStore implements WritableDataStore<KNNList> {
+  /**
+   * Magic number of the file format.
+   */
+  public static final int FLAT_KNN_MAGIC = 0x4B4E4E47; // "KNNG"
+
+  /**
+   * Flag bit for single precision distances.
+   */
+  private static final int FLAG_FLOAT = 0x1;
+
+  /**
+   * Marker for objects without a stored kNN list.
+   */
+  private static final int UNSET = -1;
+
+  /**
+   * Marker for objects whose kNN list is in the overflow map.
+   */
+  private static final int OVERFLOW = -2;
+
+  /**
+   * I/O buffer size.
+   */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /**
+   * Object IDs covered.
+   */
+  private ArrayDBIDs ids;
+
+  /**
+   * Offset map, when the ids are not a {@link DBIDRange}.
+   */
+  private WritableIntegerDataStore offsets;
+
+  /**
+   * Number of neighbors per object.
+   */
+  private final int k;
+
+  /**
+   * Number of neighbors stored, per object.
+   */
+  private int[] sizes;
+
+  /**
+   * Neighbor internal ids, {@code k} per object.
+   */
+  private int[] nids;
+
+  /**
+   * Neighbor distances (double precision), or {@code null}.
+   */
+  private double[] ddists;
+
+  /**
+   * Neighbor distances (single precision), or {@code null}.
+   */
+  private float[] fdists;
+
+  /**
+   * kNN lists that do not fit into k slots.
+   */
+  private TIntObjectHashMap<KNNList> overflow = new TIntObjectHashMap<>();
+
+  /**
+   * Constructor.
+   * 
+   * @param ids Object IDs to store the kNN lists for
+   * @param k Number of neighbors per object
+   * @param singlePrecision Store distances as float
+   */
+  public FlatKNNStore(ArrayDBIDs ids, int k, boolean singlePrecision) {
+    super();
+    this.ids = ids;
+    this.k = k;
+    final int size = ids.size();
+    if((long) size * k > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("kNN graph too large for flat storage: " + size + " x " + k);
+    }
+    this.sizes = new int[size];
+    Arrays.fill(sizes, UNSET);
+    this.nids = new int[size * k];
+    if(singlePrecision) {
+      this.fdists = new float[size * k];
+    }
+    else {
+      this.ddists = new double[size * k];
+    }
+    if(!(ids instanceof DBIDRange)) {
+      offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, UNSET);
+      for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        offsets.putInt(iter, iter.getOffset());
+      }
+    }
+  }
+
+  /**
+   * Get the offset of an object.
+   * 
+   * @param id Object
+   * @return Offset
+   */
+  private int offset(DBIDRef id) {
+    return (offsets == null) ? ((DBIDRange) ids).getOffset(id) : offsets.intValue(id);
+  }
+
+  /**
+   * Get the k supported by this storage.
+   * 
+   * @return k
+   */
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * Test whether distances are stored with single precision.
+   * 
+   * @return {@code true} when using single precision
+   */
+  public boolean isSinglePrecision() {
+    return fdists != null;
+  }
+
+  @Override
+  public KNNList get(DBIDRef id) {
+    final int off = offset(id);
+    final int size = sizes[off];
+    if(size >= 0) {
+      return new KNNView(off * k, size);
+    }
+    if(size == OVERFLOW) {
+      synchronized(overflow) {
+        return overflow.get(off);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Store a kNN list.
+   * 
+   * Different objects may be written concurrently by different threads.
+   * 
+   * @param id Object
+   * @param value kNN list
+   * @return Always {@code null}, as lists are stored by value.
+   */
+  @Override
+  public KNNList put(DBIDRef id, KNNList value) {
+    final int off = offset(id);
+    if(sizes[off] == OVERFLOW) {
+      synchronized(overflow) {
+        overflow.remove(off);
+      }
+    }
+    final int size = value.size();
+    if(size > k) {
+      synchronized(overflow) {
+        overflow.put(off, value);
+      }
+      sizes[off] = OVERFLOW;
+      return null;
+    }
+    int p = off * k;
+    if(fdists != null) {
+      for(DoubleDBIDListIter iter = value.iter(); iter.valid(); iter.advance(), p++) {
+        nids[p] = DBIDUtil.asInteger(iter);
+        fdists[p] = (float) iter.doubleValue();
+      }
+    }
+    else {
+      for(DoubleDBIDListIter iter = value.iter(); iter.valid(); iter.advance(), p++) {
+        nids[p] = DBIDUtil.asInteger(iter);
+        ddists[p] = iter.doubleValue();
+      }
+    }
+    sizes[off] = size;
+    return null;
+  }
+
+  @Override
+  public void delete(DBIDRef id) {
+    final int off = offset(id);
+    if(sizes[off] == OVERFLOW) {
+      synchronized(overflow) {
+        overflow.remove(off);
+      }
+    }
+    sizes[off] = UNSET;
+  }
+
+  @Override
+  public void destroy() {
+    ids = null;
+    offsets = null;
+    sizes = null;
+    nids = null;
+    ddists = null;
+    fdists = null;
+    overflow = null;
+  }
+
+  @Override
+  public String getLongName() {
+    return "flat-knn";
+  }
+
+  @Override
+  public String getShortName() {
+    return "flat-knn";
+  }
+
+  /**
+   * Compute a fingerprint of the data set, to detect graph files computed on
+   * different data: a hash of the size, the dimensionality, and the first and
+   * last vectors. Objects that are not vectors only contribute the size.
+   * 
+   * @param relation Data relation
+   * @param ids Object IDs, in storage order
+   * @return Fingerprint
+   */
+  public static long fingerprint(Relation<?> relation, ArrayDBIDs ids) {
+    long hash = ids.size();
+    if(ids.size() == 0) {
+      return hash;
+    }
+    DBIDArrayIter iter = ids.iter();
+    hash = hash * 31 + vectorHash(relation.get(iter));
+    iter.seek(ids.size() - 1);
+    hash = hash * 31 + vectorHash(relation.get(iter));
+    return hash;
+  }
+
+  /**
+   * Hash the dimensionality and values of a vector.
+   * 
+   * @param obj Object
+   * @return Hash value, 0 for non-vectors
+   */
+  private static long vectorHash(Object obj) {
+    if(!(obj instanceof NumberVector)) {
+      return 0L;
+    }
+    final NumberVector vec = (NumberVector) obj;
+    final int dim = vec.getDimensionality();
+    long hash = dim;
+    for(int d = 0; d < dim; d++) {
+      hash = hash * 31 + Double.doubleToLongBits(vec.doubleValue(d));
+    }
+    return hash;
+  }
+
+  /**
+   * Write the kNN graph to a file.
+   * 
+   * @param file Output file
+   * @param fingerprint Data set fingerprint, see {@link #fingerprint}
+   * @throws IOException on I/O errors
+   */
+  public void save(File file, long fingerprint) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        FileChannel channel = raf.getChannel()) {
+      channel.truncate(0);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.putInt(FLAT_KNN_MAGIC).putInt(fdists != null ? FLAG_FLOAT : 0);
+      buffer.putInt(sizes.length).putInt(k).putLong(fingerprint);
+      writeInts(channel, buffer, sizes, sizes.length);
+      // Translate neighbors to offsets, to be independent of DBID assignment.
+      int[] noffs = new int[nids.length];
+      for(int i = 0, p = 0; i < sizes.length; i++, p += k) {
+        if(sizes[i] > 0) {
+          for(DoubleDBIDListIter iter = new KNNView(p, sizes[i]).iter(); iter.valid(); iter.advance()) {
+            noffs[p + iter.getOffset()] = offset(iter);
+          }
+        }
+      }
+      writeInts(channel, buffer, noffs, noffs.length);
+      noffs = null;
+      if(fdists != null) {
+        for(int i = 0; i < fdists.length;) {
+          ensureSpace(channel, buffer, 4);
+          int len = Math.min(fdists.length - i, buffer.remaining() >>> 2);
+          buffer.asFloatBuffer().put(fdists, i, len);
+          buffer.position(buffer.position() + (len << 2));
+          i += len;
+        }
+      }
+      else {
+        for(int i = 0; i < ddists.length;) {
+          ensureSpace(channel, buffer, 8);
+          int len = Math.min(ddists.length - i, buffer.remaining() >>> 3);
+          buffer.asDoubleBuffer().put(ddists, i, len);
+          buffer.position(buffer.position() + (len << 3));
+          i += len;
+        }
+      }
+      // Overflow lists
+      synchronized(overflow) {
+        ensureSpace(channel, buffer, 4);
+        buffer.putInt(overflow.size());
+        for(TIntObjectIterator<KNNList> it = overflow.iterator(); it.hasNext();) {
+          it.advance();
+          KNNList list = it.value();
+          ensureSpace(channel, buffer, 8);
+          buffer.putInt(it.key()).putInt(list.size());
+          for(DoubleDBIDListIter iter = list.iter(); iter.valid(); iter.advance()) {
+            ensureSpace(channel, buffer, 12);
+            buffer.putInt(offset(iter)).putDouble(iter.doubleValue());
+          }
+        }
+      }
+      buffer.flip();
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Load a kNN graph from a file.
+   * 
+   * @param file Input file
+   * @param ids Object IDs, in the same order as when saving
+   * @param k Number of neighbors expected
+   * @param fingerprint Data set fingerprint, see {@link #fingerprint}
+   * @return kNN storage, or {@code null} if the file does not match the data
+   *         set size, fingerprint or k.
+   * @throws IOException on I/O errors
+   */
+  public static FlatKNNStore load(File file, ArrayDBIDs ids, int k, long fingerprint) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.limit(0);
+      fill(channel, buffer, 24);
+      if(buffer.getInt() != FLAT_KNN_MAGIC) {
+        throw new IOException("Not a kNN graph file: " + file);
+      }
+      final int flags = buffer.getInt();
+      final int size = buffer.getInt(), fk = buffer.getInt();
+      if(size != ids.size() || fk != k || buffer.getLong() != fingerprint) {
+        return null;
+      }
+      FlatKNNStore store = new FlatKNNStore(ids, k, (flags & FLAG_FLOAT) != 0);
+      readInts(channel, buffer, store.sizes);
+      readInts(channel, buffer, store.nids);
+      // Translate offsets back to internal ids.
+      DBIDVar var = DBIDUtil.newVar();
+      for(int i = 0, p = 0; i < size; i++, p += k) {
+        for(int j = 0; j < store.sizes[i]; j++) {
+          ids.assignVar(store.nids[p + j], var);
+          store.nids[p + j] = DBIDUtil.asInteger(var);
+        }
+      }
+      if(store.fdists != null) {
+        final float[] fdists = store.fdists;
+        for(int i = 0; i < fdists.length;) {
+          fill(channel, buffer, 4);
+          int len = Math.min(fdists.length - i, buffer.remaining() >>> 2);
+          buffer.asFloatBuffer().get(fdists, i, len);
+          buffer.position(buffer.position() + (len << 2));
+          i += len;
+        }
+      }
+      else {
+        final double[] ddists = store.ddists;
+        for(int i = 0; i < ddists.length;) {
+          fill(channel, buffer, 8);
+          int len = Math.min(ddists.length - i, buffer.remaining() >>> 3);
+          buffer.asDoubleBuffer().get(ddists, i, len);
+          buffer.position(buffer.position() + (len << 3));
+          i += len;
+        }
+      }
+      fill(channel, buffer, 4);
+      for(int n = buffer.getInt(); n > 0; n--) {
+        fill(channel, buffer, 8);
+        final int off = buffer.getInt(), len = buffer.getInt();
+        KNNHeap heap = DBIDUtil.newHeap(k);
+        for(int j = 0; j < len; j++) {
+          fill(channel, buffer, 12);
+          ids.assignVar(buffer.getInt(), var);
+          heap.insert(buffer.getDouble(), var);
+        }
+        store.overflow.put(off, heap.toKNNList());
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Write an integer array.
+   * 
+   * @param channel Output channel
+   * @param buffer Buffer
+   * @param data Data to write
+   * @param len Number of entries to write
+   * @throws IOException on I/O errors
+   */
+  private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] data, int len) throws IOException {
+    for(int i = 0; i < len;) {
+      ensureSpace(channel, buffer, 4);
+      int l = Math.min(len - i, buffer.remaining() >>> 2);
+      buffer.asIntBuffer().put(data, i, l);
+      buffer.position(buffer.position() + (l << 2));
+      i += l;
+    }
+  }
+
+  /**
+   * Read an integer array.
+   * 
+   * @param channel Input channel
+   * @param buffer Buffer
+   * @param data Output array
+   * @throws IOException on I/O errors
+   */
+  private static void readInts(FileChannel channel, ByteBuffer buffer, int[] data) throws IOException {
+    for(int i = 0; i < data.length;) {
+      fill(channel, buffer, 4);
+      int l = Math.min(data.length - i, buffer.remaining() >>> 2);
+      buffer.asIntBuffer().get(data, i, l);
+      buffer.position(buffer.position() + (l << 2));
+      i += l;
+    }
+  }
+
+  /**
+   * Flush the buffer if less than the given number of bytes are available.
+   * 
+   * @param channel Output channel
+   * @param buffer Buffer
+   * @param bytes Bytes needed
+   * @throws IOException on I/O errors
+   */
+  private static void ensureSpace(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+    if(buffer.remaining() < bytes) {
+      buffer.flip();
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Refill the buffer if less than the given number of bytes are available.
+   * 
+   * @param channel Input channel
+   * @param buffer Buffer
+   * @param bytes Bytes needed
+   * @throws IOException on I/O errors, or premature end of file
+   */
+  private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+    if(buffer.remaining() >= bytes) {
+      return;
+    }
+    buffer.compact();
+    while(buffer.position() < bytes) {
+      if(channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of kNN graph file.");
+      }
+    }
+    buffer.flip();
+  }
+
+  /**
+   * View of a single kNN list in the flat arrays.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  private class KNNView implements KNNList {
+    /**
+     * Start position in the arrays.
+     */
+    final int start;
+
+    /**
+     * Number of neighbors.
+     */
+    final int size;
+
+    /**
+     * Constructor.
+     * 
+     * @param start Start position in the arrays
+     * @param size Number of neighbors
+     */
+    KNNView(int start, int size) {
+      super();
+      this.start = start;
+      this.size = size;
+    }
+
+    /**
+     * Get the distance at the given array position.
+     * 
+     * @param p Array position
+     * @return Distance
+     */
+    double dist(int p) {
+      return (fdists != null) ? fdists[p] : ddists[p];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    @Override
+    public int getK() {
+      return k;
+    }
+
+    @Override
+    public double getKNNDistance() {
+      return (size >= k) ? dist(start + k - 1) : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public DoubleDBIDPair get(int index) {
+      return iter().seek(index).getPair();
+    }
+
+    @Override
+    public boolean contains(DBIDRef o) {
+      final int q = DBIDUtil.asInteger(o);
+      for(int p = start, end = start + size; p < end; p++) {
+        if(nids[p] == q) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Itr iter() {
+      return new Itr();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder();
+      buf.append("kNNList[");
+      for(Itr iter = iter(); iter.valid();) {
+        buf.append(iter.doubleValue()).append(':').append(iter.internalGetIndex());
+        iter.advance();
+        if(iter.valid()) {
+          buf.append(',');
+        }
+      }
+      buf.append(']');
+      return buf.toString();
+    }
+
+    /**
+     * Iterator over the view.
+     * 
+     * @author Erich Schubert
+     * 
+     * @apiviz.exclude
+     */
+    private class Itr implements DoubleDBIDListIter {
+      /**
+       * Current offset.
+       */
+      int pos = 0;
+
+      @Override
+      public boolean valid() {
+        return pos >= 0 && pos < size;
+      }
+
+      @Override
+      public Itr advance() {
+        ++pos;
+        return this;
+      }
+
+      @Override
+      public Itr advance(int count) {
+        pos += count;
+        return this;
+      }
+
+      @Override
+      public Itr retract() {
+        --pos;
+        return this;
+      }
+
+      @Override
+      public Itr seek(int off) {
+        pos = off;
+        return this;
+      }
+
+      @Override
+      public int getOffset() {
+        return pos;
+      }
+
+      @Override
+      public int internalGetIndex() {
+        return nids[start + pos];
+      }
+
+      @Override
+      public double doubleValue() {
+        return dist(start + pos);
+      }
+
+      @Override
+      public DoubleDBIDPair getPair() {
+        return DBIDUtil.newPair(doubleValue(), this);
+      }
+    }
+  }
+}
@@ -28,6 +28,9 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
@@ -56,15 +59,29 @@ import de.lmu.ifi.dbs.elki.index.RKNNIndex;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.progress.StepProgress;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 
 /**
  * A preprocessor for annotation of the k nearest neighbors and the reverse k
  * nearest neighbors (and their distances) to each database object.
  * 
+ * In parallel mode, the reverse kNN are obtained by inverting the kNN lists
+ * into per-thread buckets (partitioned by the target object), which are then
+ * merged in parallel, one partition per thread, without locking.
+ * 
  * @author Elke Achtert
  * 
+ * @apiviz.uses InvertKNNProcessor
+ * 
  * @param <O> the type of database objects the preprocessor can be applied to
  * @param the type of distance the used distance function will return
  */
@@ -90,13 +107,29 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
    * @param k query k
    */
   public MaterializeKNNAndRKNNPreprocessor(Relation<O> relation, DistanceFunction<? super O> distanceFunction, int k) {
-    super(relation, distanceFunction, k);
+    this(relation, distanceFunction, k, false);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Relation to process
+   * @param distanceFunction the distance function to use
+   * @param k query k
+   * @param parallel Materialize in parallel
+   */
+  public MaterializeKNNAndRKNNPreprocessor(Relation<O> relation, DistanceFunction<? super O> distanceFunction, int k, boolean parallel) {
+    super(relation, distanceFunction, k, false, false, null, parallel);
   }
 
   @Override
   protected void preprocess() {
     createStorage();
     materialized_RkNN = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT, TreeSet.class);
+    if(parallel) {
+      materializeParallel(DBIDUtil.ensureArray(relation.getDBIDs()));
+      return;
+    }
     FiniteProgress progress = getLogger().isVerbose() ? new FiniteProgress("Materializing k nearest neighbors and reverse k nearest neighbors (k=" + k + ")", relation.size(), getLogger()) : null;
     materializeKNNAndRKNNs(DBIDUtil.ensureArray(relation.getDBIDs()), progress);
   }
@@ -130,6 +163,49 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
     getLogger().ensureCompleted(progress);
   }
 
+  /**
+   * Materialize the kNNs and RkNNs of the specified object IDs in parallel.
+   * 
+   * @param ids the IDs of the objects
+   */
+  private void materializeParallel(ArrayDBIDs ids) {
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      materialized_RkNN.put(iter, new TreeSet<DoubleDBIDPair>());
+    }
+    ParallelCore core = ParallelCore.getCore();
+    try {
+      core.connect();
+      final int partitions = core.getParallelism();
+      KNNProcessor<O> knnm = new KNNProcessor<>(k, knnQuery);
+      SharedObject<KNNList> knnv = new SharedObject<>();
+      StoreKNNProcessor storek = new StoreKNNProcessor();
+      InvertKNNProcessor invm = new InvertKNNProcessor(partitions, materialized_RkNN);
+      knnm.connectKNNOutput(knnv);
+      storek.connectInput(knnv);
+      invm.connectKNNInput(knnv);
+      ParallelExecutor.run(ids, knnm, storek, invm);
+
+      // Merge the buckets, one partition per task.
+      List<Future<Void>> futures = new ArrayList<>(partitions);
+      for(int p = 0; p < partitions; p++) {
+        futures.add(core.submit(invm.new Merger(p)));
+      }
+      for(Future<Void> fut : futures) {
+        fut.get();
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("RkNN materialization failed.", e);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel execution interrupted.", e);
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
   private DoubleDBIDPair makePair(DoubleDBIDListIter iter, DBIDIter id) {
     return DBIDUtil.newPair(iter.getPair().doubleValue(), id);
   }
@@ -381,6 +457,159 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
     return LOG;
   }
 
+  /**
+   * Processor to invert kNN lists into reverse kNN, using per-thread buckets.
+   * 
+   * Each thread appends the inverted edges to its own buckets, partitioned by
+   * the target object. The partitions are then merged independently, so that
+   * every RkNN set is modified by a single thread only.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  private static class InvertKNNProcessor implements Processor {
+    /**
+     * Number of partitions.
+     */
+    final int partitions;
+
+    /**
+     * RkNN storage to merge into.
+     */
+    final WritableDataStore<TreeSet<DoubleDBIDPair>> rknns;
+
+    /**
+     * kNN input.
+     */
+    SharedObject<KNNList> input;
+
+    /**
+     * Finished instances.
+     */
+    List<Instance> instances = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * 
+     * @param partitions Number of partitions
+     * @param rknns RkNN storage to merge into
+     */
+    InvertKNNProcessor(int partitions, WritableDataStore<TreeSet<DoubleDBIDPair>> rknns) {
+      super();
+      this.partitions = partitions;
+      this.rknns = rknns;
+    }
+
+    /**
+     * Connect the kNN input.
+     * 
+     * @param input Input variable
+     */
+    void connectKNNInput(SharedObject<KNNList> input) {
+      this.input = input;
+    }
+
+    @Override
+    public Instance instantiate(Executor executor) {
+      return new Instance(executor.getInstance(input));
+    }
+
+    @Override
+    public synchronized void cleanup(Processor.Instance inst) {
+      instances.add((Instance) inst);
+    }
+
+    /**
+     * Instance for a single thread.
+     * 
+     * @author Erich Schubert
+     * 
+     * @apiviz.exclude
+     */
+    class Instance implements Processor.Instance {
+      /**
+       * kNN input.
+       */
+      SharedObject.Instance<KNNList> input;
+
+      /**
+       * Targets (neighbors), per partition.
+       */
+      ArrayModifiableDBIDs[] targets = new ArrayModifiableDBIDs[partitions];
+
+      /**
+       * Sources (query objects) with distances, per partition.
+       */
+      ModifiableDoubleDBIDList[] sources = new ModifiableDoubleDBIDList[partitions];
+
+      /**
+       * Constructor.
+       * 
+       * @param input kNN input
+       */
+      Instance(SharedObject.Instance<KNNList> input) {
+        super();
+        this.input = input;
+      }
+
+      @Override
+      public void map(DBIDRef id) {
+        for(DoubleDBIDListIter iter = input.get().iter(); iter.valid(); iter.advance()) {
+          final int p = (DBIDUtil.asInteger(iter) & 0x7FFFFFFF) % partitions;
+          if(targets[p] == null) {
+            targets[p] = DBIDUtil.newArray();
+            sources[p] = DBIDUtil.newDistanceDBIDList();
+          }
+          targets[p].add(iter);
+          sources[p].add(iter.doubleValue(), id);
+        }
+      }
+    }
+
+    /**
+     * Merge a single partition of all buckets into the RkNN storage.
+     * 
+     * @author Erich Schubert
+     * 
+     * @apiviz.exclude
+     */
+    class Merger implements Callable<Void> {
+      /**
+       * Partition to merge.
+       */
+      final int partition;
+
+      /**
+       * Constructor.
+       * 
+       * @param partition Partition to merge
+       */
+      Merger(int partition) {
+        super();
+        this.partition = partition;
+      }
+
+      @Override
+      public Void call() {
+        for(Instance inst : instances) {
+          ArrayModifiableDBIDs tgts = inst.targets[partition];
+          if(tgts == null) {
+            continue;
+          }
+          DBIDIter t = tgts.iter();
+          for(DoubleDBIDListIter s = inst.sources[partition].iter(); s.valid(); s.advance(), t.advance()) {
+            rknns.get(t).add(s.getPair());
+          }
+          // Free memory early.
+          inst.targets[partition] = null;
+          inst.sources[partition] = null;
+        }
+        return null;
+      }
+    }
+  }
+
   /**
    * The parameterizable factory.
    * 
@@ -397,12 +626,23 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
      * @param distanceFunction distance function
      */
     public Factory(int k, DistanceFunction<? super O> distanceFunction) {
-      super(k, distanceFunction);
+      this(k, distanceFunction, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param k k
+     * @param distanceFunction distance function
+     * @param parallel Materialize in parallel
+     */
+    public Factory(int k, DistanceFunction<? super O> distanceFunction, boolean parallel) {
+      super(k, distanceFunction, false, false, null, parallel);
     }
 
     @Override
     public MaterializeKNNAndRKNNPreprocessor<O> instantiate(Relation<O> relation) {
-      MaterializeKNNAndRKNNPreprocessor<O> instance = new MaterializeKNNAndRKNNPreprocessor<>(relation, distanceFunction, k);
+      MaterializeKNNAndRKNNPreprocessor<O> instance = new MaterializeKNNAndRKNNPreprocessor<>(relation, distanceFunction, k, parallel);
       return instance;
     }
 
@@ -413,10 +653,24 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
      * 
      * @apiviz.exclude
      */
-    public static class Parameterizer<O> extends MaterializeKNNPreprocessor.Factory.Parameterizer<O> {
+    public static class Parameterizer<O> extends AbstractMaterializeKNNPreprocessor.Factory.Parameterizer<O> {
+      /**
+       * Materialize in parallel.
+       */
+      protected boolean parallel;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        Flag parallelF = new Flag(MaterializeKNNPreprocessor.Factory.Parameterizer.PARALLEL_ID);
+        if(config.grab(parallelF)) {
+          parallel = parallelF.isTrue();
+        }
+      }
+
       @Override
       protected Factory<O> makeInstance() {
-        return new Factory<>(k, distanceFunction);
+        return new Factory<>(k, distanceFunction, parallel);
       }
     }
   }
@@ -23,21 +23,32 @@ package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.event.EventListenerList;
 
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBID;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.SetDBIDs;
 import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.index.DynamicIndex;
@@ -46,8 +57,17 @@ import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.progress.StepProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 
 /**
  * A preprocessor for annotation of the k nearest neighbors (and their
@@ -55,11 +75,30 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
  * 
  * Used for example by {@link de.lmu.ifi.dbs.elki.algorithm.outlier.lof.LOF}.
  * 
+ * Optionally, the kNN graph can be kept in a compact {@link FlatKNNStore},
+ * with single precision distances, and can be saved to a file, to be reused by
+ * subsequent runs on the same data set (e.g. LOF, LoOP and kNN outlier with
+ * the same k and distance function).
+ * 
+ * The initial materialization can be run in parallel, using
+ * {@link ParallelExecutor}. This requires a thread-safe kNN query, which is
+ * not the case for all index structures.
+ * 
+ * On insertions, if the database has an index supporting range queries, the
+ * affected objects are found with one range query per new object, with the
+ * largest materialized k-distance as radius (an object can only gain a new
+ * neighbor within its k-distance). Otherwise, all old objects are compared to
+ * all new objects. Inserting many objects at once via {@link #insertAll}
+ * amortizes the work: every affected kNN list is updated and reported only
+ * once per batch.
+ * 
  * @author Erich Schubert
  * 
  * @apiviz.has DistanceFunction
  * @apiviz.has KNNQuery
  * @apiviz.has KNNListener
+ * @apiviz.uses FlatKNNStore
+ * @apiviz.uses KNNProcessor
  * 
  * @param <O> the type of database objects the preprocessor can be applied to
  */
@@ -88,6 +127,26 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
    */
   protected final EventListenerList listenerList = new EventListenerList();
 
+  /**
+   * Use the flat array storage.
+   */
+  protected final boolean flat;
+
+  /**
+   * Store distances with single precision (flat storage only).
+   */
+  protected final boolean singlePrecision;
+
+  /**
+   * File to load the kNN graph from, or to save it to.
+   */
+  protected final File graphFile;
+
+  /**
+   * Materialize the kNN in parallel.
+   */
+  protected final boolean parallel;
+
   /**
    * Constructor with preprocessing step.
    * 
@@ -96,8 +155,28 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
    * @param k query k
    */
   public MaterializeKNNPreprocessor(Relation<O> relation, DistanceFunction<? super O> distanceFunction, int k) {
+    this(relation, distanceFunction, k, false, false, null, false);
+  }
+
+  /**
+   * Constructor with preprocessing step.
+   * 
+   * @param relation Relation to preprocess
+   * @param distanceFunction the distance function to use
+   * @param k query k
+   * @param flat Use flat array storage
+   * @param singlePrecision Store distances with single precision
+   * @param graphFile File to load the kNN graph from or save it to (implies
+   *        flat storage), may be {@code null}
+   * @param parallel Materialize the kNN in parallel
+   */
+  public MaterializeKNNPreprocessor(Relation<O> relation, DistanceFunction<? super O> distanceFunction, int k, boolean flat, boolean singlePrecision, File graphFile, boolean parallel) {
     super(relation, distanceFunction, k);
     this.knnQuery = relation.getDatabase().getKNNQuery(distanceQuery, k, DatabaseQuery.HINT_BULK, DatabaseQuery.HINT_HEAVY_USE, DatabaseQuery.HINT_NO_CACHE);
+    this.flat = flat || singlePrecision || graphFile != null;
+    this.singlePrecision = singlePrecision;
+    this.graphFile = graphFile;
+    this.parallel = parallel;
   }
 
   /**
@@ -105,14 +184,41 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
    */
   @Override
   protected void preprocess() {
-    createStorage();
-
     ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    if(flat) {
+      if(graphFile != null && graphFile.exists()) {
+        try {
+          FlatKNNStore loaded = FlatKNNStore.load(graphFile, ids, k, FlatKNNStore.fingerprint(relation, ids));
+          if(loaded != null) {
+            storage = loaded;
+            return;
+          }
+          LOG.warning("kNN graph file " + graphFile + " does not match the data set or k, recomputing.");
+        }
+        catch(IOException e) {
+          LOG.warning("Could not load kNN graph file " + graphFile + ", recomputing: " + e.getMessage());
+        }
+      }
+      storage = new FlatKNNStore(ids, k, singlePrecision);
+    }
+    else {
+      createStorage();
+    }
 
     if(LOG.isStatistics()) {
       LOG.statistics(new LongStatistic(this.getClass().getName() + ".k", k));
     }
     Duration duration = LOG.isStatistics() ? LOG.newDuration(this.getClass().getName() + ".precomputation-time").begin() : null;
+    if(parallel) {
+      KNNProcessor<O> knnm = new KNNProcessor<>(k, knnQuery);
+      SharedObject<KNNList> knnv = new SharedObject<>();
+      StoreKNNProcessor storek = new StoreKNNProcessor();
+      knnm.connectKNNOutput(knnv);
+      storek.connectInput(knnv);
+      ParallelExecutor.run(ids, knnm, storek);
+      finishPreprocessing(ids, duration);
+      return;
+    }
     FiniteProgress progress = getLogger().isVerbose() ? new FiniteProgress("Materializing k nearest neighbors (k=" + k + ")", ids.size(), getLogger()) : null;
     // Try bulk
     List<? extends KNNList> kNNList = null;
@@ -134,9 +240,103 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
       }
     }
     getLogger().ensureCompleted(progress);
+    finishPreprocessing(ids, duration);
+  }
+
+  /**
+   * Finish preprocessing: log the duration, save the graph file.
+   * 
+   * @param ids Object IDs, in storage order
+   * @param duration Duration statistic, may be {@code null}
+   */
+  private void finishPreprocessing(ArrayDBIDs ids, Duration duration) {
     if(duration != null) {
       LOG.statistics(duration.end());
     }
+    if(graphFile != null) {
+      try {
+        ((FlatKNNStore) storage).save(graphFile, FlatKNNStore.fingerprint(relation, ids));
+      }
+      catch(IOException e) {
+        LOG.warning("Could not save kNN graph file " + graphFile + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Processor to store the kNN lists computed by a {@link KNNProcessor}.
+   * 
+   * Writes to the flat storage are thread-safe for distinct objects; other
+   * storages (e.g. hash maps) are synchronized.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  protected class StoreKNNProcessor implements Processor {
+    /**
+     * Input variable.
+     */
+    SharedObject<KNNList> input;
+
+    /**
+     * Connect the kNN input.
+     * 
+     * @param input Input variable
+     */
+    public void connectInput(SharedObject<KNNList> input) {
+      this.input = input;
+    }
+
+    @Override
+    public Instance instantiate(Executor executor) {
+      return new Instance(executor.getInstance(input));
+    }
+
+    @Override
+    public void cleanup(Processor.Instance inst) {
+      // Nothing to do.
+    }
+
+    /**
+     * Instance for a single thread.
+     * 
+     * @author Erich Schubert
+     * 
+     * @apiviz.exclude
+     */
+    public class Instance implements Processor.Instance {
+      /**
+       * Input variable.
+       */
+      SharedObject.Instance<KNNList> input;
+
+      /**
+       * Synchronize writes.
+       */
+      boolean sync = !(storage instanceof FlatKNNStore);
+
+      /**
+       * Constructor.
+       * 
+       * @param input Input variable
+       */
+      protected Instance(SharedObject.Instance<KNNList> input) {
+        super();
+        this.input = input;
+      }
+
+      @Override
+      public void map(DBIDRef id) {
+        if(!sync) {
+          storage.put(id, input.get());
+          return;
+        }
+        synchronized(storage) {
+          storage.put(id, input.get());
+        }
+      }
+    }
   }
 
   @Override
@@ -175,6 +375,9 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     StepProgress stepprog = getLogger().isVerbose() ? new StepProgress(3) : null;
 
     ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
+    if(storage instanceof FlatKNNStore) {
+      unflatten(ids);
+    }
     // materialize the new kNNs
     getLogger().beginStep(stepprog, 1, "New insertions ocurred, materialize their new kNNs.");
     // Bulk-query kNNs
@@ -196,6 +399,23 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     getLogger().setCompleted(stepprog);
   }
 
+  /**
+   * Move the kNN lists from the flat storage (which has a fixed set of objects)
+   * to a regular storage, to allow insertions.
+   * 
+   * @param ids the ids of the newly inserted objects
+   */
+  private void unflatten(DBIDs ids) {
+    WritableDataStore<KNNList> s = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT, KNNList.class);
+    // The views remain valid, as the flat storage is no longer modified.
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      if(!ids.contains(iter)) {
+        s.put(iter, storage.get(iter));
+      }
+    }
+    storage = s;
+  }
+
   /**
    * Updates the kNNs of the RkNNs of the specified ids.
    * 
@@ -205,6 +425,13 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
    *         updated
    */
   private ArrayDBIDs updateKNNsAfterInsertion(DBIDs ids) {
+    RangeQuery<O> rangeQuery = relation.getDatabase().getRangeQuery(distanceQuery, DatabaseQuery.HINT_OPTIMIZED_ONLY, DatabaseQuery.HINT_HEAVY_USE);
+    if(rangeQuery != null) {
+      ArrayDBIDs rkNN_ids = updateKNNsAfterInsertion(ids, rangeQuery);
+      if(rkNN_ids != null) {
+        return rkNN_ids;
+      }
+    }
     ArrayModifiableDBIDs rkNN_ids = DBIDUtil.newArray();
     DBIDs oldids = DBIDUtil.difference(relation.getDBIDs(), ids);
     for(DBIDIter iter = oldids.iter(); iter.valid(); iter.advance()) {
@@ -230,6 +457,59 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     return rkNN_ids;
   }
 
+  /**
+   * Updates the kNNs of the RkNNs of the specified ids, using an index to find
+   * the candidates.
+   * 
+   * @param ids the ids of newly inserted objects causing a change of
+   *        materialized kNNs
+   * @param rangeQuery Index-based range query
+   * @return the RkNNs of the specified ids, i.e. the kNNs which have been
+   *         updated, or {@code null} if the candidates cannot be bounded
+   */
+  private ArrayDBIDs updateKNNsAfterInsertion(DBIDs ids, RangeQuery<O> rangeQuery) {
+    SetDBIDs newids = DBIDUtil.ensureSet(ids);
+    // Largest k-distance of the old objects bounds the search radius.
+    double maxkdist = 0.;
+    for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
+      if(!newids.contains(iter)) {
+        final double kdist = storage.get(iter).getKNNDistance();
+        maxkdist = (kdist > maxkdist) ? kdist : maxkdist;
+      }
+    }
+    if(maxkdist == Double.POSITIVE_INFINITY) {
+      return null; // Incomplete kNN lists, cannot prune.
+    }
+    // Collect the new neighbors of all affected objects, for the whole batch.
+    Map<DBID, KNNHeap> heaps = new HashMap<>();
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      DoubleDBIDList cands = rangeQuery.getRangeForDBID(iter, maxkdist);
+      for(DoubleDBIDListIter cand = cands.iter(); cand.valid(); cand.advance()) {
+        if(newids.contains(cand)) {
+          continue;
+        }
+        final double dist = cand.doubleValue();
+        DBID cid = DBIDUtil.deref(cand);
+        KNNHeap heap = heaps.get(cid);
+        if(heap == null) {
+          KNNList kNNs = storage.get(cid);
+          if(dist > kNNs.getKNNDistance()) {
+            continue;
+          }
+          heap = DBIDUtil.newHeap(kNNs);
+          heaps.put(cid, heap);
+        }
+        heap.insert(dist, iter);
+      }
+    }
+    ArrayModifiableDBIDs rkNN_ids = DBIDUtil.newArray(heaps.size());
+    for(Map.Entry<DBID, KNNHeap> ent : heaps.entrySet()) {
+      storage.put(ent.getKey(), ent.getValue().toKNNList());
+      rkNN_ids.add(ent.getKey());
+    }
+    return rkNN_ids;
+  }
+
   /**
    * Updates the kNNs of the RkNNs of the specified ids.
    * 
@@ -379,6 +659,26 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
    * @param <O> The object type
    */
   public static class Factory<O> extends AbstractMaterializeKNNPreprocessor.Factory<O> {
+    /**
+     * Use the flat array storage.
+     */
+    protected boolean flat;
+
+    /**
+     * Store distances with single precision.
+     */
+    protected boolean singlePrecision;
+
+    /**
+     * File to load the kNN graph from, or to save it to.
+     */
+    protected File graphFile;
+
+    /**
+     * Materialize the kNN in parallel.
+     */
+    protected boolean parallel;
+
     /**
      * Index factory.
      * 
@@ -386,12 +686,31 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
      * @param distanceFunction distance function
      */
     public Factory(int k, DistanceFunction<? super O> distanceFunction) {
+      this(k, distanceFunction, false, false, null, false);
+    }
+
+    /**
+     * Index factory.
+     * 
+     * @param k k parameter
+     * @param distanceFunction distance function
+     * @param flat Use flat array storage
+     * @param singlePrecision Store distances with single precision
+     * @param graphFile File to load the kNN graph from or save it to, may be
+     *        {@code null}
+     * @param parallel Materialize the kNN in parallel
+     */
+    public Factory(int k, DistanceFunction<? super O> distanceFunction, boolean flat, boolean singlePrecision, File graphFile, boolean parallel) {
       super(k, distanceFunction);
+      this.flat = flat;
+      this.singlePrecision = singlePrecision;
+      this.graphFile = graphFile;
+      this.parallel = parallel;
     }
 
     @Override
     public MaterializeKNNPreprocessor<O> instantiate(Relation<O> relation) {
-      MaterializeKNNPreprocessor<O> instance = new MaterializeKNNPreprocessor<>(relation, distanceFunction, k);
+      MaterializeKNNPreprocessor<O> instance = new MaterializeKNNPreprocessor<>(relation, distanceFunction, k, flat, singlePrecision, graphFile, parallel);
       return instance;
     }
 
@@ -403,9 +722,70 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
      * @apiviz.exclude
      */
     public static class Parameterizer<O> extends AbstractMaterializeKNNPreprocessor.Factory.Parameterizer<O> {
+      /**
+       * Flag to store the kNN graph in flat arrays.
+       */
+      public static final OptionID FLAT_ID = new OptionID("materialize.flat", "Store the kNN graph in compact flat arrays.");
+
+      /**
+       * Flag to store distances with single precision.
+       */
+      public static final OptionID FLOAT_ID = new OptionID("materialize.float", "Store the kNN distances with single (float) precision. Implies flat storage.");
+
+      /**
+       * File to load or save the kNN graph.
+       */
+      public static final OptionID GRAPHFILE_ID = new OptionID("materialize.graphfile", "File to load the kNN graph from if it exists, or to save the computed kNN graph to. Implies flat storage.");
+
+      /**
+       * Flag to materialize the kNN in parallel.
+       */
+      public static final OptionID PARALLEL_ID = new OptionID("materialize.parallel", "Materialize the kNN using all available CPUs. The kNN query (index) must be thread-safe.");
+
+      /**
+       * Use the flat array storage.
+       */
+      protected boolean flat;
+
+      /**
+       * Store distances with single precision.
+       */
+      protected boolean singlePrecision;
+
+      /**
+       * File to load the kNN graph from, or to save it to.
+       */
+      protected File graphFile;
+
+      /**
+       * Materialize the kNN in parallel.
+       */
+      protected boolean parallel;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        Flag flatF = new Flag(FLAT_ID);
+        if(config.grab(flatF)) {
+          flat = flatF.isTrue();
+        }
+        Flag floatF = new Flag(FLOAT_ID);
+        if(config.grab(floatF)) {
+          singlePrecision = floatF.isTrue();
+        }
+        FileParameter fileP = new FileParameter(GRAPHFILE_ID, FileParameter.FileType.OUTPUT_FILE, true);
+        if(config.grab(fileP)) {
+          graphFile = fileP.getValue();
+        }
+        Flag parallelF = new Flag(PARALLEL_ID);
+        if(config.grab(parallelF)) {
+          parallel = parallelF.isTrue();
+        }
+      }
+
       @Override
       protected Factory<O> makeInstance() {
-        return new Factory<>(k, distanceFunction);
+        return new Factory<>(k, distanceFunction, flat, singlePrecision, graphFile, parallel);
       }
     }
   }
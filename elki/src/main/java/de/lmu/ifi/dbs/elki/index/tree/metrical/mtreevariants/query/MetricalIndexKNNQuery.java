@@ -24,11 +24,14 @@ package de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.query;
  */
 
 import de.lmu.ifi.dbs.elki.database.ids.DBID;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeapCache;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractKNNSession;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNSession;
 import de.lmu.ifi.dbs.elki.index.tree.DirectoryEntry;
 import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.AbstractMTree;
 import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.AbstractMTreeNode;
@@ -52,6 +55,11 @@ public class MetricalIndexKNNQuery<O> extends AbstractDistanceKNNQuery<O> {
    */
   protected final AbstractMTree<O, ?, ?, ?> index;
 
+  /**
+   * Reusable heaps for single queries.
+   */
+  private final KNNHeapCache heapcache = new KNNHeapCache();
+
   /**
    * Constructor.
    * 
@@ -68,12 +76,27 @@ public class MetricalIndexKNNQuery<O> extends AbstractDistanceKNNQuery<O> {
     if(k < 1) {
       throw new IllegalArgumentException("At least one object has to be requested!");
     }
-    index.statistics.countKNNQuery();
+    return search(q, heapcache.get(k), new ComparableMinHeap<DoubleMTreeDistanceSearchCandidate>()).toKNNList();
+  }
 
-    KNNHeap knnList = DBIDUtil.newHeap(k);
-    double d_k = Double.POSITIVE_INFINITY;
+  @Override
+  public KNNSession<O> newSession() {
+    return new Session();
+  }
 
-    final ComparableMinHeap<DoubleMTreeDistanceSearchCandidate> pq = new ComparableMinHeap<>();
+  /**
+   * Best-first kNN search in the tree.
+   * 
+   * @param q Query object
+   * @param knnList Empty heap to fill
+   * @param pq Queue for pending nodes, will be cleared
+   * @return Filled heap
+   */
+  protected KNNHeap search(O q, KNNHeap knnList, ComparableMinHeap<DoubleMTreeDistanceSearchCandidate> pq) {
+    index.statistics.countKNNQuery();
+    final int k = knnList.getK();
+    double d_k = Double.POSITIVE_INFINITY;
+    pq.clear();
 
     // Push the root node
     pq.add(new DoubleMTreeDistanceSearchCandidate(0., index.getRootID(), null, 0.));
@@ -133,6 +156,31 @@ public class MetricalIndexKNNQuery<O> extends AbstractDistanceKNNQuery<O> {
         }
       }
     }
-    return knnList.toKNNList();
+    return knnList;
+  }
+
+  /**
+   * Session reusing the heap, the node queue and the result buffer.
+   * 
+   * @author Erich Schubert
+   */
+  protected class Session extends AbstractKNNSession<O> {
+    /**
+     * Queue of pending nodes.
+     */
+    private final ComparableMinHeap<DoubleMTreeDistanceSearchCandidate> pq = new ComparableMinHeap<>();
+
+    @Override
+    public KNNList getKNNForDBID(DBIDRef id, int k) {
+      return getKNNForObject(relation.get(id), k);
+    }
+
+    @Override
+    public KNNList getKNNForObject(O q, int k) {
+      if(k < 1) {
+        throw new IllegalArgumentException("At least one object has to be requested!");
+      }
+      return result(search(q, heap(k), pq));
+    }
   }
 }
@@ -30,14 +30,18 @@ import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeapCache;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractKNNSession;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNSession;
 import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
@@ -228,6 +232,11 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
      */
     private Norm<? super O> norm;
 
+    /**
+     * Reusable heaps for single queries.
+     */
+    private final KNNHeapCache heapcache = new KNNHeapCache();
+
     /**
      * Constructor.
      * 
@@ -241,11 +250,16 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
 
     @Override
     public KNNList getKNNForObject(O obj, int k) {
-      final KNNHeap knns = DBIDUtil.newHeap(k);
+      final KNNHeap knns = heapcache.get(k);
       kdKNNSearch(0, sorted.size(), 0, obj, knns, sorted.iter(), Double.POSITIVE_INFINITY);
       return knns.toKNNList();
     }
 
+    @Override
+    public KNNSession<O> newSession() {
+      return new Session();
+    }
+
     /**
      * Perform a kNN search on the kd-tree.
      * 
@@ -330,6 +344,30 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
       }
       return maxdist;
     }
+
+    /**
+     * Session reusing the heap, the tree iterator and the result buffer.
+     * 
+     * @author Erich Schubert
+     */
+    protected class Session extends AbstractKNNSession<O> {
+      /**
+       * Iterator for tree traversal.
+       */
+      private final DBIDArrayIter iter = sorted.iter();
+
+      @Override
+      public KNNList getKNNForDBID(DBIDRef id, int k) {
+        return getKNNForObject(relation.get(id), k);
+      }
+
+      @Override
+      public KNNList getKNNForObject(O obj, int k) {
+        final KNNHeap knns = heap(k);
+        kdKNNSearch(0, sorted.size(), 0, obj, knns, iter, Double.POSITIVE_INFINITY);
+        return result(knns);
+      }
+    }
   }
 
   /**
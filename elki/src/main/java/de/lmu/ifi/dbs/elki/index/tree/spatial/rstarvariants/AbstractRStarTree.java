@@ -95,6 +95,12 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
    */
   protected S settings;
 
+  /**
+   * Nodes of a frozen (read-only) tree, indexed by page id; {@code null} while
+   * the tree is writable.
+   */
+  private volatile AbstractRStarTreeNode<?, ?>[] frozen = null;
+
   /**
    * Constructor.
    * 
@@ -142,6 +148,7 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
 
   @Override
   public void insertLeaf(E leaf) {
+    checkNotFrozen();
     if (!initialized) {
       initialize(leaf);
     }
@@ -204,6 +211,7 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
    * @param deletionPath Path to delete
    */
   protected void deletePath(IndexTreePath<E> deletionPath) {
+    checkNotFrozen();
     N leaf = getNode(deletionPath.getParentPath().getLastPathComponent().getEntry());
     int index = deletionPath.getLastPathComponent().getIndex();
 
@@ -817,6 +825,84 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
     }
   }
 
+  /**
+   * Freeze the tree: all nodes are loaded into a flat array indexed by their
+   * page id, and the tree becomes read-only. Node access then no longer goes
+   * through the (synchronized) page file, so queries can run concurrently from
+   * many threads without locking.
+   */
+  public void freeze() {
+    if (frozen != null) {
+      return;
+    }
+    List<N> nodes = new ArrayList<>();
+    int maxid = 0;
+    Stack<N> stack = new Stack<>();
+    stack.push(getRoot());
+    while (!stack.isEmpty()) {
+      N node = stack.pop();
+      nodes.add(node);
+      maxid = Math.max(maxid, node.getPageID());
+      if (!node.isLeaf()) {
+        for (int i = 0; i < node.getNumEntries(); i++) {
+          stack.push(getNode(node.getEntry(i)));
+        }
+      }
+    }
+    AbstractRStarTreeNode<?, ?>[] array = new AbstractRStarTreeNode<?, ?>[maxid + 1];
+    for (N node : nodes) {
+      array[node.getPageID()] = node;
+    }
+    if (getLogger().isVerbose()) {
+      getLogger().verbose("Froze R-tree with " + nodes.size() + " nodes.");
+    }
+    frozen = array;
+  }
+
+  /**
+   * Test whether the tree was frozen (i.e. is read-only).
+   * 
+   * @return {@code true} when frozen.
+   */
+  public boolean isFrozen() {
+    return frozen != null;
+  }
+
+  /**
+   * Fail when trying to modify a frozen tree.
+   */
+  private void checkNotFrozen() {
+    if (frozen != null) {
+      throw new AbortException("The R-tree was frozen and is read-only.");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public N getNode(int nodeID) {
+    final AbstractRStarTreeNode<?, ?>[] nodes = frozen;
+    return (nodes != null) ? (N) nodes[nodeID] : super.getNode(nodeID);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public N getRoot() {
+    final AbstractRStarTreeNode<?, ?>[] nodes = frozen;
+    return (nodes != null) ? (N) nodes[getRootID()] : super.getRoot();
+  }
+
+  @Override
+  protected void writeNode(N node) {
+    checkNotFrozen();
+    super.writeNode(node);
+  }
+
+  @Override
+  protected void deleteNode(N node) {
+    checkNotFrozen();
+    super.deleteNode(node);
+  }
+
   /**
    * Perform additional integrity checks.
    */
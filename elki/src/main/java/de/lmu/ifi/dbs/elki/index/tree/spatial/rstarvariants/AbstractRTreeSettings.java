@@ -67,6 +67,11 @@ public class AbstractRTreeSettings {
    */
   protected double relativeMinFill = 0.4;
 
+  /**
+   * Freeze the tree after bulk loading (read-only, lock-free reads).
+   */
+  protected boolean frozen = false;
+
   /**
    * Set the bulk loading strategy.
    * 
@@ -112,6 +117,22 @@ public class AbstractRTreeSettings {
     this.relativeMinFill = relative;
   }
 
+  /**
+   * Set whether to freeze the tree after bulk loading.
+   * 
+   * @param frozen Freeze flag
+   */
+  public void setFrozen(boolean frozen) {
+    this.frozen = frozen;
+  }
+
+  /**
+   * @return whether to freeze the tree after bulk loading.
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
   /**
    * @return the overflowTreatment
    */
@@ -29,22 +29,21 @@ import java.util.List;
 import java.util.Map;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
-import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBID;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNSession;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
-import de.lmu.ifi.dbs.elki.index.tree.query.DoubleDistanceSearchCandidate;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeNode;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.ComparableMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 
 /**
@@ -84,30 +83,40 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
 
   @Override
   public KNNList getKNNForObject(O obj, int k) {
-    if(k < 1) {
+    return search(obj, heapcache.get(k), new DoubleIntegerMinHeap(Math.min(k << 1, 21))).toKNNListSqrt();
+  }
+
+  @Override
+  public KNNSession<O> newSession() {
+    return new EuclideanSession();
+  }
+
+  @Override
+  protected KNNHeap search(O obj, KNNHeap knnList, DoubleIntegerMinHeap pq) {
+    if(knnList.getK() < 1) {
       throw new IllegalArgumentException("At least one neighbor has to be requested!");
     }
     tree.statistics.countKNNQuery();
-
-    final KNNHeap knnList = DBIDUtil.newHeap(k);
-    final ComparableMinHeap<DoubleDistanceSearchCandidate> pq = new ComparableMinHeap<>(Math.min(knnList.getK() << 1, 21));
+    pq.clear();
 
     // expand root
     double maxDist = expandNode(obj, knnList, pq, Double.MAX_VALUE, tree.getRootID());
 
     // search in tree
     while(!pq.isEmpty()) {
-      DoubleDistanceSearchCandidate pqNode = pq.poll();
+      final double mindist = pq.peekKey();
+      final int nodeID = pq.peekValue();
+      pq.poll();
 
-      if(pqNode.mindist > maxDist) {
+      if(mindist > maxDist) {
         break;
       }
-      maxDist = expandNode(obj, knnList, pq, maxDist, pqNode.nodeID);
+      maxDist = expandNode(obj, knnList, pq, maxDist, nodeID);
     }
-    return QueryUtil.applySqrt(knnList.toKNNList());
+    return knnList;
   }
 
-  private double expandNode(O object, KNNHeap knnList, final ComparableMinHeap<DoubleDistanceSearchCandidate> pq, double maxDist, final int nodeID) {
+  private double expandNode(O object, KNNHeap knnList, final DoubleIntegerMinHeap pq, double maxDist, final int nodeID) {
     AbstractRStarTreeNode<?, ?> node = tree.getNode(nodeID);
     // data node
     if(node.isLeaf()) {
@@ -132,7 +141,7 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
         }
         else {
           if(distance <= maxDist) {
-            pq.add(new DoubleDistanceSearchCandidate(distance, entry.getPageID()));
+            pq.add(distance, entry.getPageID());
           }
         }
       }
@@ -160,8 +169,21 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
     for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
       DBID id = DBIDUtil.deref(iter);
       tree.statistics.countKNNQuery();
-      result.add(QueryUtil.applySqrt(knnLists.get(id).toKNNList()));
+      // batchNN uses the (non-squared) Euclidean distance of the superclass.
+      result.add(knnLists.get(id).toKNNList());
     }
     return result;
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the heap, the node queue and the result buffer.
+   * 
+   * @author Erich Schubert
+   */
+  protected class EuclideanSession extends Session {
+    @Override
+    public KNNList getKNNForObject(O obj, int k) {
+      return resultSqrt(search(obj, heap(k), pq));
+    }
+  }
+}
@@ -38,20 +38,22 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeapCache;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractKNNSession;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNSession;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.index.tree.DirectoryEntry;
 import de.lmu.ifi.dbs.elki.index.tree.LeafEntry;
-import de.lmu.ifi.dbs.elki.index.tree.query.DoubleDistanceSearchCandidate;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeNode;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.ComparableMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 
 /**
@@ -68,7 +70,7 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
  * 
  * @apiviz.uses AbstractRStarTree
  * @apiviz.uses SpatialPrimitiveDistanceFunction
- * @apiviz.uses DoubleDistanceSearchCandidate
+ * @apiviz.uses DoubleIntegerMinHeap
  */
 @Reference(authors = "G. R. Hjaltason, H. Samet", //
 title = "Ranking in spatial databases", //
@@ -90,6 +92,11 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
    */
   protected Relation<? extends O> relation;
 
+  /**
+   * Reusable heaps for single queries.
+   */
+  protected final KNNHeapCache heapcache = new KNNHeapCache();
+
   /**
    * Constructor.
    * 
@@ -111,30 +118,47 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
 
   @Override
   public KNNList getKNNForObject(O obj, int k) {
-    if(k < 1) {
+    return search(obj, heapcache.get(k), new DoubleIntegerMinHeap(Math.min(k << 1, 21))).toKNNList();
+  }
+
+  @Override
+  public KNNSession<O> newSession() {
+    return new Session();
+  }
+
+  /**
+   * Best-first kNN search in the tree.
+   * 
+   * @param obj Query object
+   * @param knnList Empty heap to fill
+   * @param pq Queue for pending nodes (distance, page id), will be cleared
+   * @return Filled heap
+   */
+  protected KNNHeap search(O obj, KNNHeap knnList, DoubleIntegerMinHeap pq) {
+    if(knnList.getK() < 1) {
       throw new IllegalArgumentException("At least one neighbor has to be requested!");
     }
     tree.statistics.countKNNQuery();
-
-    final KNNHeap knnList = DBIDUtil.newHeap(k);
-    final ComparableMinHeap<DoubleDistanceSearchCandidate> pq = new ComparableMinHeap<>(Math.min(knnList.getK() << 1, 21));
+    pq.clear();
 
     // expand root
     double maxDist = expandNode(obj, knnList, pq, Double.MAX_VALUE, tree.getRootID());
 
     // search in tree
     while(!pq.isEmpty()) {
-      DoubleDistanceSearchCandidate pqNode = pq.poll();
+      final double mindist = pq.peekKey();
+      final int nodeID = pq.peekValue();
+      pq.poll();
 
-      if(pqNode.mindist > maxDist) {
+      if(mindist > maxDist) {
         break;
       }
-      maxDist = expandNode(obj, knnList, pq, maxDist, pqNode.nodeID);
+      maxDist = expandNode(obj, knnList, pq, maxDist, nodeID);
     }
-    return knnList.toKNNList();
+    return knnList;
   }
 
-  private double expandNode(O object, KNNHeap knnList, final ComparableMinHeap<DoubleDistanceSearchCandidate> pq, double maxDist, final int nodeID) {
+  private double expandNode(O object, KNNHeap knnList, final DoubleIntegerMinHeap pq, double maxDist, final int nodeID) {
     AbstractRStarTreeNode<?, ?> node = tree.getNode(nodeID);
     // data node
     if(node.isLeaf()) {
@@ -159,7 +183,7 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
         }
         else {
           if(distance <= maxDist) {
-            pq.add(new DoubleDistanceSearchCandidate(distance, entry.getPageID()));
+            pq.add(distance, entry.getPageID());
           }
         }
       }
@@ -301,4 +325,26 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
     }
     return result;
   }
-}
\ No newline at end of file
+
+  /**
+   * Session reusing the heap, the node queue and the result buffer.
+   * 
+   * @author Erich Schubert
+   */
+  protected class Session extends AbstractKNNSession<O> {
+    /**
+     * Queue of pending nodes.
+     */
+    protected final DoubleIntegerMinHeap pq = new DoubleIntegerMinHeap(21);
+
+    @Override
+    public KNNList getKNNForDBID(DBIDRef id, int k) {
+      return getKNNForObject(relation.get(id), k);
+    }
+
+    @Override
+    public KNNList getKNNForObject(O obj, int k) {
+      return result(search(obj, heap(k), pq));
+    }
+  }
+}
@@ -31,6 +31,8 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeSession;
+import de.lmu.ifi.dbs.elki.database.query.range.SimpleRangeSession;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
@@ -135,4 +137,9 @@ public class RStarTreeRangeQuery<O extends SpatialComparable> implements RangeQu
     result.sort();
     return result;
   }
+
+  @Override
+  public RangeSession<O> newSession() {
+    return new SimpleRangeSession<>(this);
+  }
 }
\ No newline at end of file
@@ -31,6 +31,9 @@ import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRTreeSetting
 import de.lmu.ifi.dbs.elki.persistent.PageFile;
 import de.lmu.ifi.dbs.elki.persistent.PageFileFactory;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 
 /**
  * Factory for regular R*-Trees.
@@ -74,6 +77,20 @@ public class RStarTreeFactory<O extends NumberVector> extends AbstractRStarTreeF
    * @param <O> Object type
    */
   public static class Parameterizer<O extends NumberVector> extends AbstractRStarTreeFactory.Parameterizer<O, AbstractRTreeSettings> {
+    /**
+     * Flag to freeze the tree after bulk loading, for concurrent read-only use.
+     */
+    public static final OptionID FROZEN_ID = new OptionID("rtree.frozen", "Freeze the tree after loading the data: nodes are kept in a flat array, and the tree becomes read-only, allowing concurrent queries without locking.");
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      Flag frozenF = new Flag(FROZEN_ID);
+      if(config.grab(frozenF)) {
+        settings.setFrozen(frozenF.isTrue());
+      }
+    }
+
     @Override
     protected RStarTreeFactory<O> makeInstance() {
       return new RStarTreeFactory<>(pageFileFactory, settings);
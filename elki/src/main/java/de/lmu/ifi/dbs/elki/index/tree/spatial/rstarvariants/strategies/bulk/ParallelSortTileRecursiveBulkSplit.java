@@ -0,0 +1,183 @@
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialSingleMeanComparator;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.QuickSelect;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+
+/**
+ * Parallel variant of the Sort-Tile-Recursive bulk split.
+ * 
+ * The slabs of each recursion level are first separated sequentially (using
+ * quickselect), then the slabs are partitioned concurrently on the fork-join
+ * pool of {@link ParallelCore}. Since the slabs are disjoint sublists, the
+ * result is identical to the one of {@link SortTileRecursiveBulkSplit}.
+ * 
+ * Reference:
+ * <p>
+ * Leutenegger, S.T. and Lopez, M.A. and Edgington, J.:<br />
+ * STR: A simple and efficient algorithm for R-tree packing<br />
+ * In: Proc. 13th International Conference on Data Engineering, 1997
+ * </p>
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses ParallelCore
+ */
+@Reference(authors = "Leutenegger, S.T. and Lopez, M.A. and Edgington, J.", title = "STR: A simple and efficient algorithm for R-tree packing", booktitle = "Proc. 13th International Conference on Data Engineering, 1997", url = "http://dx.doi.org/10.1109/ICDE.1997.582015")
+@Alias({ "pstr", "PSTR" })
+public class ParallelSortTileRecursiveBulkSplit extends SortTileRecursiveBulkSplit {
+  /**
+   * Static instance.
+   */
+  public static final ParallelSortTileRecursiveBulkSplit STATIC = new ParallelSortTileRecursiveBulkSplit();
+
+  /**
+   * Minimum number of objects to split off a parallel task.
+   */
+  private static final int MIN_PARALLEL_SIZE = 4096;
+
+  @Override
+  public <T extends SpatialComparable> List<List<T>> partition(List<T> spatialObjects, int minEntries, int maxEntries) {
+    final int size = spatialObjects.size();
+    if(size < MIN_PARALLEL_SIZE || ParallelCore.ALL_PROCESSORS <= 1) {
+      return super.partition(spatialObjects, minEntries, maxEntries);
+    }
+    final int dims = spatialObjects.get(0).getDimensionality();
+    PartitionTask<T> task = new PartitionTask<>(spatialObjects, 0, size, 0, dims, maxEntries);
+    ParallelCore.getCore().invoke(task);
+    return task.ret;
+  }
+
+  /**
+   * Task partitioning a subinterval of the data.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   * 
+   * @param <T> data type
+   */
+  private class PartitionTask<T extends SpatialComparable> extends RecursiveAction {
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Object list.
+     */
+    final List<T> objs;
+
+    /**
+     * Subinterval start and end.
+     */
+    final int start, end;
+
+    /**
+     * Iteration depth, and total dimensionality.
+     */
+    final int depth, dims;
+
+    /**
+     * Maximum page size.
+     */
+    final int maxEntries;
+
+    /**
+     * Output list.
+     */
+    final List<List<T>> ret = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * 
+     * @param objs Object list
+     * @param start Subinterval start
+     * @param end Subinterval end
+     * @param depth Iteration depth
+     * @param dims Total number of dimensions
+     * @param maxEntries Maximum page size
+     */
+    PartitionTask(List<T> objs, int start, int end, int depth, int dims, int maxEntries) {
+      this.objs = objs;
+      this.start = start;
+      this.end = end;
+      this.depth = depth;
+      this.dims = dims;
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected void compute() {
+      SpatialSingleMeanComparator c = new SpatialSingleMeanComparator(depth);
+      if(end - start < MIN_PARALLEL_SIZE || depth + 1 == dims) {
+        strPartition(objs, start, end, depth, dims, maxEntries, c, ret);
+        return;
+      }
+      final int p = (int) Math.ceil((end - start) / (double) maxEntries);
+      final int s = (int) Math.ceil(Math.pow(p, 1.0 / (dims - depth)));
+
+      final double len = end - start; // double intentional!
+      // Separate the slabs first; this only modifies the remaining interval.
+      List<PartitionTask<T>> tasks = new ArrayList<>(s);
+      for(int i = 0; i < s; i++) {
+        int s2 = start + (int) ((i * len) / s);
+        int e2 = start + (int) (((i + 1) * len) / s);
+        if(e2 < end) {
+          QuickSelect.quickSelect(objs, c, s2, end, e2);
+        }
+        tasks.add(new PartitionTask<>(objs, s2, e2, depth + 1, dims, maxEntries));
+      }
+      // Partition the (disjoint) slabs concurrently.
+      invokeAll(tasks);
+      for(PartitionTask<T> task : tasks) {
+        ret.addAll(task.ret);
+      }
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    @Override
+    protected ParallelSortTileRecursiveBulkSplit makeInstance() {
+      return STATIC;
+    }
+  }
+}
@@ -0,0 +1,373 @@
+package de.lmu.ifi.dbs.elki.math.geometry;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree.Adapter;
+import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree.Collector;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+/**
+ * Multi-threaded variant of Prim's algorithm for <em>dense</em> graphs.
+ * 
+ * The candidate nodes are split into one contiguous block per thread. For
+ * every node added to the tree, each thread updates the best known distances
+ * of its block, and reports the block minimum; the global minimum is then added
+ * to the tree. Since the threads synchronize once per node, this only pays off
+ * when each block is large; for small graphs the serial
+ * {@link PrimsMinimumSpanningTree} is used.
+ * 
+ * Ties are resolved exactly as in the serial version, so both produce the same
+ * sequence of edges.
+ * 
+ * Reference:
+ * <p>
+ * R. C. Prim<br />
+ * Shortest connection networks and some generalizations<br />
+ * In: Bell System Technical Journal, 36 (1957), pp. 1389–140
+ * </p>
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses ParallelCore
+ * @apiviz.composedOf AdapterFactory
+ */
+@Reference(authors = "R. C. Prim", //
+title = "Shortest connection networks and some generalizations", //
+booktitle = "Bell System Technical Journal, 36 (1957)")
+public class ParallelPrimsMinimumSpanningTree {
+  /**
+   * Minimum number of nodes per thread.
+   */
+  private static final int MIN_BLOCKSIZE = 2048;
+
+  /**
+   * Fake constructor. Do not instantiate!
+   */
+  private ParallelPrimsMinimumSpanningTree() {
+    // Static methods only.
+  }
+
+  /**
+   * Run Prim's algorithm on a dense graph, using all available processors.
+   * 
+   * @param data Data set
+   * @param factory Adapter factory, one adapter is used per thread
+   * @param collector Edge collector, called from one thread at a time
+   * @param <T> Data type
+   */
+  public static <T> void processDense(T data, AdapterFactory<T> factory, Collector collector) {
+    ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      final Adapter<T> adapter = factory.instantiate();
+      final int n = adapter.size(data);
+      int threads = Math.min(core.getParallelism(), (n - 1) / MIN_BLOCKSIZE);
+      if(threads <= 1) {
+        PrimsMinimumSpanningTree.processDense(data, adapter, collector);
+        return;
+      }
+      run(core, data, adapter, factory, collector, threads);
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Run Prim's algorithm on a dense graph, with a fixed number of threads.
+   * 
+   * As all threads must run concurrently, the number of threads is limited to
+   * the parallelism of the {@link ParallelCore}.
+   * 
+   * @param data Data set
+   * @param factory Adapter factory, one adapter is used per thread
+   * @param collector Edge collector, called from one thread at a time
+   * @param threads Number of threads
+   * @param <T> Data type
+   */
+  public static <T> void processDense(T data, AdapterFactory<T> factory, Collector collector, int threads) {
+    ParallelCore core = ParallelCore.getCore();
+    core.connect();
+    try {
+      final Adapter<T> adapter = factory.instantiate();
+      // Need at least one candidate per thread.
+      threads = Math.min(threads, Math.min(core.getParallelism(), adapter.size(data) - 1));
+      threads = Math.max(1, threads);
+      run(core, data, adapter, factory, collector, threads);
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Run the parallel algorithm.
+   * 
+   * @param core Parallel core, must be connected
+   * @param data Data set
+   * @param adapter Adapter for the calling thread
+   * @param factory Adapter factory for the other threads
+   * @param collector Edge collector
+   * @param threads Number of threads
+   * @param <T> Data type
+   */
+  private static <T> void run(ParallelCore core, T data, Adapter<T> adapter, AdapterFactory<T> factory, Collector collector, int threads) {
+    final int n = adapter.size(data);
+    if(n < 2) {
+      return;
+    }
+    final State state = new State(n, threads, collector);
+    final CyclicBarrier barrier = new CyclicBarrier(threads, state);
+    // Note: node 0 is the starting node, and is skipped below.
+    final int blocksize = (n - 1 + threads - 1) / threads;
+    List<Future<Void>> futures = new ArrayList<>(threads - 1);
+    for(int t = 1; t < threads; t++) {
+      final int start = 1 + t * blocksize, end = Math.min(n, start + blocksize);
+      futures.add(core.submit(new Worker<>(state, barrier, data, factory.instantiate(), t, start, end)));
+    }
+    // The calling thread processes the first block.
+    try {
+      new Worker<>(state, barrier, data, adapter, 0, 1, Math.min(n, 1 + blocksize)).call();
+      for(Future<Void> fut : futures) {
+        fut.get();
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("Parallel minimum spanning tree computation failed.", e.getCause());
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel minimum spanning tree computation interrupted.", e);
+    }
+    catch(BrokenBarrierException e) {
+      throw new RuntimeException("Parallel minimum spanning tree computation interrupted.", e);
+    }
+  }
+
+  /**
+   * Shared state of the parallel computation. The barrier action chooses the
+   * next node.
+   * 
+   * @author Erich Schubert
+   */
+  private static class State implements Runnable {
+    /**
+     * Best distance for each node.
+     */
+    final double[] best;
+
+    /**
+     * Best previous node.
+     */
+    final int[] src;
+
+    /**
+     * Nodes already connected.
+     */
+    final byte[] connected;
+
+    /**
+     * Block minima, per thread.
+     */
+    final double[] blockd;
+
+    /**
+     * Block minimum positions, per thread.
+     */
+    final int[] blocki;
+
+    /**
+     * Output collector.
+     */
+    final Collector collector;
+
+    /**
+     * Node added last.
+     */
+    int current = 0;
+
+    /**
+     * Number of edges still to add.
+     */
+    int remaining;
+
+    /**
+     * Constructor.
+     * 
+     * @param n Number of nodes
+     * @param threads Number of threads
+     * @param collector Output collector
+     */
+    State(int n, int threads, Collector collector) {
+      this.best = new double[n];
+      Arrays.fill(best, Double.POSITIVE_INFINITY);
+      this.src = new int[n];
+      this.connected = new byte[n];
+      this.blockd = new double[threads];
+      this.blocki = new int[threads];
+      this.collector = collector;
+      this.remaining = n - 1;
+      // We always start at node 0
+      connected[0] = 1;
+      best[0] = 0;
+    }
+
+    @Override
+    public void run() {
+      // Blocks are in ascending order, and each reports its first minimum,
+      // so this picks the same node as the serial algorithm.
+      int newbesti = -1;
+      double newbestd = Double.POSITIVE_INFINITY;
+      for(int t = 0; t < blockd.length; t++) {
+        if(blocki[t] >= 0 && (newbesti < 0 || blockd[t] < newbestd)) {
+          newbestd = blockd[t];
+          newbesti = blocki[t];
+        }
+      }
+      assert (newbesti >= 0);
+      connected[newbesti] = 1;
+      collector.addEdge(newbestd, src[newbesti], newbesti);
+      current = newbesti;
+      --remaining;
+    }
+  }
+
+  /**
+   * Worker thread, processing one block of candidate nodes.
+   * 
+   * @author Erich Schubert
+   * 
+   * @param <T> Data type
+   */
+  private static class Worker<T> implements Callable<Void> {
+    /**
+     * Shared state.
+     */
+    private final State state;
+
+    /**
+     * Barrier to synchronize with the other threads.
+     */
+    private final CyclicBarrier barrier;
+
+    /**
+     * Data set.
+     */
+    private final T data;
+
+    /**
+     * Adapter of this thread.
+     */
+    private final Adapter<T> adapter;
+
+    /**
+     * Thread number, block range.
+     */
+    private final int t, start, end;
+
+    /**
+     * Constructor.
+     * 
+     * @param state Shared state
+     * @param barrier Barrier
+     * @param data Data set
+     * @param adapter Adapter of this thread
+     * @param t Thread number
+     * @param start First node of the block
+     * @param end End of the block (exclusive)
+     */
+    Worker(State state, CyclicBarrier barrier, T data, Adapter<T> adapter, int t, int start, int end) {
+      this.state = state;
+      this.barrier = barrier;
+      this.data = data;
+      this.adapter = adapter;
+      this.t = t;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public Void call() throws InterruptedException, BrokenBarrierException {
+      final double[] best = state.best;
+      final int[] src = state.src;
+      final byte[] connected = state.connected;
+      try {
+        while(state.remaining > 0) {
+          final int current = state.current;
+          int besti = -1;
+          double bestd = Double.POSITIVE_INFINITY;
+          for(int j = start; j < end; ++j) {
+            if(connected[j] == 1) {
+              continue;
+            }
+            final double dist = adapter.distance(data, current, j);
+            if(dist < best[j]) {
+              best[j] = dist;
+              src[j] = current;
+            }
+            if(besti < 0 || best[j] < bestd) {
+              bestd = best[j];
+              besti = j;
+            }
+          }
+          state.blockd[t] = bestd;
+          state.blocki[t] = besti;
+          barrier.await();
+        }
+        return null;
+      }
+      catch(RuntimeException | Error e) {
+        // Do not leave the other threads waiting.
+        barrier.reset();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Factory for adapters, as adapters are usually not thread safe.
+   * 
+   * @author Erich Schubert
+   * 
+   * @param <T> Data type
+   */
+  public interface AdapterFactory<T> {
+    /**
+     * Create an adapter for use by a single thread.
+     * 
+     * @return Adapter
+     */
+    Adapter<T> instantiate();
+  }
+}
@@ -24,6 +24,8 @@ package de.lmu.ifi.dbs.elki.parallel;
  */
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -33,6 +35,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Core for parallel processing in ELKI, based on {@link ThreadPoolExecutor}.
  * 
+ * For work-stealing execution, a {@link ForkJoinPool} with the same degree of
+ * parallelism is available, too.
+ * 
  * TODO: make configurable how many threads are used.
  * 
  * @author Erich Schubert
@@ -53,6 +58,11 @@ public class ParallelCore {
    */
   ThreadPoolExecutor executor;
 
+  /**
+   * Fork-join pool, for work-stealing execution.
+   */
+  private volatile ForkJoinPool forkjoin;
+
   /**
    * Number of connected submitters.
    */
@@ -100,6 +110,24 @@ public class ParallelCore {
     return executor.submit(task);
   }
 
+  /**
+   * Run a fork-join task on the work-stealing pool, and wait for its
+   * completion.
+   * 
+   * @param task Task to run
+   * @return Result of the task
+   */
+  public <T> T invoke(ForkJoinTask<T> task) {
+    if(forkjoin == null) {
+      synchronized(this) {
+        if(forkjoin == null) {
+          forkjoin = new ForkJoinPool(processors);
+        }
+      }
+    }
+    return forkjoin.invoke(task);
+  }
+
   /**
    * Connect to the executor.
    */
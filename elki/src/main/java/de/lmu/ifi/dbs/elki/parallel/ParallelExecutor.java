@@ -37,6 +37,7 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
 import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable;
 import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable.Instance;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 
 /**
  * Class to run processors in parallel, on all available cores.
@@ -47,8 +48,30 @@ import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable.Instance;
  * 
  * @apiviz.has BlockArrayRunner
  * @apiviz.uses ParallelCore
+ * @apiviz.uses WorkStealingExecutor
  */
 public class ParallelExecutor {
+  /**
+   * Flag to use the work-stealing executor instead of fixed blocks.
+   */
+  public static final OptionID WORKSTEALING_ID = new OptionID("parallel.workstealing", "Use recursive splitting with work stealing instead of fixed blocks. Beneficial when the cost per object varies a lot.");
+
+  /**
+   * Run a task on all available CPUs.
+   * 
+   * @param ids IDs to process
+   * @param workstealing Use the work-stealing executor
+   * @param procs Processors to run
+   */
+  public static final void run(DBIDs ids, boolean workstealing, Processor... procs) {
+    if(workstealing) {
+      WorkStealingExecutor.run(ids, procs);
+    }
+    else {
+      run(ids, procs);
+    }
+  }
+
   /**
    * Run a task on all available CPUs.
    * 
@@ -56,15 +79,15 @@ public class ParallelExecutor {
    * @param procs Processors to run
    */
   public static final void run(DBIDs ids, Processor... procs) {
-    // TODO: try different strategies anyway!
     ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
     ParallelCore core = ParallelCore.getCore();
     try {
       final int size = aids.size();
       core.connect();
-      int numparts = core.getParallelism();
-      // TODO: are there better heuristics for choosing this?
-      numparts = (size > numparts * numparts * 16) ? numparts * numparts - 1 : numparts;
+      final int parallelism = core.getParallelism();
+      // Use more blocks than threads on large data, to reduce idle time at the
+      // end. For skewed workloads, use the WorkStealingExecutor instead.
+      int numparts = (parallelism > 1 && size > parallelism * parallelism * 16) ? parallelism * parallelism - 1 : parallelism;
 
       final int blocksize = (size + (numparts - 1)) / numparts;
       List<Future<ArrayDBIDs>> parts = new ArrayList<>(numparts);
@@ -83,7 +106,8 @@ public class ParallelExecutor {
       throw new RuntimeException("Processor execution failed.", e);
     }
     catch(InterruptedException e) {
-      throw new RuntimeException("Parallel execution interrupted.");
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel execution interrupted.", e);
     }
     finally {
       core.disconnect();
@@ -148,7 +172,7 @@ public class ParallelExecutor {
 
       DBIDArrayIter iter = ids.iter();
       iter.seek(start);
-      for(int c = end - start; iter.valid() && c >= 0; iter.advance(), c--) {
+      for(int c = end - start; iter.valid() && c > 0; iter.advance(), c--) {
         for(int i = 0; i < instances.length; i++) {
           instances[i].map(iter);
         }
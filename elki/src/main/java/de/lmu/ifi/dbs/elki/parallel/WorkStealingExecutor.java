@@ -0,0 +1,167 @@
+package de.lmu.ifi.dbs.elki.parallel;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.RecursiveAction;
+
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor.BlockArrayRunner;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+
+/**
+ * Class to run processors in parallel, using a fork-join pool with recursive
+ * splitting and work stealing.
+ * 
+ * In contrast to {@link ParallelExecutor}, which splits the data into fixed
+ * blocks in advance, blocks are only split when other threads are idle and
+ * can steal the remaining work. This adapts the block sizes to the workload,
+ * and avoids idle cores when the cost per object is very uneven (e.g. kNN
+ * queries in dense and sparse regions).
+ * 
+ * Each block is processed by its own processor instances, so the processors
+ * must support being instantiated many times, as with {@link ParallelExecutor}.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has BlockTask
+ * @apiviz.uses ParallelCore
+ */
+public class WorkStealingExecutor {
+  /**
+   * Minimum number of objects in a block.
+   */
+  private static final int MIN_BLOCKSIZE = 16;
+
+  /**
+   * Maximum number of blocks per thread.
+   */
+  private static final int MAX_BLOCKS_PER_THREAD = 256;
+
+  /**
+   * Number of queued tasks tolerated before we stop splitting.
+   */
+  private static final int SURPLUS = 2;
+
+  /**
+   * Run a task on all available CPUs.
+   * 
+   * @param ids IDs to process
+   * @param procs Processors to run
+   */
+  public static final void run(DBIDs ids, Processor... procs) {
+    ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
+    final int size = aids.size();
+    if(size == 0) {
+      return;
+    }
+    final int maxblocks = ParallelCore.ALL_PROCESSORS * MAX_BLOCKS_PER_THREAD;
+    final int minsize = Math.max(MIN_BLOCKSIZE, (size + maxblocks - 1) / maxblocks);
+    ParallelCore.getCore().invoke(new BlockTask(aids, 0, size, procs, minsize, null));
+  }
+
+  /**
+   * Task processing a range of the array, which may split off parts of the
+   * range for other threads to steal.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.uses BlockArrayRunner
+   */
+  protected static class BlockTask extends RecursiveAction {
+    /**
+     * Serial version
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Array IDs to process
+     */
+    private ArrayDBIDs ids;
+
+    /**
+     * Start position
+     */
+    private int start;
+
+    /**
+     * End position
+     */
+    private int end;
+
+    /**
+     * The processor masters that own the instances.
+     */
+    private Processor[] procs;
+
+    /**
+     * Minimum block size, do not split below.
+     */
+    private int minsize;
+
+    /**
+     * Previously forked sibling task, to join.
+     */
+    private BlockTask next;
+
+    /**
+     * Constructor.
+     * 
+     * @param ids IDs to process
+     * @param start Starting position
+     * @param end End position
+     * @param procs Processors to run
+     * @param minsize Minimum block size
+     * @param next Previously forked sibling
+     */
+    protected BlockTask(ArrayDBIDs ids, int start, int end, Processor[] procs, int minsize, BlockTask next) {
+      super();
+      this.ids = ids;
+      this.start = start;
+      this.end = end;
+      this.procs = procs;
+      this.minsize = minsize;
+      this.next = next;
+    }
+
+    @Override
+    protected void compute() {
+      int hi = end;
+      BlockTask forked = null;
+      // Split off the upper halves, as long as other threads may need work.
+      while(hi - start > minsize && getSurplusQueuedTaskCount() <= SURPLUS) {
+        final int mid = (start + hi) >>> 1;
+        forked = new BlockTask(ids, mid, hi, procs, minsize, forked);
+        forked.fork();
+        hi = mid;
+      }
+      new BlockArrayRunner(ids, start, hi, procs).call();
+      // Join (or process ourselves, if not yet stolen) in LIFO order.
+      for(; forked != null; forked = forked.next) {
+        forked.join();
+      }
+    }
+  }
+}
@@ -0,0 +1,458 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.index.tree.TreeIndexHeader;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferObjectInput;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferObjectOutput;
+
+/**
+ * A disk-based page file using NIO {@link FileChannel}s.
+ * 
+ * In contrast to {@link PersistentPageFile}, pages are read using positional
+ * reads into (thread-local) direct buffers, or from a memory mapping of the
+ * file, and are decoded directly from the buffer instead of going through an
+ * {@link java.io.ObjectInputStream}. Reading is thread-safe.
+ * 
+ * The file format is not compatible with {@link PersistentPageFile}.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf PageHeader
+ * @apiviz.composedOf FileChannel
+ * 
+ * @param <P> Page type
+ */
+public class FileChannelPageFile<P extends ExternalizablePage> extends AbstractStoringPageFile<P> {
+  /**
+   * Our logger
+   */
+  private static final Logging LOG = Logging.getLogger(FileChannelPageFile.class);
+
+  /**
+   * Indicates an empty page.
+   */
+  private static final int EMPTY_PAGE = 0;
+
+  /**
+   * Indicates a filled page.
+   */
+  private static final int FILLED_PAGE = 1;
+
+  /**
+   * Approximate size of a memory mapped chunk.
+   */
+  private static final int CHUNK_BYTES = 1 << 26;
+
+  /**
+   * The file storing the pages (used for the header).
+   */
+  private final RandomAccessFile file;
+
+  /**
+   * The channel used for page I/O.
+   */
+  private final FileChannel channel;
+
+  /**
+   * The header of this page file.
+   */
+  protected PageHeader header;
+
+  /**
+   * The type of pages we use.
+   */
+  protected final Class<P> pageclass;
+
+  /**
+   * Whether we are initializing from an existing file.
+   */
+  private boolean existed;
+
+  /**
+   * Use memory mapping for reading.
+   */
+  private final boolean mmap;
+
+  /**
+   * Memory mapped chunks of the file; replaced (never modified) when a chunk
+   * is added.
+   */
+  private volatile MappedByteBuffer[] maps = new MappedByteBuffer[0];
+
+  /**
+   * Number of pages in a mapped chunk, as bit shift.
+   */
+  private int chunkShift;
+
+  /**
+   * Buffer for reading pages, per thread.
+   */
+  private final ThreadLocal<ByteBuffer> readbuf = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocateDirect(pageSize);
+    }
+  };
+
+  /**
+   * Buffer for writing pages; guarded by {@code this}.
+   */
+  private ByteBuffer writebuf;
+
+  /**
+   * Constructor.
+   * 
+   * @param pageSize the page size
+   * @param fileName File name
+   * @param pageclass the class of pages to be used
+   * @param mmap Use memory mapping for reading pages
+   */
+  public FileChannelPageFile(int pageSize, String fileName, Class<P> pageclass, boolean mmap) {
+    super(pageSize);
+    this.pageclass = pageclass;
+    this.mmap = mmap;
+    File f = new File(fileName);
+    existed = f.exists();
+    try {
+      file = new RandomAccessFile(f, "rw");
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error in loading persistent page file.", e);
+    }
+    channel = file.getChannel();
+  }
+
+  @Override
+  public P readPage(int pageID) {
+    countRead();
+    final long slot = header.getReservedPages() + (long) pageID;
+    ByteBuffer buf = mmap ? mappedPage(slot) : null;
+    if(buf == null) {
+      buf = readbuf.get();
+      buf.clear();
+      final long offset = slot * pageSize;
+      try {
+        while(buf.hasRemaining()) {
+          if(channel.read(buf, offset + buf.position()) < 0) {
+            return null; // Beyond end of file.
+          }
+        }
+      }
+      catch(IOException e) {
+        throw new AbortException("IOException occurred during reading of page " + pageID, e);
+      }
+      buf.flip();
+    }
+    return decodePage(buf);
+  }
+
+  /**
+   * Get a page from the memory mapped file.
+   * 
+   * @param slot Page slot, including the reserved header pages.
+   * @return Buffer positioned at the page, or {@code null}
+   */
+  private ByteBuffer mappedPage(long slot) {
+    final int chunk = (int) (slot >>> chunkShift);
+    final int off = (int) (slot - (((long) chunk) << chunkShift)) * pageSize;
+    final MappedByteBuffer[] maps = this.maps;
+    MappedByteBuffer map = chunk < maps.length ? maps[chunk] : null;
+    if(map == null || map.capacity() < off + pageSize) {
+      map = mapChunk(chunk, off + pageSize);
+      if(map == null) {
+        return null;
+      }
+    }
+    ByteBuffer buf = map.duplicate();
+    buf.limit(off + pageSize).position(off);
+    return buf;
+  }
+
+  /**
+   * Map (or remap, if the file has grown) a chunk of the file.
+   * 
+   * @param chunk Chunk number
+   * @param minsize Minimum size needed
+   * @return Mapped chunk, or {@code null} if the file is too short.
+   */
+  private synchronized MappedByteBuffer mapChunk(int chunk, int minsize) {
+    MappedByteBuffer[] maps = this.maps;
+    if(chunk < maps.length && maps[chunk] != null && maps[chunk].capacity() >= minsize) {
+      return maps[chunk];
+    }
+    try {
+      final long chunkbytes = ((long) pageSize) << chunkShift;
+      final long start = chunk * chunkbytes;
+      final long len = Math.min(chunkbytes, channel.size() - start);
+      if(len < minsize) {
+        return null;
+      }
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+      maps = Arrays.copyOf(maps, Math.max(maps.length, chunk + 1));
+      maps[chunk] = map;
+      this.maps = maps;
+      return map;
+    }
+    catch(IOException e) {
+      throw new AbortException("Memory mapping of page file failed.", e);
+    }
+  }
+
+  /**
+   * Decode a page from a buffer.
+   * 
+   * @param buf Buffer
+   * @return Page, or {@code null} for empty pages.
+   */
+  private P decodePage(ByteBuffer buf) {
+    final int type = buf.getInt();
+    if(type == EMPTY_PAGE) {
+      return null;
+    }
+    if(type != FILLED_PAGE) {
+      throw new IllegalArgumentException("Unknown type: " + type);
+    }
+    try {
+      P page = pageclass.newInstance();
+      page.readExternal(new ByteBufferObjectInput(buf));
+      return page;
+    }
+    catch(InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+      throw new AbortException("Error instanciating an index page", e);
+    }
+    catch(IOException e) {
+      throw new AbortException("IO Error in page file", e);
+    }
+  }
+
+  @Override
+  public synchronized void deletePage(int pageID) {
+    // put id to empty pages list
+    super.deletePage(pageID);
+    // delete from file
+    countWrite();
+    ByteBuffer buf = encodePage(null);
+    writeBuffer(buf, pageID);
+  }
+
+  @Override
+  protected void writePage(int pageID, P page) {
+    countWrite();
+    ByteBuffer buf = encodePage(page);
+    writeBuffer(buf, pageID);
+    page.setDirty(false);
+  }
+
+  /**
+   * Encode a page into the write buffer; the caller must synchronize.
+   * 
+   * @param page Page, or {@code null} for an empty page.
+   * @return Buffer, ready for writing
+   */
+  private ByteBuffer encodePage(P page) {
+    if(writebuf == null) {
+      writebuf = ByteBuffer.allocateDirect(pageSize);
+    }
+    ByteBuffer buf = writebuf;
+    buf.clear();
+    try {
+      if(page == null) {
+        buf.putInt(EMPTY_PAGE);
+      }
+      else {
+        buf.putInt(FILLED_PAGE);
+        page.writeExternal(new ByteBufferObjectOutput(buf));
+      }
+    }
+    catch(BufferOverflowException e) {
+      throw new IllegalArgumentException("Size of page " + page + " is greater than specified pagesize: " + pageSize);
+    }
+    catch(IOException e) {
+      throw new AbortException("IOException occurred! ", e);
+    }
+    // Zero-fill the remainder of the page.
+    while(buf.remaining() >= 8) {
+      buf.putLong(0L);
+    }
+    while(buf.hasRemaining()) {
+      buf.put((byte) 0);
+    }
+    buf.flip();
+    return buf;
+  }
+
+  /**
+   * Write a buffer to the given page position.
+   * 
+   * @param buf Buffer
+   * @param pageID Page id
+   */
+  private void writeBuffer(ByteBuffer buf, int pageID) {
+    final long offset = (header.getReservedPages() + (long) pageID) * pageSize;
+    try {
+      while(buf.hasRemaining()) {
+        channel.write(buf, offset + buf.position());
+      }
+    }
+    catch(IOException e) {
+      throw new AbortException("Error writing to page file.", e);
+    }
+  }
+
+  /**
+   * Closes this file, writing the header. Unlike {@link PersistentPageFile},
+   * the pages are kept, so that the file can be reopened.
+   */
+  @Override
+  public void close() {
+    try {
+      maps = new MappedByteBuffer[0];
+      if(!emptyPages.isEmpty() && header instanceof TreeIndexHeader) {
+        // write the list of empty pages to the end of the file
+        ((TreeIndexHeader) header).writeEmptyPages(emptyPages, file);
+      }
+      if(header instanceof TreeIndexHeader) {
+        ((TreeIndexHeader) header).setLargestPageID(nextPageID);
+      }
+      header.writeHeader(file);
+      channel.force(true);
+      file.close();
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error closing page file.", e);
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    try {
+      // Drop the mappings before truncating the file.
+      maps = new MappedByteBuffer[0];
+      file.setLength(header.size());
+    }
+    catch(IOException e) {
+      throw new AbortException("IO error clearing page file.", e);
+    }
+  }
+
+  /**
+   * Get the header of this page file.
+   * 
+   * @return the header used by this page file
+   */
+  public PageHeader getHeader() {
+    return header;
+  }
+
+  /**
+   * Set the next page id to the given value. If this means that any page ids
+   * stored in <code>emptyPages</code> are smaller than
+   * <code>next_page_id</code>, they are removed from this file's observation
+   * stack.
+   * 
+   * @param next_page_id the id of the next page to be inserted (if there are no
+   *        more empty pages to be filled)
+   */
+  @Override
+  public void setNextPageID(int next_page_id) {
+    this.nextPageID = next_page_id;
+    while(!emptyPages.isEmpty() && emptyPages.peek() >= this.nextPageID) {
+      emptyPages.pop();
+    }
+  }
+
+  @Override
+  public boolean initialize(PageHeader header) {
+    try {
+      this.header = header;
+      if(existed) {
+        LOG.debug("Initializing from an existing page file.");
+        header.readHeader(file);
+        this.pageSize = header.getPageSize();
+        // reading empty nodes in Stack
+        if(header instanceof TreeIndexHeader) {
+          TreeIndexHeader tiHeader = (TreeIndexHeader) header;
+          nextPageID = tiHeader.getLargestPageID();
+          try {
+            emptyPages = tiHeader.readEmptyPages(file);
+          }
+          catch(ClassNotFoundException e) {
+            throw new AbortException("ClassNotFoundException occurred when reading empty pages.", e);
+          }
+        }
+        else { // must scan complete file
+          final long size = channel.size();
+          ByteBuffer buf = ByteBuffer.allocate(4);
+          for(int i = 0; (header.getReservedPages() + i + 1L) * pageSize <= size; i++) {
+            buf.clear();
+            channel.read(buf, (header.getReservedPages() + (long) i) * pageSize);
+            buf.flip();
+            int type = buf.getInt();
+            if(type == EMPTY_PAGE) {
+              emptyPages.push(i);
+            }
+            else if(type == FILLED_PAGE) {
+              nextPageID = i + 1;
+            }
+            else {
+              throw new IllegalArgumentException("Unknown type: " + type);
+            }
+          }
+        }
+      }
+      else {
+        LOG.debug("Initializing with a new page file.");
+        this.pageSize = header.getPageSize();
+        header.writeHeader(file);
+      }
+    }
+    catch(IOException e) {
+      throw new AbortException("IOException occurred.", e);
+    }
+    // Pages per mapped chunk, as power of two.
+    chunkShift = 0;
+    while((((long) pageSize) << (chunkShift + 1)) <= CHUNK_BYTES) {
+      chunkShift++;
+    }
+    // Return "new file" status
+    return existed;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+}
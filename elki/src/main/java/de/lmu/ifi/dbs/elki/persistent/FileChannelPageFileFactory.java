@@ -0,0 +1,119 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Page file factory for disk-based page files using NIO file channels.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.has FileChannelPageFile
+ * 
+ * @param <P> Page type
+ */
+public class FileChannelPageFileFactory<P extends ExternalizablePage> extends AbstractPageFileFactory<P> {
+  /**
+   * File name.
+   */
+  private String fileName;
+
+  /**
+   * Use memory mapping.
+   */
+  private boolean mmap;
+
+  /**
+   * Constructor.
+   * 
+   * @param pageSize Page size
+   * @param fileName File name
+   * @param mmap Use memory mapping for reading
+   */
+  public FileChannelPageFileFactory(int pageSize, String fileName, boolean mmap) {
+    super(pageSize);
+    this.fileName = fileName;
+    this.mmap = mmap;
+  }
+
+  @Override
+  public PageFile<P> newPageFile(Class<P> cls) {
+    if(fileName == null) {
+      throw new AbortException("Disk-backed page file may only be instantiated once!");
+    }
+    FileChannelPageFile<P> pfile = new FileChannelPageFile<>(pageSize, fileName, cls, mmap);
+    fileName = null; // To avoid double instantiation.
+    return pfile;
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @apiviz.exclude
+   * 
+   * @author Erich Schubert
+   */
+  public static class Parameterizer extends AbstractPageFileFactory.Parameterizer<ExternalizablePage> {
+    /**
+     * Flag to enable memory mapping of the page file.
+     * <p>
+     * Key: {@code -pagefile.mmap}
+     * </p>
+     */
+    public static final OptionID MMAP_ID = new OptionID("pagefile.mmap", "Use memory mapping to read pages.");
+
+    /**
+     * File name.
+     */
+    private String fileName;
+
+    /**
+     * Use memory mapping.
+     */
+    private boolean mmap;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      FileParameter fileNameP = new FileParameter(PersistentPageFileFactory.Parameterizer.FILE_ID, FileParameter.FileType.OUTPUT_FILE);
+      if(config.grab(fileNameP)) {
+        fileName = fileNameP.getValue().getPath();
+      }
+      Flag mmapF = new Flag(MMAP_ID);
+      if(config.grab(mmapF)) {
+        mmap = mmapF.isTrue();
+      }
+    }
+
+    @Override
+    protected FileChannelPageFileFactory<ExternalizablePage> makeInstance() {
+      return new FileChannelPageFileFactory<>(pageSize, fileName, mmap);
+    }
+  }
+}
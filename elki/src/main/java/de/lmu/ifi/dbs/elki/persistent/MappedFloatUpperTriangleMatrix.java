@@ -0,0 +1,287 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+
+import de.lmu.ifi.dbs.elki.utilities.exceptions.ExceptionMessages;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+
+/**
+ * Memory-mapped strict upper triangle matrix (without diagonal) of float
+ * values, such as a symmetric distance matrix.
+ * 
+ * In contrast to {@link OnDiskUpperTriangleMatrix}, offsets are computed with
+ * long integers, and the data is mapped in multiple segments of 1 GB each. So
+ * the matrix size is not limited to 65535 objects, and matrixes much larger
+ * than the main memory can be used; the operating system takes care of paging.
+ * 
+ * Read and write access is thread-safe, as only absolute positioning is used
+ * (but concurrent writes to the same cell are not synchronized).
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf RandomAccessFile
+ */
+public class MappedFloatUpperTriangleMatrix {
+  /**
+   * Serial version.
+   * 
+   * NOTE: Change this version whenever the file structure is changed in an
+   * incompatible way: This will modify the file magic, and thus prevent
+   * applications from reading incompatible files.
+   */
+  private static final long serialVersionUID = -2287416398740513520L;
+
+  /**
+   * Magic number used to identify files.
+   */
+  public static final int MAGIC = OnDiskArray.mixMagic((int) serialVersionUID, 0x46545249);
+
+  /**
+   * Size of the header: magic, matrix size, reserved.
+   */
+  public static final int HEADER_SIZE = 4 * ByteArrayUtil.SIZE_INT;
+
+  /**
+   * Number of bits to shift to obtain the segment number (2^28 floats = 1 GB).
+   */
+  private static final int SHIFT = 28;
+
+  /**
+   * Mask to obtain the offset within a segment.
+   */
+  private static final long MASK = (1L << SHIFT) - 1;
+
+  /**
+   * File name.
+   */
+  private File filename;
+
+  /**
+   * Random Access File object.
+   */
+  private final RandomAccessFile file;
+
+  /**
+   * Lock for the file that will be kept while writing.
+   */
+  private FileLock lock = null;
+
+  /**
+   * Writable or read-only object.
+   */
+  private boolean writable;
+
+  /**
+   * Size of the matrix.
+   */
+  private int matrixsize;
+
+  /**
+   * The mapped segments.
+   */
+  private FloatBuffer[] segments;
+
+  /**
+   * The underlying mapped buffers.
+   */
+  private MappedByteBuffer[] maps;
+
+  /**
+   * Constructor to write a new file.
+   * 
+   * @param filename File name to be opened.
+   * @param matrixsize Size of the matrix
+   * @throws IOException on IO errors
+   */
+  public MappedFloatUpperTriangleMatrix(File filename, int matrixsize) throws IOException {
+    if(matrixsize < 0) {
+      throw new IOException("Invalid matrix size: " + matrixsize);
+    }
+    this.filename = filename;
+    this.writable = true;
+    this.matrixsize = matrixsize;
+
+    // do not allow overwriting, unless empty
+    if(filename.exists() && filename.length() > 0) {
+      throw new IOException(ExceptionMessages.FILE_EXISTS);
+    }
+    file = new RandomAccessFile(filename, "rw");
+    lock = file.getChannel().lock();
+    file.writeInt(MAGIC);
+    file.writeInt(matrixsize);
+    file.writeInt(0); // reserved
+    file.writeInt(0); // reserved
+    file.setLength(HEADER_SIZE + triangleSize(matrixsize) * ByteArrayUtil.SIZE_FLOAT);
+    mapSegments();
+  }
+
+  /**
+   * Constructor to open an existing file.
+   * 
+   * @param filename File name to be opened.
+   * @param writable flag to open the file writable
+   * @throws IOException on IO errors
+   */
+  public MappedFloatUpperTriangleMatrix(File filename, boolean writable) throws IOException {
+    this.filename = filename;
+    this.writable = writable;
+    file = new RandomAccessFile(filename, writable ? "rw" : "r");
+    if(writable) {
+      lock = file.getChannel().lock();
+    }
+    int readmagic = file.readInt();
+    if(readmagic != MAGIC) {
+      file.close();
+      throw new IOException("Magic in MappedFloatUpperTriangleMatrix does not match: " + readmagic + " instead of " + MAGIC);
+    }
+    this.matrixsize = file.readInt();
+    if(matrixsize < 0 || file.length() != HEADER_SIZE + triangleSize(matrixsize) * ByteArrayUtil.SIZE_FLOAT) {
+      file.close();
+      throw new IOException("Matrix file size doesn't match specified dimensions: " + matrixsize);
+    }
+    mapSegments();
+  }
+
+  /**
+   * Map the data segments.
+   * 
+   * @throws IOException on mapping errors
+   */
+  private void mapSegments() throws IOException {
+    final long total = triangleSize(matrixsize);
+    final int numseg = (int) ((total + MASK) >>> SHIFT);
+    segments = new FloatBuffer[numseg];
+    maps = new MappedByteBuffer[numseg];
+    final MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+    final FileChannel channel = file.getChannel();
+    for(int i = 0; i < numseg; i++) {
+      final long first = ((long) i) << SHIFT;
+      final long count = Math.min(total - first, 1L << SHIFT);
+      maps[i] = channel.map(mode, HEADER_SIZE + first * ByteArrayUtil.SIZE_FLOAT, count * ByteArrayUtil.SIZE_FLOAT);
+      segments[i] = maps[i].asFloatBuffer();
+    }
+  }
+
+  /**
+   * Compute the size of a complete x by x triangle (minus diagonal).
+   * 
+   * @param x Matrix size
+   * @return Number of cells
+   */
+  public static long triangleSize(int x) {
+    return (((long) x) * (x - 1)) >>> 1;
+  }
+
+  /**
+   * Compute the linear offset of a cell.
+   * 
+   * @param x First coordinate
+   * @param y Second coordinate, must be different from x
+   * @return Linear offset
+   */
+  private static long computeOffset(int x, int y) {
+    return (y < x) ? (triangleSize(x) + y) : (triangleSize(y) + x);
+  }
+
+  /**
+   * Get a single value.
+   * 
+   * @param x First coordinate
+   * @param y Second coordinate, must be different from x
+   * @return Value
+   */
+  public float get(int x, int y) {
+    final long off = computeOffset(x, y);
+    return segments[(int) (off >>> SHIFT)].get((int) (off & MASK));
+  }
+
+  /**
+   * Set a single value.
+   * 
+   * @param x First coordinate
+   * @param y Second coordinate, must be different from x
+   * @param val New value
+   */
+  public void set(int x, int y, float val) {
+    assert (writable) : "File is not writable.";
+    final long off = computeOffset(x, y);
+    segments[(int) (off >>> SHIFT)].put((int) (off & MASK), val);
+  }
+
+  /**
+   * Query the size of the matrix.
+   * 
+   * @return size of the matrix
+   */
+  public int getMatrixSize() {
+    return matrixsize;
+  }
+
+  /**
+   * Get the file name.
+   * 
+   * @return File name
+   */
+  public File getFilename() {
+    return filename;
+  }
+
+  /**
+   * Check if the file is writable.
+   * 
+   * @return true if the file is writable.
+   */
+  public boolean isWritable() {
+    return writable;
+  }
+
+  /**
+   * Explicitly close the file. Note: following operations will likely cause
+   * IOExceptions.
+   * 
+   * @throws IOException on IO errors
+   */
+  public synchronized void close() throws IOException {
+    if(writable) {
+      for(MappedByteBuffer map : maps) {
+        map.force();
+      }
+    }
+    writable = false;
+    if(lock != null) {
+      lock.release();
+      lock = null;
+    }
+    file.close();
+  }
+}
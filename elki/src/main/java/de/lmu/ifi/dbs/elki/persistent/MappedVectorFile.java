@@ -0,0 +1,320 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+
+import de.lmu.ifi.dbs.elki.utilities.exceptions.ExceptionMessages;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+
+/**
+ * Memory-mapped file of fixed-dimensional double vectors, stored row by row.
+ * 
+ * The file consists of a small header (magic, dimensionality and number of
+ * vectors) followed by the raw values. Since Java can only map 2 GB at once,
+ * the data is mapped in multiple segments, each containing a power-of-two
+ * number of vectors; so files larger than the heap (and larger than 2 GB) are
+ * supported, and the operating system takes care of paging.
+ * 
+ * Read access is thread-safe, as only absolute positioning is used.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.composedOf RandomAccessFile
+ */
+public class MappedVectorFile {
+  /**
+   * Serial version.
+   * 
+   * NOTE: Change this version whenever the file structure is changed in an
+   * incompatible way: This will modify the file magic, and thus prevent
+   * applications from reading incompatible files.
+   */
+  private static final long serialVersionUID = 3106437196493719137L;
+
+  /**
+   * Magic number used to identify files.
+   */
+  public static final int MAGIC = OnDiskArray.mixMagic((int) serialVersionUID, 0x56454353);
+
+  /**
+   * Size of the header: magic, dimensionality, size, reserved.
+   */
+  public static final int HEADER_SIZE = 4 * ByteArrayUtil.SIZE_INT;
+
+  /**
+   * File name.
+   */
+  private File filename;
+
+  /**
+   * Random Access File object.
+   */
+  private final RandomAccessFile file;
+
+  /**
+   * Lock for the file that will be kept while writing.
+   */
+  private FileLock lock = null;
+
+  /**
+   * Writable or read-only object.
+   */
+  private boolean writable;
+
+  /**
+   * Dimensionality of the vectors.
+   */
+  private int dim;
+
+  /**
+   * Number of vectors.
+   */
+  private int size;
+
+  /**
+   * Number of bits to shift to obtain the segment number.
+   */
+  private int shift;
+
+  /**
+   * Mask to obtain the offset within a segment.
+   */
+  private int mask;
+
+  /**
+   * The mapped segments.
+   */
+  private DoubleBuffer[] segments;
+
+  /**
+   * The underlying mapped buffers.
+   */
+  private MappedByteBuffer[] maps;
+
+  /**
+   * Constructor to write a new file.
+   * 
+   * @param filename File name to be opened.
+   * @param dim Dimensionality of the vectors
+   * @param size Number of vectors
+   * @throws IOException on IO errors
+   */
+  public MappedVectorFile(File filename, int dim, int size) throws IOException {
+    if(dim <= 0 || size < 0) {
+      throw new IOException("Invalid dimensionality or size: " + dim + " " + size);
+    }
+    this.filename = filename;
+    this.writable = true;
+    this.dim = dim;
+    this.size = size;
+
+    // do not allow overwriting, unless empty
+    if(filename.exists() && filename.length() > 0) {
+      throw new IOException(ExceptionMessages.FILE_EXISTS);
+    }
+    file = new RandomAccessFile(filename, "rw");
+    lock = file.getChannel().lock();
+    file.writeInt(MAGIC);
+    file.writeInt(dim);
+    file.writeInt(size);
+    file.writeInt(0); // reserved
+    file.setLength(HEADER_SIZE + (long) size * dim * ByteArrayUtil.SIZE_DOUBLE);
+    mapSegments();
+  }
+
+  /**
+   * Constructor to open an existing file.
+   * 
+   * @param filename File name to be opened.
+   * @param writable flag to open the file writable
+   * @throws IOException on IO errors
+   */
+  public MappedVectorFile(File filename, boolean writable) throws IOException {
+    this.filename = filename;
+    this.writable = writable;
+    file = new RandomAccessFile(filename, writable ? "rw" : "r");
+    if(writable) {
+      lock = file.getChannel().lock();
+    }
+    int readmagic = file.readInt();
+    if(readmagic != MAGIC) {
+      file.close();
+      throw new IOException("Magic in MappedVectorFile does not match: " + readmagic + " instead of " + MAGIC);
+    }
+    this.dim = file.readInt();
+    this.size = file.readInt();
+    if(dim <= 0 || size < 0 || file.length() != HEADER_SIZE + (long) size * dim * ByteArrayUtil.SIZE_DOUBLE) {
+      file.close();
+      throw new IOException("File size and number of vectors do not agree.");
+    }
+    mapSegments();
+  }
+
+  /**
+   * Map the data segments.
+   * 
+   * @throws IOException on mapping errors
+   */
+  private void mapSegments() throws IOException {
+    // Largest power of two number of vectors that fits into a single buffer.
+    final long vecbytes = (long) dim * ByteArrayUtil.SIZE_DOUBLE;
+    shift = 0;
+    while(shift < 30 && (vecbytes << (shift + 1)) <= Integer.MAX_VALUE) {
+      ++shift;
+    }
+    if(vecbytes > Integer.MAX_VALUE) {
+      throw new IOException("Dimensionality too large to be mapped: " + dim);
+    }
+    mask = (1 << shift) - 1;
+    final int numseg = (int) ((size + (long) mask) >>> shift);
+    segments = new DoubleBuffer[numseg];
+    maps = new MappedByteBuffer[numseg];
+    final MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+    final FileChannel channel = file.getChannel();
+    for(int i = 0; i < numseg; i++) {
+      final long first = ((long) i) << shift;
+      final long count = Math.min(size - first, 1L << shift);
+      maps[i] = channel.map(mode, HEADER_SIZE + first * vecbytes, count * vecbytes);
+      segments[i] = maps[i].asDoubleBuffer();
+    }
+  }
+
+  /**
+   * Get a single value.
+   * 
+   * @param index Vector index
+   * @param d Dimension
+   * @return Value
+   */
+  public double get(int index, int d) {
+    return segments[index >>> shift].get((index & mask) * dim + d);
+  }
+
+  /**
+   * Read a vector into an array.
+   * 
+   * @param index Vector index
+   * @param buf Output buffer, of length at least {@link #getDimensionality()}
+   * @return {@code buf}
+   */
+  public double[] get(int index, double[] buf) {
+    final DoubleBuffer seg = segments[index >>> shift];
+    final int off = (index & mask) * dim;
+    for(int d = 0; d < dim; d++) {
+      buf[d] = seg.get(off + d);
+    }
+    return buf;
+  }
+
+  /**
+   * Set a single value.
+   * 
+   * @param index Vector index
+   * @param d Dimension
+   * @param val New value
+   */
+  public void set(int index, int d, double val) {
+    assert (writable) : "File is not writable.";
+    segments[index >>> shift].put((index & mask) * dim + d, val);
+  }
+
+  /**
+   * Write a vector.
+   * 
+   * @param index Vector index
+   * @param vals Values, of length {@link #getDimensionality()}
+   */
+  public void set(int index, double[] vals) {
+    assert (writable) : "File is not writable.";
+    final DoubleBuffer seg = segments[index >>> shift];
+    final int off = (index & mask) * dim;
+    for(int d = 0; d < dim; d++) {
+      seg.put(off + d, vals[d]);
+    }
+  }
+
+  /**
+   * Get the dimensionality of the vectors.
+   * 
+   * @return Dimensionality
+   */
+  public int getDimensionality() {
+    return dim;
+  }
+
+  /**
+   * Get the number of vectors stored.
+   * 
+   * @return Number of vectors
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the file name.
+   * 
+   * @return File name
+   */
+  public File getFilename() {
+    return filename;
+  }
+
+  /**
+   * Check if the file is writable.
+   * 
+   * @return true if the file is writable.
+   */
+  public boolean isWritable() {
+    return writable;
+  }
+
+  /**
+   * Explicitly close the file. Note: following operations will likely cause
+   * IOExceptions.
+   * 
+   * @throws IOException on IO errors
+   */
+  public synchronized void close() throws IOException {
+    if(writable) {
+      for(MappedByteBuffer map : maps) {
+        map.force();
+      }
+    }
+    writable = false;
+    if(lock != null) {
+      lock.release();
+      lock = null;
+    }
+    file.close();
+  }
+}
@@ -0,0 +1,459 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * A concurrent page cache, split into independently locked segments (lock
+ * striping). Each segment uses the CLOCK (second chance) replacement strategy,
+ * which only needs to set a reference bit on a cache hit, instead of
+ * reordering a list as LRU does.
+ * 
+ * Cache hits only lock the segment of the page, so concurrent queries on
+ * different pages do not contend. Accesses to the backing page file (cache
+ * misses, write back of evicted dirty pages) are serialized, as the page files
+ * are not safe for concurrent use.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses PageFile
+ * 
+ * @param <P> Page type
+ */
+public class StripedClockCache<P extends Page> extends AbstractPageFile<P> {
+  /**
+   * Our class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(StripedClockCache.class);
+
+  /**
+   * Cache size in bytes.
+   */
+  protected long cacheSizeBytes;
+
+  /**
+   * Requested number of segments.
+   */
+  protected int stripes;
+
+  /**
+   * The maximum number of pages in this cache.
+   */
+  protected int cacheSize;
+
+  /**
+   * Cache segments.
+   */
+  private Segment[] segments;
+
+  /**
+   * Bit mask to choose the segment.
+   */
+  private int segmentMask;
+
+  /**
+   * The underlying file of this cache. If an object is dropped it is written to
+   * the file.
+   */
+  protected PageFile<P> file;
+
+  /**
+   * Lock for accessing the underlying file.
+   */
+  private final Object fileLock = new Object();
+
+  /**
+   * Constructor.
+   * 
+   * @param cacheSizeBytes the maximum number of bytes for this cache
+   * @param stripes Number of segments (rounded up to a power of two)
+   * @param file the underlying file of this cache, if a page is dropped it is
+   *        written to the file
+   */
+  public StripedClockCache(long cacheSizeBytes, int stripes, PageFile<P> file) {
+    super();
+    this.file = file;
+    this.cacheSizeBytes = cacheSizeBytes;
+    this.stripes = stripes;
+  }
+
+  /**
+   * Choose the segment of a page.
+   * 
+   * @param pageID Page id
+   * @return Segment
+   */
+  private Segment segment(int pageID) {
+    // Spread the bits, as page ids are usually consecutive.
+    int h = pageID * 0x9E3779B9;
+    return segments[(h ^ (h >>> 16)) & segmentMask];
+  }
+
+  @Override
+  public P readPage(int pageID) {
+    final Segment seg = segment(pageID);
+    synchronized(seg) {
+      seg.reads++;
+      P page = seg.get(pageID);
+      if(page != null) {
+        seg.hits++;
+        return page;
+      }
+      seg.misses++;
+    }
+    if(LOG.isDebuggingFine()) {
+      LOG.debugFine("Read from backing: " + pageID);
+    }
+    P page;
+    synchronized(fileLock) {
+      page = file.readPage(pageID);
+    }
+    if(page == null) {
+      return null;
+    }
+    synchronized(seg) {
+      // Another thread may have loaded or written the page in the meantime.
+      P other = seg.get(pageID);
+      if(other != null) {
+        return other;
+      }
+      seg.put(pageID, page);
+    }
+    return page;
+  }
+
+  @Override
+  protected void writePage(int pageID, P page) {
+    page.setDirty(true);
+    final Segment seg = segment(pageID);
+    synchronized(seg) {
+      seg.writes++;
+      seg.put(pageID, page);
+    }
+    if(LOG.isDebuggingFine()) {
+      LOG.debugFine("Write to cache: " + pageID);
+    }
+  }
+
+  @Override
+  public void deletePage(int pageID) {
+    final Segment seg = segment(pageID);
+    synchronized(seg) {
+      seg.writes++;
+      seg.remove(pageID);
+      synchronized(fileLock) {
+        file.deletePage(pageID);
+      }
+    }
+  }
+
+  /**
+   * Write page through to disk. The caller must hold the segment lock.
+   * 
+   * @param page page
+   */
+  protected void expirePage(P page) {
+    if(page.isDirty()) {
+      if(LOG.isDebuggingFine()) {
+        LOG.debugFine("Write to backing:" + page.getPageID());
+      }
+      synchronized(fileLock) {
+        file.writePage(page);
+      }
+    }
+  }
+
+  @Override
+  public int setPageID(P page) {
+    synchronized(fileLock) {
+      return file.setPageID(page);
+    }
+  }
+
+  @Override
+  public int getNextPageID() {
+    synchronized(fileLock) {
+      return file.getNextPageID();
+    }
+  }
+
+  @Override
+  public void setNextPageID(int nextPageID) {
+    synchronized(fileLock) {
+      file.setNextPageID(nextPageID);
+    }
+  }
+
+  @Override
+  public int getPageSize() {
+    return file.getPageSize();
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @Override
+  public boolean initialize(PageHeader header) {
+    boolean created = file.initialize(header);
+    // Compute the actual cache size.
+    long size = cacheSizeBytes / header.getPageSize();
+    if(size <= 0) {
+      throw new AbortException("Invalid cache size: " + cacheSizeBytes + " / " + header.getPageSize() + " = " + size);
+    }
+    this.cacheSize = (int) Math.min(size, Integer.MAX_VALUE);
+    // Number of segments: power of two, but not more than pages.
+    int nseg = 1;
+    while(nseg < stripes && nseg < cacheSize) {
+      nseg <<= 1;
+    }
+    this.segmentMask = nseg - 1;
+    this.segments = new StripedClockCache.Segment[nseg];
+    final int segsize = (int) Math.ceil(cacheSize / (double) nseg);
+    for(int i = 0; i < nseg; i++) {
+      segments[i] = new Segment(segsize);
+    }
+    if(LOG.isDebugging()) {
+      LOG.debug("CLOCK cache size is " + cacheSize + " pages in " + nseg + " segments.");
+    }
+    return created;
+  }
+
+  @Override
+  public void close() {
+    flush();
+    file.close();
+  }
+
+  /**
+   * Flushes this caches by writing any entry to the underlying file.
+   */
+  public void flush() {
+    for(Segment seg : segments) {
+      synchronized(seg) {
+        seg.flush();
+      }
+    }
+  }
+
+  /**
+   * Clears this cache.
+   */
+  @Override
+  public void clear() {
+    for(Segment seg : segments) {
+      synchronized(seg) {
+        seg.clear();
+      }
+    }
+  }
+
+  @Override
+  public void logStatistics() {
+    // Not using the counters of the superclass, which are not thread safe.
+    if(LOG.isStatistics()) {
+      long reads = 0, writes = 0, hits = 0, misses = 0, evictions = 0;
+      for(Segment seg : segments) {
+        synchronized(seg) {
+          reads += seg.reads;
+          writes += seg.writes;
+          hits += seg.hits;
+          misses += seg.misses;
+          evictions += seg.evictions;
+        }
+      }
+      final String prefix = this.getClass().getName();
+      LOG.statistics(new LongStatistic(prefix + ".reads", reads));
+      LOG.statistics(new LongStatistic(prefix + ".writes", writes));
+      LOG.statistics(new LongStatistic(prefix + ".hits", hits));
+      LOG.statistics(new LongStatistic(prefix + ".misses", misses));
+      LOG.statistics(new LongStatistic(prefix + ".evictions", evictions));
+    }
+    file.logStatistics();
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * A single cache segment, using CLOCK replacement. All access must be
+   * synchronized on the segment.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  private class Segment {
+    /**
+     * Map from page id to slot.
+     */
+    final TIntIntHashMap index;
+
+    /**
+     * Page ids of the slots.
+     */
+    final int[] ids;
+
+    /**
+     * Pages in the slots.
+     */
+    final Object[] pages;
+
+    /**
+     * Reference bits.
+     */
+    final boolean[] referenced;
+
+    /**
+     * Number of slots in use.
+     */
+    int used = 0;
+
+    /**
+     * Position of the clock hand.
+     */
+    int hand = 0;
+
+    /**
+     * Statistics: page reads and writes, cache hits, misses and evictions.
+     */
+    long reads = 0, writes = 0, hits = 0, misses = 0, evictions = 0;
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity Segment capacity
+     */
+    Segment(int capacity) {
+      this.index = new TIntIntHashMap(capacity << 1, 0.5f, -1, -1);
+      this.ids = new int[capacity];
+      this.pages = new Object[capacity];
+      this.referenced = new boolean[capacity];
+    }
+
+    /**
+     * Get a page, setting its reference bit.
+     * 
+     * @param pageID Page id
+     * @return Page, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    P get(int pageID) {
+      final int slot = index.get(pageID);
+      if(slot < 0) {
+        return null;
+      }
+      referenced[slot] = true;
+      return (P) pages[slot];
+    }
+
+    /**
+     * Store a page, evicting another page if necessary.
+     * 
+     * @param pageID Page id
+     * @param page Page
+     */
+    void put(int pageID, P page) {
+      int slot = index.get(pageID);
+      if(slot < 0) {
+        slot = (used < ids.length) ? used++ : evict();
+        ids[slot] = pageID;
+        index.put(pageID, slot);
+      }
+      pages[slot] = page;
+      referenced[slot] = true;
+    }
+
+    /**
+     * Choose a victim using the clock hand, and evict it.
+     * 
+     * @return Free slot
+     */
+    @SuppressWarnings("unchecked")
+    int evict() {
+      while(referenced[hand]) {
+        referenced[hand] = false;
+        hand = (hand + 1 < used) ? hand + 1 : 0;
+      }
+      final int slot = hand;
+      hand = (hand + 1 < used) ? hand + 1 : 0;
+      index.remove(ids[slot]);
+      expirePage((P) pages[slot]);
+      pages[slot] = null;
+      evictions++;
+      return slot;
+    }
+
+    /**
+     * Remove a page from the segment, without writing it back.
+     * 
+     * @param pageID Page id
+     */
+    void remove(int pageID) {
+      final int slot = index.remove(pageID);
+      if(slot < 0) {
+        return;
+      }
+      // Move the last slot into the gap.
+      final int last = --used;
+      if(slot != last) {
+        ids[slot] = ids[last];
+        pages[slot] = pages[last];
+        referenced[slot] = referenced[last];
+        index.put(ids[slot], slot);
+      }
+      pages[last] = null;
+      if(hand >= used) {
+        hand = 0;
+      }
+    }
+
+    /**
+     * Write back and drop all pages.
+     */
+    @SuppressWarnings("unchecked")
+    void flush() {
+      for(int i = 0; i < used; i++) {
+        expirePage((P) pages[i]);
+      }
+      clear();
+    }
+
+    /**
+     * Drop all pages.
+     */
+    void clear() {
+      index.clear();
+      for(int i = 0; i < used; i++) {
+        pages[i] = null;
+        referenced[i] = false;
+      }
+      used = 0;
+      hand = 0;
+    }
+  }
+}
@@ -0,0 +1,355 @@
+package de.lmu.ifi.dbs.elki.result;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleMeta;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleReader;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleWriter;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Write results in the binary bundle format, which can be read back using
+ * {@link BundleReader}.
+ * 
+ * Every object of the database becomes one record, containing the DBID, the
+ * data relations (if requested), all result relations such as outlier scores,
+ * and one integer column per clustering with the cluster number (or -1).
+ * Columns are labeled with the name of the result they come from.
+ * 
+ * This is much faster and more compact than text output for large data sets,
+ * but relations whose type does not have a serializer are skipped.
+ * 
+ * @author Erich Schubert
+ * 
+ * @apiviz.uses BundleWriter
+ */
+public class BundleResultWriter implements ResultHandler {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(BundleResultWriter.class);
+
+  /**
+   * Output file.
+   */
+  private File outputFile;
+
+  /**
+   * Include the input data relations.
+   */
+  private boolean includeData;
+
+  /**
+   * Number of results written so far.
+   */
+  private int written = 0;
+
+  /**
+   * Constructor.
+   * 
+   * @param outputFile Output file
+   * @param includeData Include the input data relations
+   */
+  public BundleResultWriter(File outputFile, boolean includeData) {
+    super();
+    this.outputFile = outputFile;
+    this.includeData = includeData;
+  }
+
+  @Override
+  public void processNewResult(HierarchicalResult baseResult, Result newResult) {
+    Database db = ResultUtil.findDatabase(baseResult);
+    if(db == null) {
+      LOG.warning("No database found, cannot write bundle output.");
+      return;
+    }
+    DBIDs ids = db.getRelation(TypeUtil.ANY).getDBIDs();
+    // Collect the columns to write.
+    List<Relation<?>> rels = new ArrayList<>();
+    List<SimpleTypeInformation<?>> types = new ArrayList<>();
+    if(includeData) {
+      for(Relation<?> rel : db.getRelations()) {
+        addRelation(rel, ids, rels, types);
+      }
+    }
+    for(Relation<?> rel : ResultUtil.getRelations(newResult)) {
+      if(!rels.contains(rel) && !db.getRelations().contains(rel)) {
+        addRelation(rel, ids, rels, types);
+      }
+    }
+    List<WritableIntegerDataStore> assignments = new ArrayList<>();
+    for(Clustering<?> c : ResultUtil.getClusteringResults(newResult)) {
+      assignments.add(clusterAssignment(c, ids));
+      types.add(new SimpleTypeInformation<>(Integer.class, c.getShortName(), ByteArrayUtil.INT_SERIALIZER));
+    }
+    if(types.isEmpty()) {
+      return;
+    }
+    File file = outputFile;
+    if(written > 0) {
+      // Do not overwrite earlier results of the same run.
+      String name = outputFile.getName(), ext = "";
+      final int dot = name.lastIndexOf('.');
+      if(dot > 0) {
+        ext = name.substring(dot);
+        name = name.substring(0, dot);
+      }
+      file = new File(outputFile.getParentFile(), name + "-" + written + ext);
+    }
+    ResultBundleStream source = new ResultBundleStream(ids, rels, assignments, new BundleMeta(types.toArray(new SimpleTypeInformation<?>[types.size()])));
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      new BundleWriter().writeBundleStream(source, out.getChannel());
+      ++written;
+    }
+    catch(IOException e) {
+      LOG.exception("Error writing to output file: " + file, e);
+    }
+    for(WritableIntegerDataStore assignment : assignments) {
+      assignment.destroy();
+    }
+  }
+
+  /**
+   * Add a relation to the output, if it covers all objects and can be
+   * serialized.
+   * 
+   * @param rel Relation
+   * @param ids Database ids
+   * @param rels Output relations
+   * @param types Output types
+   */
+  private static void addRelation(Relation<?> rel, DBIDs ids, List<Relation<?>> rels, List<SimpleTypeInformation<?>> types) {
+    SimpleTypeInformation<?> type = rel.getDataTypeInformation();
+    if(TypeUtil.DBID.isAssignableFromType(type)) {
+      return; // Always written.
+    }
+    if(rel.size() != ids.size()) {
+      LOG.warning("Relation " + rel.getLongName() + " does not cover all objects, skipping.");
+      return;
+    }
+    if(rel instanceof DoubleRelation) {
+      type = new SimpleTypeInformation<>(Double.class, rel.getShortName(), ByteArrayUtil.DOUBLE_SERIALIZER);
+    }
+    else if(type.getSerializer() == null) {
+      LOG.verbose("No serializer for relation " + rel.getLongName() + " of type " + type + ", skipping.");
+      return;
+    }
+    rels.add(rel);
+    types.add(type);
+  }
+
+  /**
+   * Compute the cluster assignment of a clustering.
+   * 
+   * @param c Clustering
+   * @param ids Object ids
+   * @return Cluster numbers, -1 for unassigned objects
+   */
+  private static WritableIntegerDataStore clusterAssignment(Clustering<?> c, DBIDs ids) {
+    WritableIntegerDataStore map = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP, -1);
+    int cnum = 0;
+    for(Cluster<?> clu : c.getAllClusters()) {
+      for(DBIDIter iter = clu.getIDs().iter(); iter.valid(); iter.advance()) {
+        map.putInt(iter, cnum);
+      }
+      ++cnum;
+    }
+    return map;
+  }
+
+  /**
+   * Bundle stream over the result columns.
+   * 
+   * @author Erich Schubert
+   */
+  private static class ResultBundleStream implements BundleStreamSource {
+    /**
+     * Object ids.
+     */
+    private DBIDs ids;
+
+    /**
+     * Relations to write.
+     */
+    private Relation<?>[] rels;
+
+    /**
+     * Cluster assignments to write.
+     */
+    private WritableIntegerDataStore[] assignments;
+
+    /**
+     * Column metadata.
+     */
+    private BundleMeta meta;
+
+    /**
+     * Current object.
+     */
+    private DBIDIter iter = null;
+
+    /**
+     * Whether the metadata has been sent.
+     */
+    private boolean metaSent = false;
+
+    /**
+     * Constructor.
+     * 
+     * @param ids Object ids
+     * @param rels Relations
+     * @param assignments Cluster assignments
+     * @param meta Column metadata
+     */
+    ResultBundleStream(DBIDs ids, List<Relation<?>> rels, List<WritableIntegerDataStore> assignments, BundleMeta meta) {
+      super();
+      this.ids = ids;
+      this.rels = rels.toArray(new Relation<?>[rels.size()]);
+      this.assignments = assignments.toArray(new WritableIntegerDataStore[assignments.size()]);
+      this.meta = meta;
+    }
+
+    @Override
+    public BundleMeta getMeta() {
+      return meta;
+    }
+
+    @Override
+    public Event nextEvent() {
+      if(!metaSent) {
+        metaSent = true;
+        return Event.META_CHANGED;
+      }
+      if(iter == null) {
+        iter = ids.iter();
+      }
+      else {
+        iter.advance();
+      }
+      return iter.valid() ? Event.NEXT_OBJECT : Event.END_OF_STREAM;
+    }
+
+    @Override
+    public Object data(int rnum) {
+      if(rnum < rels.length) {
+        final Relation<?> rel = rels[rnum];
+        if(rel instanceof DoubleRelation) {
+          return ((DoubleRelation) rel).doubleValue(iter);
+        }
+        return rel.get(iter);
+      }
+      return assignments[rnum - rels.length].intValue(iter);
+    }
+
+    @Override
+    public boolean hasDBIDs() {
+      return true;
+    }
+
+    @Override
+    public boolean assignDBID(DBIDVar var) {
+      var.set(iter);
+      return true;
+    }
+
+    @Override
+    public MultipleObjectsBundle asMultipleObjectsBundle() {
+      return MultipleObjectsBundle.fromStream(this);
+    }
+  }
+
+  /**
+   * Parameterization class.
+   * 
+   * @author Erich Schubert
+   * 
+   * @apiviz.exclude
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * Output file name parameter.
+     */
+    public static final OptionID OUTPUT_ID = new OptionID("bundle.output", "Output file name for the binary result bundle.");
+
+    /**
+     * Flag to include the input data.
+     */
+    public static final OptionID DATA_ID = new OptionID("bundle.data", "Also write the input data relations, not only the results.");
+
+    /**
+     * Output file.
+     */
+    private File outputFile = null;
+
+    /**
+     * Include the input data relations.
+     */
+    private boolean includeData = false;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      FileParameter outputP = new FileParameter(OUTPUT_ID, FileParameter.FileType.OUTPUT_FILE);
+      if(config.grab(outputP)) {
+        outputFile = outputP.getValue();
+      }
+      Flag dataF = new Flag(DATA_ID);
+      if(config.grab(dataF)) {
+        includeData = dataF.isTrue();
+      }
+    }
+
+    @Override
+    protected BundleResultWriter makeInstance() {
+      return new BundleResultWriter(outputFile, includeData);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+/**
+ * Lock-free union-find data structure over the integers {@code 0..size-1}.
+ * 
+ * Components are always linked such that the smallest index becomes the
+ * representative, so the result of {@link #find} does not depend on the order
+ * in which concurrent unions were performed. Paths are shortened with
+ * compare-and-set path halving.
+ * 
+ * Reference:
+ * <p>
+ * R. J. Anderson and H. Woll<br />
+ * Wait-free parallel algorithms for the union-find problem<br />
+ * Proc. 23rd Annual ACM Symposium on Theory of Computing, 1991
+ * </p>
+ * 
+ * @author Erich Schubert
+ */
+@Reference(authors = "R. J. Anderson and H. Woll", //
+title = "Wait-free parallel algorithms for the union-find problem", //
+booktitle = "Proc. 23rd Annual ACM Symposium on Theory of Computing, 1991", //
+url = "http://dx.doi.org/10.1145/103418.103458")
+public class ConcurrentUnionFind {
+  /**
+   * Parent pointers. Invariant: parent[i] <= i.
+   */
+  private final AtomicIntegerArray parent;
+
+  /**
+   * Constructor.
+   * 
+   * @param size Number of elements, each initially in its own component.
+   */
+  public ConcurrentUnionFind(int size) {
+    this.parent = new AtomicIntegerArray(size);
+    for(int i = 0; i < size; i++) {
+      parent.lazySet(i, i);
+    }
+  }
+
+  /**
+   * Find the representative of a component, i.e. its smallest element at
+   * the time of the call.
+   * 
+   * @param i Element
+   * @return Representative
+   */
+  public int find(int i) {
+    int p = parent.get(i);
+    while(p != i) {
+      final int gp = parent.get(p);
+      if(gp != p) {
+        // Path halving; failure only means someone else shortened it.
+        parent.compareAndSet(i, p, gp);
+      }
+      i = p;
+      p = gp;
+    }
+    return i;
+  }
+
+  /**
+   * Join the components of two elements.
+   * 
+   * @param i First element
+   * @param j Second element
+   * @return {@code true} if the two were in different components.
+   */
+  public boolean union(int i, int j) {
+    while(true) {
+      i = find(i);
+      j = find(j);
+      if(i == j) {
+        return false;
+      }
+      // Link the larger representative below the smaller one.
+      if(i < j) {
+        final int tmp = i;
+        i = j;
+        j = tmp;
+      }
+      if(parent.compareAndSet(i, i, j)) {
+        return true;
+      }
+      // i is no longer a root, retry.
+    }
+  }
+
+  /**
+   * Test whether two elements are in the same component.
+   * 
+   * @param i First element
+   * @param j Second element
+   * @return {@code true} when in the same component.
+   */
+  public boolean isConnected(int i, int j) {
+    while(true) {
+      i = find(i);
+      j = find(j);
+      if(i == j) {
+        return true;
+      }
+      // If i is still a root, the two were disjoint at this point in time.
+      if(parent.get(i) == i) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Test whether an element is the representative of its component.
+   * 
+   * @param i Element
+   * @return {@code true} for representatives
+   */
+  public boolean isRoot(int i) {
+    return parent.get(i) == i;
+  }
+
+  /**
+   * Number of elements.
+   * 
+   * @return Size
+   */
+  public int size() {
+    return parent.length();
+  }
+}
@@ -0,0 +1,129 @@
+package de.lmu.ifi.dbs.elki.utilities.io;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Read-only {@link CharSequence} view of a byte buffer, mapping each byte to
+ * one character (ISO-8859-1). This allows using regular expressions and the
+ * {@link Tokenizer} on memory mapped files without decoding them into strings
+ * first.
+ * 
+ * Multi-byte UTF-8 sequences will appear as multiple characters; they never
+ * collide with ASCII separators or quotes, but text extracted from the buffer
+ * should be decoded with {@link #decode}.
+ * 
+ * @author Erich Schubert
+ */
+public class ByteBufferCharSequence implements CharSequence {
+  /**
+   * UTF-8 character set.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * Byte-per-character set, consistent with {@link #charAt}.
+   */
+  private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+  /**
+   * Data buffer.
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * Offset and end in the buffer.
+   */
+  private final int offset, end;
+
+  /**
+   * Constructor.
+   * 
+   * @param buffer Buffer (absolute positions are used)
+   */
+  public ByteBufferCharSequence(ByteBuffer buffer) {
+    this(buffer, 0, buffer.limit());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param buffer Buffer (absolute positions are used)
+   * @param offset Start offset
+   * @param end End offset
+   */
+  public ByteBufferCharSequence(ByteBuffer buffer, int offset, int end) {
+    super();
+    this.buffer = buffer;
+    this.offset = offset;
+    this.end = end;
+  }
+
+  @Override
+  public int length() {
+    return end - offset;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (buffer.get(offset + index) & 0xFF);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return new ByteBufferCharSequence(buffer, offset + start, offset + end);
+  }
+
+  /**
+   * Decode a part of the buffer as UTF-8.
+   * 
+   * @param start Start position (in this sequence)
+   * @param end End position (in this sequence)
+   * @return Decoded string
+   */
+  public String decode(int start, int end) {
+    return new String(getBytes(start, end), UTF8);
+  }
+
+  /**
+   * Copy a part of the buffer.
+   * 
+   * @param start Start position (in this sequence)
+   * @param end End position (in this sequence)
+   * @return Bytes
+   */
+  private byte[] getBytes(int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for(int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(offset + start + i);
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return new String(getBytes(0, length()), LATIN1);
+  }
+}
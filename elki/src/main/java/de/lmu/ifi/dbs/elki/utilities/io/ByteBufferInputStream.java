@@ -51,7 +51,7 @@ public class ByteBufferInputStream extends InputStream {
 
   @Override
   public int read() {
-    if(buffer.hasRemaining()) {
+    if(!buffer.hasRemaining()) {
       return -1;
     }
     // Note: is this and 0xFF needed?
@@ -23,16 +23,39 @@ package de.lmu.ifi.dbs.elki.algorithm.clustering;
  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.JUnit4Test;
 import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan.GeneralizedDBSCAN;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan.GridNeighborPredicate;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan.MinPtsCorePredicate;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan.ParallelGeneralizedDBSCAN;
+import de.lmu.ifi.dbs.elki.data.Cluster;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.CoreObjectsModel;
 import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.MultipleObjectsBundleDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.ParameterException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
 
@@ -140,4 +163,118 @@ public class TestDBSCANResults extends AbstractSimpleAlgorithmTest implements JU
     testClusterSizes(result, new int[] { 11, 200, 203, 224 });
     testFMeasure(db, result, 0.954382);
   }
-}
\ No newline at end of file
+
+  /**
+   * Run the parallel GDBSCAN, and compare the result to the serial version.
+   */
+  @Test
+  public void testParallelGDBSCANOnSingleLinkDataset() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 11.5);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 120);
+    params.addFlag(GeneralizedDBSCAN.Parameterizer.COREMODEL_ID);
+    ParallelGeneralizedDBSCAN dbscan = ClassGenericsUtil.parameterizeOrAbort(ParallelGeneralizedDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    Clustering<Model> result = dbscan.run(db);
+    testClusterSizes(result, new int[] { 11, 200, 203, 224 });
+    testFMeasure(db, result, 0.954382);
+
+    // Compare to the serial result, cluster by cluster.
+    params = new ListParameterization();
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 11.5);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 120);
+    params.addFlag(GeneralizedDBSCAN.Parameterizer.COREMODEL_ID);
+    GeneralizedDBSCAN gdbscan = ClassGenericsUtil.parameterizeOrAbort(GeneralizedDBSCAN.class, params);
+    Clustering<Model> serial = gdbscan.run(db);
+    List<Cluster<Model>> pc = result.getToplevelClusters(), sc = serial.getToplevelClusters();
+    assertEquals("Number of clusters differs.", sc.size(), pc.size());
+    for(int i = 0; i < sc.size(); i++) {
+      assertEquals("Noise flag differs.", sc.get(i).isNoise(), pc.get(i).isNoise());
+      assertEquals("Cluster differs.", sc.get(i).getIDs().size(), pc.get(i).getIDs().size());
+      assertEquals("Cluster differs.", 0, DBIDUtil.difference(sc.get(i).getIDs(), pc.get(i).getIDs()).size());
+      if(!sc.get(i).isNoise()) {
+        DBIDs score = ((CoreObjectsModel) sc.get(i).getModel()).getCoreObjects();
+        DBIDs pcore = ((CoreObjectsModel) pc.get(i).getModel()).getCoreObjects();
+        assertEquals("Core points differ.", score.size(), pcore.size());
+        assertEquals("Core points differ.", 0, DBIDUtil.difference(score, pcore).size());
+      }
+    }
+  }
+
+  /**
+   * Run GDBSCAN with the grid neighbor predicate, and compare the result to a
+   * golden standard.
+   */
+  @Test
+  public void testGridGDBSCANResults() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+
+    // setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(GeneralizedDBSCAN.Parameterizer.NEIGHBORHOODPRED_ID, GridNeighborPredicate.class);
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 0.04);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 20);
+    params.addFlag(GridNeighborPredicate.Parameterizer.CACHE_SIZES_ID);
+    GeneralizedDBSCAN dbscan = ClassGenericsUtil.parameterizeOrAbort(GeneralizedDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    // run DBSCAN on database
+    Clustering<Model> result = dbscan.run(db);
+
+    testClusterSizes(result, new int[] { 29, 50, 101, 150 });
+    testFMeasure(db, result, 0.996413);
+
+    // The precomputed sizes must match the neighborhoods.
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    GridNeighborPredicate.Instance inst = new GridNeighborPredicate.Instance(0.04, EuclideanDistanceFunction.STATIC, rel, true);
+    MinPtsCorePredicate.Instance core = new MinPtsCorePredicate.Instance(20);
+    assertTrue("Sizes not used by the core predicate.", core.useNeighborhoodSizes(inst));
+    for(DBIDIter it = inst.getIDs().iter(); it.valid(); it.advance()) {
+      final int size = inst.getNeighbors(it).size();
+      assertEquals("Neighborhood size", size, inst.getNeighborhoodSizes().intValue(it));
+      assertEquals("Core point", size >= 20, core.isCorePoint(it, null));
+    }
+  }
+
+  /**
+   * Run parallel GDBSCAN with the grid neighbor predicate, and compare the
+   * result to a golden standard.
+   */
+  @Test
+  public void testGridParallelGDBSCANOnSingleLinkDataset() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(GeneralizedDBSCAN.Parameterizer.NEIGHBORHOODPRED_ID, GridNeighborPredicate.class);
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 11.5);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 120);
+    params.addFlag(GridNeighborPredicate.Parameterizer.CACHE_SIZES_ID);
+    ParallelGeneralizedDBSCAN dbscan = ClassGenericsUtil.parameterizeOrAbort(ParallelGeneralizedDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    // run DBSCAN on database
+    Clustering<Model> result = dbscan.run(db);
+    testClusterSizes(result, new int[] { 11, 200, 203, 224 });
+    testFMeasure(db, result, 0.954382);
+  }
+
+  /**
+   * The grid neighbor predicate must reject high-dimensional data.
+   */
+  @Test(expected = AbortException.class)
+  public void testGridTooManyDimensions() {
+    final int dim = GridNeighborPredicate.Instance.MAX_DIM + 1;
+    List<DoubleVector> data = new ArrayList<>();
+    data.add(new DoubleVector(new double[dim]));
+    VectorFieldTypeInformation<DoubleVector> type = new VectorFieldTypeInformation<>(DoubleVector.FACTORY, dim);
+    Database db = new StaticArrayDatabase(new MultipleObjectsBundleDatabaseConnection(MultipleObjectsBundle.makeSimple(type, data)), null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    new GridNeighborPredicate.Instance(1., EuclideanDistanceFunction.STATIC, rel, false);
+  }
+}
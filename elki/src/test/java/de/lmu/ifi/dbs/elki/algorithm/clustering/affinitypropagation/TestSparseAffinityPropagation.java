@@ -0,0 +1,100 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.affinitypropagation;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.DistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.MedoidModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Performs a full sparse affinity propagation run, and compares the result
+ * with a clustering derived from the data set labels.
+ * 
+ * @author Erich Schubert
+ */
+public class TestSparseAffinityPropagation extends AbstractSimpleAlgorithmTest implements JUnit4Test {
+  /**
+   * Run sparse affinity propagation with fixed parameters and compare the
+   * result to a golden standard.
+   */
+  @Test
+  public void testSparseAffinityPropagation() {
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d-no-noise.ascii", 1000);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DistanceBasedAlgorithm.DISTANCE_FUNCTION_ID, SquaredEuclideanDistanceFunction.class);
+    params.addParameter(SparseAffinityPropagation.Parameterizer.K_ID, 100);
+    params.addParameter(AffinityPropagationInitialization.QUANTILE_ID, 0.);
+    SparseAffinityPropagation<DoubleVector> ap = ClassGenericsUtil.parameterizeOrAbort(SparseAffinityPropagation.class, params);
+    testParameterizationOk(params);
+
+    Clustering<MedoidModel> result = ap.run(db);
+    testFMeasure(db, result, 0.6008115);
+    assertEquals("Number of clusters", 24, result.getAllClusters().size());
+  }
+
+  /**
+   * On the complete graph, the result must be the same as with the dense
+   * implementation.
+   */
+  @Test
+  public void testCompleteGraph() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DistanceBasedAlgorithm.DISTANCE_FUNCTION_ID, SquaredEuclideanDistanceFunction.class);
+    params.addParameter(SparseAffinityPropagation.Parameterizer.K_ID, 329);
+    SparseAffinityPropagation<DoubleVector> ap = ClassGenericsUtil.parameterizeOrAbort(SparseAffinityPropagation.class, params);
+    testParameterizationOk(params);
+    Clustering<MedoidModel> result = ap.run(db);
+
+    AffinityPropagationClusteringAlgorithm<DoubleVector> dense = ClassGenericsUtil.parameterizeOrAbort(AffinityPropagationClusteringAlgorithm.class, new ListParameterization());
+    Clustering<MedoidModel> expected = dense.run(db);
+
+    testFMeasure(db, result, 0.9572273);
+    List<Cluster<MedoidModel>> rc = result.getToplevelClusters(), ec = expected.getToplevelClusters();
+    assertEquals("Number of clusters", ec.size(), rc.size());
+    for(int i = 0; i < ec.size(); i++) {
+      assertEquals("Medoid differs.", ec.get(i).getModel().getMedoid(), rc.get(i).getModel().getMedoid());
+      assertEquals("Cluster differs.", ec.get(i).size(), rc.get(i).size());
+      assertEquals("Cluster differs.", 0, DBIDUtil.difference(ec.get(i).getIDs(), rc.get(i).getIDs()).size());
+    }
+  }
+}
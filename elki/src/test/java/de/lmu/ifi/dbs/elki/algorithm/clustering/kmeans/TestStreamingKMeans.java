@@ -0,0 +1,134 @@
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
+import de.lmu.ifi.dbs.elki.math.random.RandomFactory;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Run streaming k-means on a data file, and compare the resulting partitioning
+ * to the data set labels.
+ * 
+ * @author Erich Schubert
+ */
+public class TestStreamingKMeans extends AbstractSimpleAlgorithmTest implements JUnit4Test {
+  /**
+   * Run mini-batch k-means with fixed parameters and compare the result to a
+   * golden standard.
+   * 
+   * @throws IOException on file errors
+   */
+  @Test
+  public void testStreamingKMeans() throws IOException {
+    final String filename = UNITTEST + "different-densities-2d-no-noise.ascii";
+    Database db = makeSimpleDatabase(filename, 1000);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(KMeans.K_ID, 5);
+    params.addParameter(KMeans.SEED_ID, 2);
+    params.addParameter(StreamingKMeans.Parameterizer.BATCHSIZE_ID, 100);
+    params.addParameter(StreamingKMeans.Parameterizer.SAMPLESIZE_ID, 500);
+    StreamingKMeans kmeans = ClassGenericsUtil.parameterizeOrAbort(StreamingKMeans.class, params);
+    testParameterizationOk(params);
+
+    // Stream the data file.
+    NumberVectorLabelParser<?> parser = ClassGenericsUtil.parameterizeOrAbort(NumberVectorLabelParser.class, new ListParameterization());
+    FileInputStream in = new FileInputStream(filename);
+    parser.initStream(in);
+    double[][] means = kmeans.run(parser);
+    in.close();
+
+    // Assign the database objects to the nearest center.
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    List<ModifiableDBIDs> ids = new ArrayList<>(means.length);
+    for(int i = 0; i < means.length; i++) {
+      ids.add(DBIDUtil.newArray());
+    }
+    for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance()) {
+      DoubleVector vec = rel.get(iter);
+      int best = 0;
+      double bestd = Double.POSITIVE_INFINITY;
+      for(int i = 0; i < means.length; i++) {
+        double dist = 0.;
+        for(int d = 0; d < means[i].length; d++) {
+          double v = vec.doubleValue(d) - means[i][d];
+          dist += v * v;
+        }
+        if(dist < bestd) {
+          bestd = dist;
+          best = i;
+        }
+      }
+      ids.get(best).add(iter);
+    }
+    Clustering<Model> result = new Clustering<>("Streaming k-means", "streaming-kmeans");
+    for(ModifiableDBIDs c : ids) {
+      result.addToplevelCluster(new Cluster<Model>(c));
+    }
+    testFMeasure(db, result, 1.0);
+    testClusterSizes(result, new int[] { 200, 200, 200, 200, 200 });
+  }
+
+  /**
+   * Batch size smaller than k: the first batch is filled up to k points.
+   * 
+   * @throws IOException on file errors
+   */
+  @Test
+  public void testSmallBatches() throws IOException {
+    final String filename = UNITTEST + "different-densities-2d-no-noise.ascii";
+    StreamingKMeans kmeans = new StreamingKMeans(50, 10, 0, 0, new RandomFactory(1L));
+    NumberVectorLabelParser<?> parser = ClassGenericsUtil.parameterizeOrAbort(NumberVectorLabelParser.class, new ListParameterization());
+    FileInputStream in = new FileInputStream(filename);
+    parser.initStream(in);
+    double[][] means = kmeans.run(parser);
+    in.close();
+    assertEquals("Number of means does not match.", 50, means.length);
+    assertEquals("Number of processed points does not match.", 1000, kmeans.getProcessed());
+  }
+}
@@ -0,0 +1,127 @@
+package de.lmu.ifi.dbs.elki.algorithm.itemsetmining;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.BitVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.MultipleObjectsBundleDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.result.FrequentItemsetsResult;
+import de.lmu.ifi.dbs.elki.utilities.BitsUtil;
+
+/**
+ * Test FP-Growth against APRIORI.
+ * 
+ * @author Erich Schubert
+ */
+public class TestFPGrowth implements JUnit4Test {
+  /**
+   * Number of items and transactions.
+   */
+  static final int DIM = 25, SIZE = 2000;
+
+  /**
+   * Compare with APRIORI.
+   */
+  @Test
+  public void testFPGrowth() {
+    Relation<BitVector> rel = makeTransactions();
+    List<String> fp = itemsets(new FPGrowth(0.05, 0, Integer.MAX_VALUE).run(null, rel));
+    List<String> ap = itemsets(new APRIORI(0.05, 0, Integer.MAX_VALUE).run(rel));
+    assertTrue("Too few itemsets found.", fp.size() > 100);
+    assertEquals("FP-Growth does not agree with APRIORI.", ap, fp);
+  }
+
+  /**
+   * Test with length constraints.
+   */
+  @Test
+  public void testLengthConstraints() {
+    Relation<BitVector> rel = makeTransactions();
+    List<String> fp = itemsets(new FPGrowth(0.02, 2, 3).run(null, rel));
+    List<String> ap = itemsets(new APRIORI(0.02, 2, 3).run(rel));
+    assertEquals("FP-Growth does not agree with APRIORI.", ap, fp);
+  }
+
+  /**
+   * Build random transactions, with some planted frequent patterns.
+   * 
+   * @return Relation
+   */
+  static Relation<BitVector> makeTransactions() {
+    Random rnd = new Random(0L);
+    int[][] patterns = { { 0, 3, 7, 11 }, { 2, 3, 5 }, { 8, 13, 17, 19, 21 } };
+    List<BitVector> data = new ArrayList<>(SIZE);
+    for(int i = 0; i < SIZE; i++) {
+      long[] bits = BitsUtil.zero(DIM);
+      for(int[] pattern : patterns) {
+        if(rnd.nextDouble() < .2) {
+          for(int item : pattern) {
+            BitsUtil.setI(bits, item);
+          }
+        }
+      }
+      for(int d = 0; d < DIM; d++) {
+        // Skewed item frequencies
+        if(rnd.nextDouble() < .3 / (1 + d * .2)) {
+          BitsUtil.setI(bits, d);
+        }
+      }
+      data.add(new BitVector(bits, DIM));
+    }
+    VectorFieldTypeInformation<BitVector> type = new VectorFieldTypeInformation<>(BitVector.FACTORY, DIM);
+    MultipleObjectsBundle bundle = MultipleObjectsBundle.makeSimple(type, data);
+    Database db = new StaticArrayDatabase(new MultipleObjectsBundleDatabaseConnection(bundle), null);
+    db.initialize();
+    return db.getRelation(TypeUtil.BIT_VECTOR_FIELD);
+  }
+
+  /**
+   * Serialize the itemsets found.
+   * 
+   * @param res Result
+   * @return Itemsets as strings
+   */
+  static List<String> itemsets(FrequentItemsetsResult res) {
+    List<String> strs = new ArrayList<>(res.getItemsets().size());
+    for(Itemset itemset : res.getItemsets()) {
+      strs.add(itemset.toString());
+    }
+    return strs;
+  }
+}
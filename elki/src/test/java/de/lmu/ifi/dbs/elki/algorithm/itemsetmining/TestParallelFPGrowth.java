@@ -0,0 +1,71 @@
+package de.lmu.ifi.dbs.elki.algorithm.itemsetmining;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static de.lmu.ifi.dbs.elki.algorithm.itemsetmining.TestFPGrowth.itemsets;
+import static de.lmu.ifi.dbs.elki.algorithm.itemsetmining.TestFPGrowth.makeTransactions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.BitVector;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+
+/**
+ * Test the parallel FP-Growth against the serial implementations.
+ * 
+ * @author Erich Schubert
+ */
+public class TestParallelFPGrowth implements JUnit4Test {
+  /**
+   * Compare with FP-Growth and APRIORI.
+   */
+  @Test
+  public void testParallelFPGrowth() {
+    Relation<BitVector> rel = makeTransactions();
+    List<String> fp = itemsets(new FPGrowth(0.05, 0, Integer.MAX_VALUE).run(null, rel));
+    List<String> pfp = itemsets(new ParallelFPGrowth(0.05, 0, Integer.MAX_VALUE).run(null, rel));
+    List<String> ap = itemsets(new APRIORI(0.05, 0, Integer.MAX_VALUE).run(rel));
+    assertTrue("Too few itemsets found.", fp.size() > 100);
+    assertEquals("Parallel FP-Growth does not agree with FP-Growth.", fp, pfp);
+    assertEquals("Parallel FP-Growth does not agree with APRIORI.", ap, pfp);
+  }
+
+  /**
+   * Test with length constraints.
+   */
+  @Test
+  public void testLengthConstraints() {
+    Relation<BitVector> rel = makeTransactions();
+    List<String> fp = itemsets(new FPGrowth(0.02, 2, 3).run(null, rel));
+    List<String> pfp = itemsets(new ParallelFPGrowth(0.02, 2, 3).run(null, rel));
+    List<String> ap = itemsets(new APRIORI(0.02, 2, 3).run(rel));
+    assertEquals("Parallel FP-Growth does not agree with FP-Growth.", fp, pfp);
+    assertEquals("Parallel FP-Growth does not agree with APRIORI.", ap, pfp);
+  }
+}
@@ -30,6 +30,7 @@ import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.algorithm.outlier.distance.KNNOutlier;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
@@ -58,4 +59,24 @@ public class TestParallelKNNOutlier extends AbstractSimpleAlgorithmTest implemen
     testSingleScore(result, 945, 0.4793554700168577);
     testAUC(db, "Noise", result, 0.991462962962963);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testKNNOutlierWorkStealing() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+
+    // Parameterization
+    ListParameterization params = new ListParameterization();
+    params.addParameter(KNNOutlier.Parameterizer.K_ID, 1);
+    params.addFlag(ParallelExecutor.WORKSTEALING_ID);
+
+    // setup Algorithm
+    ParallelKNNOutlier<DoubleVector> knnOutlier = ClassGenericsUtil.parameterizeOrAbort(ParallelKNNOutlier.class, params);
+    testParameterizationOk(params);
+
+    // run KNNOutlier on database
+    OutlierResult result = knnOutlier.run(db);
+
+    testSingleScore(result, 945, 0.4793554700168577);
+    testAUC(db, "Noise", result, 0.991462962962963);
+  }
+}
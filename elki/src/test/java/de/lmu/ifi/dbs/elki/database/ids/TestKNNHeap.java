@@ -0,0 +1,141 @@
+package de.lmu.ifi.dbs.elki.database.ids;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+
+/**
+ * Test the kNN heap, including reuse and merging of sorted blocks.
+ * 
+ * @author Erich Schubert
+ */
+public class TestKNNHeap implements JUnit4Test {
+  /**
+   * Random seed.
+   */
+  private static final long SEED = 0L;
+
+  /**
+   * Number of objects.
+   */
+  private static final int SIZE = 1000;
+
+  @Test
+  public void testTiesAndReuse() {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(SIZE);
+    Random r = new Random(SEED);
+    double[] dists = new double[SIZE];
+    for(int i = 0; i < SIZE; i++) {
+      // Few distinct values, to produce many ties.
+      dists[i] = r.nextInt(50);
+    }
+    KNNHeap heap = DBIDUtil.newHeap(1);
+    for(int k : new int[] { 1, 10, 37, 5, 100 }) {
+      heap.reset(k);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        heap.insert(dists[ids.getOffset(it)], it);
+      }
+      assertEquals("Wrong k after reset.", k, heap.getK());
+      assertKNN(heap.toKNNList(), dists, ids, k);
+    }
+  }
+
+  @Test
+  public void testMergeSorted() {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(SIZE);
+    Random r = new Random(SEED);
+    double[] dists = new double[SIZE];
+    for(int i = 0; i < SIZE; i++) {
+      dists[i] = r.nextInt(200);
+    }
+    final int k = 20;
+    // Merge two sorted blocks, once into an empty and once into a filled heap.
+    ModifiableDoubleDBIDList a = DBIDUtil.newDistanceDBIDList(), b = DBIDUtil.newDistanceDBIDList();
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      ((ids.getOffset(it) & 1) == 0 ? a : b).add(dists[ids.getOffset(it)], it);
+    }
+    a.sort();
+    b.sort();
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    heap.mergeSorted(a);
+    heap.mergeSorted(b);
+    assertKNN(heap.toKNNList(), dists, ids, k);
+    // Rebuilding a heap from an existing result must not change it.
+    heap.reset(k);
+    heap.mergeSorted(a);
+    KNNList first = heap.toKNNList();
+    KNNList copy = DBIDUtil.newHeap(first).toKNNList();
+    assertEquals("Size changed", first.size(), copy.size());
+    for(int i = 0; i < first.size(); i++) {
+      assertEquals("Distance changed", first.get(i).doubleValue(), copy.get(i).doubleValue(), 0.);
+    }
+  }
+
+  @Test
+  public void testSqrt() {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(SIZE);
+    Random r = new Random(SEED);
+    double[] dists = new double[SIZE];
+    KNNHeap heap = DBIDUtil.newHeap(10);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      dists[ids.getOffset(it)] = r.nextDouble();
+      heap.insert(dists[ids.getOffset(it)] * dists[ids.getOffset(it)], it);
+    }
+    assertKNN(heap.toKNNListSqrt(), dists, ids, 10);
+  }
+
+  /**
+   * Validate a kNN result against the raw distances.
+   * 
+   * @param knn kNN result
+   * @param dists Distances
+   * @param ids Object ids
+   * @param k K parameter
+   */
+  private static void assertKNN(KNNList knn, double[] dists, DBIDRange ids, int k) {
+    double[] sorted = dists.clone();
+    Arrays.sort(sorted);
+    final double kdist = sorted[k - 1];
+    int expect = k;
+    while(expect < sorted.length && sorted[expect] == kdist) {
+      ++expect;
+    }
+    assertEquals("Wrong number of neighbors (ties included).", expect, knn.size());
+    assertEquals("Wrong k-distance.", kdist, knn.getKNNDistance(), 0.);
+    double prev = Double.NEGATIVE_INFINITY;
+    for(DoubleDBIDListIter it = knn.iter(); it.valid(); it.advance()) {
+      assertTrue("Not sorted.", it.doubleValue() >= prev);
+      assertEquals("Distance does not match object.", dists[ids.getOffset(it)], it.doubleValue(), 0.);
+      prev = it.doubleValue();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package de.lmu.ifi.dbs.elki.datasource.parser;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+
+/**
+ * Test that the parallel parser produces the same result as the serial
+ * parser, on a file large enough to be split into multiple blocks.
+ * 
+ * @author Erich Schubert
+ */
+public class TestParallelNumberVectorLabelParser implements JUnit4Test {
+  @Test
+  public void testSameAsSerial() throws IOException {
+    File file = File.createTempFile("elki-parser", ".csv");
+    try {
+      Random rnd = new Random(0L);
+      try (Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+        out.write("a,b,c,label\n");
+        for(int i = 0; i < 100000; i++) {
+          if(i % 1000 == 17) {
+            out.write("# comment line\n\n");
+          }
+          out.write(rnd.nextDouble() + "," + rnd.nextGaussian() + "," + (i % 13) + ",\"l" + (i % 7) + (i % 11 == 0 ? " x" : "") + "\"");
+          out.write(i % 5 == 0 ? "\r\n" : "\n");
+        }
+      }
+      MultipleObjectsBundle serial;
+      try (FileInputStream in = new FileInputStream(file)) {
+        serial = new NumberVectorLabelParser<>(DoubleVector.FACTORY).parse(in);
+      }
+      MultipleObjectsBundle parallel;
+      try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+        assertTrue("File is too small to test block splitting.", channel.size() > 2 << 20);
+        parallel = new ParallelNumberVectorLabelParser<>(DoubleVector.FACTORY).parse(channel);
+      }
+      assertEquals("Number of columns differs.", serial.metaLength(), parallel.metaLength());
+      assertEquals("Number of objects differs.", serial.dataLength(), parallel.dataLength());
+      assertEquals("Number of objects differs.", 100000, parallel.dataLength());
+      VectorFieldTypeInformation<?> type = (VectorFieldTypeInformation<?>) parallel.meta(0);
+      assertEquals("Dimensionality differs.", 3, type.getDimensionality());
+      for(int i = 0; i < serial.dataLength(); i++) {
+        DoubleVector v1 = (DoubleVector) serial.data(i, 0), v2 = (DoubleVector) parallel.data(i, 0);
+        for(int d = 0; d < 3; d++) {
+          assertEquals("Values differ in row " + i, v1.doubleValue(d), v2.doubleValue(d), 0.);
+        }
+        assertEquals("Labels differ in row " + i, serial.data(i, 1).toString(), parallel.data(i, 1).toString());
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package de.lmu.ifi.dbs.elki.distance.distancefunction;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.ManhattanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.MaximumDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.Vector;
+
+/**
+ * Validate the fast paths for dense {@link DoubleVector}s and
+ * {@link FloatVector}s against the generic implementations.
+ * 
+ * @author Erich Schubert
+ */
+public class DenseVectorDistanceFunctionTest implements JUnit4Test {
+  @Test
+  public void testDenseKernels() {
+    final Random rnd = new Random(0);
+    List<PrimitiveDistanceFunction<? super NumberVector>> dists = new ArrayList<>();
+    dists.add(EuclideanDistanceFunction.STATIC);
+    dists.add(SquaredEuclideanDistanceFunction.STATIC);
+    dists.add(ManhattanDistanceFunction.STATIC);
+    dists.add(MaximumDistanceFunction.STATIC);
+    dists.add(CosineDistanceFunction.STATIC);
+    dists.add(ArcCosineDistanceFunction.STATIC);
+    for(int i = 0; i < 1000; i++) {
+      // Include vectors of different length, and some high-dimensional ones.
+      final int maxdim = (i % 10 == 0) ? 200 : 20;
+      final int dim1 = 1 + rnd.nextInt(maxdim);
+      final int dim2 = (i % 2 == 0) ? dim1 : 1 + rnd.nextInt(maxdim);
+      float[] f1 = new float[dim1], f2 = new float[dim2];
+      double[] d1 = new double[dim1], d2 = new double[dim2];
+      for(int d = 0; d < dim1; d++) {
+        d1[d] = f1[d] = (float) ((rnd.nextDouble() - .5) * 200);
+      }
+      for(int d = 0; d < dim2; d++) {
+        d2[d] = f2[d] = (float) ((rnd.nextDouble() - .5) * 200);
+      }
+      FloatVector v1 = new FloatVector(f1), v2 = new FloatVector(f2);
+      DoubleVector w1 = new DoubleVector(d1), w2 = new DoubleVector(d2);
+      // Reference: generic code path.
+      Vector r1 = new Vector(d1), r2 = new Vector(d2);
+      for(PrimitiveDistanceFunction<? super NumberVector> dist : dists) {
+        final double expected = dist.distance(r1, r2);
+        final double eps = 1e-12 * Math.max(1., expected);
+        assertEquals("Float kernel differs for " + dist, expected, dist.distance(v1, v2), eps);
+        assertEquals("Double kernel differs for " + dist, expected, dist.distance(w1, w2), eps);
+      }
+    }
+  }
+}
@@ -30,12 +30,17 @@ import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.NeighborConsumer;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNSession;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeSession;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.CosineDistanceFunction;
@@ -145,6 +150,12 @@ public abstract class AbstractTestIndexStructures implements JUnit4Test {
         DoubleVector c2 = new DoubleVector(shouldc[i]);
         assertEquals("Expected vector doesn't match: " + c.toString(), 0.0, dist.distance(c, c2), 1e-15);
       }
+
+      // Sessions must return the same results, also when reused.
+      KNNSession<DoubleVector> session = knnq.newSession();
+      session.getKNNForObject(new DoubleVector(shouldc[0]), 2 * k);
+      assertSameResult(ids, session.getKNNForObject(dv, k));
+      assertEquals("Streaming result size does not match.", ids.size(), countStreamed(session, dv));
     }
     if(expectRangeQuery != null) {
       // Do a range query
@@ -164,6 +175,55 @@ public abstract class AbstractTestIndexStructures implements JUnit4Test {
         DoubleVector c2 = new DoubleVector(shouldc[i]);
         assertEquals("Expected vector doesn't match: " + c.toString(), 0.0, dist.distance(c, c2), 1e-15);
       }
+
+      // Sessions must return the same results, also when reused.
+      RangeSession<DoubleVector> session = rangeq.newSession();
+      session.getRangeForObject(dv, 2 * eps);
+      assertSameResult(ids, session.getRangeForObject(dv, eps));
+      final int[] count = new int[1];
+      session.getRangeForObject(dv, eps, new NeighborConsumer() {
+        @Override
+        public void accept(DBIDRef neighbor, double distance) {
+          assertTrue("Streamed neighbor out of range.", distance <= eps);
+          count[0]++;
+        }
+      });
+      assertEquals("Streaming result size does not match.", ids.size(), count[0]);
+    }
+  }
+
+  /**
+   * Count the neighbors streamed by a kNN session, verifying their order.
+   * 
+   * @param session Session
+   * @param dv Query vector
+   * @return Number of neighbors
+   */
+  private int countStreamed(KNNSession<DoubleVector> session, DoubleVector dv) {
+    final double[] prev = { Double.NEGATIVE_INFINITY, 0 };
+    session.getKNNForObject(dv, k, new NeighborConsumer() {
+      @Override
+      public void accept(DBIDRef neighbor, double distance) {
+        assertTrue("Neighbors not streamed in ascending order.", distance >= prev[0]);
+        prev[0] = distance;
+        prev[1]++;
+      }
+    });
+    return (int) prev[1];
+  }
+
+  /**
+   * Compare two query results.
+   * 
+   * @param expect Expected result
+   * @param got Actual result
+   */
+  private static void assertSameResult(DoubleDBIDList expect, DoubleDBIDList got) {
+    assertEquals("Session result size does not match.", expect.size(), got.size());
+    DoubleDBIDListIter it2 = got.iter();
+    for(DoubleDBIDListIter it = expect.iter(); it.valid(); it.advance(), it2.advance()) {
+      assertEquals("Session distance does not match.", it.doubleValue(), it2.doubleValue(), 1e-15);
+      assertTrue("Session neighbor does not match.", DBIDUtil.equal(it, it2));
     }
   }
 
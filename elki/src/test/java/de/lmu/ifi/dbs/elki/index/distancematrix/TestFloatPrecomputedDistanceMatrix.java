@@ -0,0 +1,113 @@
+package de.lmu.ifi.dbs.elki.index.distancematrix;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the single precision distance matrix, in memory and on disk.
+ * 
+ * @author Erich Schubert
+ */
+public class TestFloatPrecomputedDistanceMatrix implements JUnit4Test {
+  // the following values depend on the data set used!
+  static String dataset = "data/testdata/unittests/3clusters-and-noise-2d.csv";
+
+  // size of the data set
+  int shoulds = 330;
+
+  /**
+   * Test the in-memory matrix.
+   */
+  @Test
+  public void testInMemory() {
+    testMatrix(null);
+  }
+
+  /**
+   * Test the memory-mapped matrix.
+   */
+  @Test
+  public void testOnDisk() {
+    File file = new File("FloatPrecomputedDistanceMatrixTestFile.test.dat");
+    if(file.exists()) {
+      fail("Could not run test - test file already exists.");
+    }
+    try {
+      testMatrix(file);
+      assertTrue("Matrix file was not written.", file.exists());
+    }
+    finally {
+      if(file.exists() && !file.delete()) {
+        fail("Error cleaning up: can't remove test file.");
+      }
+    }
+  }
+
+  /**
+   * Actual test routine: compare all stored distances.
+   * 
+   * @param file File to store the matrix in, may be {@code null}
+   */
+  private void testMatrix(File file) {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, dataset);
+    Database db = ClassGenericsUtil.parameterizeOrAbort(StaticArrayDatabase.class, params);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    assertEquals("Data set size doesn't match parameters.", shoulds, rel.size());
+
+    FloatPrecomputedDistanceMatrix<DoubleVector> matrix = new FloatPrecomputedDistanceMatrix<>(rel, EuclideanDistanceFunction.STATIC, file);
+    matrix.initialize();
+    DistanceQuery<DoubleVector> mq = matrix.getDistanceQuery(EuclideanDistanceFunction.STATIC);
+    assertNotNull("Matrix not used for its distance function.", mq);
+    DistanceQuery<DoubleVector> dq = EuclideanDistanceFunction.STATIC.instantiate(rel);
+    for(DBIDIter ix = rel.iterDBIDs(); ix.valid(); ix.advance()) {
+      for(DBIDIter iy = rel.iterDBIDs(); iy.valid(); iy.advance()) {
+        final double exp = dq.distance(ix, iy);
+        assertEquals("Distance does not match.", exp, mq.distance(ix, iy), 1e-6 * exp);
+      }
+    }
+  }
+}
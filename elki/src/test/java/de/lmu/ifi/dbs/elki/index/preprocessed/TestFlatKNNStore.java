@@ -0,0 +1,184 @@
+package de.lmu.ifi.dbs.elki.index.preprocessed;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.FlatKNNStore;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.MaterializeKNNPreprocessor;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the flat kNN graph storage of the kNN preprocessor, including saving
+ * and loading the graph.
+ * 
+ * @author Erich Schubert
+ */
+public class TestFlatKNNStore implements JUnit4Test {
+  // the following values depend on the data set used!
+  static String dataset = "data/testdata/unittests/3clusters-and-noise-2d.csv";
+
+  // number of kNN to query
+  int k = 10;
+
+  // size of the data set
+  int shoulds = 330;
+
+  @Test
+  public void testFlatStorage() throws IOException {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, dataset);
+    Database db = ClassGenericsUtil.parameterizeOrAbort(StaticArrayDatabase.class, params);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    assertEquals("Data set size doesn't match parameters.", shoulds, rel.size());
+    DistanceQuery<DoubleVector> distq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    KNNQuery<DoubleVector> linq = new LinearScanDistanceKNNQuery<>(distq);
+
+    File file = File.createTempFile("elki-knn-graph", ".bin");
+    file.delete();
+    try {
+      // Compute and save.
+      MaterializeKNNPreprocessor<DoubleVector> flat = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k, true, false, file, false);
+      flat.initialize();
+      assertTrue("Graph file was not written.", file.exists());
+      compare(rel, linq, flat, 0.);
+
+      // Load from the file.
+      MaterializeKNNPreprocessor<DoubleVector> loaded = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k, true, false, file, false);
+      loaded.initialize();
+      compare(rel, linq, loaded, 0.);
+      // Graph for a different k must not be loaded.
+      MaterializeKNNPreprocessor<DoubleVector> other = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k - 2, true, false, file, false);
+      other.initialize();
+      compare(rel, linq, other, 0.);
+    }
+    finally {
+      file.delete();
+    }
+
+    // Single precision distances.
+    MaterializeKNNPreprocessor<DoubleVector> single = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k, true, true, null, false);
+    single.initialize();
+    compare(rel, linq, single, 1e-6);
+
+    // Parallel materialization.
+    MaterializeKNNPreprocessor<DoubleVector> par = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k, true, false, null, true);
+    par.initialize();
+    compare(rel, linq, par, 0.);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, dataset);
+    Database db = ClassGenericsUtil.parameterizeOrAbort(StaticArrayDatabase.class, params);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> distq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    KNNQuery<DoubleVector> linq = new LinearScanDistanceKNNQuery<>(distq);
+
+    ArrayDBIDs ids = DBIDUtil.ensureArray(rel.getDBIDs());
+    FlatKNNStore store = new FlatKNNStore(ids, k, true);
+    for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance()) {
+      if(DBIDUtil.asInteger(iter) % 10 != 0) {
+        store.put(iter, linq.getKNNForDBID(iter, k));
+        continue;
+      }
+      // Ties at the k-distance, to also exercise the overflow lists.
+      KNNList knn = linq.getKNNForDBID(iter, k + 2);
+      KNNHeap heap = DBIDUtil.newHeap(k);
+      for(DoubleDBIDListIter it = knn.iter(); it.valid(); it.advance()) {
+        heap.insert(knn.getKNNDistance(), it);
+      }
+      store.put(iter, heap.toKNNList());
+    }
+    final long fingerprint = FlatKNNStore.fingerprint(rel, ids);
+    File file = File.createTempFile("elki-knn-graph", ".bin");
+    try {
+      store.save(file, fingerprint);
+      assertNull("Graph of different data was loaded.", FlatKNNStore.load(file, ids, k, fingerprint + 1));
+      FlatKNNStore loaded = FlatKNNStore.load(file, ids, k, fingerprint);
+      assertTrue("Single precision flag lost.", loaded.isSinglePrecision());
+      for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance()) {
+        KNNList a = store.get(iter), b = loaded.get(iter);
+        assertEquals("Sizes differ.", a.size(), b.size());
+        assertEquals("k differs.", k, b.getK());
+        for(DoubleDBIDListIter ia = a.iter(), ib = b.iter(); ia.valid(); ia.advance(), ib.advance()) {
+          assertEquals("Distances differ.", ia.doubleValue(), ib.doubleValue(), 0.);
+        }
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Compare the preprocessor to a linear scan.
+   * 
+   * @param rel Relation
+   * @param linq Linear scan query
+   * @param preproc Preprocessor
+   * @param eps Tolerance
+   */
+  private void compare(Relation<DoubleVector> rel, KNNQuery<DoubleVector> linq, MaterializeKNNPreprocessor<DoubleVector> preproc, double eps) {
+    final int k = preproc.getK();
+    for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance()) {
+      KNNList lin = linq.getKNNForDBID(iter, k);
+      KNNList pre = preproc.get(iter);
+      assertEquals("kNN sizes do not agree.", lin.size(), pre.size());
+      assertEquals("kNN distances do not agree.", lin.getKNNDistance(), pre.getKNNDistance(), eps);
+      for(DoubleDBIDListIter l = lin.iter(), p = pre.iter(); l.valid(); l.advance(), p.advance()) {
+        assertEquals("kNN distances do not agree.", l.doubleValue(), p.doubleValue(), eps);
+        assertTrue("kNN list does not contain neighbor.", pre.contains(l) || l.doubleValue() >= pre.getKNNDistance() - eps);
+      }
+    }
+  }
+}
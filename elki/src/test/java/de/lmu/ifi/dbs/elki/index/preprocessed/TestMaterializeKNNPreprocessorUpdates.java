@@ -0,0 +1,153 @@
+package de.lmu.ifi.dbs.elki.index.preprocessed;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.VectorUtil;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.AbstractDatabase;
+import de.lmu.ifi.dbs.elki.database.HashmapDatabase;
+import de.lmu.ifi.dbs.elki.database.UpdatableDatabase;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.KNNChangeEvent;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.KNNListener;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.MaterializeKNNPreprocessor;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.persistent.AbstractPageFileFactory;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the index-assisted incremental updates of the kNN preprocessor.
+ * 
+ * @author Erich Schubert
+ */
+public class TestMaterializeKNNPreprocessorUpdates implements JUnit4Test {
+  // the following values depend on the data set used!
+  static String dataset = "data/testdata/unittests/3clusters-and-noise-2d.csv";
+
+  // number of kNN to query
+  int k = 10;
+
+  // the size of objects inserted
+  int updatesize = 50;
+
+  int seed = 5;
+
+  @Test
+  public void testIndexedInsertion() {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, dataset);
+    params.addParameter(AbstractDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    params.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    UpdatableDatabase db = ClassGenericsUtil.parameterizeOrAbort(HashmapDatabase.class, params);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> distq = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    assertNotNull("No index range query.", db.getRangeQuery(distq, DatabaseQuery.HINT_OPTIMIZED_ONLY));
+    KNNQuery<DoubleVector> linq = new LinearScanDistanceKNNQuery<>(distq);
+
+    MaterializeKNNPreprocessor<DoubleVector> preproc = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k);
+    preproc.initialize();
+    db.addIndex(preproc);
+    final List<KNNChangeEvent> events = new ArrayList<>();
+    preproc.addKNNListener(new KNNListener() {
+      @Override
+      public void kNNsChanged(KNNChangeEvent e) {
+        events.add(e);
+      }
+    });
+
+    // Remember the old k-distances.
+    WritableDoubleDataStore kdists = DataStoreUtil.makeDoubleStorage(rel.getDBIDs(), DataStoreFactory.HINT_TEMP);
+    for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance()) {
+      kdists.putDouble(iter, preproc.get(iter).getKNNDistance());
+    }
+    DBIDs oldids = DBIDUtil.newHashSet(rel.getDBIDs());
+
+    // Insert a batch of new objects.
+    List<DoubleVector> insertions = new ArrayList<>();
+    NumberVector.Factory<DoubleVector> o = RelationUtil.getNumberVectorFactory(rel);
+    Random random = new Random(seed);
+    for(int i = 0; i < updatesize; i++) {
+      insertions.add(VectorUtil.randomVector(o, RelationUtil.dimensionality(rel), random));
+    }
+    DBIDs newids = db.insert(MultipleObjectsBundle.makeSimple(rel.getDataTypeInformation(), insertions));
+
+    // Expected updates: old objects with a new object within their k-distance.
+    ModifiableDBIDs expected = DBIDUtil.newHashSet();
+    for(DBIDIter iter = oldids.iter(); iter.valid(); iter.advance()) {
+      for(DBIDIter n = newids.iter(); n.valid(); n.advance()) {
+        if(distq.distance(iter, n) <= kdists.doubleValue(iter)) {
+          expected.add(iter);
+          break;
+        }
+      }
+    }
+    assertEquals("Number of events.", 1, events.size());
+    DBIDs updates = events.get(0).getUpdates();
+    assertEquals("Number of updated kNN lists.", expected.size(), updates.size());
+    for(DBIDIter iter = updates.iter(); iter.valid(); iter.advance()) {
+      assertTrue("Unexpected update.", expected.contains(iter));
+    }
+
+    // Verify all kNN lists.
+    for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance()) {
+      KNNList lin = linq.getKNNForDBID(iter, k), pre = preproc.get(iter);
+      assertEquals("kNN sizes do not agree.", lin.size(), pre.size());
+      for(DoubleDBIDListIter l = lin.iter(), p = pre.iter(); l.valid(); l.advance(), p.advance()) {
+        assertEquals("kNN distances do not agree.", l.doubleValue(), p.doubleValue(), 0.);
+      }
+    }
+  }
+}
@@ -96,6 +96,28 @@ public class TestMaterializedKNNAndRKNNPreprocessor implements JUnit4Test {
    */
   @Test
   public void testPreprocessor() throws ParameterException, UnableToComplyException {
+    testPreprocessor(false);
+  }
+
+  /**
+   * Test the parallel materialization.
+   * 
+   * @throws ParameterException
+   * @throws UnableToComplyException
+   */
+  @Test
+  public void testParallelPreprocessor() throws ParameterException, UnableToComplyException {
+    testPreprocessor(true);
+  }
+
+  /**
+   * Actual test routine.
+   * 
+   * @param parallel Materialize in parallel
+   * @throws ParameterException
+   * @throws UnableToComplyException
+   */
+  private void testPreprocessor(boolean parallel) throws ParameterException, UnableToComplyException {
     ListParameterization params = new ListParameterization();
     params.addParameter(FileBasedDatabaseConnection.Parameterizer.INPUT_ID, dataset);
 
@@ -116,7 +138,7 @@ public class TestMaterializedKNNAndRKNNPreprocessor implements JUnit4Test {
     ListParameterization config = new ListParameterization();
     config.addParameter(MaterializeKNNPreprocessor.Factory.DISTANCE_FUNCTION_ID, distanceQuery.getDistanceFunction());
     config.addParameter(MaterializeKNNPreprocessor.Factory.K_ID, k);
-    MaterializeKNNAndRKNNPreprocessor<DoubleVector> preproc = new MaterializeKNNAndRKNNPreprocessor<>(rep, distanceQuery.getDistanceFunction(), k);
+    MaterializeKNNAndRKNNPreprocessor<DoubleVector> preproc = new MaterializeKNNAndRKNNPreprocessor<>(rep, distanceQuery.getDistanceFunction(), k, parallel);
     KNNQuery<DoubleVector> preproc_knn_query = preproc.getKNNQuery(distanceQuery, k);
     RKNNQuery<DoubleVector> preproc_rknn_query = preproc.getRKNNQuery(distanceQuery);
     // add as index
@@ -0,0 +1,72 @@
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+
+/**
+ * Unit test for the parallel STR bulk split.
+ * 
+ * @author Erich Schubert
+ */
+public class TestParallelSortTileRecursiveBulkSplit implements JUnit4Test {
+  /**
+   * The parallel partitioning must produce the same partitions as the serial
+   * version.
+   */
+  @Test
+  public void testSameAsSerial() {
+    final int size = 50000, dim = 3;
+    Random r = new Random(0L);
+    List<SpatialComparable> data = new ArrayList<>(size);
+    for(int i = 0; i < size; i++) {
+      double[] v = new double[dim];
+      for(int d = 0; d < dim; d++) {
+        v[d] = r.nextDouble();
+      }
+      data.add(new DoubleVector(v));
+    }
+    List<List<SpatialComparable>> ser = SortTileRecursiveBulkSplit.STATIC.partition(new ArrayList<>(data), 20, 50);
+    List<List<SpatialComparable>> par = ParallelSortTileRecursiveBulkSplit.STATIC.partition(new ArrayList<>(data), 20, 50);
+    assertEquals("Number of partitions differs.", ser.size(), par.size());
+    for(int i = 0; i < ser.size(); i++) {
+      List<SpatialComparable> s = ser.get(i), p = par.get(i);
+      assertEquals("Partition size differs.", s.size(), p.size());
+      for(int j = 0; j < s.size(); j++) {
+        assertSame("Partition contents differ.", s.get(j), p.get(j));
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package de.lmu.ifi.dbs.elki.math.geometry;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree.Adapter;
+import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree.Collector;
+
+/**
+ * Test the parallel Prim's algorithm against the serial version.
+ * 
+ * @author Erich Schubert
+ */
+public class TestParallelPrimsMinimumSpanningTree implements JUnit4Test {
+  @Test
+  public void testRandom() {
+    Random r = new Random(0L);
+    final int n = 1000;
+    // Rounded coordinates, to produce ties.
+    final double[][] data = new double[n][2];
+    for(int i = 0; i < n; i++) {
+      data[i][0] = Math.round(r.nextDouble() * 50);
+      data[i][1] = Math.round(r.nextDouble() * 50);
+    }
+    final Adapter<double[][]> adapter = new Adapter<double[][]>() {
+      @Override
+      public double distance(double[][] data, int i, int j) {
+        final double dx = data[i][0] - data[j][0], dy = data[i][1] - data[j][1];
+        return Math.sqrt(dx * dx + dy * dy);
+      }
+
+      @Override
+      public int size(double[][] data) {
+        return data.length;
+      }
+    };
+    EdgeCollector serial = new EdgeCollector(n);
+    PrimsMinimumSpanningTree.processDense(data, adapter, serial);
+    for(int threads : new int[] { 1, 2, 3, 7 }) {
+      EdgeCollector parallel = new EdgeCollector(n);
+      ParallelPrimsMinimumSpanningTree.processDense(data, new ParallelPrimsMinimumSpanningTree.AdapterFactory<double[][]>() {
+        @Override
+        public Adapter<double[][]> instantiate() {
+          return adapter;
+        }
+      }, parallel, threads);
+      assertEquals("Number of edges", n - 1, parallel.pos);
+      assertArrayEquals("Edges differ with " + threads + " threads.", serial.edges, parallel.edges);
+      assertArrayEquals("Lengths differ with " + threads + " threads.", serial.lengths, parallel.lengths, 0.);
+    }
+  }
+
+  /**
+   * Collect edges in order.
+   * 
+   * @author Erich Schubert
+   */
+  private static class EdgeCollector implements Collector {
+    int[] edges;
+
+    double[] lengths;
+
+    int pos = 0;
+
+    EdgeCollector(int n) {
+      edges = new int[(n - 1) << 1];
+      lengths = new double[n - 1];
+    }
+
+    @Override
+    public void addEdge(double length, int i, int j) {
+      lengths[pos] = length;
+      edges[pos << 1] = i;
+      edges[(pos << 1) + 1] = j;
+      ++pos;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.index.AbstractTestIndexStructures;
+import de.lmu.ifi.dbs.elki.index.PagedIndexFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeKNNQuery;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeRangeQuery;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the file channel page file, by building an R*-tree on disk.
+ * 
+ * @author Erich Schubert
+ */
+public class TestFileChannelPageFile extends AbstractTestIndexStructures {
+  /**
+   * Test with positional reads.
+   * 
+   * @throws IOException on errors creating the temporary file
+   */
+  @Test
+  public void testFileChannel() throws IOException {
+    runTest(false);
+  }
+
+  /**
+   * Test with memory mapping, behind a striped cache.
+   * 
+   * @throws IOException on errors creating the temporary file
+   */
+  @Test
+  public void testMemoryMappedCached() throws IOException {
+    runTest(true);
+  }
+
+  /**
+   * Run the index test.
+   * 
+   * @param mmap Use memory mapping and a cache
+   * @throws IOException on errors creating the temporary file
+   */
+  private void runTest(boolean mmap) throws IOException {
+    File file = File.createTempFile("elki-pagefile", ".dat");
+    try {
+      file.delete(); // Must not exist yet.
+      ListParameterization spatparams = new ListParameterization();
+      spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+      if(mmap) {
+        spatparams.addParameter(PagedIndexFactory.Parameterizer.PAGEFILE_ID, StripedClockCachePageFileFactory.class);
+        spatparams.addParameter(LRUCachePageFileFactory.Parameterizer.PAGEFILE_ID, FileChannelPageFileFactory.class);
+        spatparams.addParameter(LRUCachePageFileFactory.Parameterizer.CACHE_SIZE_ID, 3000L);
+        spatparams.addFlag(FileChannelPageFileFactory.Parameterizer.MMAP_ID);
+      }
+      else {
+        spatparams.addParameter(PagedIndexFactory.Parameterizer.PAGEFILE_ID, FileChannelPageFileFactory.class);
+      }
+      spatparams.addParameter(PersistentPageFileFactory.Parameterizer.FILE_ID, file);
+      spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+      testExactEuclidean(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+    }
+    finally {
+      file.delete();
+    }
+  }
+}
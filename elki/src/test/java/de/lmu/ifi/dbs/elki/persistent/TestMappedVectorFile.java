@@ -0,0 +1,119 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.MappedVectorRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.MappedVectorDatabaseConnection;
+
+/**
+ * Test to validate proper MappedVectorFile operation.
+ * 
+ * @author Erich Schubert
+ */
+public class TestMappedVectorFile implements JUnit4Test {
+  File file = new File("MappedVectorFileTestFile.test.dat");
+
+  /**
+   * Check that we don't overwrite any file.
+   * 
+   * @throws Exception on errors.
+   */
+  @Before
+  public void safetyCheck() throws Exception {
+    if(file.exists()) {
+      Assert.fail("Could not run test - test file already exists.");
+    }
+  }
+
+  /**
+   * Clean up afterwards
+   * 
+   * @throws Exception on errors.
+   */
+  @After
+  public void cleanup() throws Exception {
+    if(file != null && file.exists()) {
+      if(!file.delete()) {
+        Assert.fail("Error cleaning up: can't remove test file.");
+      }
+    }
+  }
+
+  /**
+   * Test writing and reading a vector file, and loading it into a database.
+   * 
+   * @throws IOException on errors.
+   */
+  @Test
+  public void dotestMappedVectorFile() throws IOException {
+    final int dim = 3, size = 100;
+    MappedVectorFile out = new MappedVectorFile(file, dim, size);
+    double[] buf = new double[dim];
+    for(int i = 0; i < size; i++) {
+      for(int d = 0; d < dim; d++) {
+        buf[d] = i * 10 + d;
+      }
+      out.set(i, buf);
+    }
+    out.close();
+    Assert.assertEquals("File size doesn't match.", MappedVectorFile.HEADER_SIZE + size * dim * 8, file.length());
+
+    MappedVectorFile in = new MappedVectorFile(file, false);
+    Assert.assertEquals("Dimensionality incorrect.", dim, in.getDimensionality());
+    Assert.assertEquals("Number of vectors incorrect.", size, in.size());
+    Assert.assertEquals("Value doesn't match.", 421., in.get(42, 1), 0.);
+    in.get(99, buf);
+    Assert.assertArrayEquals("Vector doesn't match.", new double[] { 990., 991., 992. }, buf, 0.);
+    in.close();
+
+    StaticArrayDatabase db = new StaticArrayDatabase(new MappedVectorDatabaseConnection(file), null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    Assert.assertTrue("Mapped data was copied.", rel instanceof MappedVectorRelation);
+    Assert.assertEquals("Relation size incorrect.", size, rel.size());
+    int i = 0;
+    for(DBIDIter iter = rel.iterDBIDs(); iter.valid(); iter.advance(), i++) {
+      NumberVector vec = rel.get(iter);
+      Assert.assertEquals("Dimensionality incorrect.", dim, vec.getDimensionality());
+      for(int d = 0; d < dim; d++) {
+        Assert.assertEquals("Value doesn't match.", i * 10 + d, vec.doubleValue(d), 0.);
+      }
+    }
+    ((MappedVectorRelation) rel).getFile().close();
+  }
+}
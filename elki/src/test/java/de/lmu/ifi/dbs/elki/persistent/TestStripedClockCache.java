@@ -0,0 +1,162 @@
+package de.lmu.ifi.dbs.elki.persistent;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+
+/**
+ * Test the striped CLOCK page cache.
+ * 
+ * @author Erich Schubert
+ */
+public class TestStripedClockCache implements JUnit4Test {
+  /**
+   * Page size used.
+   */
+  private static final int PAGESIZE = 1024;
+
+  /**
+   * Number of pages written.
+   */
+  private static final int PAGES = 500;
+
+  /**
+   * Build a cache holding 32 pages, and fill it.
+   * 
+   * @return Cache
+   */
+  private StripedClockCache<TestPage> makeCache() {
+    StripedClockCache<TestPage> cache = new StripedClockCache<>(32 * PAGESIZE, 4, new MemoryPageFile<TestPage>(PAGESIZE));
+    cache.initialize(new DefaultPageHeader(PAGESIZE));
+    for(int i = 0; i < PAGES; i++) {
+      Assert.assertEquals("Page ids not assigned in order.", i, cache.writePage(new TestPage(i * 3)));
+    }
+    return cache;
+  }
+
+  /**
+   * Evicted pages must be written back.
+   */
+  @Test
+  public void testWriteBack() {
+    StripedClockCache<TestPage> cache = makeCache();
+    for(int i = 0; i < PAGES; i++) {
+      Assert.assertEquals("Page contents lost.", i * 3, cache.readPage(i).value);
+    }
+    cache.deletePage(5);
+    Assert.assertNull("Deleted page still present.", cache.readPage(5));
+    cache.close();
+  }
+
+  /**
+   * Concurrent readers.
+   * 
+   * @throws InterruptedException when interrupted
+   */
+  @Test
+  public void testConcurrentReads() throws InterruptedException {
+    final StripedClockCache<TestPage> cache = makeCache();
+    final AtomicInteger errors = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for(int t = 0; t < threads.length; t++) {
+      final long seed = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          Random r = new Random(seed);
+          for(int i = 0; i < 20000; i++) {
+            int p = r.nextInt(PAGES);
+            TestPage page = cache.readPage(p);
+            if(page == null || page.value != p * 3) {
+              errors.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(Thread t : threads) {
+      t.join();
+    }
+    Assert.assertEquals("Concurrent reads returned wrong pages.", 0, errors.get());
+  }
+
+  /**
+   * Minimal page class.
+   * 
+   * @author Erich Schubert
+   */
+  private static class TestPage implements Page {
+    /**
+     * Page id.
+     */
+    int id = -1;
+
+    /**
+     * Dirty flag.
+     */
+    boolean dirty;
+
+    /**
+     * Page contents.
+     */
+    int value;
+
+    /**
+     * Constructor.
+     * 
+     * @param value Page contents
+     */
+    TestPage(int value) {
+      super();
+      this.value = value;
+    }
+
+    @Override
+    public int getPageID() {
+      return id;
+    }
+
+    @Override
+    public void setPageID(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean isDirty() {
+      return dirty;
+    }
+
+    @Override
+    public void setDirty(boolean dirty) {
+      this.dirty = dirty;
+    }
+  }
+}
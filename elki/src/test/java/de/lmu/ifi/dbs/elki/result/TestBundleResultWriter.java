@@ -0,0 +1,123 @@
+package de.lmu.ifi.dbs.elki.result;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeans;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansLloyd;
+import de.lmu.ifi.dbs.elki.algorithm.outlier.lof.LOF;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.KMeansModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleReader;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Write outlier scores and a clustering as binary bundles, and read them back.
+ * 
+ * @author Erich Schubert
+ */
+public class TestBundleResultWriter extends AbstractSimpleAlgorithmTest implements JUnit4Test {
+  @Test
+  public void testWriteAndRead() throws IOException {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-axis-subspaces-6d.ascii", 1345);
+
+    ListParameterization params = new ListParameterization();
+    params.addParameter(LOF.Parameterizer.K_ID, 10);
+    LOF<DoubleVector> lof = ClassGenericsUtil.parameterizeOrAbort(LOF.class, params);
+    OutlierResult scores = lof.run(db);
+    db.getHierarchy().add(db, scores);
+
+    params = new ListParameterization();
+    params.addParameter(KMeans.K_ID, 3);
+    params.addParameter(KMeans.SEED_ID, 0);
+    KMeansLloyd<DoubleVector> km = ClassGenericsUtil.parameterizeOrAbort(KMeansLloyd.class, params);
+    Clustering<KMeansModel> clustering = km.run(db);
+    db.getHierarchy().add(db, clustering);
+
+    File file = File.createTempFile("elki-result", ".bundle");
+    File second = new File(file.getParentFile(), file.getName().replace(".bundle", "-1.bundle"));
+    try {
+      BundleResultWriter writer = new BundleResultWriter(file, false);
+      writer.processNewResult(db, scores);
+      writer.processNewResult(db, clustering);
+
+      // Outlier scores:
+      DoubleRelation rel = scores.getScores();
+      DBIDVar var = DBIDUtil.newVar();
+      int count = 0;
+      try (FileInputStream in = new FileInputStream(file)) {
+        BundleReader reader = new BundleReader(in.getChannel());
+        assertEquals("Wrong number of columns.", 1, reader.getMeta().size());
+        for(BundleStreamSource.Event ev = reader.nextEvent(); ev != BundleStreamSource.Event.END_OF_STREAM; ev = reader.nextEvent()) {
+          if(ev != BundleStreamSource.Event.NEXT_OBJECT) {
+            continue;
+          }
+          assertTrue("No DBIDs in bundle.", reader.assignDBID(var));
+          assertEquals("Score does not match.", rel.doubleValue(var), ((Double) reader.data(0)).doubleValue(), 0.);
+          ++count;
+        }
+      }
+      assertEquals("Wrong number of objects.", 1345, count);
+
+      // Cluster assignment:
+      int[] sizes = new int[3];
+      try (FileInputStream in = new FileInputStream(second)) {
+        BundleReader reader = new BundleReader(in.getChannel());
+        assertEquals("Wrong number of columns.", 1, reader.getMeta().size());
+        for(BundleStreamSource.Event ev = reader.nextEvent(); ev != BundleStreamSource.Event.END_OF_STREAM; ev = reader.nextEvent()) {
+          if(ev == BundleStreamSource.Event.NEXT_OBJECT) {
+            ++sizes[((Integer) reader.data(0)).intValue()];
+          }
+        }
+      }
+      int i = 0;
+      for(Cluster<KMeansModel> clus : clustering.getAllClusters()) {
+        assertEquals("Cluster size does not match.", clus.size(), sizes[i++]);
+      }
+    }
+    finally {
+      file.delete();
+      second.delete();
+    }
+  }
+}
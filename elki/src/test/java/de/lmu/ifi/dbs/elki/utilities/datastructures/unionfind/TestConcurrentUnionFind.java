@@ -0,0 +1,99 @@
+package de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind;
+
+/*
+ This file is part of ELKI:
+ Environment for Developing KDD-Applications Supported by Index-Structures
+
+ Copyright (C) 2014
+ Ludwig-Maximilians-Universität München
+ Lehr- und Forschungseinheit für Datenbanksysteme
+ ELKI Development Team
+
+ This program is free software: you can redistribute it and/or modify
+ it under the terms of the GNU Affero General Public License as published by
+ the Free Software Foundation, either version 3 of the License, or
+ (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU Affero General Public License for more details.
+
+ You should have received a copy of the GNU Affero General Public License
+ along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.JUnit4Test;
+
+/**
+ * Test the concurrent union-find data structure.
+ * 
+ * @author Erich Schubert
+ */
+public class TestConcurrentUnionFind implements JUnit4Test {
+  @Test
+  public void testSimple() {
+    ConcurrentUnionFind uf = new ConcurrentUnionFind(6);
+    assertTrue(uf.union(4, 2));
+    assertTrue(uf.union(5, 3));
+    assertFalse(uf.union(2, 4));
+    assertTrue(uf.union(5, 4));
+    assertEquals(2, uf.find(3));
+    assertEquals(2, uf.find(5));
+    assertTrue(uf.isConnected(3, 4));
+    assertFalse(uf.isConnected(0, 1));
+    assertTrue(uf.isRoot(2));
+    assertFalse(uf.isRoot(4));
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    final int size = 10000, threads = 4;
+    // Join everything modulo 7, in random order from multiple threads.
+    final ConcurrentUnionFind uf = new ConcurrentUnionFind(size);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for(int t = 0; t < threads; t++) {
+        final long seed = t;
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            Random r = new Random(seed);
+            for(int k = 0; k < size; k++) {
+              int i = r.nextInt(size), j = r.nextInt(size / 7) * 7 + (i % 7);
+              uf.union(i, j < size ? j : i % 7);
+            }
+            for(int i = 0; i < size; i++) {
+              uf.union(i, i % 7);
+            }
+            return null;
+          }
+        }));
+      }
+      for(Future<Void> f : futures) {
+        f.get();
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+    for(int i = 0; i < size; i++) {
+      assertEquals(i % 7, uf.find(i));
+    }
+  }
+}